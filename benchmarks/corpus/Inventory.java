@@ -0,0 +1,157 @@
+import org.checkerframework.checker.nullness.qual.KeyFor;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.checker.nullness.qual.RequiresNonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Stock levels of items in several warehouses. */
+public class Inventory {
+
+    public static class Item {
+        private final String sku;
+        private final @Nullable String description;
+        private final int priceCents;
+
+        public Item(String sku, @Nullable String description, int priceCents) {
+            this.sku = sku;
+            this.description = description;
+            this.priceCents = priceCents;
+        }
+
+        public String getSku() {
+            return sku;
+        }
+
+        public String getLabel() {
+            String desc = description;
+            return desc == null ? sku : sku + " (" + desc + ")";
+        }
+
+        public int getPriceCents() {
+            return priceCents;
+        }
+    }
+
+    private final Map<String, Item> items = new HashMap<>();
+    private final Map<String, Map<String, Integer>> stock = new HashMap<>();
+    private @Nullable String defaultWarehouse;
+
+    public void addItem(Item item) {
+        items.put(item.getSku(), item);
+    }
+
+    public void setDefaultWarehouse(@Nullable String warehouse) {
+        this.defaultWarehouse = warehouse;
+    }
+
+    public void receive(String warehouse, String sku, int quantity) {
+        if (!items.containsKey(sku)) {
+            throw new IllegalArgumentException("unknown item " + sku);
+        }
+        Map<String, Integer> levels = stock.get(warehouse);
+        if (levels == null) {
+            levels = new HashMap<>();
+            stock.put(warehouse, levels);
+        }
+        Integer current = levels.get(sku);
+        levels.put(sku, (current == null ? 0 : current) + quantity);
+    }
+
+    public int quantity(String warehouse, String sku) {
+        Map<String, Integer> levels = stock.get(warehouse);
+        if (levels == null) {
+            return 0;
+        }
+        Integer current = levels.get(sku);
+        return current == null ? 0 : current;
+    }
+
+    public int quantity(String sku) {
+        String warehouse = defaultWarehouse;
+        if (warehouse != null) {
+            return quantity(warehouse, sku);
+        }
+        int total = 0;
+        for (String name : stock.keySet()) {
+            total += quantity(name, sku);
+        }
+        return total;
+    }
+
+    @RequiresNonNull("defaultWarehouse")
+    public boolean ship(String sku, int quantity) {
+        Map<String, Integer> levels = stock.get(defaultWarehouse);
+        if (levels == null) {
+            return false;
+        }
+        Integer current = levels.get(sku);
+        if (current == null || current < quantity) {
+            return false;
+        }
+        levels.put(sku, current - quantity);
+        return true;
+    }
+
+    public long value() {
+        long total = 0;
+        for (Map.Entry<String, Map<String, Integer>> warehouse : stock.entrySet()) {
+            for (Map.Entry<String, Integer> level : warehouse.getValue().entrySet()) {
+                Item item = items.get(level.getKey());
+                if (item != null) {
+                    total += (long) item.getPriceCents() * level.getValue();
+                }
+            }
+        }
+        return total;
+    }
+
+    public List<Item> lowStock(int threshold) {
+        List<Item> result = new ArrayList<>();
+        for (@KeyFor("items") String sku : items.keySet()) {
+            if (quantity(sku) < threshold) {
+                result.add(items.get(sku));
+            }
+        }
+        Collections.sort(result, new Comparator<Item>() {
+            @Override
+            public int compare(Item a, Item b) {
+                return a.getSku().compareTo(b.getSku());
+            }
+        });
+        return result;
+    }
+
+    public @Nullable Item mostValuable() {
+        Item best = null;
+        for (Item item : items.values()) {
+            if (best == null || item.getPriceCents() > best.getPriceCents()) {
+                best = item;
+            }
+        }
+        return best;
+    }
+
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        List<String> names = new ArrayList<>(stock.keySet());
+        Collections.sort(names);
+        for (String name : names) {
+            sb.append(name).append(':').append('\n');
+            Map<String, Integer> levels = stock.get(name);
+            if (levels == null) {
+                continue;
+            }
+            for (Map.Entry<String, Integer> level : levels.entrySet()) {
+                Item item = items.get(level.getKey());
+                String label = (item == null ? level.getKey() : item.getLabel());
+                sb.append("  ").append(label).append(": ").append(level.getValue()).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+}
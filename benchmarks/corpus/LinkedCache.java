@@ -0,0 +1,131 @@
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/** A least-recently-used cache with a doubly-linked list of entries. */
+public class LinkedCache<K, V> {
+
+    private static class Node<K, V> {
+        final K key;
+        V value;
+        @Nullable Node<K, V> prev;
+        @Nullable Node<K, V> next;
+
+        Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private final Map<K, Node<K, V>> nodes = new HashMap<>();
+    private final int capacity;
+    private @Nullable Node<K, V> head;
+    private @Nullable Node<K, V> tail;
+    private @MonotonicNonNull String description;
+
+    public LinkedCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    public @Nullable V get(K key) {
+        Node<K, V> node = nodes.get(key);
+        if (node == null) {
+            return null;
+        }
+        unlink(node);
+        linkFirst(node);
+        return node.value;
+    }
+
+    public void put(K key, V value) {
+        Node<K, V> node = nodes.get(key);
+        if (node != null) {
+            node.value = value;
+            unlink(node);
+            linkFirst(node);
+            return;
+        }
+        node = new Node<>(key, value);
+        nodes.put(key, node);
+        linkFirst(node);
+        if (nodes.size() > capacity) {
+            Node<K, V> last = tail;
+            if (last != null) {
+                unlink(last);
+                nodes.remove(last.key);
+            }
+        }
+    }
+
+    public boolean remove(K key) {
+        Node<K, V> node = nodes.remove(key);
+        if (node == null) {
+            return false;
+        }
+        unlink(node);
+        return true;
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    public @Nullable K eldestKey() {
+        Node<K, V> last = tail;
+        return last == null ? null : last.key;
+    }
+
+    private void unlink(Node<K, V> node) {
+        Node<K, V> prev = node.prev;
+        Node<K, V> next = node.next;
+        if (prev == null) {
+            head = next;
+        } else {
+            prev.next = next;
+        }
+        if (next == null) {
+            tail = prev;
+        } else {
+            next.prev = prev;
+        }
+        node.prev = null;
+        node.next = null;
+    }
+
+    private void linkFirst(Node<K, V> node) {
+        Node<K, V> first = head;
+        node.next = first;
+        node.prev = null;
+        if (first != null) {
+            first.prev = node;
+        }
+        head = node;
+        if (tail == null) {
+            tail = node;
+        }
+    }
+
+    public String describe() {
+        if (description == null) {
+            description = "LinkedCache(" + capacity + ")";
+        }
+        return description;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (Node<K, V> node = head; node != null; node = node.next) {
+            if (node != head) {
+                sb.append(", ");
+            }
+            sb.append(node.key).append('=').append(node.value);
+        }
+        return sb.append(']').toString();
+    }
+}
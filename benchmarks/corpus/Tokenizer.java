@@ -0,0 +1,182 @@
+import org.checkerframework.checker.nullness.qual.EnsuresNonNullIf;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Splits arithmetic expressions into tokens and evaluates them. */
+public class Tokenizer {
+
+    public enum Kind { NUMBER, IDENTIFIER, OPERATOR, LPAREN, RPAREN }
+
+    public static class Token {
+        public final Kind kind;
+        public final String text;
+
+        public Token(Kind kind, String text) {
+            this.kind = kind;
+            this.text = text;
+        }
+
+        @Override
+        public String toString() {
+            return kind + ":" + text;
+        }
+    }
+
+    private final String input;
+    private int pos = 0;
+    private @Nullable Token peeked;
+
+    public Tokenizer(String input) {
+        this.input = input;
+    }
+
+    @EnsuresNonNullIf(expression = "peeked", result = true)
+    public boolean hasNext() {
+        if (peeked == null) {
+            peeked = read();
+        }
+        return peeked != null;
+    }
+
+    public Token next() {
+        if (!hasNext()) {
+            throw new IllegalStateException("no more tokens in " + input);
+        }
+        Token token = peeked;
+        peeked = null;
+        return token;
+    }
+
+    private @Nullable Token read() {
+        while (pos < input.length() && Character.isWhitespace(input.charAt(pos))) {
+            pos++;
+        }
+        if (pos >= input.length()) {
+            return null;
+        }
+        char c = input.charAt(pos);
+        int start = pos;
+        if (Character.isDigit(c)) {
+            while (pos < input.length() && Character.isDigit(input.charAt(pos))) {
+                pos++;
+            }
+            return new Token(Kind.NUMBER, input.substring(start, pos));
+        }
+        if (Character.isJavaIdentifierStart(c)) {
+            while (pos < input.length() && Character.isJavaIdentifierPart(input.charAt(pos))) {
+                pos++;
+            }
+            return new Token(Kind.IDENTIFIER, input.substring(start, pos));
+        }
+        pos++;
+        switch (c) {
+        case '(':
+            return new Token(Kind.LPAREN, "(");
+        case ')':
+            return new Token(Kind.RPAREN, ")");
+        default:
+            return new Token(Kind.OPERATOR, String.valueOf(c));
+        }
+    }
+
+    public static List<Token> tokenize(String input) {
+        List<Token> tokens = new ArrayList<>();
+        Tokenizer tokenizer = new Tokenizer(input);
+        while (tokenizer.hasNext()) {
+            tokens.add(tokenizer.next());
+        }
+        return tokens;
+    }
+
+    /** Evaluates an expression of numbers, +, -, *, / and parentheses. */
+    public static long evaluate(String input, @Nullable Environment env) {
+        Parser parser = new Parser(tokenize(input), env);
+        long result = parser.expression();
+        if (parser.index != parser.tokens.size()) {
+            throw new IllegalArgumentException("trailing input: " + input);
+        }
+        return result;
+    }
+
+    /** Values of identifiers. */
+    public interface Environment {
+        @Nullable Long lookup(String name);
+    }
+
+    private static class Parser {
+        final List<Token> tokens;
+        final @Nullable Environment env;
+        int index = 0;
+
+        Parser(List<Token> tokens, @Nullable Environment env) {
+            this.tokens = tokens;
+            this.env = env;
+        }
+
+        @Nullable Token peek() {
+            return index < tokens.size() ? tokens.get(index) : null;
+        }
+
+        long expression() {
+            long value = term();
+            Token token = peek();
+            while (token != null && (token.text.equals("+") || token.text.equals("-"))) {
+                index++;
+                long right = term();
+                value = token.text.equals("+") ? value + right : value - right;
+                token = peek();
+            }
+            return value;
+        }
+
+        long term() {
+            long value = factor();
+            Token token = peek();
+            while (token != null && (token.text.equals("*") || token.text.equals("/"))) {
+                index++;
+                long right = factor();
+                if (token.text.equals("/") && right == 0) {
+                    throw new ArithmeticException("division by zero");
+                }
+                value = token.text.equals("*") ? value * right : value / right;
+                token = peek();
+            }
+            return value;
+        }
+
+        long factor() {
+            Token token = peek();
+            if (token == null) {
+                throw new IllegalArgumentException("unexpected end of input");
+            }
+            index++;
+            switch (token.kind) {
+            case NUMBER:
+                return Long.parseLong(token.text);
+            case IDENTIFIER:
+                Long value = (env == null ? null : env.lookup(token.text));
+                if (value == null) {
+                    throw new IllegalArgumentException("unknown identifier: " + token.text);
+                }
+                return value;
+            case LPAREN:
+                long inner = expression();
+                Token close = peek();
+                if (close == null || close.kind != Kind.RPAREN) {
+                    throw new IllegalArgumentException("missing )");
+                }
+                index++;
+                return inner;
+            case OPERATOR:
+                if (token.text.equals("-")) {
+                    return -factor();
+                }
+                throw new IllegalArgumentException("unexpected operator: " + token.text);
+            default:
+                throw new IllegalArgumentException("unexpected token: " + token);
+            }
+        }
+    }
+}
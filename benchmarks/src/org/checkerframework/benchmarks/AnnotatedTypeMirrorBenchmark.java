@@ -0,0 +1,33 @@
+package org.checkerframework.benchmarks;
+
+import org.checkerframework.framework.type.AnnotatedTypeMirror;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Operations on the annotated types of the variables of the corpus, as
+ * computed by the Nullness Checker.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AnnotatedTypeMirrorBenchmark {
+
+    @Benchmark
+    public void deepCopy(NullnessCorpus corpus, Blackhole bh) {
+        for (AnnotatedTypeMirror type : corpus.variableTypes) {
+            bh.consume(type.deepCopy());
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package org.checkerframework.benchmarks;
+
+import org.checkerframework.common.basetype.BaseTypeChecker;
+import org.checkerframework.framework.source.SourceChecker;
+import org.checkerframework.framework.type.GenericAnnotatedTypeFactory;
+import org.checkerframework.framework.util.PluginUtil;
+import org.checkerframework.javacutil.Pair;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TreeScanner;
+
+/**
+ * A compilation of the benchmark corpus that has been type-checked by a
+ * checker. The compiler is not closed afterwards, so benchmarks can use the
+ * type factory of the checker and the trees of the corpus.
+ *
+ * The corpus is the set of Java files in the directory named by the system
+ * property {@value #CORPUS_PROPERTY}, by default {@code corpus}.
+ */
+public class CorpusCompilation {
+
+    /** The system property that names the directory of the corpus. */
+    public static final String CORPUS_PROPERTY = "benchmarks.corpus";
+
+    /** The checker that type-checked the corpus. */
+    public final SourceChecker checker;
+
+    /** The compilation units of the corpus. */
+    public final List<CompilationUnitTree> roots;
+
+    /** The diagnostics of the compiler and the checker. */
+    public final List<Diagnostic<? extends JavaFileObject>> diagnostics;
+
+    private CorpusCompilation(SourceChecker checker, List<CompilationUnitTree> roots,
+            List<Diagnostic<? extends JavaFileObject>> diagnostics) {
+        this.checker = checker;
+        this.roots = roots;
+        this.diagnostics = diagnostics;
+    }
+
+    /**
+     * Type-check the corpus with {@code checker}.
+     *
+     * @param checker a new instance of a checker
+     * @param options additional options for the compiler and the checker
+     */
+    public static CorpusCompilation check(SourceChecker checker, String... options) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null);
+
+        List<String> allOptions = compilerOptions();
+        allOptions.addAll(Arrays.asList(options));
+        JavacTask task = (JavacTask) compiler.getTask(null, fileManager, diagnostics,
+                allOptions, null, fileManager.getJavaFileObjectsFromFiles(corpusFiles()));
+        task.setProcessors(Collections.singleton(checker));
+
+        List<CompilationUnitTree> roots = new ArrayList<>();
+        try {
+            for (CompilationUnitTree root : task.parse()) {
+                roots.add(root);
+            }
+            // Do not generate class files: the benchmarks measure type-checking.
+            task.analyze();
+        } catch (IOException e) {
+            throw new RuntimeException("Could not compile the benchmark corpus", e);
+        }
+        return new CorpusCompilation(checker, roots, diagnostics.getDiagnostics());
+    }
+
+    /** Returns the Java files of the corpus, in a fixed order. */
+    public static List<File> corpusFiles() {
+        File dir = new File(System.getProperty(CORPUS_PROPERTY, "corpus"));
+        File[] files = dir.listFiles();
+        if (files == null) {
+            throw new RuntimeException("Cannot find the benchmark corpus in " + dir.getAbsolutePath()
+                    + "; set the system property " + CORPUS_PROPERTY);
+        }
+        List<File> sources = new ArrayList<>();
+        for (File file : files) {
+            if (file.getName().endsWith(".java")) {
+                sources.add(file);
+            }
+        }
+        Collections.sort(sources);
+        return sources;
+    }
+
+    /**
+     * Returns the options to compile the corpus with: the classpath of this
+     * JVM, which contains the qualifiers, and the annotated JDK next to
+     * checker.jar if there is one.
+     */
+    private static List<String> compilerOptions() {
+        List<String> options = new ArrayList<>();
+        options.add("-classpath");
+        options.add(System.getProperty("java.class.path"));
+
+        File checkerJar = new File(PluginUtil.class.getProtectionDomain().getCodeSource().getLocation().getPath());
+        File jdkJar = new File(checkerJar.getParentFile(), PluginUtil.getJdkJarName());
+        if (jdkJar.exists()) {
+            options.add("-Xbootclasspath/p:" + jdkJar.getAbsolutePath());
+        } else {
+            options.add("-Anocheckjdk");
+        }
+        return options;
+    }
+
+    /** @return the processing environment of the compilation */
+    public ProcessingEnvironment getProcessingEnvironment() {
+        return checker.getProcessingEnvironment();
+    }
+
+    /**
+     * @return the type factory of the checker, which must be a
+     *         {@link BaseTypeChecker}
+     */
+    public GenericAnnotatedTypeFactory<?, ?, ?, ?> getTypeFactory() {
+        return ((BaseTypeChecker) checker).getTypeFactory();
+    }
+
+    /** @return the number of errors reported while checking the corpus */
+    public int getErrorCount() {
+        int errors = 0;
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics) {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                errors++;
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * Returns the methods of the corpus that have a body, with their
+     * enclosing class and compilation unit.
+     */
+    public List<Pair<CompilationUnitTree, Pair<MethodTree, ClassTree>>> getMethods() {
+        final List<Pair<CompilationUnitTree, Pair<MethodTree, ClassTree>>> methods = new ArrayList<>();
+        for (final CompilationUnitTree root : roots) {
+            new TreeScanner<Void, Void>() {
+                private final Deque<ClassTree> classes = new ArrayDeque<>();
+
+                @Override
+                public Void visitClass(ClassTree tree, Void p) {
+                    classes.push(tree);
+                    try {
+                        return super.visitClass(tree, p);
+                    } finally {
+                        classes.pop();
+                    }
+                }
+
+                @Override
+                public Void visitMethod(MethodTree tree, Void p) {
+                    if (tree.getBody() != null) {
+                        methods.add(Pair.of(root, Pair.of(tree, classes.peek())));
+                    }
+                    return super.visitMethod(tree, p);
+                }
+            }.scan(root, null);
+        }
+        return methods;
+    }
+
+    /**
+     * Returns the variable declarations of the corpus, including fields,
+     * parameters, and local variables, with their compilation unit.
+     */
+    public List<Pair<CompilationUnitTree, VariableTree>> getVariables() {
+        final List<Pair<CompilationUnitTree, VariableTree>> variables = new ArrayList<>();
+        for (final CompilationUnitTree root : roots) {
+            new TreeScanner<Void, Void>() {
+                @Override
+                public Void visitVariable(VariableTree tree, Void p) {
+                    variables.add(Pair.of(root, tree));
+                    return super.visitVariable(tree, p);
+                }
+            }.scan(root, null);
+        }
+        return variables;
+    }
+}
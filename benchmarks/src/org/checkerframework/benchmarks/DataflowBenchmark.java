@@ -0,0 +1,53 @@
+package org.checkerframework.benchmarks;
+
+import org.checkerframework.checker.nullness.NullnessStore;
+import org.checkerframework.dataflow.cfg.CFGBuilder;
+import org.checkerframework.javacutil.Pair;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.MethodTree;
+
+/**
+ * Building control flow graphs of the methods of the corpus, and joining the
+ * stores that the Nullness Checker computed for them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DataflowBenchmark {
+
+    /** {@code CFGBuilder.run} on every method of the corpus. */
+    @Benchmark
+    public void buildCFG(NullnessCorpus corpus, Blackhole bh) {
+        for (Pair<CompilationUnitTree, Pair<MethodTree, ClassTree>> method : corpus.methods) {
+            bh.consume(CFGBuilder.build(method.first, corpus.compilation.getProcessingEnvironment(),
+                    method.second.first, method.second.second));
+        }
+    }
+
+    /** {@code CFAbstractStore.leastUpperBound} on the exit stores of consecutive methods. */
+    @Benchmark
+    public void storeLeastUpperBound(NullnessCorpus corpus, Blackhole bh) {
+        NullnessStore previous = null;
+        for (NullnessStore store : corpus.exitStores) {
+            if (previous != null) {
+                bh.consume(previous.leastUpperBound(store));
+            }
+            previous = store;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package org.checkerframework.benchmarks;
+
+import org.checkerframework.checker.nullness.AbstractNullnessFbcChecker;
+import org.checkerframework.checker.nullness.NullnessAnnotatedTypeFactory;
+import org.checkerframework.checker.nullness.NullnessStore;
+import org.checkerframework.framework.type.AnnotatedTypeMirror;
+import org.checkerframework.javacutil.Pair;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.lang.model.util.Types;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.VariableTree;
+
+/**
+ * The benchmark corpus, type-checked by the Nullness Checker once per
+ * benchmark run, and the inputs that the benchmarks derive from it.
+ */
+@State(Scope.Benchmark)
+public class NullnessCorpus {
+
+    /** The maximum number of type pairs for subtype checks. */
+    private static final int MAX_SUBTYPE_PAIRS = 2000;
+
+    public CorpusCompilation compilation;
+
+    public NullnessAnnotatedTypeFactory factory;
+
+    /** The methods of the corpus, with their compilation unit and class. */
+    public List<Pair<CompilationUnitTree, Pair<MethodTree, ClassTree>>> methods;
+
+    /** The regular exit stores of the methods of the last compilation unit. */
+    public List<NullnessStore> exitStores;
+
+    /** The annotated types of the variables of the corpus. */
+    public List<AnnotatedTypeMirror> variableTypes;
+
+    /**
+     * Pairs of variable types whose underlying Java types are subtypes,
+     * so that the pairs exercise the whole type hierarchy rather than
+     * failing early.
+     */
+    public List<Pair<AnnotatedTypeMirror, AnnotatedTypeMirror>> subtypePairs;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // The checker that NullnessChecker aggregates; its factory is
+        // the one that checks the nullness qualifiers.
+        compilation = CorpusCompilation.check(new AbstractNullnessFbcChecker());
+        factory = (NullnessAnnotatedTypeFactory) compilation.getTypeFactory();
+        methods = compilation.getMethods();
+
+        // Only the flow results of the last compilation unit are kept, and
+        // they are released when the root of the factory changes, so
+        // collect the stores first.
+        exitStores = new ArrayList<>();
+        for (Pair<CompilationUnitTree, Pair<MethodTree, ClassTree>> method : methods) {
+            NullnessStore store = factory.getRegularExitStore(method.second.first);
+            if (store != null) {
+                exitStores.add(store);
+            }
+        }
+
+        variableTypes = new ArrayList<>();
+        for (Pair<CompilationUnitTree, VariableTree> variable : compilation.getVariables()) {
+            factory.setRoot(variable.first);
+            variableTypes.add(factory.getAnnotatedType(variable.second));
+        }
+
+        Types types = compilation.getProcessingEnvironment().getTypeUtils();
+        subtypePairs = new ArrayList<>();
+        for (AnnotatedTypeMirror subtype : variableTypes) {
+            for (AnnotatedTypeMirror supertype : variableTypes) {
+                if (subtypePairs.size() < MAX_SUBTYPE_PAIRS
+                        && types.isSubtype(subtype.getUnderlyingType(), supertype.getUnderlyingType())) {
+                    subtypePairs.add(Pair.of(subtype, supertype));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.checkerframework.benchmarks;
+
+import org.checkerframework.checker.interning.InterningChecker;
+import org.checkerframework.framework.stub.StubIndexCache;
+import org.checkerframework.framework.stub.StubParser;
+import org.checkerframework.framework.type.AnnotatedTypeMirror;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing the {@code jdk.astub} file of the Interning Checker, the largest
+ * stub file that ships with the Checker Framework, and resolving it against
+ * the type factory of that checker.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StubParserBenchmark {
+
+    /**
+     * Whether the parsed stub file is taken from {@link StubIndexCache}, as
+     * in the second and later compilations in the same JVM, or parsed anew.
+     */
+    @Param({"false", "true"})
+    public boolean cached;
+
+    private CorpusCompilation compilation;
+
+    private byte[] stubFile;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        compilation = CorpusCompilation.check(new InterningChecker());
+
+        InputStream in = InterningChecker.class.getResourceAsStream("jdk.astub");
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            stubFile = out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void clearCache() {
+        if (!cached) {
+            StubIndexCache.clear();
+        }
+    }
+
+    @Benchmark
+    public Map<Element, AnnotatedTypeMirror> parse() {
+        Map<Element, AnnotatedTypeMirror> types = new HashMap<>();
+        Map<String, Set<AnnotationMirror>> declAnnos = new HashMap<>();
+        StubParser parser = new StubParser("jdk.astub", new ByteArrayInputStream(stubFile),
+                compilation.getTypeFactory(), compilation.getProcessingEnvironment());
+        parser.parse(types, declAnnos);
+        return types;
+    }
+}
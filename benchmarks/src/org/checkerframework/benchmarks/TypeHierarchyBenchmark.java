@@ -0,0 +1,82 @@
+package org.checkerframework.benchmarks;
+
+import org.checkerframework.framework.type.AnnotatedTypeMirror;
+import org.checkerframework.framework.type.QualifierHierarchy;
+import org.checkerframework.framework.type.TypeHierarchy;
+import org.checkerframework.javacutil.AnnotationUtils;
+import org.checkerframework.javacutil.Pair;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.lang.model.element.AnnotationMirror;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Subtype checks of annotated types and least upper bounds and greatest
+ * lower bounds of qualifiers, in the type hierarchy of the Nullness Checker.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TypeHierarchyBenchmark {
+
+    /** Pairs of qualifiers of the same hierarchy. */
+    @State(Scope.Benchmark)
+    public static class QualifierPairs {
+        public QualifierHierarchy qualifierHierarchy;
+        public List<Pair<AnnotationMirror, AnnotationMirror>> pairs;
+
+        @Setup(Level.Trial)
+        public void setup(NullnessCorpus corpus) {
+            qualifierHierarchy = corpus.factory.getQualifierHierarchy();
+            pairs = new ArrayList<>();
+            for (AnnotationMirror a1 : qualifierHierarchy.getTypeQualifiers()) {
+                for (AnnotationMirror a2 : qualifierHierarchy.getTypeQualifiers()) {
+                    if (AnnotationUtils.areSame(qualifierHierarchy.getTopAnnotation(a1),
+                            qualifierHierarchy.getTopAnnotation(a2))) {
+                        pairs.add(Pair.of(a1, a2));
+                    }
+                }
+            }
+        }
+    }
+
+    /** {@code DefaultTypeHierarchy.isSubtype} on pairs of variable types of the corpus. */
+    @Benchmark
+    public void isSubtype(NullnessCorpus corpus, Blackhole bh) {
+        TypeHierarchy typeHierarchy = corpus.factory.getTypeHierarchy();
+        for (Pair<AnnotatedTypeMirror, AnnotatedTypeMirror> pair : corpus.subtypePairs) {
+            bh.consume(typeHierarchy.isSubtype(pair.first, pair.second));
+        }
+    }
+
+    @Benchmark
+    public void leastUpperBound(QualifierPairs qualifiers, Blackhole bh) {
+        for (Pair<AnnotationMirror, AnnotationMirror> pair : qualifiers.pairs) {
+            bh.consume(qualifiers.qualifierHierarchy.leastUpperBound(pair.first, pair.second));
+        }
+    }
+
+    @Benchmark
+    public void greatestLowerBound(QualifierPairs qualifiers, Blackhole bh) {
+        for (Pair<AnnotationMirror, AnnotationMirror> pair : qualifiers.pairs) {
+            bh.consume(qualifiers.qualifierHierarchy.greatestLowerBound(pair.first, pair.second));
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package tests;
+
+import java.io.File;
+import java.util.Collection;
+
+import org.checkerframework.checker.nullness.AbstractNullnessChecker;
+import org.checkerframework.framework.test.ParameterizedCheckerTest;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * JUnit tests for the Nullness checker that discard the flow analysis
+ * results of each class once the next class is checked.
+ */
+public class NullnessReleaseFlowResultsTest extends ParameterizedCheckerTest {
+
+    public NullnessReleaseFlowResultsTest(File testFile) {
+        // Same options as NullnessFbcTest, plus -AreleaseFlowResults.
+        super(testFile,
+                org.checkerframework.checker.nullness.NullnessChecker.class,
+                "nullness",
+                "-AcheckPurityAnnotations",
+                "-AreleaseFlowResults",
+                "-Anomsgtext", "-Xlint:deprecation",
+                "-Alint=arrays:forbidnonnullcomponents,"
+                        + AbstractNullnessChecker.LINT_REDUNDANTNULLCOMPARISON);
+    }
+
+    @Parameters
+    public static Collection<Object[]> data() {
+        return testFiles("nullness", "initialization/fbc", "all-systems");
+    }
+
+}
@@ -0,0 +1,36 @@
+package tests;
+
+import java.io.File;
+import java.util.Collection;
+
+import org.checkerframework.checker.nullness.AbstractNullnessChecker;
+import org.checkerframework.framework.test.ParameterizedCheckerTest;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * JUnit tests for the Nullness checker that keep a checkpoint before every
+ * node of a block, but only two checkpoints at a time, so that store
+ * queries both resume from checkpoints and evict the checkpoints of other
+ * blocks.
+ */
+public class NullnessStoreCheckpointTest extends ParameterizedCheckerTest {
+
+    public NullnessStoreCheckpointTest(File testFile) {
+        // Same options as NullnessFbcTest, plus the checkpoint options.
+        super(testFile,
+                org.checkerframework.checker.nullness.NullnessChecker.class,
+                "nullness",
+                "-AcheckPurityAnnotations",
+                "-AstoreCheckpointInterval=1",
+                "-AstoreCheckpointLimit=2",
+                "-Anomsgtext", "-Xlint:deprecation",
+                "-Alint=arrays:forbidnonnullcomponents,"
+                        + AbstractNullnessChecker.LINT_REDUNDANTNULLCOMPARISON);
+    }
+
+    @Parameters
+    public static Collection<Object[]> data() {
+        return testFiles("nullness", "initialization/fbc", "all-systems");
+    }
+
+}
@@ -24,14 +24,13 @@ import org.checkerframework.javacutil.ElementUtils;
 import org.checkerframework.javacutil.Pair;
 
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
-import java.util.PriorityQueue;
 import java.util.Set;
 
 import javax.annotation.processing.ProcessingEnvironment;
@@ -129,6 +128,13 @@ public class Analysis<A extends AbstractValue<A>, S extends Store<S>, T extends
      */
     protected TransferInput<A, S> currentInput;
 
+    /**
+     * The block that is currently handled in the analysis (if it is running).
+     * Stores that it propagates to a block that does not come after it in
+     * the depth-first order flow along a back edge of a loop.
+     */
+    protected Block currentBlock;
+
     public Tree getCurrentTree() {
         return currentTree;
     }
@@ -184,6 +190,7 @@ public class Analysis<A extends AbstractValue<A>, S extends Store<S>, T extends
 
         while (!worklist.isEmpty()) {
             Block b = worklist.poll();
+            currentBlock = b;
 
             switch (b.getType()) {
             case REGULAR_BLOCK: {
@@ -284,6 +291,7 @@ public class Analysis<A extends AbstractValue<A>, S extends Store<S>, T extends
             }
         }
 
+        currentBlock = null;
         assert isRunning == true;
         isRunning = false;
     }
@@ -389,7 +397,7 @@ public class Analysis<A extends AbstractValue<A>, S extends Store<S>, T extends
         elseStores = new IdentityHashMap<>();
         inputs = new IdentityHashMap<>();
         storesAtReturnStatements = new IdentityHashMap<>();
-        worklist = new Worklist(cfg);
+        worklist = createWorklist(cfg);
         nodeValues = new IdentityHashMap<>();
         finalLocalValues = new HashMap<>();
         worklist.add(cfg.getEntryBlock());
@@ -425,12 +433,20 @@ public class Analysis<A extends AbstractValue<A>, S extends Store<S>, T extends
         inputs.put(entry, new TransferInput<>(null, this, initialStore));
     }
 
+    /**
+     * Create the worklist used for the fix-point iteration over
+     * <code>cfg</code>. Subclasses can override this method to use a
+     * different iteration order.
+     */
+    protected Worklist createWorklist(ControlFlowGraph cfg) {
+        return new Worklist(cfg);
+    }
+
     /**
      * Add a basic block to the worklist. If <code>b</code> is already present,
      * the method does nothing.
      */
     protected void addToWorklist(Block b) {
-        // TODO: use a more efficient way to check if b is already present
         if (!worklist.contains(b)) {
             worklist.add(b);
         }
@@ -448,8 +464,7 @@ public class Analysis<A extends AbstractValue<A>, S extends Store<S>, T extends
         switch (kind) {
         case THEN: {
             // Update the then store
-            S newThenStore = (thenStore != null) ?
-                thenStore.leastUpperBound(s) : s;
+            S newThenStore = mergeStores(b, thenStore, s);
             if (!newThenStore.equals(thenStore)) {
                 thenStores.put(b, newThenStore);
                 if (elseStore != null) {
@@ -461,8 +476,7 @@ public class Analysis<A extends AbstractValue<A>, S extends Store<S>, T extends
         }
         case ELSE: {
             // Update the else store
-            S newElseStore = (elseStore != null) ?
-                elseStore.leastUpperBound(s) : s;
+            S newElseStore = mergeStores(b, elseStore, s);
             if (!newElseStore.equals(elseStore)) {
                 elseStores.put(b, newElseStore);
                 if (thenStore != null) {
@@ -475,8 +489,7 @@ public class Analysis<A extends AbstractValue<A>, S extends Store<S>, T extends
         case BOTH:
             if (thenStore == elseStore) {
                 // Currently there is only one regular store
-                S newStore = (thenStore != null) ?
-                    thenStore.leastUpperBound(s) : s;
+                S newStore = mergeStores(b, thenStore, s);
                 if (!newStore.equals(thenStore)) {
                     thenStores.put(b, newStore);
                     elseStores.put(b, newStore);
@@ -486,15 +499,13 @@ public class Analysis<A extends AbstractValue<A>, S extends Store<S>, T extends
             } else {
                 boolean storeChanged = false;
 
-                S newThenStore = (thenStore != null) ?
-                    thenStore.leastUpperBound(s) : s;
+                S newThenStore = mergeStores(b, thenStore, s);
                 if (!newThenStore.equals(thenStore)) {
                     thenStores.put(b, newThenStore);
                     storeChanged = true;
                 }
 
-                S newElseStore = (elseStore != null) ?
-                    elseStore.leastUpperBound(s) : s;
+                S newElseStore = mergeStores(b, elseStore, s);
                 if (!newElseStore.equals(elseStore)) {
                     elseStores.put(b, newElseStore);
                     storeChanged = true;
@@ -512,27 +523,78 @@ public class Analysis<A extends AbstractValue<A>, S extends Store<S>, T extends
         }
     }
 
+    /**
+     * Merge the store {@code s} that flows into block {@code b} with the
+     * store {@code previous} that is already known before {@code b}. If the
+     * store flows along a back edge, the merged store is widened, so that
+     * the analysis of a loop reaches a fixed point quickly even in an
+     * abstract domain of infinite height.
+     */
+    protected S mergeStores(Block b, /*@Nullable*/ S previous, S s) {
+        if (previous == null) {
+            return s;
+        }
+        S merged = previous.leastUpperBound(s);
+        if (isBackEdgeTo(b)) {
+            return widenedUpperBound(previous, merged);
+        }
+        return merged;
+    }
+
+    /**
+     * @return true if the store that the current block propagates to
+     *         {@code b} flows along a back edge of a loop
+     */
+    protected boolean isBackEdgeTo(Block b) {
+        if (currentBlock == null) {
+            return false;
+        }
+        Integer from = worklist.depthFirstOrder.get(currentBlock);
+        Integer to = worklist.depthFirstOrder.get(b);
+        return from != null && to != null && from >= to;
+    }
+
+    /**
+     * Widen the store {@code next}, an upper bound of {@code previous} that
+     * flows along a back edge of a loop. The result must be an upper bound of
+     * {@code next}, and any increasing sequence of widened stores must become
+     * stationary. The default implementation does not widen, which suffices
+     * for abstract domains of finite height.
+     */
+    protected S widenedUpperBound(S previous, S next) {
+        return next;
+    }
+
     /**
      * A worklist is a priority queue of blocks in which the order is given
      * by depth-first ordering to place non-loop predecessors ahead of successors.
+     *
+     * <p>
+     * Every block of the control flow graph is numbered once, when the
+     * worklist is created. The worklist then keeps a bit set of the queued
+     * depth-first numbers for constant-time membership tests and a binary
+     * min-heap of those numbers for logarithmic ordered removal.
      */
     protected static class Worklist {
 
         /** Map all blocks in the CFG to their depth-first order. */
         protected IdentityHashMap<Block, Integer> depthFirstOrder;
 
-        /** Comparator to allow priority queue to order blocks by their depth-first
-            order. */
-        public class DFOComparator implements Comparator<Block> {
-            @Override
-            public int compare(Block b1, Block b2) {
-                return depthFirstOrder.get(b1) - depthFirstOrder.get(b2);
-            }
-        }
+        /** All blocks in the CFG, indexed by their depth-first order. */
+        protected Block[] blocks;
 
-        /** The backing priority queue. */
-        protected PriorityQueue<Block> queue;
+        /** The depth-first numbers of the blocks currently in the worklist. */
+        protected BitSet queued;
 
+        /**
+         * A binary min-heap of the depth-first numbers of the blocks
+         * currently in the worklist; only the first {@code size} entries
+         * are valid.
+         */
+        protected int[] heap;
+
+        /** The number of blocks in the worklist. */
+        protected int size;
 
         public Worklist(ControlFlowGraph cfg) {
             depthFirstOrder = new IdentityHashMap<>();
@@ -541,28 +603,84 @@ public class Analysis<A extends AbstractValue<A>, S extends Store<S>, T extends
                 depthFirstOrder.put(b, count++);
             }
 
-            queue = new PriorityQueue<Block>(11, new DFOComparator());
+            blocks = new Block[count];
+            for (Entry<Block, Integer> e : depthFirstOrder.entrySet()) {
+                blocks[e.getValue()] = e.getKey();
+            }
+            queued = new BitSet(count);
+            heap = new int[depthFirstOrder.size()];
+            size = 0;
         }
 
         public boolean isEmpty() {
-            return queue.isEmpty();
+            return size == 0;
         }
 
         public boolean contains(Block block) {
-            return queue.contains(block);
+            return queued.get(depthFirstOrder.get(block));
         }
 
+        /**
+         * Add <code>block</code> to the worklist. If <code>block</code> is
+         * already present, the method does nothing.
+         */
         public void add(Block block) {
-            queue.add(block);
+            int order = depthFirstOrder.get(block);
+            if (queued.get(order)) {
+                return;
+            }
+            queued.set(order);
+
+            // sift up
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heap[parent] <= order) {
+                    break;
+                }
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = order;
         }
 
-        public Block poll() {
-            return queue.poll();
+        /**
+         * Remove and return the block with the smallest depth-first number,
+         * or {@code null} if the worklist is empty.
+         */
+        public /*@Nullable*/ Block poll() {
+            if (size == 0) {
+                return null;
+            }
+            int result = heap[0];
+            queued.clear(result);
+
+            // sift down
+            int last = heap[--size];
+            int i = 0;
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && heap[child + 1] < heap[child]) {
+                    child++;
+                }
+                if (last <= heap[child]) {
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = last;
+            return blocks[result];
         }
 
         @Override
         public String toString() {
-            return "Worklist(" + queue + ")";
+            List<Block> queuedBlocks = new ArrayList<>();
+            for (int i = queued.nextSetBit(0); i >= 0; i = queued.nextSetBit(i + 1)) {
+                queuedBlocks.add(blocks[i]);
+            }
+            return "Worklist(" + queuedBlocks + ")";
         }
     }
 
@@ -9,8 +9,12 @@ import org.checkerframework.dataflow.cfg.block.ExceptionBlock;
 import org.checkerframework.dataflow.cfg.block.RegularBlock;
 import org.checkerframework.dataflow.cfg.node.Node;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -44,6 +48,33 @@ public class AnalysisResult<A extends AbstractValue<A>, S extends Store<S>> {
      */
     protected final IdentityHashMap<Block, TransferInput<A, S>> stores;
 
+    /**
+     * The number of nodes of a {@link RegularBlock} between two checkpoints,
+     * or 0 if checkpoints are disabled.
+     *
+     * @see #setStoreCheckpoints(int, int)
+     */
+    protected int checkpointInterval = 0;
+
+    /** The maximum number of checkpoints kept in {@link #checkpoints}. */
+    protected int maxCheckpoints = 0;
+
+    /** The number of checkpoints currently kept in {@link #checkpoints}. */
+    protected int checkpointCount = 0;
+
+    /**
+     * Transfer inputs in the middle of regular blocks, in the order in which
+     * the blocks were last used. The i-th element of the list of a block is
+     * the input before the node at index {@code i * checkpointInterval} of the
+     * block, or null if that input has not been computed yet. The first
+     * element is always null; the input of a block is in {@link #stores}.
+     */
+    protected final LinkedHashMap<Block, List<TransferInput<A, S>>> checkpoints =
+            new LinkedHashMap<>(16, 0.75f, true);
+
+    /** The index of every node in the contents of its block, for blocks with checkpoints. */
+    protected final IdentityHashMap<Node, Integer> nodeIndices = new IdentityHashMap<>();
+
     /**
      * Initialize with a given node-value mapping.
      */
@@ -70,18 +101,41 @@ public class AnalysisResult<A extends AbstractValue<A>, S extends Store<S>> {
      * Combine with another analysis result.
      */
     public void combine(AnalysisResult<A, S> other) {
-        for (Entry<Node, A> e : other.nodeValues.entrySet()) {
-            nodeValues.put(e.getKey(), e.getValue());
-        }
-        for (Entry<Tree, Node> e : other.treeLookup.entrySet()) {
-            treeLookup.put(e.getKey(), e.getValue());
-        }
-        for (Entry<Block, TransferInput<A, S>> e : other.stores.entrySet()) {
-            stores.put(e.getKey(), e.getValue());
-        }
-        for (Entry<Element, A> e : other.finalLocalValues.entrySet()) {
-            finalLocalValues.put(e.getKey(), e.getValue());
-        }
+        // putAll resizes each map at most once.
+        nodeValues.putAll(other.nodeValues);
+        treeLookup.putAll(other.treeLookup);
+        stores.putAll(other.stores);
+        finalLocalValues.putAll(other.finalLocalValues);
+    }
+
+    /**
+     * Remember intermediate stores of regular blocks, so that
+     * {@link #getStoreBefore(Tree)} and {@link #getStoreAfter(Tree)} do not
+     * need to run the transfer function from the start of the block for
+     * every query.
+     *
+     * <p>
+     * The input before every {@code interval}-th node of a block is kept,
+     * so a query runs the transfer function on at most {@code interval}
+     * nodes; with an interval of 1, every query runs it at most once. At most
+     * {@code maxCheckpoints} inputs are kept; if there are more, the
+     * checkpoints of the least recently queried blocks are dropped.
+     *
+     * <p>
+     * With checkpoints, the returned stores are copies, and the inputs of
+     * blocks are not modified by the queries.
+     *
+     * @param interval the number of nodes between two checkpoints, or 0 to
+     *            disable checkpoints
+     * @param maxCheckpoints the maximum number of inputs to keep
+     */
+    public void setStoreCheckpoints(int interval, int maxCheckpoints) {
+        assert interval >= 0 && maxCheckpoints >= 0;
+        this.checkpointInterval = interval;
+        this.maxCheckpoints = maxCheckpoints;
+        checkpoints.clear();
+        nodeIndices.clear();
+        checkpointCount = 0;
     }
 
     /**
@@ -153,9 +207,105 @@ public class AnalysisResult<A extends AbstractValue<A>, S extends Store<S>> {
         if (transferInput == null) {
             return null;
         }
+        if (checkpointInterval > 0 && block.getType() == Block.BlockType.REGULAR_BLOCK) {
+            return runAnalysisFromCheckpoint(node, before, (RegularBlock) block, transferInput);
+        }
         return runAnalysisFor(node, before, transferInput);
     }
 
+    /**
+     * Like {@link #runAnalysisFor(Node, boolean)}, but starts from the
+     * nearest checkpoint before {@code node} and adds the checkpoints that
+     * it passes.
+     */
+    protected S runAnalysisFromCheckpoint(Node node, boolean before,
+            RegularBlock block, TransferInput<A, S> blockInput) {
+        Analysis<A, S, ?> analysis = blockInput.analysis;
+        if (analysis.isRunning) {
+            return analysis.currentInput.getRegularStore();
+        }
+
+        List<Node> contents = block.getContents();
+        List<TransferInput<A, S>> blockCheckpoints = checkpoints.get(block);
+        if (blockCheckpoints == null) {
+            int index = 0;
+            for (Node n : contents) {
+                nodeIndices.put(n, index++);
+            }
+            int size = (contents.size() + checkpointInterval - 1) / checkpointInterval;
+            blockCheckpoints = new ArrayList<>(size);
+            for (int i = 0; i < size; ++i) {
+                blockCheckpoints.add(null);
+            }
+            checkpoints.put(block, blockCheckpoints);
+        }
+        Integer nodeIndex = nodeIndices.get(node);
+        assert nodeIndex != null : "node not in the contents of its block";
+        int target = nodeIndex;
+
+        int slot = target / checkpointInterval;
+        while (slot > 0 && blockCheckpoints.get(slot) == null) {
+            --slot;
+        }
+        TransferInput<A, S> input = (slot == 0 ? blockInput : blockCheckpoints.get(slot)).copy();
+
+        Node oldCurrentNode = analysis.currentNode;
+        analysis.isRunning = true;
+        try {
+            for (int i = slot * checkpointInterval; ; ++i) {
+                Node n = contents.get(i);
+                analysis.currentNode = n;
+                if (i % checkpointInterval == 0 && i > slot * checkpointInterval) {
+                    addCheckpoint(block, blockCheckpoints, i / checkpointInterval, input);
+                }
+                if (i == target && before) {
+                    return input.getRegularStore().copy();
+                }
+                TransferResult<A, S> transferResult = analysis.callTransferFunction(n, input);
+                if (i == target) {
+                    return transferResult.getRegularStore().copy();
+                }
+                input = new TransferInput<>(n, analysis, transferResult);
+            }
+        } finally {
+            analysis.currentNode = oldCurrentNode;
+            analysis.isRunning = false;
+        }
+    }
+
+    /**
+     * Keep a copy of {@code input} as the checkpoint {@code slot} of
+     * {@code block}, dropping the checkpoints of the least recently used
+     * blocks if there are too many.
+     */
+    private void addCheckpoint(Block block, List<TransferInput<A, S>> blockCheckpoints,
+            int slot, TransferInput<A, S> input) {
+        if (checkpointCount >= maxCheckpoints) {
+            Iterator<Entry<Block, List<TransferInput<A, S>>>> eldest =
+                    checkpoints.entrySet().iterator();
+            while (checkpointCount >= maxCheckpoints && eldest.hasNext()) {
+                Entry<Block, List<TransferInput<A, S>>> entry = eldest.next();
+                if (entry.getKey() == block) {
+                    continue;
+                }
+                for (TransferInput<A, S> checkpoint : entry.getValue()) {
+                    if (checkpoint != null) {
+                        --checkpointCount;
+                    }
+                }
+                for (Node n : ((RegularBlock) entry.getKey()).getContents()) {
+                    nodeIndices.remove(n);
+                }
+                eldest.remove();
+            }
+            if (checkpointCount >= maxCheckpoints) {
+                return;
+            }
+        }
+        blockCheckpoints.set(slot, input.copy());
+        ++checkpointCount;
+    }
+
     /**
      * Runs the analysis again within the block of {@code node} and returns the
      * store at the location of {@code node}. If {@code before} is true, then
@@ -5,6 +5,7 @@ import org.checkerframework.checker.igj.qual.*;
 */
 
 import org.checkerframework.common.reflection.MethodValChecker;
+import org.checkerframework.framework.flow.CFGCache;
 import org.checkerframework.framework.qual.SubtypeOf;
 import org.checkerframework.framework.qual.TypeQualifiers;
 import org.checkerframework.framework.source.SourceChecker;
@@ -12,6 +13,7 @@ import org.checkerframework.framework.type.AnnotatedTypeFactory;
 import org.checkerframework.framework.type.GenericAnnotatedTypeFactory;
 import org.checkerframework.framework.type.QualifierHierarchy;
 import org.checkerframework.framework.type.TypeHierarchy;
+import org.checkerframework.framework.util.LRUCache;
 import org.checkerframework.javacutil.AbstractTypeProcessor;
 import org.checkerframework.javacutil.AnnotationProvider;
 import org.checkerframework.javacutil.ErrorReporter;
@@ -436,6 +438,13 @@ public abstract class BaseTypeChecker extends SourceChecker implements BaseTypeC
         // Start with this.errsOnLastExit which will account for errors seen by
         // by a previous checker run in an aggregate checker.
         int nerrorsOfAllPreviousCheckers = this.errsOnLastExit;
+
+        // The results of the flow analysis of the previous class are no
+        // longer needed, neither by this checker nor by a checker that uses
+        // this checker as a subchecker.
+        if (hasOption("releaseFlowResults") && getVisitor() != null) {
+            getTypeFactory().releaseFlowResults();
+        }
         for (BaseTypeChecker checker : getSubcheckers()) {
             checker.errsOnLastExit += nerrorsOfAllPreviousCheckers;
             int errorsBeforeTypeChecking = log.nerrors;
@@ -483,6 +492,33 @@ public abstract class BaseTypeChecker extends SourceChecker implements BaseTypeC
         return options;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * Also prints statistics about the caches of the type factories of
+     * this checker and of its subcheckers.
+     */
+    @Override
+    protected void printStats() {
+        super.printStats();
+
+        List<BaseTypeChecker> checkers = new ArrayList<BaseTypeChecker>(getSubcheckers());
+        checkers.add(this);
+        for (BaseTypeChecker checker : checkers) {
+            if (checker.getVisitor() == null) {
+                // The checker was never initialized.
+                continue;
+            }
+            System.out.println("Cache statistics for " + checker.getClass().getSimpleName());
+            for (LRUCache<?, ?> cache : checker.getTypeFactory().getCaches()) {
+                System.out.println("  " + cache.getStatistics());
+            }
+        }
+        CFGCache cfgCache = CFGCache.instance(processingEnv);
+        System.out.println("Shared control flow graphs: " + cfgCache.getHits() + " hits, "
+                + cfgCache.getMisses() + " misses");
+    }
+
     @Override
     protected Object processArg(Object arg) {
         if (arg instanceof Collection) {
@@ -44,6 +44,7 @@ import org.checkerframework.framework.type.QualifierHierarchy;
 import org.checkerframework.framework.type.TypeHierarchy;
 import org.checkerframework.framework.type.VisitorState;
 import org.checkerframework.framework.util.AnnotatedTypes;
+import org.checkerframework.framework.util.CheckerProfiler;
 import org.checkerframework.framework.util.ConstructorReturnUtil;
 import org.checkerframework.framework.util.ContractsUtils;
 import org.checkerframework.framework.util.FlowExpressionParseUtil;
@@ -385,6 +386,10 @@ public class BaseTypeVisitor<Factory extends GenericAnnotatedTypeFactory<?, ?, ?
         visitorState.setMethodTree(node);
         ExecutableElement methodElement = TreeUtils.elementFromDeclaration(node);
 
+        CheckerProfiler profiler = checker.getProfiler();
+        if (profiler.isEnabled()) {
+            profiler.enterMethod(CheckerProfiler.getMethodName(methodElement));
+        }
         try {
             if (InternalUtils.isAnonymousConstructor(node)) {
                 // We shouldn't dig deeper
@@ -499,6 +504,7 @@ public class BaseTypeVisitor<Factory extends GenericAnnotatedTypeFactory<?, ?, ?
 
             visitorState.setMethodReceiver(preMRT);
             visitorState.setMethodTree(preMT);
+            profiler.exitMethod();
         }
     }
 
@@ -1,18 +1,35 @@
 package org.checkerframework.common.value;
 
+/*>>>
+import org.checkerframework.checker.nullness.qual.Nullable;
+*/
 
+import org.checkerframework.framework.util.LRUCache;
 import org.checkerframework.javacutil.ElementUtils;
+import org.checkerframework.javacutil.ErrorReporter;
 import org.checkerframework.javacutil.TreeUtils;
 import org.checkerframework.javacutil.TypesUtils;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ExecutableElement;
@@ -29,14 +46,106 @@ import com.sun.source.tree.MethodInvocationTree;
 import com.sun.source.tree.NewClassTree;
 import com.sun.source.tree.Tree;
 
+/**
+ * Evaluates statically executable methods, constructors, and static fields
+ * by reflection.
+ *
+ * The methods and constructors that a tree invokes are looked up once per
+ * element, including the lookups that fail, and the result of invoking a
+ * method or constructor with given arguments is remembered.  Each
+ * invocation runs with a time budget, given in milliseconds by the
+ * command-line option {@code -AevaluationTimeout}, so that a slow or
+ * non-terminating method cannot stall the compilation.  Invocations run in
+ * a bounded pool of daemon threads shared by all evaluators.  An invocation
+ * that runs out of time is interrupted, and its method or constructor is
+ * not invoked again.
+ */
 public class ReflectiveEvalutator {
+    /** The default time budget of an invocation, in milliseconds. */
+    public static final int DEFAULT_EVALUATION_TIMEOUT = 1000;
+
+    /** The maximum number of invocations whose result is remembered. */
+    private static final int MAX_EVALUATIONS = 1000;
+
+    /**
+     * The maximum number of threads that invoke methods.  A thread whose
+     * invocation ran out of time and ignores the interrupt stays busy.
+     */
+    private static final int MAX_EVALUATION_THREADS = 4;
+
+    /** The threads that invoke methods, shared by all evaluators. */
+    private static final ThreadPoolExecutor EXECUTOR = createExecutor();
+
+    /** Stands for a remembered invocation that returned null. */
+    private static final Object NULL_RESULT = new Object();
+
     private BaseTypeChecker checker;
     private boolean reportWarnings;
 
+    /** The time budget of an invocation in milliseconds, or 0 for none. */
+    private final long timeout;
+
+    /** The methods and constructors of the invoked elements. */
+    private final Map<ExecutableElement, Resolution> resolutions = new HashMap<>();
+
+    /**
+     * The results of invocations, keyed by the member, the receiver, and the
+     * arguments.  A value is the result, {@link #NULL_RESULT}, or the
+     * {@link Failure} of the invocation.
+     */
+    private final LRUCache<List<Object>, Object> evaluations =
+            new LRUCache<>("ReflectiveEvalutator.evaluations", MAX_EVALUATIONS);
+
+    /** The methods and constructors that ran out of time, and the warning to report for them. */
+    private final Map<Member, Failure> timedOut = new HashMap<>();
+
     public ReflectiveEvalutator(BaseTypeChecker checker,
             ValueAnnotatedTypeFactory factory, boolean reportWarnings) {
         this.checker = checker;
         this.reportWarnings = reportWarnings;
+        this.timeout = parseTimeout(checker.getOption("evaluationTimeout"));
+    }
+
+    private static long parseTimeout(/*@Nullable*/ String value) {
+        if (value == null) {
+            return DEFAULT_EVALUATION_TIMEOUT;
+        }
+        try {
+            long result = Long.parseLong(value);
+            if (result >= 0) {
+                return result;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        ErrorReporter.errorAbort("ReflectiveEvalutator: the value of -AevaluationTimeout" +
+                " must be a non-negative integer, but is: " + value);
+        return 0; // dead code
+    }
+
+    /** The method or constructor of an element, or why it could not be found. */
+    private static class Resolution {
+        final /*@Nullable*/ Member member;
+        final /*@Nullable*/ Result failure;
+
+        Resolution(/*@Nullable*/ Member member, /*@Nullable*/ Result failure) {
+            this.member = member;
+            this.failure = failure;
+        }
+    }
+
+    /** An invocation that threw an exception or ran out of time. */
+    private static class Failure {
+        final Result warning;
+
+        Failure(Result warning) {
+            this.warning = warning;
+        }
+    }
+
+    /** @return the cache of the results of invocations */
+    public LRUCache<List<Object>, Object> getEvaluationCache() {
+        return evaluations;
     }
 
     /**
@@ -54,7 +163,7 @@ public class ReflectiveEvalutator {
      */
     public List<?> evaluteMethodCall(List<List<?>> allArgValues,
             List<?> receiverValues, MethodInvocationTree tree) {
-        Method method = getMethodObject(tree);
+        Method method = (Method) resolve(TreeUtils.elementFromUse(tree), tree, null);
         if (method == null) {
             return new ArrayList<>();
         }
@@ -81,16 +190,15 @@ public class ReflectiveEvalutator {
         for (Object[] arguments : listOfArguments) {
             for (Object receiver : receiverValues) {
                 try {
-                    results.add(method.invoke(receiver, arguments));
-                } catch (InvocationTargetException e) {
-                    if (reportWarnings)
-                        checker.report(Result.warning(
-                                "method.evaluation.exception", method, e
-                                        .getTargetException().toString()), tree);
-                    // Method evaluation will always fail, so don't bother
-                    // trying again
-                    return new ArrayList<Object>();
-
+                    Object result = evaluate(method, receiver, arguments);
+                    if (result instanceof Failure) {
+                        if (reportWarnings)
+                            checker.report(((Failure) result).warning, tree);
+                        // Method evaluation will always fail, so don't bother
+                        // trying again
+                        return new ArrayList<Object>();
+                    }
+                    results.add(result);
                 } catch (ReflectiveOperationException e) {
                     if (reportWarnings)
                         checker.report(Result.warning(
@@ -103,56 +211,187 @@ public class ReflectiveEvalutator {
 
     }
 
+    /**
+     * Returns the method or constructor of {@code ele}, looking it up by
+     * reflection the first time, so that it can (potentially) be statically
+     * executed by the checker for constant propagation.  Reports a warning
+     * if it cannot be found.
+     *
+     * @param ele the element of a method or constructor
+     * @param tree the invocation of {@code ele}, to report warnings at
+     * @param typeToCreate the type that the constructor creates, or null
+     *            for a method
+     * @return the {@link Method} or {@link Constructor} of {@code ele}, or
+     *         null if it cannot be found
+     */
+    private /*@Nullable*/ Member resolve(ExecutableElement ele, Tree tree,
+            /*@Nullable*/ TypeMirror typeToCreate) {
+        Resolution resolution = resolutions.get(ele);
+        if (resolution == null) {
+            resolution = (typeToCreate == null ? getMethodObject(ele)
+                    : getConstrutorObject(ele, typeToCreate));
+            resolutions.put(ele, resolution);
+        }
+        if (resolution.failure != null && reportWarnings) {
+            checker.report(resolution.failure, tree);
+        }
+        return resolution.member;
+    }
+
     /**
      * Method for reflectively obtaining a method object so it can (potentially)
      * be statically executed by the checker for constant propagation
      *
-     * @return the Method object corresponding to the method being invoke in
-     *         tree
-     * @throws ClassNotFoundException
-     * @throws NoSuchMethodException
+     * @return the Method object corresponding to {@code ele}, or the
+     *         warning to report if there is none
      */
-    private Method getMethodObject(MethodInvocationTree tree) {
+    private Resolution getMethodObject(ExecutableElement ele) {
         try {
-            ExecutableElement ele = TreeUtils.elementFromUse(tree);
             Name clazz = TypesUtils.getQualifiedName((DeclaredType) ele
                     .getEnclosingElement().asType());
-            List<Class<?>> paramClzz = getParameterClasses(tree, ele);
+            List<Class<?>> paramClzz = getParameterClasses(ele);
             Class<?> clzz = Class.forName(clazz.toString());
             Method method = clzz.getMethod(ele.getSimpleName().toString(),
                     paramClzz.toArray(new Class<?>[0]));
             if (!method.isAccessible()) {
                 method.setAccessible(true);
             }
-            return method;
+            return new Resolution(method, null);
         } catch (ClassNotFoundException | UnsupportedClassVersionError e) {
-            if (reportWarnings)
-                checker.report(
-                        Result.warning("class.find.failed", (TreeUtils
-                                .elementFromUse(tree)).getEnclosingElement()),
-                        tree);
-            return null;
+            return new Resolution(null,
+                    Result.warning("class.find.failed", ele.getEnclosingElement()));
 
         } catch (NoSuchMethodException e) {
             // The class we attempted to getMethod from inside the
             // call to getMethodObject.
-            Element classElem = TreeUtils.elementFromUse(tree)
-                    .getEnclosingElement();
+            Element classElem = ele.getEnclosingElement();
 
             if (classElem == null) {
-                if (reportWarnings)
-                    checker.report(Result.warning("method.find.failed"), tree);
+                return new Resolution(null, Result.warning("method.find.failed"));
             } else {
-                if (reportWarnings)
-                    checker.report(Result.warning(
-                            "method.find.failed.in.class", classElem), tree);
+                return new Resolution(null,
+                        Result.warning("method.find.failed.in.class", classElem));
             }
-            return null;
         }
     }
 
-    private List<Class<?>> getParameterClasses(Tree tree,
-            ExecutableElement ele) throws ClassNotFoundException {
+    /**
+     * Invokes a method or constructor, or returns the remembered result of
+     * the same invocation.
+     *
+     * @param member a {@link Method} or {@link Constructor}
+     * @param receiver the receiver of a method, or null
+     * @param arguments the arguments, or null if there are none
+     * @return the result of the invocation, which may be null, or a
+     *         {@link Failure} if the invocation threw an exception or ran
+     *         out of time
+     */
+    private /*@Nullable*/ Object evaluate(final Member member, final /*@Nullable*/ Object receiver,
+            final Object /*@Nullable*/ [] arguments) throws ReflectiveOperationException {
+        Failure failure = timedOut.get(member);
+        if (failure != null) {
+            return failure;
+        }
+        List<Object> key = new ArrayList<>();
+        key.add(member);
+        key.add(receiver);
+        if (arguments != null) {
+            key.addAll(Arrays.asList(arguments));
+        }
+        Object result = evaluations.get(key);
+        if (result == null) {
+            result = invoke(new Callable<Object>() {
+                @Override
+                public Object call() throws ReflectiveOperationException {
+                    if (member instanceof Method) {
+                        return ((Method) member).invoke(receiver, arguments);
+                    } else {
+                        return ((Constructor<?>) member).newInstance(arguments);
+                    }
+                }
+            }, member);
+            evaluations.put(key, (result == null ? NULL_RESULT : result));
+        }
+        return (result == NULL_RESULT ? null : result);
+    }
+
+    /**
+     * Runs {@code call} within the time budget.
+     *
+     * @return the result of {@code call}, or a {@link Failure} if it threw
+     *         an exception or ran out of time
+     */
+    private /*@Nullable*/ Object invoke(Callable<Object> call, Member member)
+            throws ReflectiveOperationException {
+        try {
+            if (timeout == 0) {
+                return call.call();
+            }
+            Future<Object> future;
+            try {
+                future = EXECUTOR.submit(call);
+            } catch (RejectedExecutionException e) {
+                // All threads are stuck in invocations that ran out of time.
+                return new Failure(Result.warning("method.evaluation.timeout",
+                        member, timeout));
+            }
+            try {
+                return future.get(timeout, TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                throw e.getCause();
+            } catch (TimeoutException e) {
+                // Interrupt the invocation, and do not start another one
+                // that may not terminate either.
+                future.cancel(true);
+                Failure failure = new Failure(Result.warning("method.evaluation.timeout",
+                        member, timeout));
+                timedOut.put(member, failure);
+                return failure;
+            } catch (InterruptedException e) {
+                future.cancel(true);
+                Thread.currentThread().interrupt();
+                return new Failure(Result.warning("method.evaluation.timeout",
+                        member, timeout));
+            }
+        } catch (InvocationTargetException e) {
+            if (member instanceof Method) {
+                return new Failure(Result.warning("method.evaluation.exception",
+                        member, e.getTargetException().toString()));
+            } else {
+                return new Failure(Result.warning("constructor.invocation.failed"));
+            }
+        } catch (ReflectiveOperationException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            // Callable.call only throws ReflectiveOperationExceptions.
+            throw new AssertionError(t);
+        }
+    }
+
+    /**
+     * Creates the executor of invocations.  It rejects an invocation if all
+     * {@link #MAX_EVALUATION_THREADS} threads are busy, rather than queue it
+     * behind an invocation that may never finish.
+     */
+    private static ThreadPoolExecutor createExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_EVALUATION_THREADS,
+                MAX_EVALUATION_THREADS, 10, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "ReflectiveEvalutator");
+                        // Do not keep the JVM alive for a method that
+                        // does not terminate.
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        // Do not keep idle threads after the compilation.
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private List<Class<?>> getParameterClasses(ExecutableElement ele) {
         List<? extends VariableElement> paramEles = ele.getParameters();
         List<Class<?>> paramClzz = new ArrayList<>();
         for (Element e : paramEles) {
@@ -218,8 +457,8 @@ public class ReflectiveEvalutator {
             NewClassTree tree, TypeMirror typeToCreate) {
         try {
             // get the constructor
-            Constructor<?> constructor = 
-                    getConstrutorObject(tree,typeToCreate);
+            Constructor<?> constructor = (Constructor<?>) resolve(
+                    TreeUtils.elementFromUse(tree), tree, typeToCreate);
             if (constructor == null) {
                 return new ArrayList<>();
             }
@@ -237,35 +476,37 @@ public class ReflectiveEvalutator {
             
             List<Object> results = new ArrayList<>();
             for (Object[] arguments : listOfArguments) {
-                try {
-                    results.add(constructor.newInstance(arguments));
-                } catch (ReflectiveOperationException e) {
+                Object result = evaluate(constructor, null, arguments);
+                if (result instanceof Failure) {
                     if (reportWarnings)
-                        checker.report(
-                                Result.warning("constructor.invocation.failed"),
-                                tree);
+                        checker.report(((Failure) result).warning, tree);
                     return new ArrayList<Object>();
-                } 
+                }
+                results.add(result);
                 return results;
             }
 
         } catch (ReflectiveOperationException e) {
             if (reportWarnings)
-                checker.report(Result.warning("constructor.evaluation.failed"),
+                checker.report(
+                        Result.warning("constructor.invocation.failed"),
                         tree);
         }
         return new ArrayList<>();
     }
 
-    private Constructor<?> getConstrutorObject(NewClassTree tree, TypeMirror typeToCreate)
-            throws ClassNotFoundException, NoSuchMethodException {
-        ExecutableElement ele = TreeUtils.elementFromUse(tree);
-        List<Class<?>> paramClasses = getParameterClasses(tree, ele);
+    private Resolution getConstrutorObject(ExecutableElement ele, TypeMirror typeToCreate) {
+        List<Class<?>> paramClasses = getParameterClasses(ele);
         Class<?> recClass = boxPrimatives(ValueCheckerUtils.getClassFromType(typeToCreate));
-        Constructor<?> constructor = recClass.getConstructor(paramClasses
-                .toArray(new Class<?>[0]));
-        return constructor;
+        try {
+            Constructor<?> constructor = recClass.getConstructor(paramClasses
+                    .toArray(new Class<?>[0]));
+            return new Resolution(constructor, null);
+        } catch (NoSuchMethodException e) {
+            return new Resolution(null, Result.warning("constructor.evaluation.failed"));
+        }
     }
+
     /**
      * Returns the box primitive type if the passed type is an (unboxed)
      * primitive. Otherwise it returns the passed type
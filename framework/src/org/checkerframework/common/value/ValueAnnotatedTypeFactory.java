@@ -6,12 +6,14 @@ import org.checkerframework.common.value.qual.ArrayLen;
 import org.checkerframework.common.value.qual.BoolVal;
 import org.checkerframework.common.value.qual.BottomVal;
 import org.checkerframework.common.value.qual.DoubleVal;
+import org.checkerframework.common.value.qual.IntRange;
 import org.checkerframework.common.value.qual.IntVal;
 import org.checkerframework.common.value.qual.StaticallyExecutable;
 import org.checkerframework.common.value.qual.StringVal;
 import org.checkerframework.common.value.qual.UnknownVal;
 import org.checkerframework.common.value.util.NumberMath;
 import org.checkerframework.common.value.util.NumberUtils;
+import org.checkerframework.common.value.util.Range;
 import org.checkerframework.framework.flow.CFAbstractAnalysis;
 import org.checkerframework.framework.flow.CFStore;
 import org.checkerframework.framework.flow.CFTransfer;
@@ -30,6 +32,7 @@ import org.checkerframework.framework.type.treeannotator.TreeAnnotator;
 import org.checkerframework.framework.type.typeannotator.ListTypeAnnotator;
 import org.checkerframework.framework.type.typeannotator.TypeAnnotator;
 import org.checkerframework.framework.util.AnnotationBuilder;
+import org.checkerframework.framework.util.LRUCache;
 import org.checkerframework.framework.util.MultiGraphQualifierHierarchy;
 import org.checkerframework.framework.util.MultiGraphQualifierHierarchy.MultiGraphFactory;
 import org.checkerframework.framework.util.defaults.QualifierDefaults;
@@ -71,7 +74,7 @@ import com.sun.source.tree.UnaryTree;
  *
  */
 @TypeQualifiers({ ArrayLen.class, BoolVal.class, DoubleVal.class, IntVal.class,
-        StringVal.class, BottomVal.class, UnknownVal.class })
+        IntRange.class, StringVal.class, BottomVal.class, UnknownVal.class })
 public class ValueAnnotatedTypeFactory extends BaseAnnotatedTypeFactory {
 
     protected final AnnotationMirror  UNKNOWNVAL,BOTTOMVAL;
@@ -124,6 +127,13 @@ public class ValueAnnotatedTypeFactory extends BaseAnnotatedTypeFactory {
         reportWarnings = true;
     }
 
+    @Override
+    public List<LRUCache<?, ?>> getCaches() {
+        List<LRUCache<?, ?>> caches = super.getCaches();
+        caches.add(evalutator.getEvaluationCache());
+        return caches;
+    }
+
     @Override
     public CFTransfer createFlowTransferFunction(
             CFAbstractAnalysis<CFValue, CFStore, CFTransfer> analysis) {
@@ -151,11 +161,24 @@ public class ValueAnnotatedTypeFactory extends BaseAnnotatedTypeFactory {
         } else if (anno.hasAnnotation(IntVal.class)) {
             return postFixInt(anno,
                     tree.getKind() == Tree.Kind.POSTFIX_INCREMENT);
+        } else if (anno.hasAnnotation(IntRange.class)) {
+            return postFixRange(anno,
+                    tree.getKind() == Tree.Kind.POSTFIX_INCREMENT);
         }
         return anno;
 
     }
 
+    private AnnotatedTypeMirror postFixRange(AnnotatedTypeMirror anno,
+            boolean increment) {
+        Range range = getRange(anno.getAnnotation(IntRange.class));
+        // The value before the operation, as for postFixInt.
+        Range result = range.plus(new Range(increment ? -1 : 1, increment ? -1 : 1));
+        result = result.castTo(NumberUtils.unBoxPrimative(anno.getUnderlyingType()));
+        anno.replaceAnnotation(createIntRangeAnnotation(result));
+        return anno;
+    }
+
     private AnnotatedTypeMirror postFixInt(AnnotatedTypeMirror anno,
             boolean increment) {
         List<Long> values = getIntValues(
@@ -243,6 +266,7 @@ public class ValueAnnotatedTypeFactory extends BaseAnnotatedTypeFactory {
 
         @Override
         public Void visitPrimitive(AnnotatedPrimitiveType type, Void p) {
+            replaceWithUnknownValIfEmpty((AnnotatedTypeMirror) type);
             replaceWithUnknownValIfTooManyValues((AnnotatedTypeMirror) type);
 
             return super.visitPrimitive(type, p);
@@ -250,14 +274,32 @@ public class ValueAnnotatedTypeFactory extends BaseAnnotatedTypeFactory {
 
         @Override
         public Void visitDeclared(AnnotatedDeclaredType type, Void p) {
+            replaceWithUnknownValIfEmpty((AnnotatedTypeMirror) type);
             replaceWithUnknownValIfTooManyValues((AnnotatedTypeMirror) type);
 
             return super.visitDeclared(type, p);
         }
 
+        /**
+         * If an @IntVal or @IntRange annotation has no values, treats the
+         * value as UnknownVal. Works together with
+         * ValueVisitor.visitAnnotation, which issues an error to the user in
+         * this case.
+         */
+        private void replaceWithUnknownValIfEmpty(AnnotatedTypeMirror atm) {
+            AnnotationMirror anno = atm.getAnnotationInHierarchy(UNKNOWNVAL);
+            if (anno != null
+                    && (AnnotationUtils.areSameByClass(anno, IntVal.class)
+                            || AnnotationUtils.areSameByClass(anno, IntRange.class))
+                    && !hasValues(anno)) {
+                atm.replaceAnnotation(UNKNOWNVAL);
+            }
+        }
+
         /**
          * If any constant-value annotation has &gt; MAX_VALUES number of values
-         * provided, treats the value as UnknownVal. Works together with
+         * provided, treats the value as UnknownVal, or an @IntVal as the
+         * @IntRange of its values. Works together with
          * ValueVisitor.visitAnnotation, which issues a warning to the user in
          * this case.
          */
@@ -265,11 +307,16 @@ public class ValueAnnotatedTypeFactory extends BaseAnnotatedTypeFactory {
                 AnnotatedTypeMirror atm) {
             AnnotationMirror anno = atm.getAnnotationInHierarchy(UNKNOWNVAL);
 
-            if (anno != null && anno.getElementValues().size() > 0) {
+            if (anno != null && anno.getElementValues().size() > 0
+                    && !AnnotationUtils.areSameByClass(anno, IntRange.class)) {
                 List<Object> values = AnnotationUtils.getElementValueArray(
                         anno, "value", Object.class, false);
                 if (values != null && values.size() > MAX_VALUES) {
-                    atm.replaceAnnotation(UNKNOWNVAL);
+                    if (AnnotationUtils.areSameByClass(anno, IntVal.class)) {
+                        atm.replaceAnnotation(createIntValAnnotation(getIntValues(anno)));
+                    } else {
+                        atm.replaceAnnotation(UNKNOWNVAL);
+                    }
                 }
             }
         }
@@ -298,16 +345,70 @@ public class ValueAnnotatedTypeFactory extends BaseAnnotatedTypeFactory {
                 return a1;
             } else if (isSubtype(a2, a1)) {
                 return a2;
+            } else if (isIntegral(a1) && isIntegral(a2)) {
+                return intersect(a1, a2);
             } else {
                 // If the two are unrelated, then bottom is the GLB.
                 return BOTTOMVAL;
             }
         }
 
+        /**
+         * @return the GLB of two integral annotations: the values of a1 that
+         *         are also values of a2
+         */
+        private AnnotationMirror intersect(AnnotationMirror a1, AnnotationMirror a2) {
+            if (AnnotationUtils.areSameByClass(a1, IntRange.class)
+                    && AnnotationUtils.areSameByClass(a2, IntRange.class)) {
+                Range intersection = getRange(a1).intersect(getRange(a2));
+                if (intersection == null) {
+                    return BOTTOMVAL;
+                }
+                return createIntRangeAnnotation(intersection);
+            }
+            if (AnnotationUtils.areSameByClass(a1, IntRange.class)) {
+                AnnotationMirror tmp = a1;
+                a1 = a2;
+                a2 = tmp;
+            }
+            // a1 is an @IntVal.
+            List<Long> values = new ArrayList<>();
+            for (Long value : getIntValues(a1)) {
+                if (containsValue(a2, value)) {
+                    values.add(value);
+                }
+            }
+            if (values.isEmpty()) {
+                return BOTTOMVAL;
+            }
+            return createIntValAnnotation(values);
+        }
+
+        /**
+         * Widens a range that grows between two iterations of a loop, so
+         * that the values of a variable that is changed in the loop reach a
+         * fixed point quickly.  Other qualifiers are not widened: there are
+         * only finitely many of them above any given qualifier.
+         */
+        @Override
+        public AnnotationMirror widenedUpperBound(AnnotationMirror previous,
+                AnnotationMirror next) {
+            AnnotationMirror lub = leastUpperBound(previous, next);
+            if (lub != null && AnnotationUtils.areSameByClass(lub, IntRange.class)
+                    && isIntegral(previous)) {
+                return createIntRangeAnnotation(getRange(previous).widen(getRange(lub)));
+            }
+            return lub;
+        }
+
         /**
          * Determines the least upper bound of a1 and a2. If a1 and a2 are both
          * the same type of Value annotation, then the LUB is the result of
-         * taking all values from both a1 and a2 and removing duplicates. If a1
+         * taking all values from both a1 and a2 and removing duplicates; for
+         * two {@code @IntVal}s with more than {@link #MAX_VALUES} distinct values in
+         * total, the LUB is the {@code @IntRange} that spans them. If either
+         * a1 or a2 is an {@code @IntRange} and the other is an integral
+         * qualifier, the LUB is the smallest range that contains both. If a1
          * and a2 are not the same type of Value annotation they may still be
          * mergeable because some values can be implicitly cast as others. If a1
          * and a2 are both in {DoubleVal, IntVal} then they will be converted
@@ -326,8 +427,20 @@ public class ValueAnnotatedTypeFactory extends BaseAnnotatedTypeFactory {
             } else if (isSubtype(a2, a1)) {
                 return a1;
             }
+            // If either is a range, the LUB is a range.
+            else if (isIntegral(a1) && isIntegral(a2)
+                    && (AnnotationUtils.areSameByClass(a1, IntRange.class)
+                            || AnnotationUtils.areSameByClass(a2, IntRange.class))) {
+                return createIntRangeAnnotation(getRange(a1).union(getRange(a2)));
+            }
             // If both are the same type, determine the type and merge:
-            else if (AnnotationUtils.areSameIgnoringValues(a1, a2)) {
+            else if (AnnotationUtils.areSameByClass(a1, IntVal.class)
+                    && AnnotationUtils.areSameByClass(a2, IntVal.class)) {
+                List<Long> newValues = getIntValues(a1);
+                newValues.addAll(getIntValues(a2));
+                // Too many values become a range.
+                return createIntValAnnotation(newValues);
+            } else if (AnnotationUtils.areSameIgnoringValues(a1, a2)) {
                 List<Object> a1Values = AnnotationUtils.getElementValueArray(
                         a1, "value", Object.class, true);
                 List<Object> a2Values = AnnotationUtils.getElementValueArray(
@@ -349,7 +462,9 @@ public class ValueAnnotatedTypeFactory extends BaseAnnotatedTypeFactory {
                 if (!(AnnotationUtils.areSameByClass(a1, IntVal.class)
                         || AnnotationUtils.areSameByClass(a1, DoubleVal.class)
                         || AnnotationUtils.areSameByClass(a2, IntVal.class)
-                        || AnnotationUtils.areSameByClass(a2, DoubleVal.class))) {
+                        || AnnotationUtils.areSameByClass(a2, DoubleVal.class))
+                        || AnnotationUtils.areSameByClass(a1, IntRange.class)
+                        || AnnotationUtils.areSameByClass(a2, IntRange.class)) {
                     return UNKNOWNVAL;
                 } else {
                     // At this point one of them must be a DoubleVal and one an
@@ -392,6 +507,32 @@ public class ValueAnnotatedTypeFactory extends BaseAnnotatedTypeFactory {
             } else if (AnnotationUtils.areSameByClass(rhs, UnknownVal.class)
                     || AnnotationUtils.areSameByClass(lhs, BottomVal.class)) {
                 return false;
+            } else if (isIntegral(lhs) && isIntegral(rhs)
+                    && !(AnnotationUtils.areSameByClass(lhs, IntVal.class)
+                            && AnnotationUtils.areSameByClass(rhs, IntVal.class))) {
+                // At least one range: every value of rhs must be a value of lhs
+                if (AnnotationUtils.areSameByClass(rhs, IntVal.class)) {
+                    for (Long value : getIntValues(rhs)) {
+                        if (!containsValue(lhs, value)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }
+                Range rhsRange = getRange(rhs);
+                if (AnnotationUtils.areSameByClass(lhs, IntRange.class)) {
+                    return getRange(lhs).contains(rhsRange);
+                }
+                List<Long> lhsValues = getIntValues(lhs);
+                if (rhsRange.size() > lhsValues.size()) {
+                    return false;
+                }
+                for (long i = 0; i < rhsRange.size(); i++) {
+                    if (!lhsValues.contains(rhsRange.from + i)) {
+                        return false;
+                    }
+                }
+                return true;
             } else if (AnnotationUtils.areSameIgnoringValues(lhs, rhs)) {
                 // Same type, so might be subtype
                 List<Object> lhsValues = AnnotationUtils.getElementValueArray(
@@ -423,6 +564,19 @@ public class ValueAnnotatedTypeFactory extends BaseAnnotatedTypeFactory {
             return false;
         }
 
+        /** @return true if {@code anno} is an @IntVal or an @IntRange */
+        private boolean isIntegral(AnnotationMirror anno) {
+            return AnnotationUtils.areSameByClass(anno, IntVal.class)
+                    || AnnotationUtils.areSameByClass(anno, IntRange.class);
+        }
+
+        /** @return true if {@code value} is a value of the @IntVal or @IntRange {@code anno} */
+        private boolean containsValue(AnnotationMirror anno, long value) {
+            if (AnnotationUtils.areSameByClass(anno, IntRange.class)) {
+                return getRange(anno).contains(value);
+            }
+            return getIntValues(anno).contains(value);
+        }
     }
 
     @Override
@@ -499,7 +653,7 @@ public class ValueAnnotatedTypeFactory extends BaseAnnotatedTypeFactory {
 
             AnnotationMirror dimType = getAnnotatedType(dimensions.get(0))
                     .getAnnotationInHierarchy(UNKNOWNVAL);
-            if (!AnnotationUtils.areSameIgnoringValues(dimType, UNKNOWNVAL)) {
+            if (AnnotationUtils.areSameByClass(dimType, IntVal.class)) {
                 List<Long> longLengths = getIntValues(dimType);
 
                 HashSet<Integer> lengths = new HashSet<Integer>(
@@ -606,6 +760,13 @@ public class ValueAnnotatedTypeFactory extends BaseAnnotatedTypeFactory {
         public Void visitTypeCast(TypeCastTree tree, AnnotatedTypeMirror type) {
             if (isUnderlyingTypeAValue(type)) {
                 AnnotatedTypeMirror castedAnnotation = getAnnotatedType(tree.getExpression());
+                AnnotationMirror range = castedAnnotation.getAnnotation(IntRange.class);
+                TypeKind castTo = NumberUtils.unBoxPrimative(type.getUnderlyingType());
+                if (range != null && castTo.isPrimitive()
+                        && TypesUtils.isIntegral(types.getPrimitiveType(castTo))) {
+                    type.replaceAnnotation(createIntRangeAnnotation(getRange(range).castTo(castTo)));
+                    return null;
+                }
                 List<?> values = getValues(castedAnnotation, type.getUnderlyingType());
                 type.replaceAnnotation(resultAnnotationHandler(type.getUnderlyingType(), values, tree));
             } else if (type.getKind() == TypeKind.ARRAY) {
@@ -919,17 +1080,50 @@ public class ValueAnnotatedTypeFactory extends BaseAnnotatedTypeFactory {
         }
     }
 
+    /**
+     * Creates an @IntVal annotation with the given values, or an @IntRange
+     * annotation with the smallest range of the values if there are more
+     * than MAX_VALUES of them.
+     */
     public AnnotationMirror createIntValAnnotation(List<Long> intValues) {
         intValues = ValueCheckerUtils.removeDuplicates(intValues);
-        if (intValues.isEmpty() || intValues.size() > MAX_VALUES) {
+        if (intValues.isEmpty()) {
             return UNKNOWNVAL;
         }
+        if (intValues.size() > MAX_VALUES) {
+            // The values are sorted.
+            return createIntRangeAnnotation(new Range(intValues.get(0),
+                    intValues.get(intValues.size() - 1)));
+        }
         AnnotationBuilder builder = new AnnotationBuilder(processingEnv,
                 IntVal.class);
         builder.setValue("value", intValues);
         return builder.build();
     }
 
+    /**
+     * Creates an annotation for the values in a range: @IntVal if there are
+     * at most MAX_VALUES of them, @UnknownVal if the range contains all
+     * longs, and @IntRange otherwise.
+     */
+    public AnnotationMirror createIntRangeAnnotation(Range range) {
+        if (range.isEverything()) {
+            return UNKNOWNVAL;
+        }
+        if (range.size() <= MAX_VALUES) {
+            List<Long> values = new ArrayList<>();
+            for (long i = 0; i < range.size(); i++) {
+                values.add(range.from + i);
+            }
+            return createIntValAnnotation(values);
+        }
+        AnnotationBuilder builder = new AnnotationBuilder(processingEnv,
+                IntRange.class);
+        builder.setValue("from", range.from);
+        builder.setValue("to", range.to);
+        return builder.build();
+    }
+
     public AnnotationMirror createDoubleValAnnotation(List<Double> doubleValues) {
         doubleValues = ValueCheckerUtils.removeDuplicates(doubleValues);
         if (doubleValues.isEmpty() || doubleValues.size() > MAX_VALUES) {
@@ -1016,6 +1210,38 @@ public class ValueAnnotatedTypeFactory extends BaseAnnotatedTypeFactory {
                 intAnno, "value", Long.class, true);
     }
 
+    /**
+     * @return true if the @IntVal or @IntRange annotation {@code intAnno}
+     *         has at least one value
+     */
+    public static boolean hasValues(AnnotationMirror intAnno) {
+        if (AnnotationUtils.areSameByClass(intAnno, IntRange.class)) {
+            Long from = AnnotationUtils.getElementValue(intAnno, "from", Long.class, true);
+            Long to = AnnotationUtils.getElementValue(intAnno, "to", Long.class, true);
+            return from <= to;
+        }
+        return !getIntValues(intAnno).isEmpty();
+    }
+
+    /**
+     * @return the range of an @IntRange annotation, or the smallest range of
+     *         the values of an @IntVal annotation, which must have values
+     *         (see {@link #hasValues})
+     */
+    public static Range getRange(AnnotationMirror intAnno) {
+        if (AnnotationUtils.areSameByClass(intAnno, IntRange.class)) {
+            Long from = AnnotationUtils.getElementValue(intAnno, "from", Long.class, true);
+            Long to = AnnotationUtils.getElementValue(intAnno, "to", Long.class, true);
+            return new Range(from, to);
+        }
+        List<Long> values = getIntValues(intAnno);
+        long[] longValues = new long[values.size()];
+        for (int i = 0; i < longValues.length; i++) {
+            longValues[i] = values.get(i);
+        }
+        return Range.hull(longValues);
+    }
+
     public static List<Double> getDoubleValues(AnnotationMirror doubleAnno) {
         return AnnotationUtils.getElementValueArray(
                 doubleAnno, "value", Double.class, true);
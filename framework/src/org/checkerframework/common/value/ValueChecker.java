@@ -6,12 +6,15 @@ import org.checkerframework.common.basetype.BaseTypeChecker;
 import org.checkerframework.common.basetype.BaseTypeVisitor;
 import org.checkerframework.framework.qual.StubFiles;
 
+import javax.annotation.processing.SupportedOptions;
+
 /**
  * @author plvines
  * 
  * @checker_framework.manual #constant-value-checker Constant Value Checker
  */
 @StubFiles("statically-executable.astub")
+@SupportedOptions({"evaluationTimeout"})
 public class ValueChecker extends BaseTypeChecker {
 
     @Override
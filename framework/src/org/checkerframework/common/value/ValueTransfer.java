@@ -3,11 +3,13 @@ package org.checkerframework.common.value;
 import org.checkerframework.common.value.qual.BoolVal;
 import org.checkerframework.common.value.qual.BottomVal;
 import org.checkerframework.common.value.qual.DoubleVal;
+import org.checkerframework.common.value.qual.IntRange;
 import org.checkerframework.common.value.qual.IntVal;
 import org.checkerframework.common.value.qual.StringVal;
 import org.checkerframework.common.value.qual.UnknownVal;
 import org.checkerframework.common.value.util.NumberMath;
 import org.checkerframework.common.value.util.NumberUtils;
+import org.checkerframework.common.value.util.Range;
 import org.checkerframework.dataflow.analysis.RegularTransferResult;
 import org.checkerframework.dataflow.analysis.TransferInput;
 import org.checkerframework.dataflow.analysis.TransferResult;
@@ -20,12 +22,18 @@ import org.checkerframework.framework.type.AnnotatedTypeFactory;
 import org.checkerframework.javacutil.AnnotationUtils;
 import org.checkerframework.javacutil.TypesUtils;
 
+/*>>>
+import org.checkerframework.checker.nullness.qual.Nullable;
+*/
+
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
 
 
 public class ValueTransfer extends CFTransfer {
@@ -112,6 +120,65 @@ public class ValueTransfer extends CFTransfer {
         return NumberUtils.castNumbers(subNode.getType(), values);
     }
 
+    /** @return true if the value of {@code subNode} is described by an @IntRange */
+    private boolean hasIntRange(Node subNode, TransferInput<CFValue, CFStore> p) {
+        return p.getValueOfSubNode(subNode).getType().hasAnnotation(IntRange.class);
+    }
+
+    /**
+     * @return the range of the values of {@code subNode}, or null if its
+     *         type is not integral or its values are not known
+     */
+    private /*@Nullable*/ Range getIntRange(Node subNode,
+            TransferInput<CFValue, CFStore> p) {
+        if (!isIntegral(subNode.getType())) {
+            return null;
+        }
+        CFValue value = p.getValueOfSubNode(subNode);
+        AnnotationMirror anno = value.getType().getAnnotation(IntRange.class);
+        if (anno == null) {
+            anno = value.getType().getAnnotation(IntVal.class);
+            if (anno == null || ValueAnnotatedTypeFactory.getIntValues(anno).isEmpty()) {
+                return null;
+            }
+        }
+        return ValueAnnotatedTypeFactory.getRange(anno).castTo(
+                NumberUtils.unBoxPrimative(subNode.getType()));
+    }
+
+    /** @return true if {@code type} is an integral type or its boxed type */
+    private boolean isIntegral(TypeMirror type) {
+        switch (NumberUtils.unBoxPrimative(type)) {
+        case BYTE:
+        case CHAR:
+        case INT:
+        case LONG:
+        case SHORT:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Creates the annotation for a range of values of the integral type
+     * {@code type}; a range that contains all values of the type is
+     * @UnknownVal.
+     */
+    private AnnotationMirror createIntRangeAnnotationMirror(/*@Nullable*/ Range range,
+            TypeMirror type) {
+        ValueAnnotatedTypeFactory factory = (ValueAnnotatedTypeFactory) atypefactory;
+        if (range == null) {
+            return factory.UNKNOWNVAL;
+        }
+        TypeKind kind = NumberUtils.unBoxPrimative(type);
+        range = range.castTo(kind);
+        if (range.equals(Range.of(kind))) {
+            return factory.UNKNOWNVAL;
+        }
+        return factory.createIntRangeAnnotation(range);
+    }
+
     private AnnotationMirror createStringValAnnotationMirror(List<String> values) {
         if (values.isEmpty()) {
             return ((ValueAnnotatedTypeFactory) atypefactory).UNKNOWNVAL;
@@ -156,7 +223,11 @@ public class ValueTransfer extends CFTransfer {
 
     private TransferResult<CFValue, CFStore> createNewResult(
             TransferResult<CFValue, CFStore> result, List<Number> resultValues) {
-        AnnotationMirror stringVal = createNumberAnnotationMirror(resultValues);
+        return createNewResult(result, createNumberAnnotationMirror(resultValues));
+    }
+
+    private TransferResult<CFValue, CFStore> createNewResult(
+            TransferResult<CFValue, CFStore> result, AnnotationMirror stringVal) {
         CFValue newResultValue = analysis.createSingleAnnotationValue(
                 stringVal, result.getResultValue().getType()
                         .getUnderlyingType());
@@ -199,6 +270,46 @@ public class ValueTransfer extends CFTransfer {
         ADDTION, SUBTRACTION, DIVISION, REMAINDER, MULPLICATION, SHIFT_LEFT, SIGNED_SHIFT_RIGHT, UNSIGNED_SHIFT_RIGHT, BITWISE_AND, BITWISE_OR, BITWISE_XOR;
     }
 
+    /**
+     * Computes the result of a binary operation: on ranges if an operand is
+     * an @IntRange and the operation is integral, and on the values of the
+     * operands otherwise.
+     */
+    private TransferResult<CFValue, CFStore> createNewResult(
+            TransferResult<CFValue, CFStore> result, Node n, Node leftNode,
+            Node rightNode, NumbericalBinaryOps op,
+            TransferInput<CFValue, CFStore> p) {
+        if (hasIntRange(leftNode, p) || hasIntRange(rightNode, p)) {
+            Range left = getIntRange(leftNode, p);
+            Range right = getIntRange(rightNode, p);
+            if (left != null && right != null && isIntegral(n.getType())) {
+                return createNewResult(result,
+                        createIntRangeAnnotationMirror(calculateRangeBinaryOp(left, right, op), n.getType()));
+            }
+        }
+        return createNewResult(result,
+                calcutateNumericalBinaryOp(leftNode, rightNode, op, p));
+    }
+
+    /** @return the range of the results of {@code op}, or null if it is unknown */
+    private /*@Nullable*/ Range calculateRangeBinaryOp(Range left, Range right,
+            NumbericalBinaryOps op) {
+        switch (op) {
+        case ADDTION:
+            return left.plus(right);
+        case SUBTRACTION:
+            return left.minus(right);
+        case MULPLICATION:
+            return left.times(right);
+        case DIVISION:
+            return left.divide(right);
+        case REMAINDER:
+            return left.remainder(right);
+        default:
+            return null;
+        }
+    }
+
     private List<Number> calcutateNumericalBinaryOp(Node leftNode,
             Node rightNode, NumbericalBinaryOps op,
             TransferInput<CFValue, CFStore> p) {
@@ -255,10 +366,8 @@ public class ValueTransfer extends CFTransfer {
             NumericalAdditionNode n, TransferInput<CFValue, CFStore> p) {
         TransferResult<CFValue, CFStore> transferResult = super
                 .visitNumericalAddition(n, p);
-        List<Number> resultValues = calcutateNumericalBinaryOp(
-                n.getLeftOperand(), n.getRightOperand(),
-                NumbericalBinaryOps.ADDTION, p);
-        return createNewResult(transferResult, resultValues);
+        return createNewResult(transferResult, n, n.getLeftOperand(),
+                n.getRightOperand(), NumbericalBinaryOps.ADDTION, p);
     }
 
     @Override
@@ -266,10 +375,8 @@ public class ValueTransfer extends CFTransfer {
             NumericalSubtractionNode n, TransferInput<CFValue, CFStore> p) {
         TransferResult<CFValue, CFStore> transferResult = super
                 .visitNumericalSubtraction(n, p);
-        List<Number> resultValues = calcutateNumericalBinaryOp(
-                n.getLeftOperand(), n.getRightOperand(),
-                NumbericalBinaryOps.SUBTRACTION, p);
-        return createNewResult(transferResult, resultValues);
+        return createNewResult(transferResult, n, n.getLeftOperand(),
+                n.getRightOperand(), NumbericalBinaryOps.SUBTRACTION, p);
     }
 
     @Override
@@ -277,10 +384,8 @@ public class ValueTransfer extends CFTransfer {
             NumericalMultiplicationNode n, TransferInput<CFValue, CFStore> p) {
         TransferResult<CFValue, CFStore> transferResult = super
                 .visitNumericalMultiplication(n, p);
-        List<Number> resultValues = calcutateNumericalBinaryOp(
-                n.getLeftOperand(), n.getRightOperand(),
-                NumbericalBinaryOps.MULPLICATION, p);
-        return createNewResult(transferResult, resultValues);
+        return createNewResult(transferResult, n, n.getLeftOperand(),
+                n.getRightOperand(), NumbericalBinaryOps.MULPLICATION, p);
     }
 
     @Override
@@ -288,10 +393,8 @@ public class ValueTransfer extends CFTransfer {
             IntegerDivisionNode n, TransferInput<CFValue, CFStore> p) {
         TransferResult<CFValue, CFStore> transferResult = super
                 .visitIntegerDivision(n, p);
-        List<Number> resultValues = calcutateNumericalBinaryOp(
-                n.getLeftOperand(), n.getRightOperand(),
-                NumbericalBinaryOps.DIVISION, p);
-        return createNewResult(transferResult, resultValues);
+        return createNewResult(transferResult, n, n.getLeftOperand(),
+                n.getRightOperand(), NumbericalBinaryOps.DIVISION, p);
     }
 
     @Override
@@ -299,10 +402,8 @@ public class ValueTransfer extends CFTransfer {
             FloatingDivisionNode n, TransferInput<CFValue, CFStore> p) {
         TransferResult<CFValue, CFStore> transferResult = super
                 .visitFloatingDivision(n, p);
-        List<Number> resultValues = calcutateNumericalBinaryOp(
-                n.getLeftOperand(), n.getRightOperand(),
-                NumbericalBinaryOps.DIVISION, p);
-        return createNewResult(transferResult, resultValues);
+        return createNewResult(transferResult, n, n.getLeftOperand(),
+                n.getRightOperand(), NumbericalBinaryOps.DIVISION, p);
     }
 
     @Override
@@ -310,10 +411,8 @@ public class ValueTransfer extends CFTransfer {
             IntegerRemainderNode n, TransferInput<CFValue, CFStore> p) {
         TransferResult<CFValue, CFStore> transferResult = super
                 .visitIntegerRemainder(n, p);
-        List<Number> resultValues = calcutateNumericalBinaryOp(
-                n.getLeftOperand(), n.getRightOperand(),
-                NumbericalBinaryOps.REMAINDER, p);
-        return createNewResult(transferResult, resultValues);
+        return createNewResult(transferResult, n, n.getLeftOperand(),
+                n.getRightOperand(), NumbericalBinaryOps.REMAINDER, p);
     }
 
     @Override
@@ -321,10 +420,8 @@ public class ValueTransfer extends CFTransfer {
             FloatingRemainderNode n, TransferInput<CFValue, CFStore> p) {
         TransferResult<CFValue, CFStore> transferResult = super
                 .visitFloatingRemainder(n, p);
-        List<Number> resultValues = calcutateNumericalBinaryOp(
-                n.getLeftOperand(), n.getRightOperand(),
-                NumbericalBinaryOps.REMAINDER, p);
-        return createNewResult(transferResult, resultValues);
+        return createNewResult(transferResult, n, n.getLeftOperand(),
+                n.getRightOperand(), NumbericalBinaryOps.REMAINDER, p);
     }
 
     @Override
@@ -332,10 +429,8 @@ public class ValueTransfer extends CFTransfer {
             TransferInput<CFValue, CFStore> p) {
         TransferResult<CFValue, CFStore> transferResult = super.visitLeftShift(
                 n, p);
-        List<Number> resultValues = calcutateNumericalBinaryOp(
-                n.getLeftOperand(), n.getRightOperand(),
-                NumbericalBinaryOps.SHIFT_LEFT, p);
-        return createNewResult(transferResult, resultValues);
+        return createNewResult(transferResult, n, n.getLeftOperand(),
+                n.getRightOperand(), NumbericalBinaryOps.SHIFT_LEFT, p);
     }
 
     @Override
@@ -343,10 +438,8 @@ public class ValueTransfer extends CFTransfer {
             SignedRightShiftNode n, TransferInput<CFValue, CFStore> p) {
         TransferResult<CFValue, CFStore> transferResult = super
                 .visitSignedRightShift(n, p);
-        List<Number> resultValues = calcutateNumericalBinaryOp(
-                n.getLeftOperand(), n.getRightOperand(),
-                NumbericalBinaryOps.SIGNED_SHIFT_RIGHT, p);
-        return createNewResult(transferResult, resultValues);
+        return createNewResult(transferResult, n, n.getLeftOperand(),
+                n.getRightOperand(), NumbericalBinaryOps.SIGNED_SHIFT_RIGHT, p);
     }
 
     @Override
@@ -354,10 +447,8 @@ public class ValueTransfer extends CFTransfer {
             UnsignedRightShiftNode n, TransferInput<CFValue, CFStore> p) {
         TransferResult<CFValue, CFStore> transferResult = super
                 .visitUnsignedRightShift(n, p);
-        List<Number> resultValues = calcutateNumericalBinaryOp(
-                n.getLeftOperand(), n.getRightOperand(),
-                NumbericalBinaryOps.UNSIGNED_SHIFT_RIGHT, p);
-        return createNewResult(transferResult, resultValues);
+        return createNewResult(transferResult, n, n.getLeftOperand(),
+                n.getRightOperand(), NumbericalBinaryOps.UNSIGNED_SHIFT_RIGHT, p);
     }
 
     @Override
@@ -365,10 +456,8 @@ public class ValueTransfer extends CFTransfer {
             TransferInput<CFValue, CFStore> p) {
         TransferResult<CFValue, CFStore> transferResult = super
                 .visitBitwiseAnd(n, p);
-        List<Number> resultValues = calcutateNumericalBinaryOp(
-                n.getLeftOperand(), n.getRightOperand(),
-                NumbericalBinaryOps.BITWISE_AND, p);
-        return createNewResult(transferResult, resultValues);
+        return createNewResult(transferResult, n, n.getLeftOperand(),
+                n.getRightOperand(), NumbericalBinaryOps.BITWISE_AND, p);
     }
 
     @Override
@@ -376,10 +465,8 @@ public class ValueTransfer extends CFTransfer {
             TransferInput<CFValue, CFStore> p) {
         TransferResult<CFValue, CFStore> transferResult = super.visitBitwiseOr(
                 n, p);
-        List<Number> resultValues = calcutateNumericalBinaryOp(
-                n.getLeftOperand(), n.getRightOperand(),
-                NumbericalBinaryOps.BITWISE_OR, p);
-        return createNewResult(transferResult, resultValues);
+        return createNewResult(transferResult, n, n.getLeftOperand(),
+                n.getRightOperand(), NumbericalBinaryOps.BITWISE_OR, p);
     }
 
     @Override
@@ -387,16 +474,46 @@ public class ValueTransfer extends CFTransfer {
             TransferInput<CFValue, CFStore> p) {
         TransferResult<CFValue, CFStore> transferResult = super
                 .visitBitwiseXor(n, p);
-        List<Number> resultValues = calcutateNumericalBinaryOp(
-                n.getLeftOperand(), n.getRightOperand(),
-                NumbericalBinaryOps.BITWISE_XOR, p);
-        return createNewResult(transferResult, resultValues);
+        return createNewResult(transferResult, n, n.getLeftOperand(),
+                n.getRightOperand(), NumbericalBinaryOps.BITWISE_XOR, p);
     }
 
     enum NumbericalUnaryOps {
         PLUS, MINUS, BITWISE_COMPLEMENT;
     }
 
+    /**
+     * Computes the result of a unary operation: on ranges if the operand is
+     * an @IntRange and the operation is integral, and on the values of the
+     * operand otherwise.
+     */
+    private TransferResult<CFValue, CFStore> createNewResult(
+            TransferResult<CFValue, CFStore> result, Node n, Node operand,
+            NumbericalUnaryOps op, TransferInput<CFValue, CFStore> p) {
+        if (hasIntRange(operand, p)) {
+            Range range = getIntRange(operand, p);
+            if (range != null && isIntegral(n.getType())) {
+                Range resultRange;
+                switch (op) {
+                case PLUS:
+                    resultRange = range;
+                    break;
+                case MINUS:
+                    resultRange = range.unaryMinus();
+                    break;
+                case BITWISE_COMPLEMENT:
+                    resultRange = range.bitwiseComplement();
+                    break;
+                default:
+                    throw new UnsupportedOperationException();
+                }
+                return createNewResult(result,
+                        createIntRangeAnnotationMirror(resultRange, n.getType()));
+            }
+        }
+        return createNewResult(result, calcutateNumericalUnaryOp(operand, op, p));
+    }
+
     private List<Number> calcutateNumericalUnaryOp(Node operand,
             NumbericalUnaryOps op, TransferInput<CFValue, CFStore> p) {
         List<? extends Number> lefts = getNumericalValues(operand, p);
@@ -426,9 +543,8 @@ public class ValueTransfer extends CFTransfer {
             NumericalMinusNode n, TransferInput<CFValue, CFStore> p) {
         TransferResult<CFValue, CFStore> transferResult = super
                 .visitNumericalMinus(n, p);
-        List<Number> resultValues = calcutateNumericalUnaryOp(n.getOperand(),
+        return createNewResult(transferResult, n, n.getOperand(),
                 NumbericalUnaryOps.MINUS, p);
-        return createNewResult(transferResult, resultValues);
     }
 
     @Override
@@ -436,9 +552,8 @@ public class ValueTransfer extends CFTransfer {
             NumericalPlusNode n, TransferInput<CFValue, CFStore> p) {
         TransferResult<CFValue, CFStore> transferResult = super
                 .visitNumericalPlus(n, p);
-        List<Number> resultValues = calcutateNumericalUnaryOp(n.getOperand(),
+        return createNewResult(transferResult, n, n.getOperand(),
                 NumbericalUnaryOps.PLUS, p);
-        return createNewResult(transferResult, resultValues);
     }
 
     @Override
@@ -446,9 +561,8 @@ public class ValueTransfer extends CFTransfer {
             BitwiseComplementNode n, TransferInput<CFValue, CFStore> p) {
         TransferResult<CFValue, CFStore> transferResult = super
                 .visitBitwiseComplement(n, p);
-        List<Number> resultValues = calcutateNumericalUnaryOp(n.getOperand(),
+        return createNewResult(transferResult, n, n.getOperand(),
                 NumbericalUnaryOps.BITWISE_COMPLEMENT, p);
-        return createNewResult(transferResult, resultValues);
     }
 
     enum ComparisonOperators {
@@ -458,6 +572,13 @@ public class ValueTransfer extends CFTransfer {
     private List<Boolean> calcutateBinaryComparison(Node leftNode,
             Node rightNode, ComparisonOperators op,
             TransferInput<CFValue, CFStore> p) {
+        if (hasIntRange(leftNode, p) || hasIntRange(rightNode, p)) {
+            Range left = getIntRange(leftNode, p);
+            Range right = getIntRange(rightNode, p);
+            if (left != null && right != null) {
+                return calculateRangeComparison(left, right, op);
+            }
+        }
         List<? extends Number> lefts = getNumericalValues(leftNode, p);
         List<? extends Number> rights = getNumericalValues(rightNode, p);
         List<Boolean> resultValues = new ArrayList<>();
@@ -491,6 +612,52 @@ public class ValueTransfer extends CFTransfer {
         return resultValues;
     }
 
+    /**
+     * @return the possible results of comparing a value of {@code left} with
+     *         a value of {@code right}
+     */
+    private List<Boolean> calculateRangeComparison(Range left, Range right,
+            ComparisonOperators op) {
+        boolean alwaysTrue;
+        boolean alwaysFalse;
+        switch (op) {
+        case EQUAL:
+        case NOT_EQUAL:
+            alwaysTrue = left.isEqualTo(right);
+            alwaysFalse = left.intersect(right) == null;
+            if (op == ComparisonOperators.NOT_EQUAL) {
+                boolean tmp = alwaysTrue;
+                alwaysTrue = alwaysFalse;
+                alwaysFalse = tmp;
+            }
+            break;
+        case LESS_THAN:
+            alwaysTrue = left.isLessThan(right);
+            alwaysFalse = right.isLessThanEq(left);
+            break;
+        case LESS_THAN_EQ:
+            alwaysTrue = left.isLessThanEq(right);
+            alwaysFalse = right.isLessThan(left);
+            break;
+        case GREATER_THAN:
+            alwaysTrue = right.isLessThan(left);
+            alwaysFalse = left.isLessThanEq(right);
+            break;
+        case GREATER_THAN_EQ:
+            alwaysTrue = right.isLessThanEq(left);
+            alwaysFalse = left.isLessThan(right);
+            break;
+        default:
+            throw new UnsupportedOperationException();
+        }
+        if (alwaysTrue) {
+            return Collections.singletonList(true);
+        } else if (alwaysFalse) {
+            return Collections.singletonList(false);
+        }
+        return Arrays.asList(true, false);
+    }
+
     @Override
     public TransferResult<CFValue, CFStore> visitLessThan(LessThanNode n,
             TransferInput<CFValue, CFStore> p) {
@@ -5,12 +5,14 @@ import org.checkerframework.common.basetype.BaseTypeVisitor;
 import org.checkerframework.common.value.qual.ArrayLen;
 import org.checkerframework.common.value.qual.BoolVal;
 import org.checkerframework.common.value.qual.DoubleVal;
+import org.checkerframework.common.value.qual.IntRange;
 import org.checkerframework.common.value.qual.IntVal;
 import org.checkerframework.common.value.qual.StringVal;
 import org.checkerframework.framework.source.Result;
 
 import java.util.List;
 
+import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.Element;
 
 import com.sun.source.tree.AnnotationTree;
@@ -21,6 +23,7 @@ import com.sun.source.tree.Tree;
 import com.sun.source.tree.Tree.Kind;
 import com.sun.source.tree.TypeCastTree;
 import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.JCTree.JCAnnotation;
 import com.sun.tools.javac.tree.TreeInfo;
 
 /**
@@ -41,9 +44,11 @@ public class ValueVisitor extends BaseTypeVisitor<ValueAnnotatedTypeFactory> {
     }
 
     /**
-     * Issues a warning if any constant-value annotation has &gt; MAX_VALUES number of values provided.
-     * Works together with ValueAnnotatedTypeFactory.ValueTypeAnnotator.replaceWithUnknownValIfTooManyValues
-     * which treats the value as @UnknownVal in this case.
+     * Issues an error if an @IntVal or @IntRange annotation has no values, and a warning if any
+     * constant-value annotation has &gt; MAX_VALUES number of values provided.
+     * Works together with ValueAnnotatedTypeFactory.ValueTypeAnnotator.replaceWithUnknownValIfEmpty and
+     * replaceWithUnknownValIfTooManyValues, which treat the value as @UnknownVal, or as an @IntRange for
+     * @IntVal with too many values, in these cases.
      */
     @Override
     public Void visitAnnotation(AnnotationTree node, Void p) {
@@ -55,6 +60,14 @@ public class ValueVisitor extends BaseTypeVisitor<ValueAnnotatedTypeFactory> {
         }
 
         Element element = TreeInfo.symbol((JCTree) node.getAnnotationType());
+        if (element.toString().equals(IntVal.class.getName())
+                || element.toString().equals(IntRange.class.getName())) {
+            AnnotationMirror anno = ((JCAnnotation) node).attribute;
+            if (anno != null && !ValueAnnotatedTypeFactory.hasValues(anno)) {
+                checker.report(Result.failure("no.values.given"), node);
+                return null;
+            }
+        }
         if (!(element.toString().equals(ArrayLen.class.getName())
                 || element.toString().equals(BoolVal.class.getName())
                 || element.toString().equals(DoubleVal.class.getName())
@@ -72,8 +85,13 @@ public class ValueVisitor extends BaseTypeVisitor<ValueAnnotatedTypeFactory> {
                         .getInitializers().size();
 
                 if (numArgs > ValueAnnotatedTypeFactory.MAX_VALUES) {
-                    checker.report(Result.warning("too.many.values.given",
-                            ValueAnnotatedTypeFactory.MAX_VALUES), node);
+                    if (element.toString().equals(IntVal.class.getName())) {
+                        checker.report(Result.warning("too.many.values.given.int",
+                                ValueAnnotatedTypeFactory.MAX_VALUES), node);
+                    } else {
+                        checker.report(Result.warning("too.many.values.given",
+                                ValueAnnotatedTypeFactory.MAX_VALUES), node);
+                    }
                     return null;
                 }
             }
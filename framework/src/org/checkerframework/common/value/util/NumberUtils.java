@@ -57,7 +57,11 @@ public class NumberUtils {
         }
     }
 
-    private static TypeKind unBoxPrimative(TypeMirror type) {
+    /**
+     * @return the kind of {@code type}, or the kind of the primitive type
+     *         of {@code type} if it is a boxed primitive
+     */
+    public static TypeKind unBoxPrimative(TypeMirror type) {
         if (type.getKind() == TypeKind.DECLARED) {
             String stringType = TypesUtils
                     .getQualifiedName((DeclaredType) type).toString();
@@ -0,0 +1,288 @@
+package org.checkerframework.common.value.util;
+
+/*>>>
+import org.checkerframework.checker.nullness.qual.Nullable;
+*/
+
+import javax.lang.model.type.TypeKind;
+
+/**
+ * An immutable interval of integral values, {@code [from, to]}, with the
+ * operations of the interval abstract domain.  The bounds are longs, so a
+ * range can describe the values of any integral type.
+ *
+ * The arithmetic operations are sound: the result contains the result of
+ * the operation for every pair of values from the operands.  Whenever a
+ * bound of the exact result cannot be represented, the result is
+ * {@link #EVERYTHING}; use {@link #castTo(TypeKind)} to account for the
+ * overflow of a narrower type.
+ */
+public class Range {
+
+    /** The range of all long values. */
+    public static final Range EVERYTHING = new Range(Long.MIN_VALUE, Long.MAX_VALUE);
+
+    public final long from;
+    public final long to;
+
+    /**
+     * @param from the smallest value in the range
+     * @param to the largest value in the range, which must be at least
+     *            {@code from}
+     */
+    public Range(long from, long to) {
+        if (from > to) {
+            throw new IllegalArgumentException("Empty range [" + from + ", " + to + "]");
+        }
+        this.from = from;
+        this.to = to;
+    }
+
+    /** @return the range of all values of the integral type {@code kind} */
+    public static Range of(TypeKind kind) {
+        switch (kind) {
+        case BYTE:
+            return new Range(Byte.MIN_VALUE, Byte.MAX_VALUE);
+        case SHORT:
+            return new Range(Short.MIN_VALUE, Short.MAX_VALUE);
+        case CHAR:
+            return new Range(Character.MIN_VALUE, Character.MAX_VALUE);
+        case INT:
+            return new Range(Integer.MIN_VALUE, Integer.MAX_VALUE);
+        default:
+            return EVERYTHING;
+        }
+    }
+
+    /**
+     * @return the smallest range that contains all of {@code values}, which
+     *         must not be empty
+     */
+    public static Range hull(long[] values) {
+        if (values.length == 0) {
+            throw new IllegalArgumentException("No values to take the hull of");
+        }
+        long from = values[0];
+        long to = values[0];
+        for (long value : values) {
+            from = Math.min(from, value);
+            to = Math.max(to, value);
+        }
+        return new Range(from, to);
+    }
+
+    /** @return the number of values in this range, or Long.MAX_VALUE if it is larger */
+    public long size() {
+        long size = to - from + 1;
+        // The subtraction overflows for ranges larger than Long.MAX_VALUE.
+        return (size <= 0 ? Long.MAX_VALUE : size);
+    }
+
+    public boolean isEverything() {
+        return from == Long.MIN_VALUE && to == Long.MAX_VALUE;
+    }
+
+    public boolean contains(long value) {
+        return from <= value && value <= to;
+    }
+
+    public boolean contains(Range other) {
+        return from <= other.from && other.to <= to;
+    }
+
+    /** @return the smallest range that contains both ranges */
+    public Range union(Range other) {
+        return new Range(Math.min(from, other.from), Math.max(to, other.to));
+    }
+
+    /**
+     * Returns the union of two ranges, widened so that a sequence of
+     * growing ranges, as in a loop, reaches a fixed point quickly.  A bound
+     * on which the ranges disagree is moved outwards to the next power of
+     * two (minus one for an upper bound), so each bound can only move
+     * about 64 times.
+     */
+    public Range widen(Range other) {
+        Range union = union(other);
+        long newFrom = (from == other.from ? union.from : widenLowerBound(union.from));
+        long newTo = (to == other.to ? union.to : widenUpperBound(union.to));
+        return new Range(newFrom, newTo);
+    }
+
+    /** @return the largest threshold that is at most {@code bound} */
+    private static long widenLowerBound(long bound) {
+        if (bound >= 0) {
+            return Long.highestOneBit(bound);
+        }
+        if (bound < -(1L << 62)) {
+            return Long.MIN_VALUE;
+        }
+        // The least power of two that is at least -bound.
+        long magnitude = Long.highestOneBit(-bound);
+        return (magnitude == -bound ? bound : -(magnitude << 1));
+    }
+
+    /** @return the smallest threshold that is at least {@code bound} */
+    private static long widenUpperBound(long bound) {
+        if (bound <= 0) {
+            return -Long.highestOneBit(-bound);
+        }
+        if (bound > (1L << 62) - 1) {
+            return Long.MAX_VALUE;
+        }
+        long magnitude = Long.highestOneBit(bound);
+        return (magnitude << 1) - 1;
+    }
+
+    /** @return the range of the values in both ranges, or null if there are none */
+    public /*@Nullable*/ Range intersect(Range other) {
+        long newFrom = Math.max(from, other.from);
+        long newTo = Math.min(to, other.to);
+        return (newFrom <= newTo ? new Range(newFrom, newTo) : null);
+    }
+
+    /**
+     * Returns the range of the values of this range converted to the
+     * integral type {@code kind}: this range if it fits into the type, and
+     * otherwise all values of the type, because the conversion wraps around.
+     */
+    public Range castTo(TypeKind kind) {
+        Range typeRange = of(kind);
+        return (typeRange.contains(this) ? this : typeRange);
+    }
+
+    public Range plus(Range right) {
+        long newFrom = from + right.from;
+        long newTo = to + right.to;
+        if (overflowsOnAdd(from, right.from, newFrom) || overflowsOnAdd(to, right.to, newTo)) {
+            return EVERYTHING;
+        }
+        return new Range(newFrom, newTo);
+    }
+
+    public Range minus(Range right) {
+        return plus(right.unaryMinus());
+    }
+
+    public Range times(Range right) {
+        long[] bounds = new long[4];
+        if (!multiply(from, right.from, bounds, 0)
+                || !multiply(from, right.to, bounds, 1)
+                || !multiply(to, right.from, bounds, 2)
+                || !multiply(to, right.to, bounds, 3)) {
+            return EVERYTHING;
+        }
+        return hull(bounds);
+    }
+
+    /**
+     * Integral division.  If the divisor may be zero, the division may throw
+     * an exception; the result describes the divisions that do not.
+     */
+    public Range divide(Range right) {
+        if (right.from == 0 && right.to == 0) {
+            return EVERYTHING;
+        }
+        // Dividing by a value of larger magnitude gives a value closer to 0,
+        // so the extremes are reached for the divisors closest to 0.
+        long[] divisors;
+        if (right.from > 0 || right.to < 0) {
+            divisors = new long[] { right.from, right.to };
+        } else if (right.from == 0) {
+            divisors = new long[] { 1, right.to };
+        } else if (right.to == 0) {
+            divisors = new long[] { right.from, -1 };
+        } else {
+            divisors = new long[] { right.from, -1, 1, right.to };
+        }
+        long[] bounds = new long[2 * divisors.length];
+        int i = 0;
+        for (long divisor : divisors) {
+            if ((from == Long.MIN_VALUE || to == Long.MIN_VALUE) && divisor == -1) {
+                // Long.MIN_VALUE / -1 overflows.
+                return EVERYTHING;
+            }
+            bounds[i++] = from / divisor;
+            bounds[i++] = to / divisor;
+        }
+        return hull(bounds);
+    }
+
+    /**
+     * Integral remainder.  The result has the sign of the dividend and a
+     * smaller magnitude than the dividend and the divisor.
+     */
+    public Range remainder(Range right) {
+        if (right.from == Long.MIN_VALUE) {
+            return new Range(Math.min(from, 0), Math.max(to, 0));
+        }
+        long maxDivisor = Math.max(Math.abs(right.from), Math.abs(right.to));
+        if (maxDivisor == 0) {
+            return EVERYTHING;
+        }
+        long newFrom = (from < 0 ? Math.max(from, -(maxDivisor - 1)) : 0);
+        long newTo = (to > 0 ? Math.min(to, maxDivisor - 1) : 0);
+        return new Range(newFrom, newTo);
+    }
+
+    public Range unaryMinus() {
+        if (from == Long.MIN_VALUE) {
+            return EVERYTHING;
+        }
+        return new Range(-to, -from);
+    }
+
+    public Range bitwiseComplement() {
+        return new Range(~to, ~from);
+    }
+
+    /** @return true if every value of this range is less than every value of {@code right} */
+    public boolean isLessThan(Range right) {
+        return to < right.from;
+    }
+
+    /** @return true if every value of this range is at most every value of {@code right} */
+    public boolean isLessThanEq(Range right) {
+        return to <= right.from;
+    }
+
+    /** @return true if both ranges contain exactly the same single value */
+    public boolean isEqualTo(Range right) {
+        return from == to && right.from == right.to && from == right.from;
+    }
+
+    private static boolean overflowsOnAdd(long left, long right, long sum) {
+        // The sum overflows if both operands have a sign that the sum does not.
+        return ((left ^ sum) & (right ^ sum)) < 0;
+    }
+
+    /** Store {@code left * right} in {@code result[i]}; return false on overflow. */
+    private static boolean multiply(long left, long right, long[] result, int i) {
+        long product = left * right;
+        if (left != 0
+                && (product / left != right || (left == -1 && right == Long.MIN_VALUE))) {
+            return false;
+        }
+        result[i] = product;
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof Range)) {
+            return false;
+        }
+        Range other = (Range) obj;
+        return from == other.from && to == other.to;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (from ^ (from >>> 32)) * 31 + (int) (to ^ (to >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return "[" + from + ", " + to + "]";
+    }
+}
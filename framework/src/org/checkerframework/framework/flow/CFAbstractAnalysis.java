@@ -132,6 +132,16 @@ public abstract class CFAbstractAnalysis<V extends CFAbstractValue<V>,
         return new CFValue(analysis, type);
     }
 
+    /**
+     * Widens the stores with {@link CFAbstractStore#widenedUpperBound}, so
+     * that qualifier hierarchies of infinite height can widen their
+     * qualifiers at the heads of loops.
+     */
+    @Override
+    protected S widenedUpperBound(S previous, S next) {
+        return next.widenedUpperBound(previous);
+    }
+
     public TypeHierarchy getTypeHierarchy() {
         return typeHierarchy;
     }
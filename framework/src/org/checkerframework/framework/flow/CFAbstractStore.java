@@ -22,9 +22,11 @@ import org.checkerframework.dataflow.qual.SideEffectFree;
 import org.checkerframework.dataflow.util.PurityUtils;
 import org.checkerframework.framework.qual.MonotonicQualifier;
 import org.checkerframework.framework.type.AnnotatedTypeFactory;
+import org.checkerframework.framework.util.CopyOnWriteHashMap;
 import org.checkerframework.javacutil.AnnotationUtils;
 import org.checkerframework.javacutil.Pair;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -58,7 +60,7 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
      * Information collected about local variables, which are identified by the
      * corresponding element.
      */
-    protected final Map<Element, V> localVariableValues;
+    protected final CopyOnWriteHashMap<Element, V> localVariableValues;
 
     /**
      * Information collected about the current object.
@@ -69,21 +71,21 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
      * Information collected about fields, using the internal representation
      * {@link FieldAccess}.
      */
-    protected Map<FlowExpressions.FieldAccess, V> fieldValues;
+    protected CopyOnWriteHashMap<FlowExpressions.FieldAccess, V> fieldValues;
 
     /**
      * Information collected about arrays, using the internal representation
      * {@link ArrayAccess}.
      */
-    protected Map<FlowExpressions.ArrayAccess, V> arrayValues;
+    protected CopyOnWriteHashMap<FlowExpressions.ArrayAccess, V> arrayValues;
 
     /**
      * Information collected about pure method calls, using the internal
      * representation {@link PureMethodCall}.
      */
-    protected Map<FlowExpressions.PureMethodCall, V> methodValues;
+    protected CopyOnWriteHashMap<FlowExpressions.PureMethodCall, V> methodValues;
 
-    protected Map<FlowExpressions.ClassName, V> classValues;
+    protected CopyOnWriteHashMap<FlowExpressions.ClassName, V> classValues;
 
     /**
      * Should the analysis use sequential Java semantics (i.e., assume that only
@@ -98,24 +100,27 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
     public CFAbstractStore(CFAbstractAnalysis<V, S, ?> analysis,
             boolean sequentialSemantics) {
         this.analysis = analysis;
-        localVariableValues = new HashMap<>();
+        localVariableValues = new CopyOnWriteHashMap<>();
         thisValue = null;
-        fieldValues = new HashMap<>();
-        methodValues = new HashMap<>();
-        arrayValues = new HashMap<>();
-        classValues = new HashMap<>();
+        fieldValues = new CopyOnWriteHashMap<>();
+        methodValues = new CopyOnWriteHashMap<>();
+        arrayValues = new CopyOnWriteHashMap<>();
+        classValues = new CopyOnWriteHashMap<>();
         this.sequentialSemantics = sequentialSemantics;
     }
 
-    /** Copy constructor. */
+    /**
+     * Copy constructor. The maps of the new store share their storage with
+     * the maps of {@code other} until one of the two stores is modified.
+     */
     protected CFAbstractStore(CFAbstractStore<V, S> other) {
         this.analysis = other.analysis;
-        localVariableValues = new HashMap<>(other.localVariableValues);
+        localVariableValues = other.localVariableValues.copy();
         thisValue = other.thisValue;
-        fieldValues = new HashMap<>(other.fieldValues);
-        methodValues = new HashMap<>(other.methodValues);
-        arrayValues = new HashMap<>(other.arrayValues);
-        classValues = new HashMap<>(other.classValues);
+        fieldValues = other.fieldValues.copy();
+        methodValues = other.methodValues.copy();
+        arrayValues = other.arrayValues.copy();
+        classValues = other.classValues.copy();
         sequentialSemantics = other.sequentialSemantics;
     }
 
@@ -172,7 +177,8 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
         if (!(analysis.checker.hasOption("assumeSideEffectFree")
               || PurityUtils.isSideEffectFree(atypeFactory, method))) {
             // update field values
-            Map<FlowExpressions.FieldAccess, V> newFieldValues = new HashMap<>();
+            Map<FlowExpressions.FieldAccess, V> updatedFieldValues = new HashMap<>();
+            List<FlowExpressions.FieldAccess> removedFields = new ArrayList<>();
             for (Entry<FlowExpressions.FieldAccess, V> e : fieldValues.entrySet()) {
                 FlowExpressions.FieldAccess fieldAccess = e.getKey();
                 V otherVal = e.getValue();
@@ -201,19 +207,22 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
                 if (newOtherVal != null) {
                     // keep information for all hierarchies where we had a
                     // monotone annotation.
-                    newFieldValues.put(fieldAccess, newOtherVal);
+                    updatedFieldValues.put(fieldAccess, newOtherVal);
                     continue;
                 }
 
                 // case 2:
                 if (!fieldAccess.isUnmodifiableByOtherCode()) {
-                    continue; // remove information completely
+                    removedFields.add(fieldAccess); // remove information completely
+                    continue;
                 }
 
                 // keep information
-                newFieldValues.put(fieldAccess, otherVal);
             }
-            fieldValues = newFieldValues;
+            for (FlowExpressions.FieldAccess fieldAccess : removedFields) {
+                fieldValues.remove(fieldAccess);
+            }
+            fieldValues.putAll(updatedFieldValues);
 
             // update method values
             methodValues.clear();
@@ -637,14 +646,16 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
      */
     protected void removeConflicting(FlowExpressions.FieldAccess fieldAccess,
             /*@Nullable*/ V val) {
-        Map<FlowExpressions.FieldAccess, V> newFieldValues = new HashMap<>();
+        Map<FlowExpressions.FieldAccess, V> updatedFieldValues = new HashMap<>();
+        List<FlowExpressions.FieldAccess> removedFields = new ArrayList<>();
         for (Entry<FlowExpressions.FieldAccess, V> e : fieldValues.entrySet()) {
             FlowExpressions.FieldAccess otherFieldAccess = e.getKey();
             V otherVal = e.getValue();
             // case 2:
             if (otherFieldAccess.getReceiver().containsModifiableAliasOf(this,
                     fieldAccess)) {
-                continue; // remove information completely
+                removedFields.add(otherFieldAccess); // remove information completely
+                continue;
             }
             // case 1:
             if (fieldAccess.getField().equals(otherFieldAccess.getField())) {
@@ -653,33 +664,35 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
                     if (!otherFieldAccess.isFinal()) {
                         if (val != null) {
                             V newVal = val.leastUpperBound(otherVal);
-                            newFieldValues.put(otherFieldAccess, newVal);
+                            updatedFieldValues.put(otherFieldAccess, newVal);
                         } else {
                             // remove information completely
+                            removedFields.add(otherFieldAccess);
                         }
                         continue;
                     }
                 }
             }
             // information is save to be carried over
-            newFieldValues.put(otherFieldAccess, otherVal);
         }
-        fieldValues = newFieldValues;
+        for (FlowExpressions.FieldAccess otherFieldAccess : removedFields) {
+            fieldValues.remove(otherFieldAccess);
+        }
+        fieldValues.putAll(updatedFieldValues);
 
-        Map<FlowExpressions.ArrayAccess, V> newArrayValues = new HashMap<>();
-        for (Entry<ArrayAccess, V> e : arrayValues.entrySet()) {
-            FlowExpressions.ArrayAccess otherArrayAccess = e.getKey();
-            V otherVal = e.getValue();
+        List<FlowExpressions.ArrayAccess> removedArrays = new ArrayList<>();
+        for (FlowExpressions.ArrayAccess otherArrayAccess : arrayValues.keySet()) {
             if (otherArrayAccess.containsModifiableAliasOf(this, fieldAccess)) {
                 // remove information completely
-                continue;
+                removedArrays.add(otherArrayAccess);
             }
-            newArrayValues.put(otherArrayAccess, otherVal);
         }
-        arrayValues = newArrayValues;
+        for (FlowExpressions.ArrayAccess otherArrayAccess : removedArrays) {
+            arrayValues.remove(otherArrayAccess);
+        }
 
         // case 3:
-        methodValues = new HashMap<>();
+        methodValues.clear();
     }
 
     /**
@@ -705,42 +718,42 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
      */
     protected void removeConflicting(FlowExpressions.ArrayAccess arrayAccess,
             /*@Nullable*/ V val) {
-        Map<FlowExpressions.ArrayAccess, V> newArrayValues = new HashMap<>();
-        for (Entry<FlowExpressions.ArrayAccess, V> e : arrayValues.entrySet()) {
-            FlowExpressions.ArrayAccess otherArrayAccess = e.getKey();
-            V otherVal = e.getValue();
+        List<FlowExpressions.ArrayAccess> removedArrays = new ArrayList<>();
+        for (FlowExpressions.ArrayAccess otherArrayAccess : arrayValues.keySet()) {
             // case 1:
             if (otherArrayAccess.containsModifiableAliasOf(this, arrayAccess)) {
-                continue; // remove information completely
+                removedArrays.add(otherArrayAccess); // remove information completely
+                continue;
             }
             if (canAlias(arrayAccess.getReceiver(),
                     otherArrayAccess.getReceiver())) {
                 // TODO: one could be less strict here, and only raise the
                 // abstract value
                 // for all array expressions with potentially aliasing receivers
-                continue; // remove information completely
+                removedArrays.add(otherArrayAccess); // remove information completely
+                continue;
             }
             // information is save to be carried over
-            newArrayValues.put(otherArrayAccess, otherVal);
         }
-        arrayValues = newArrayValues;
+        for (FlowExpressions.ArrayAccess otherArrayAccess : removedArrays) {
+            arrayValues.remove(otherArrayAccess);
+        }
 
         // case 2:
-        Map<FlowExpressions.FieldAccess, V> newFieldValues = new HashMap<>();
-        for (Entry<FieldAccess, V> e : fieldValues.entrySet()) {
-            FlowExpressions.FieldAccess otherFieldAccess = e.getKey();
-            V otherVal = e.getValue();
+        List<FlowExpressions.FieldAccess> removedFields = new ArrayList<>();
+        for (FlowExpressions.FieldAccess otherFieldAccess : fieldValues.keySet()) {
             Receiver receiver = otherFieldAccess.getReceiver();
             if (receiver.containsModifiableAliasOf(this, arrayAccess) && receiver.containsOfClass(ArrayAccess.class)) {
                 // remove information completely
-                continue;
+                removedFields.add(otherFieldAccess);
             }
-            newFieldValues.put(otherFieldAccess, otherVal);
         }
-        fieldValues = newFieldValues;
+        for (FlowExpressions.FieldAccess otherFieldAccess : removedFields) {
+            fieldValues.remove(otherFieldAccess);
+        }
 
         // case 3:
-        methodValues = new HashMap<>();
+        methodValues.clear();
     }
 
     /**
@@ -759,40 +772,39 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
      * </ol>
      */
     protected void removeConflicting(LocalVariable var) {
-        Map<FlowExpressions.FieldAccess, V> newFieldValues = new HashMap<>();
-        for (Entry<FlowExpressions.FieldAccess, V> e : fieldValues.entrySet()) {
-            FlowExpressions.FieldAccess otherFieldAccess = e.getKey();
+        List<FlowExpressions.FieldAccess> removedFields = new ArrayList<>();
+        for (FlowExpressions.FieldAccess otherFieldAccess : fieldValues.keySet()) {
             // case 1:
             if (otherFieldAccess.containsSyntacticEqualReceiver(var)) {
-                continue;
+                removedFields.add(otherFieldAccess);
             }
-            newFieldValues.put(otherFieldAccess, e.getValue());
         }
-        fieldValues = newFieldValues;
+        for (FlowExpressions.FieldAccess otherFieldAccess : removedFields) {
+            fieldValues.remove(otherFieldAccess);
+        }
 
-        Map<FlowExpressions.ArrayAccess, V> newArrayValues = new HashMap<>();
-        for (Entry<FlowExpressions.ArrayAccess, V> e : arrayValues.entrySet()) {
-            FlowExpressions.ArrayAccess otherArrayAccess = e.getKey();
+        List<FlowExpressions.ArrayAccess> removedArrays = new ArrayList<>();
+        for (FlowExpressions.ArrayAccess otherArrayAccess : arrayValues.keySet()) {
             // case 2:
             if (otherArrayAccess.containsSyntacticEqualReceiver(var)) {
-                continue;
+                removedArrays.add(otherArrayAccess);
             }
-            newArrayValues.put(otherArrayAccess, e.getValue());
         }
-        arrayValues = newArrayValues;
+        for (FlowExpressions.ArrayAccess otherArrayAccess : removedArrays) {
+            arrayValues.remove(otherArrayAccess);
+        }
 
-        Map<FlowExpressions.PureMethodCall, V> newMethodValues = new HashMap<>();
-        for (Entry<FlowExpressions.PureMethodCall, V> e : methodValues
-                .entrySet()) {
-            FlowExpressions.PureMethodCall otherMethodAccess = e.getKey();
+        List<FlowExpressions.PureMethodCall> removedMethods = new ArrayList<>();
+        for (FlowExpressions.PureMethodCall otherMethodAccess : methodValues.keySet()) {
             // case 3:
             if (otherMethodAccess.containsSyntacticEqualReceiver(var)
                     || otherMethodAccess.containsSyntacticEqualParameter(var)) {
-                continue;
+                removedMethods.add(otherMethodAccess);
             }
-            newMethodValues.put(otherMethodAccess, e.getValue());
         }
-        methodValues = newMethodValues;
+        for (FlowExpressions.PureMethodCall otherMethodAccess : removedMethods) {
+            methodValues.remove(otherMethodAccess);
+        }
     }
 
     /**
@@ -848,20 +860,11 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
     public S leastUpperBound(S other) {
         S newStore = analysis.createEmptyStore(sequentialSemantics);
 
-        for (Entry<Element, V> e : other.localVariableValues.entrySet()) {
-            // local variables that are only part of one store, but not the
-            // other are discarded, as one of store implicitly contains 'top'
-            // for that variable.
-            Element el = e.getKey();
-            if (localVariableValues.containsKey(el)) {
-                V otherVal = e.getValue();
-                V thisVal = localVariableValues.get(el);
-                V mergedVal = thisVal.leastUpperBound(otherVal);
-                if (mergedVal != null) {
-                    newStore.localVariableValues.put(el, mergedVal);
-                }
-            }
-        }
+        // local variables that are only part of one store, but not the
+        // other are discarded, as one of store implicitly contains 'top'
+        // for that variable.
+        leastUpperBound(localVariableValues, other.localVariableValues,
+                newStore.localVariableValues);
 
         // information about the current object
         {
@@ -873,63 +876,82 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
             }
         }
 
-        for (Entry<FlowExpressions.FieldAccess, V> e : other.fieldValues
-                .entrySet()) {
-            // information about fields that are only part of one store, but not
-            // the other are discarded, as one store implicitly contains 'top'
-            // for that field.
-            FlowExpressions.FieldAccess el = e.getKey();
-            if (fieldValues.containsKey(el)) {
-                V otherVal = e.getValue();
-                V thisVal = fieldValues.get(el);
-                V mergedVal = thisVal.leastUpperBound(otherVal);
-                if (mergedVal != null) {
-                    newStore.fieldValues.put(el, mergedVal);
-                }
-            }
+        // information about fields, arrays and methods that are only part of
+        // one store, but not the other are discarded, as one store implicitly
+        // contains 'top' for that expression.
+        leastUpperBound(fieldValues, other.fieldValues, newStore.fieldValues);
+        leastUpperBound(arrayValues, other.arrayValues, newStore.arrayValues);
+        leastUpperBound(methodValues, other.methodValues, newStore.methodValues);
+        leastUpperBound(classValues, other.classValues, newStore.classValues);
+        return newStore;
+    }
+
+    /**
+     * Returns this store, widened with respect to {@code previous}: the
+     * values that differ from those in {@code previous} are replaced by
+     * {@link CFAbstractValue#widenedUpperBound}.
+     *
+     * @param previous the store in the previous iteration of a loop, of
+     *        which this store is an upper bound
+     */
+    public S widenedUpperBound(S previous) {
+        S newStore = copy();
+        if (newStore.thisValue != null) {
+            newStore.thisValue = newStore.thisValue.widenedUpperBound(previous.thisValue);
         }
-        for (Entry<FlowExpressions.ArrayAccess, V> e : other.arrayValues
-                .entrySet()) {
-            // information about arrays that are only part of one store, but not
-            // the other are discarded, as one store implicitly contains 'top'
-            // for that array access.
-            FlowExpressions.ArrayAccess el = e.getKey();
-            if (arrayValues.containsKey(el)) {
-                V otherVal = e.getValue();
-                V thisVal = arrayValues.get(el);
-                V mergedVal = thisVal.leastUpperBound(otherVal);
-                if (mergedVal != null) {
-                    newStore.arrayValues.put(el, mergedVal);
-                }
-            }
+        widenedUpperBound(newStore.localVariableValues, previous.localVariableValues);
+        widenedUpperBound(newStore.fieldValues, previous.fieldValues);
+        widenedUpperBound(newStore.arrayValues, previous.arrayValues);
+        widenedUpperBound(newStore.methodValues, previous.methodValues);
+        widenedUpperBound(newStore.classValues, previous.classValues);
+        return newStore;
+    }
+
+    /**
+     * Widen the entries of {@code values} that differ from the entries of
+     * {@code previousValues}, in place.
+     */
+    protected <K> void widenedUpperBound(CopyOnWriteHashMap<K, V> values,
+            CopyOnWriteHashMap<K, V> previousValues) {
+        if (values.sharesStorageWith(previousValues)) {
+            return;
         }
-        for (Entry<PureMethodCall, V> e : other.methodValues.entrySet()) {
-            // information about methods that are only part of one store, but
-            // not the other are discarded, as one store implicitly contains
-            // 'top' for that field.
-            FlowExpressions.PureMethodCall el = e.getKey();
-            if (methodValues.containsKey(el)) {
-                V otherVal = e.getValue();
-                V thisVal = methodValues.get(el);
-                V mergedVal = thisVal.leastUpperBound(otherVal);
-                if (mergedVal != null) {
-                    newStore.methodValues.put(el, mergedVal);
-                }
+        for (K key : new ArrayList<>(values.keySet())) {
+            V value = values.get(key);
+            V previousValue = previousValues.get(key);
+            if (previousValue != null && value != previousValue) {
+                values.put(key, value.widenedUpperBound(previousValue));
             }
         }
-        for (Entry<FlowExpressions.ClassName, V> e : other.classValues
-                .entrySet()) {
-            FlowExpressions.ClassName el = e.getKey();
-            if (classValues.containsKey(el)) {
+    }
+
+    /**
+     * Put the least upper bound of the entries that {@code thisValues} and
+     * {@code otherValues} have in common into the empty map {@code result}.
+     *
+     * <p>
+     * If the two maps share their storage, the least upper bound is the map
+     * itself and {@code result} shares that storage as well. Otherwise, only
+     * entries whose values differ between the two maps are merged.
+     */
+    protected <K> void leastUpperBound(CopyOnWriteHashMap<K, V> thisValues,
+            CopyOnWriteHashMap<K, V> otherValues, CopyOnWriteHashMap<K, V> result) {
+        if (thisValues.sharesStorageWith(otherValues)) {
+            result.putAll(thisValues);
+            return;
+        }
+        for (Entry<K, V> e : otherValues.entrySet()) {
+            K el = e.getKey();
+            V thisVal = thisValues.get(el);
+            if (thisVal != null) {
                 V otherVal = e.getValue();
-                V thisVal = classValues.get(el);
-                V mergedVal = thisVal.leastUpperBound(otherVal);
+                V mergedVal = thisVal == otherVal ? thisVal
+                        : thisVal.leastUpperBound(otherVal);
                 if (mergedVal != null) {
-                    newStore.classValues.put(el, mergedVal);
+                    result.put(el, mergedVal);
                 }
             }
         }
-        return newStore;
     }
 
     /**
@@ -940,41 +962,27 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
      * predicate.
      */
     protected boolean supersetOf(CFAbstractStore<V, S> other) {
-        for (Entry<Element, V> e : other.localVariableValues.entrySet()) {
-            Element key = e.getKey();
-            if (!localVariableValues.containsKey(key)
-                    || !localVariableValues.get(key).equals(e.getValue())) {
-                return false;
-            }
-        }
-        for (Entry<FlowExpressions.FieldAccess, V> e : other.fieldValues
-                .entrySet()) {
-            FlowExpressions.FieldAccess key = e.getKey();
-            if (!fieldValues.containsKey(key)
-                    || !fieldValues.get(key).equals(e.getValue())) {
-                return false;
-            }
-        }
-        for (Entry<FlowExpressions.ArrayAccess, V> e : other.arrayValues
-                .entrySet()) {
-            FlowExpressions.ArrayAccess key = e.getKey();
-            if (!arrayValues.containsKey(key)
-                    || !arrayValues.get(key).equals(e.getValue())) {
-                return false;
-            }
-        }
-        for (Entry<PureMethodCall, V> e : other.methodValues.entrySet()) {
-            FlowExpressions.PureMethodCall key = e.getKey();
-            if (!methodValues.containsKey(key)
-                    || !methodValues.get(key).equals(e.getValue())) {
-                return false;
-            }
+        return supersetOf(localVariableValues, other.localVariableValues)
+                && supersetOf(fieldValues, other.fieldValues)
+                && supersetOf(arrayValues, other.arrayValues)
+                && supersetOf(methodValues, other.methodValues)
+                && supersetOf(classValues, other.classValues);
+    }
+
+    /**
+     * Returns true iff {@code thisValues} contains all entries of
+     * {@code otherValues}, which is trivially the case if the two maps share
+     * their storage.
+     */
+    private static <K, V> boolean supersetOf(CopyOnWriteHashMap<K, V> thisValues,
+            CopyOnWriteHashMap<K, V> otherValues) {
+        if (thisValues.sharesStorageWith(otherValues)) {
+            return true;
         }
-        for (Entry<FlowExpressions.ClassName, V> e : other.classValues
-                .entrySet()) {
-            FlowExpressions.ClassName key = e.getKey();
-            if (!classValues.containsKey(key)
-                    || !classValues.get(key).equals(e.getValue())) {
+        for (Entry<K, V> e : otherValues.entrySet()) {
+            K key = e.getKey();
+            if (!thisValues.containsKey(key)
+                    || !thisValues.get(key).equals(e.getValue())) {
                 return false;
             }
         }
@@ -87,6 +87,43 @@ public abstract class CFAbstractValue<V extends CFAbstractValue<V>> implements
         return analysis.createAbstractValue(lubAnnotatedType);
     }
 
+    /**
+     * Returns this value, widened with respect to {@code previous}: each
+     * primary annotation that differs from the one of {@code previous} is
+     * replaced by {@link QualifierHierarchy#widenedUpperBound}.
+     *
+     * @param previous the value in the previous iteration of a loop, of
+     *        which this value is an upper bound
+     */
+    public V widenedUpperBound(/*@Nullable*/ V previous) {
+        @SuppressWarnings("unchecked")
+        V thisValue = (V) this;
+        if (previous == null || previous == this) {
+            return thisValue;
+        }
+
+        QualifierHierarchy hierarchy = analysis.getTypeFactory().getQualifierHierarchy();
+        AnnotatedTypeMirror widenedType = null;
+        for (AnnotationMirror anno : getType().getAnnotations()) {
+            AnnotationMirror previousAnno = previous.getType().getAnnotationInHierarchy(anno);
+            if (previousAnno == null || AnnotationUtils.areSame(anno, previousAnno)) {
+                continue;
+            }
+            AnnotationMirror widened = hierarchy.widenedUpperBound(previousAnno, anno);
+            if (widened != null && !AnnotationUtils.areSame(anno, widened)) {
+                if (widenedType == null) {
+                    widenedType = getType().deepCopy();
+                }
+                widenedType.replaceAnnotation(widened);
+            }
+        }
+        if (widenedType == null) {
+            return thisValue;
+        }
+        V result = analysis.createAbstractValue(widenedType);
+        return result == null ? thisValue : result;
+    }
+
     private static void copyArrayComponentAnnotations(AnnotatedArrayType source,
             AnnotatedArrayType dest) {
         AnnotatedTypeMirror destComp = dest.getComponentType();
@@ -7,12 +7,20 @@ import org.checkerframework.dataflow.cfg.UnderlyingAST;
 import org.checkerframework.framework.source.SourceChecker;
 import org.checkerframework.framework.type.AnnotatedTypeFactory;
 import org.checkerframework.framework.type.AnnotatedTypeMirror;
+import org.checkerframework.javacutil.AnnotationProvider;
 import org.checkerframework.javacutil.ErrorReporter;
+import org.checkerframework.javacutil.Pair;
 import org.checkerframework.javacutil.TreeUtils;
 
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 
 import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.VariableElement;
 
@@ -41,6 +49,27 @@ public class CFCFGBuilder extends CFGBuilder {
     /** Type factory to provide types used during CFG building. */
     protected final AnnotatedTypeFactory factory;
 
+    /**
+     * The trees created by the last run of this builder, with the method or
+     * class that encloses them.
+     */
+    protected final Map<Tree, Element> artificialTrees = new IdentityHashMap<>();
+
+    /**
+     * Whether the control flow graph built by the last run depends on the
+     * checker, and therefore cannot be shared with other checkers; see
+     * {@link CFGCache}.
+     */
+    protected boolean checkerSpecific;
+
+    /**
+     * The declaration annotations that the last run looked up and did not
+     * find. Another checker can only share the graph if it does not find
+     * them either, because its stub files may declare them.
+     */
+    protected final List<Pair<Element, Class<? extends Annotation>>> absentDeclAnnotations =
+            new ArrayList<>();
+
     public CFCFGBuilder(BaseTypeChecker checker, AnnotatedTypeFactory factory) {
         super(checker.hasOption("assumeAssertionsAreEnabled"),
               checker.hasOption("assumeAssertionsAreDisabled"));
@@ -60,10 +89,14 @@ public class CFCFGBuilder extends CFGBuilder {
             UnderlyingAST underlyingAST) {
         declaredClasses.clear();
         declaredLambdas.clear();
+        artificialTrees.clear();
+        checkerSpecific = false;
+        absentDeclAnnotations.clear();
 
         CFTreeBuilder builder = new CFTreeBuilder(env);
         PhaseOneResult phase1result = new CFCFGTranslationPhaseOne().process(
-                root, env, underlyingAST, exceptionalExitLabel, builder, factory);
+                root, env, underlyingAST, exceptionalExitLabel, builder,
+                new RecordingAnnotationProvider());
         ControlFlowGraph phase2result = new CFGTranslationPhaseTwo()
                 .process(phase1result);
         ControlFlowGraph phase3result = CFGTranslationPhaseThree
@@ -71,6 +104,66 @@ public class CFCFGBuilder extends CFGBuilder {
         return phase3result;
     }
 
+    /**
+     * @return the trees created by the last run of this builder, with the
+     *         method or class that encloses them
+     */
+    public Map<Tree, Element> getArtificialTrees() {
+        return artificialTrees;
+    }
+
+    /**
+     * @return true if the control flow graph built by the last run depends
+     *         on the checker and type factory of this builder
+     */
+    public boolean isCheckerSpecific() {
+        return checkerSpecific;
+    }
+
+    /**
+     * @return the declaration annotations that the last run looked up and
+     *         did not find
+     */
+    public List<Pair<Element, Class<? extends Annotation>>> getAbsentDeclAnnotations() {
+        return absentDeclAnnotations;
+    }
+
+    /**
+     * @return a string that identifies the options of this builder that
+     *         influence the control flow graph
+     */
+    public String getConfiguration() {
+        return "assumeAssertionsEnabled=" + assumeAssertionsEnabled
+                + ",assumeAssertionsDisabled=" + assumeAssertionsDisabled;
+    }
+
+    /**
+     * Provides the annotations of the type factory. Declaration annotations
+     * may come from the stub files of the checker, so a graph that depends
+     * on one is specific to the checker, and a graph that depends on the
+     * absence of one is only valid for checkers that do not find it either.
+     */
+    private class RecordingAnnotationProvider implements AnnotationProvider {
+        @Override
+        public AnnotationMirror getDeclAnnotation(Element elt,
+                Class<? extends Annotation> anno) {
+            AnnotationMirror result = factory.getDeclAnnotation(elt, anno);
+            if (result != null) {
+                checkerSpecific = true;
+            } else {
+                absentDeclAnnotations.add(Pair.<Element, Class<? extends Annotation>>of(elt, anno));
+            }
+            return result;
+        }
+
+        @Override
+        public AnnotationMirror getAnnotationMirror(Tree tree,
+                Class<? extends Annotation> target) {
+            checkerSpecific = true;
+            return factory.getAnnotationMirror(tree, target);
+        }
+    }
+
     /*
      * Given a SourceChecker and an AssertTree, returns whether the AssertTree
      * uses an @AssumeAssertion string that is relevant to the SourceChecker.
@@ -95,6 +188,11 @@ public class CFCFGBuilder extends CFGBuilder {
 
         @Override
         protected boolean assumeAssertionsEnabledFor(AssertTree tree) {
+            ExpressionTree detail = tree.getDetail();
+            if (detail != null && detail.toString().contains("@AssumeAssertion(")) {
+                // Whether the assertion is assumed depends on the checker.
+                checkerSpecific = true;
+            }
             if (assumeAssertionsActivatedForAssertTree(checker, tree)) {
                 return true;
             }
@@ -108,17 +206,22 @@ public class CFCFGBuilder extends CFGBuilder {
             if (enclosingMethod != null) {
                 Element methodElement = TreeUtils.elementFromDeclaration(enclosingMethod);
                 factory.setPathHack(tree, methodElement);
+                artificialTrees.put(tree, methodElement);
             } else {
                 ClassTree enclosingClass = TreeUtils.enclosingClass(getCurrentPath());
                 if (enclosingClass != null) {
                     Element classElement = TreeUtils.elementFromDeclaration(enclosingClass);
                     factory.setPathHack(tree, classElement);
+                    artificialTrees.put(tree, classElement);
                 }
             }
         }
 
         @Override
         protected VariableTree createEnhancedForLoopIteratorVariable(MethodInvocationTree iteratorCall, VariableElement variableElement) {
+            // The variable declaration contains the annotated type,
+            // which is specific to the checker.
+            checkerSpecific = true;
             // We do not want to cache flow-insensitive types
             // retrieved during CFG building.
             boolean oldShouldCache = factory.shouldCache;
@@ -143,6 +246,9 @@ public class CFCFGBuilder extends CFGBuilder {
 
         @Override
         protected VariableTree createEnhancedForLoopArrayVariable(ExpressionTree expression, VariableElement variableElement) {
+            // The variable declaration contains the annotated type,
+            // which is specific to the checker.
+            checkerSpecific = true;
             // We do not want to cache flow-insensitive types
             // retrieved during CFG building.
             boolean oldShouldCache = factory.shouldCache;
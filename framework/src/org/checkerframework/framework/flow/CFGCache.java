@@ -0,0 +1,188 @@
+package org.checkerframework.framework.flow;
+
+/*>>>
+import org.checkerframework.checker.nullness.qual.Nullable;
+*/
+
+import org.checkerframework.dataflow.cfg.ControlFlowGraph;
+import org.checkerframework.dataflow.cfg.UnderlyingAST;
+import org.checkerframework.javacutil.AnnotationProvider;
+import org.checkerframework.javacutil.Pair;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.LambdaExpressionTree;
+import com.sun.source.tree.Tree;
+import com.sun.tools.javac.processing.JavacProcessingEnvironment;
+import com.sun.tools.javac.util.Context;
+
+/**
+ * The control flow graphs of the current compilation unit, shared by all
+ * checkers of a compilation: the checkers of an aggregate checker, a checker
+ * and its subcheckers, and checkers that are run as separate annotation
+ * processors.
+ *
+ * A control flow graph does not contain the results of a dataflow analysis;
+ * those are kept by each analysis. However, a graph built by a
+ * {@link CFCFGBuilder} can depend on the checker, for example through the
+ * annotated types of the variables of enhanced for loops or through
+ * {@code @AssumeAssertion} strings. Such graphs are not shared; see
+ * {@link CFCFGBuilder#isCheckerSpecific()}. A shared graph may also depend
+ * on the absence of declaration annotations, such as
+ * {@code @TerminatesExecution}, that the stub files of another checker
+ * declare; such a checker must not reuse the graph (see
+ * {@link Entry#isValidFor(AnnotationProvider)}). The trees that the builder
+ * creates are recorded with each graph, so that a type factory that reuses
+ * the graph can find their enclosing method or class.
+ *
+ * Checkers process one class at a time, and all checkers process a class
+ * before the next class is processed. Therefore only the graphs of one
+ * compilation unit are kept.
+ *
+ * This class is not thread-safe.
+ */
+public class CFGCache {
+
+    /** A control flow graph and the information recorded while it was built. */
+    public static class Entry {
+        public final ControlFlowGraph cfg;
+
+        /** The classes declared in the code of the graph. */
+        public final List<ClassTree> declaredClasses;
+
+        /** The lambda expressions in the code of the graph. */
+        public final List<LambdaExpressionTree> declaredLambdas;
+
+        /** The trees created by the builder, with their enclosing method or class. */
+        public final Map<Tree, Element> artificialTrees;
+
+        /** The declaration annotations that the builder looked up and did not find. */
+        public final List<Pair<Element, Class<? extends Annotation>>> absentDeclAnnotations;
+
+        public Entry(ControlFlowGraph cfg, List<ClassTree> declaredClasses,
+                List<LambdaExpressionTree> declaredLambdas,
+                Map<Tree, Element> artificialTrees,
+                List<Pair<Element, Class<? extends Annotation>>> absentDeclAnnotations) {
+            this.cfg = cfg;
+            this.declaredClasses = new ArrayList<>(declaredClasses);
+            this.declaredLambdas = new ArrayList<>(declaredLambdas);
+            this.artificialTrees = new IdentityHashMap<>(artificialTrees);
+            this.absentDeclAnnotations = new ArrayList<>(absentDeclAnnotations);
+        }
+
+        /**
+         * @return true if {@code provider} does not find any of the
+         *         declaration annotations that the builder of the graph did
+         *         not find, so that the graph is the one it would build
+         */
+        public boolean isValidFor(AnnotationProvider provider) {
+            for (Pair<Element, Class<? extends Annotation>> absent : absentDeclAnnotations) {
+                if (provider.getDeclAnnotation(absent.first, absent.second) != null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /** The compilation unit of the cached graphs. */
+    private /*@Nullable*/ CompilationUnitTree root = null;
+
+    /**
+     * The cached graphs, keyed by their code and by the kind of the
+     * underlying AST and the configuration of the builder.
+     */
+    private final Map<Tree, Map<String, Entry>> cfgs = new IdentityHashMap<>();
+
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * Returns the cache shared by all checkers that run in the compiler of
+     * {@code env}.
+     */
+    public static CFGCache instance(ProcessingEnvironment env) {
+        Context context = ((JavacProcessingEnvironment) env).getContext();
+        CFGCache cache = context.get(CFGCache.class);
+        if (cache == null) {
+            cache = new CFGCache();
+            context.put(CFGCache.class, cache);
+        }
+        return cache;
+    }
+
+    /**
+     * Returns the graph of {@code ast} built with the given builder
+     * configuration, or null if there is none.
+     *
+     * @param root the compilation unit that contains {@code ast}
+     * @param ast the code of the graph
+     * @param configuration see {@link CFCFGBuilder#getConfiguration()}
+     */
+    public /*@Nullable*/ Entry get(CompilationUnitTree root, UnderlyingAST ast,
+            String configuration) {
+        if (root != this.root) {
+            clear(root);
+        }
+        Map<String, Entry> entries = cfgs.get(ast.getCode());
+        Entry entry = (entries == null ? null : entries.get(key(ast, configuration)));
+        if (entry == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return entry;
+    }
+
+    /**
+     * Add the graph of {@code ast} built with the given builder
+     * configuration.
+     *
+     * @param root the compilation unit that contains {@code ast}
+     * @param ast the code of the graph
+     * @param configuration see {@link CFCFGBuilder#getConfiguration()}
+     * @param entry the graph
+     */
+    public void put(CompilationUnitTree root, UnderlyingAST ast,
+            String configuration, Entry entry) {
+        if (root != this.root) {
+            clear(root);
+        }
+        Map<String, Entry> entries = cfgs.get(ast.getCode());
+        if (entries == null) {
+            entries = new HashMap<>();
+            cfgs.put(ast.getCode(), entries);
+        }
+        entries.put(key(ast, configuration), entry);
+    }
+
+    private static String key(UnderlyingAST ast, String configuration) {
+        return ast.getKind() + ":" + configuration;
+    }
+
+    /** Remove all graphs and start caching the graphs of {@code root}. */
+    private void clear(CompilationUnitTree root) {
+        cfgs.clear();
+        this.root = root;
+    }
+
+    /** @return the number of lookups that found a graph */
+    public long getHits() {
+        return hits;
+    }
+
+    /** @return the number of lookups that did not find a graph */
+    public long getMisses() {
+        return misses;
+    }
+}
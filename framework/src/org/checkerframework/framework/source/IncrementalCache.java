@@ -0,0 +1,719 @@
+package org.checkerframework.framework.source;
+
+/*>>>
+import org.checkerframework.checker.nullness.qual.Nullable;
+*/
+
+import org.checkerframework.framework.stub.StubResource;
+import org.checkerframework.framework.stub.StubUtil;
+import org.checkerframework.javacutil.ElementUtils;
+import org.checkerframework.javacutil.InternalUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.io.UnsupportedEncodingException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.tools.Diagnostic;
+
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.SourcePositions;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreeScanner;
+import com.sun.source.util.Trees;
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.processing.JavacProcessingEnvironment;
+import com.sun.tools.javac.util.Context;
+
+/**
+ * The diagnostics of previous compilations, used to avoid type-checking
+ * classes that have not changed; see the {@code -AincrementalCache} option.
+ *
+ * For every class that was type-checked, the cache stores a fingerprint of
+ * everything the result of type-checking the class depends on, together
+ * with the diagnostics that the checkers reported while checking it. If a
+ * class has the same fingerprint in a later compilation, the diagnostics
+ * are reported again and the class is not type-checked.
+ *
+ * The fingerprint of a class covers:
+ * <ul>
+ * <li>the checker, its command-line options, the files that contain the
+ * Checker Framework, and the contents of the stub files given with
+ * {@code -Astubs}, including the stub files in a directory or jar file,</li>
+ * <li>the source code of the compilation unit of the class and the
+ * annotations of its package, and</li>
+ * <li>the signatures and annotations of all members of the classes that
+ * the class refers to, of the classes in the signatures of the members it
+ * uses, and of all their supertypes, including classes of the annotated
+ * JDK.</li>
+ * </ul>
+ *
+ * A single cache is shared by all checkers of a compilation; see
+ * {@link #instance(ProcessingEnvironment, String)}. The diagnostics of all
+ * subcheckers of a checker are recorded with the class.
+ *
+ * Several compilations may use the same cache file at the same time.
+ * {@link #save()} merges the results of the compilation into the file while
+ * holding a lock, and replaces the file atomically, so that readers never
+ * see a partially written file.
+ *
+ * This class is not thread-safe.
+ */
+public class IncrementalCache {
+
+    /** Identifies the format of the cache file. */
+    private static final int FORMAT_VERSION = 1;
+
+    /** A diagnostic reported while type-checking a class. */
+    private static class Message implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final Diagnostic.Kind kind;
+        final String text;
+        /** Whether the diagnostic was reported on the element declared by the tree. */
+        final boolean onElement;
+        /** The kind, start and end position of the tree the diagnostic was reported on. */
+        final Tree.Kind treeKind;
+        final long start;
+        final long end;
+
+        Message(Diagnostic.Kind kind, String text, boolean onElement,
+                Tree.Kind treeKind, long start, long end) {
+            this.kind = kind;
+            this.text = text;
+            this.onElement = onElement;
+            this.treeKind = treeKind;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /** The fingerprint and diagnostics of a class. */
+    private static class Result implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final String fingerprint;
+        final List<Message> messages;
+
+        Result(String fingerprint, List<Message> messages) {
+            this.fingerprint = fingerprint;
+            this.messages = messages;
+        }
+    }
+
+    /** The file the cache is read from and written to. */
+    private final File file;
+
+    private final ProcessingEnvironment env;
+
+    /** The results, keyed by the checker and the qualified name of the class. */
+    private Map<String, Result> results;
+
+    /** The results recorded in this compilation that have not been saved yet. */
+    private final Map<String, Result> unsaved = new HashMap<>();
+
+    /** The fingerprints of the signatures of types, which do not change during a compilation. */
+    private final Map<TypeElement, String> signatures = new HashMap<>();
+
+    /** The fingerprint of the checker and its configuration, by checker. */
+    private final Map<String, String> configurations = new HashMap<>();
+
+    /** The diagnostics of the class being type-checked, or null if none is. */
+    private /*@Nullable*/ List<Message> recording = null;
+
+    /** Whether the result of the class being type-checked can be cached. */
+    private boolean recordable;
+
+    /** Whether a checker has visited the class being type-checked. */
+    private boolean visited;
+
+    private long hits = 0;
+    private long misses = 0;
+
+    private IncrementalCache(ProcessingEnvironment env, File file) {
+        this.env = env;
+        this.file = file;
+        this.results = read(file);
+    }
+
+    /**
+     * Returns the cache shared by all checkers that run in the compiler of
+     * {@code env}, reading it from {@code fileName} if it does not exist yet.
+     */
+    public static IncrementalCache instance(ProcessingEnvironment env, String fileName) {
+        Context context = ((JavacProcessingEnvironment) env).getContext();
+        IncrementalCache cache = context.get(IncrementalCache.class);
+        if (cache == null) {
+            cache = new IncrementalCache(env, new File(fileName));
+            context.put(IncrementalCache.class, cache);
+        }
+        return cache;
+    }
+
+    /** Reads the results in {@code file}; an unreadable file is treated like an empty cache. */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Result> read(File file) {
+        if (!file.exists()) {
+            return new HashMap<>();
+        }
+        try {
+            ObjectInputStream in = new ObjectInputStream(
+                    new BufferedInputStream(new FileInputStream(file)));
+            try {
+                if (in.readInt() == FORMAT_VERSION) {
+                    return (Map<String, Result>) in.readObject();
+                }
+            } finally {
+                in.close();
+            }
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            // Fall through.
+        }
+        return new HashMap<>();
+    }
+
+    /**
+     * Merge the results recorded since the last call into the cache file.
+     *
+     * The file is locked while it is read and written, so that the results
+     * of other compilations that use the same file are not lost, and the new
+     * contents are written to a temporary file that then replaces the cache
+     * file.
+     */
+    public void save() throws IOException {
+        if (unsaved.isEmpty()) {
+            return;
+        }
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        File lockFile = new File(file.getPath() + ".lock");
+        RandomAccessFile lockAccess = new RandomAccessFile(lockFile, "rw");
+        try {
+            FileChannel channel = lockAccess.getChannel();
+            FileLock lock = channel.lock();
+            try {
+                Map<String, Result> merged = read(file);
+                merged.putAll(unsaved);
+                write(merged, parent);
+                results = merged;
+                unsaved.clear();
+            } finally {
+                lock.release();
+            }
+        } finally {
+            lockAccess.close();
+        }
+    }
+
+    /** Replace the cache file by a file that contains {@code merged}. */
+    private void write(Map<String, Result> merged, /*@Nullable*/ File parent) throws IOException {
+        File tmp = File.createTempFile(file.getName(), ".tmp", parent);
+        try {
+            ObjectOutputStream out = new ObjectOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tmp)));
+            try {
+                out.writeInt(FORMAT_VERSION);
+                out.writeObject(merged);
+            } finally {
+                out.close();
+            }
+            try {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+    }
+
+    /** @return the file the cache is stored in */
+    public File getFile() {
+        return file;
+    }
+
+    /** @return the number of classes whose diagnostics were replayed */
+    public long getHits() {
+        return hits;
+    }
+
+    /** @return the number of classes that were type-checked */
+    public long getMisses() {
+        return misses;
+    }
+
+    private static String key(SourceChecker checker, TypeElement element) {
+        return checker.getClass().getName() + " " + element.getQualifiedName();
+    }
+
+    /**
+     * If {@code element} has not changed since the diagnostics of
+     * {@code checker} for it were recorded, report these diagnostics again.
+     *
+     * @param fingerprint the fingerprint of the class; see
+     *            {@link #fingerprint(SourceChecker, TypeElement, TreePath)}
+     * @return true if the diagnostics were reported, and the class need not
+     *         be type-checked
+     */
+    public boolean replay(SourceChecker checker, TypeElement element, TreePath path,
+            String fingerprint) {
+        Result result = results.get(key(checker, element));
+        if (result == null || !result.fingerprint.equals(fingerprint)) {
+            misses++;
+            return false;
+        }
+
+        // Find all trees before reporting anything, so that either all or
+        // none of the diagnostics are reported.
+        CompilationUnitTree root = path.getCompilationUnit();
+        Map<String, Tree> trees = findTrees(root, result.messages);
+        List<Tree> sources = new ArrayList<>(result.messages.size());
+        for (Message message : result.messages) {
+            Tree tree = trees.get(positionKey(message.treeKind, message.start, message.end));
+            if (tree == null || (message.onElement && InternalUtils.symbol(tree) == null)) {
+                misses++;
+                return false;
+            }
+            sources.add(tree);
+        }
+
+        Trees treeUtils = Trees.instance(env);
+        for (int i = 0; i < sources.size(); ++i) {
+            Message message = result.messages.get(i);
+            Tree tree = sources.get(i);
+            if (message.onElement) {
+                env.getMessager().printMessage(message.kind, message.text,
+                        InternalUtils.symbol(tree));
+            } else {
+                treeUtils.printMessage(message.kind, message.text, tree, root);
+            }
+        }
+        hits++;
+        return true;
+    }
+
+    private static String positionKey(Tree.Kind kind, long start, long end) {
+        return kind + ":" + start + ":" + end;
+    }
+
+    /** Returns the trees of {@code root} that diagnostics were reported on. */
+    private Map<String, Tree> findTrees(final CompilationUnitTree root, List<Message> messages) {
+        final Set<String> wanted = new HashSet<>();
+        for (Message message : messages) {
+            wanted.add(positionKey(message.treeKind, message.start, message.end));
+        }
+        final Map<String, Tree> found = new HashMap<>();
+        if (wanted.isEmpty()) {
+            return found;
+        }
+        final SourcePositions positions = Trees.instance(env).getSourcePositions();
+        new TreeScanner<Void, Void>() {
+            @Override
+            public Void scan(Tree tree, Void p) {
+                if (tree == null || found.size() == wanted.size()) {
+                    return null;
+                }
+                String key = positionKey(tree.getKind(),
+                        positions.getStartPosition(root, tree),
+                        positions.getEndPosition(root, tree));
+                if (wanted.contains(key) && !found.containsKey(key)) {
+                    found.put(key, tree);
+                }
+                return super.scan(tree, p);
+            }
+        }.scan(root, null);
+        return found;
+    }
+
+    /** Start recording the diagnostics of a class that is about to be type-checked. */
+    public void startRecording() {
+        recording = new ArrayList<>();
+        recordable = true;
+        visited = false;
+    }
+
+    /**
+     * Stop recording and remember the recorded diagnostics, unless they
+     * cannot be replayed.
+     *
+     * @param fingerprint the fingerprint of the class, or null if the
+     *            diagnostics should not be remembered
+     */
+    public void stopRecording(SourceChecker checker, TypeElement element,
+            /*@Nullable*/ String fingerprint) {
+        if (recording != null && fingerprint != null && recordable && visited) {
+            Result result = new Result(fingerprint, recording);
+            results.put(key(checker, element), result);
+            unsaved.put(key(checker, element), result);
+        }
+        recording = null;
+    }
+
+    /** Note that a checker type-checks the class that is being recorded. */
+    public void visiting() {
+        visited = true;
+    }
+
+    /**
+     * Note that the result of the class being recorded cannot be cached,
+     * for example because a checker failed.
+     */
+    public void notRecordable() {
+        recordable = false;
+    }
+
+    /**
+     * Record a diagnostic reported while type-checking a class.
+     *
+     * @param source the element or tree the diagnostic was reported on
+     * @param root the compilation unit of {@code source}
+     */
+    public void record(Diagnostic.Kind kind, String text, Object source,
+            CompilationUnitTree root) {
+        if (recording == null) {
+            return;
+        }
+        Tree tree;
+        boolean onElement = source instanceof Element;
+        if (onElement) {
+            TreePath path = Trees.instance(env).getPath((Element) source);
+            tree = (path == null || path.getCompilationUnit() != root ? null : path.getLeaf());
+        } else {
+            tree = (Tree) source;
+        }
+        if (tree == null) {
+            recordable = false;
+            return;
+        }
+        SourcePositions positions = Trees.instance(env).getSourcePositions();
+        long start = positions.getStartPosition(root, tree);
+        long end = positions.getEndPosition(root, tree);
+        if (start < 0) {
+            // Artificial trees have no position. The end position is only
+            // known if javac keeps end positions, and is -1 otherwise.
+            recordable = false;
+            return;
+        }
+        recording.add(new Message(kind, text, onElement, tree.getKind(), start, end));
+    }
+
+    /**
+     * Computes the fingerprint of a class, or returns null if the class
+     * cannot be fingerprinted, in which case its result is not cached.
+     */
+    public /*@Nullable*/ String fingerprint(SourceChecker checker, TypeElement element, TreePath path) {
+        MessageDigest digest = newDigest();
+        try {
+            update(digest, configuration(checker));
+
+            CompilationUnitTree root = path.getCompilationUnit();
+            update(digest, root.getSourceFile().getCharContent(true).toString());
+            PackageElement pkg = ElementUtils.enclosingPackage(element);
+            if (pkg != null) {
+                update(digest, pkg.getAnnotationMirrors().toString());
+            }
+
+            for (TypeElement dependency : dependencies(root)) {
+                update(digest, signature(dependency));
+            }
+        } catch (IOException | RuntimeException e) {
+            // For example, a class that is referred to could not be completed.
+            return null;
+        }
+        return toHex(digest.digest());
+    }
+
+    /** The fingerprint of the checker, its options, and the files it reads. */
+    private String configuration(SourceChecker checker) throws IOException {
+        String name = checker.getClass().getName();
+        String configuration = configurations.get(name);
+        if (configuration == null) {
+            StringBuilder sb = new StringBuilder(name);
+            sb.append('\n').append(new TreeMap<>(checker.getOptions()));
+            appendFileStamp(sb, codeSource(checker.getClass()));
+            appendFileStamp(sb, codeSource(SourceChecker.class));
+            String stubs = checker.getOption("stubs");
+            if (stubs != null) {
+                for (String stub : stubs.split(File.pathSeparator)) {
+                    if (stub.isEmpty()) {
+                        continue;
+                    }
+                    // The modification time of a directory does not change
+                    // when a file in it is edited.
+                    for (StubResource resource : StubUtil.allStubFiles(stub)) {
+                        appendContentHash(sb, resource);
+                    }
+                }
+            }
+            configuration = sb.toString();
+            configurations.put(name, configuration);
+        }
+        return configuration;
+    }
+
+    private static /*@Nullable*/ File codeSource(Class<?> cls) {
+        CodeSource source = cls.getProtectionDomain().getCodeSource();
+        if (source == null || source.getLocation() == null
+                || !"file".equals(source.getLocation().getProtocol())) {
+            return null;
+        }
+        return new File(source.getLocation().getPath());
+    }
+
+    private static void appendFileStamp(StringBuilder sb, /*@Nullable*/ File file) {
+        if (file != null) {
+            sb.append('\n').append(file.getPath()).append(' ')
+              .append(file.lastModified()).append(' ').append(file.length());
+        }
+    }
+
+    private static void appendContentHash(StringBuilder sb, StubResource resource) throws IOException {
+        MessageDigest digest = newDigest();
+        InputStream in = resource.getInputStream();
+        try {
+            byte[] buffer = new byte[8192];
+            int length;
+            while ((length = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, length);
+            }
+        } finally {
+            in.close();
+        }
+        sb.append('\n').append(resource.getDescription()).append(' ').append(toHex(digest.digest()));
+    }
+
+    /**
+     * The classes that {@code root} refers to, the classes in the
+     * signatures of the members it uses, and all their supertypes, sorted
+     * by name.
+     *
+     * A class can matter without being named in {@code root}: in
+     * {@code Object o = d.getE();}, the annotations of the class of the
+     * result of {@code getE} do.
+     */
+    private Set<TypeElement> dependencies(CompilationUnitTree root) {
+        final Set<TypeElement> referenced = new HashSet<>();
+        new TreeScanner<Void, Void>() {
+            @Override
+            public Void scan(Tree tree, Void p) {
+                if (tree == null) {
+                    return null;
+                }
+                Element element = InternalUtils.symbol(tree);
+                if (element != null) {
+                    TypeElement type = (element instanceof TypeElement)
+                            ? (TypeElement) element : ElementUtils.enclosingClass(element);
+                    if (type != null) {
+                        referenced.add(type);
+                    }
+                    if (element != type) {
+                        addSignatureTypes(referenced, element);
+                    }
+                }
+                return super.scan(tree, p);
+            }
+        }.scan(root, null);
+
+        Set<TypeElement> result = new TreeSet<>(new Comparator<TypeElement>() {
+            @Override
+            public int compare(TypeElement t1, TypeElement t2) {
+                return t1.getQualifiedName().toString().compareTo(t2.getQualifiedName().toString());
+            }
+        });
+        Deque<TypeElement> worklist = new ArrayDeque<>(referenced);
+        while (!worklist.isEmpty()) {
+            TypeElement type = worklist.pop();
+            if (!result.add(type)) {
+                continue;
+            }
+            addSupertype(worklist, type.getSuperclass());
+            for (TypeMirror iface : type.getInterfaces()) {
+                addSupertype(worklist, iface);
+            }
+            TypeElement enclosing = ElementUtils.enclosingClass(type.getEnclosingElement());
+            if (enclosing != null) {
+                worklist.push(enclosing);
+            }
+        }
+        return result;
+    }
+
+    /** Add the classes in the signature of a member or variable. */
+    private static void addSignatureTypes(Set<TypeElement> types, Element element) {
+        if (element instanceof ExecutableElement) {
+            ExecutableElement method = (ExecutableElement) element;
+            addTypes(types, method.getReturnType());
+            for (VariableElement param : method.getParameters()) {
+                addTypes(types, param.asType());
+            }
+            for (TypeMirror thrown : method.getThrownTypes()) {
+                addTypes(types, thrown);
+            }
+            for (TypeParameterElement param : method.getTypeParameters()) {
+                for (TypeMirror bound : param.getBounds()) {
+                    addTypes(types, bound);
+                }
+            }
+        } else if (element instanceof VariableElement) {
+            addTypes(types, element.asType());
+        }
+    }
+
+    /**
+     * Add the classes that occur in {@code type}. The bounds of type
+     * variables are not followed; they are part of the signature of the
+     * declaration of the type variable.
+     */
+    private static void addTypes(Set<TypeElement> types, TypeMirror type) {
+        switch (type.getKind()) {
+        case DECLARED:
+            DeclaredType declared = (DeclaredType) type;
+            types.add((TypeElement) declared.asElement());
+            for (TypeMirror arg : declared.getTypeArguments()) {
+                addTypes(types, arg);
+            }
+            break;
+        case ARRAY:
+            addTypes(types, ((ArrayType) type).getComponentType());
+            break;
+        case WILDCARD:
+            WildcardType wildcard = (WildcardType) type;
+            if (wildcard.getExtendsBound() != null) {
+                addTypes(types, wildcard.getExtendsBound());
+            }
+            if (wildcard.getSuperBound() != null) {
+                addTypes(types, wildcard.getSuperBound());
+            }
+            break;
+        default:
+            break;
+        }
+    }
+
+    private static void addSupertype(Deque<TypeElement> worklist, TypeMirror supertype) {
+        if (supertype.getKind() == TypeKind.DECLARED) {
+            worklist.push((TypeElement) ((DeclaredType) supertype).asElement());
+        }
+    }
+
+    /** The signatures and annotations of a type and its members. */
+    private String signature(TypeElement type) {
+        String signature = signatures.get(type);
+        if (signature == null) {
+            StringBuilder sb = new StringBuilder();
+            appendDeclaration(sb, type);
+            sb.append(" extends ").append(type.getSuperclass())
+              .append(" implements ").append(type.getInterfaces());
+            for (TypeParameterElement param : type.getTypeParameters()) {
+                appendDeclaration(sb, param);
+                sb.append(param.getBounds());
+            }
+            PackageElement pkg = ElementUtils.enclosingPackage(type);
+            if (pkg != null) {
+                sb.append('\n').append(pkg.getAnnotationMirrors());
+            }
+            for (Element member : type.getEnclosedElements()) {
+                appendDeclaration(sb, member);
+                if (member.getKind() == ElementKind.METHOD
+                        || member.getKind() == ElementKind.CONSTRUCTOR) {
+                    ExecutableElement method = (ExecutableElement) member;
+                    for (VariableElement param : method.getParameters()) {
+                        appendDeclaration(sb, param);
+                    }
+                    sb.append(" default ").append(method.getDefaultValue());
+                } else if (member instanceof VariableElement) {
+                    sb.append(" = ").append(((VariableElement) member).getConstantValue());
+                }
+            }
+            signature = sb.toString();
+            signatures.put(type, signature);
+        }
+        return signature;
+    }
+
+    private static void appendDeclaration(StringBuilder sb, Element element) {
+        sb.append('\n').append(element.getKind()).append(' ')
+          .append(element.getModifiers()).append(' ')
+          .append(element.getSimpleName()).append(' ')
+          .append(element.asType());
+        for (AnnotationMirror anno : element.getAnnotationMirrors()) {
+            sb.append(' ').append(anno);
+        }
+        if (element instanceof Symbol) {
+            // Type annotations, for example from the annotated JDK.
+            sb.append(' ').append(((Symbol) element).getRawTypeAttributes());
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-1.
+            throw new AssertionError(e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String s) {
+        try {
+            digest.update(s.getBytes("UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+            // Every Java platform is required to support UTF-8.
+            throw new AssertionError(e);
+        }
+        digest.update((byte) 0);
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(2 * bytes.length);
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+}
@@ -10,10 +10,11 @@ import org.checkerframework.common.basetype.BaseTypeChecker;
 import org.checkerframework.framework.qual.TypeQualifiers;
 import org.checkerframework.framework.type.AnnotatedTypeFactory;
 import org.checkerframework.framework.util.CFContext;
+import org.checkerframework.framework.util.CheckerDaemon;
+import org.checkerframework.framework.util.CheckerProfiler;
 import org.checkerframework.framework.util.OptionConfiguration;
 import org.checkerframework.javacutil.AbstractTypeProcessor;
 import org.checkerframework.javacutil.AnnotationProvider;
-import org.checkerframework.javacutil.AnnotationUtils;
 import org.checkerframework.javacutil.ElementUtils;
 import org.checkerframework.javacutil.ErrorHandler;
 import org.checkerframework.javacutil.ErrorReporter;
@@ -191,6 +192,49 @@ import com.sun.tools.javac.util.Log;
     // that were not found on the class path
     // org.checkerframework.framework.stub.StubParser.warnIfNotFound
     "stubWarnIfNotFound",
+    // Whether to resolve the declarations in stub files only for the
+    // classes that are used, when they are first used
+    // org.checkerframework.framework.type.AnnotatedTypeFactory.buildIndexTypes()
+    "stubLazy",
+
+    /// Caches
+
+    // The maximum number of entries in the caches of AnnotatedTypeFactory.
+    // Each defaults to 300.
+    // org.checkerframework.framework.type.AnnotatedTypeFactory.getCacheSize(String)
+    "treeCacheSize",
+    "fromTreeCacheSize",
+    "elementCacheSize",
+    "elementToTreeCacheSize",
+
+    // The maximum total number of type nodes in each cache of annotated types
+    // org.checkerframework.framework.type.AnnotatedTypeFactory.createTypeCache(String)
+    "typeCacheWeight",
+
+    // The maximum number of subtype checks whose result is cached.
+    // Defaults to 1000; 0 disables the cache.
+    // org.checkerframework.framework.type.DefaultTypeHierarchy.isSubtype(AnnotatedTypeMirror, AnnotatedTypeMirror, AnnotationMirror)
+    "subtypeCacheSize",
+
+    // Keep the store before every n-th node of a basic block, so that looking up
+    // the store before or after a tree does not rerun the transfer function from
+    // the start of its basic block.  Disabled by default.
+    // org.checkerframework.dataflow.analysis.AnalysisResult.setStoreCheckpoints(int, int)
+    "storeCheckpointInterval",
+    // The maximum number of stores kept for -AstoreCheckpointInterval.
+    // Defaults to 10000.
+    "storeCheckpointLimit",
+
+    // Discard the results of the flow analysis of a class when the next
+    // class is type-checked, rather than at the end of the compilation unit
+    // org.checkerframework.framework.type.GenericAnnotatedTypeFactory.releaseFlowResults()
+    "releaseFlowResults",
+
+    // File in which the diagnostics of each class are stored, so that later
+    // compilations report them again instead of type-checking classes that
+    // have not changed
+    // org.checkerframework.framework.source.IncrementalCache
+    "incrementalCache",
 
     ///
     /// Debugging
@@ -262,6 +306,11 @@ import com.sun.tools.javac.util.Log;
     // org.checkerframework.framework.source.SourceChecker.shutdownHook()
     "resourceStats",
 
+    // File to which a JSON profile of the time and memory spent in each
+    // phase, class, and method is written at JVM shutdown
+    // org.checkerframework.framework.util.CheckerProfiler
+    "profileOutput",
+
 })
 public abstract class SourceChecker
     extends AbstractTypeProcessor implements ErrorHandler, CFContext, OptionConfiguration {
@@ -295,6 +344,12 @@ public abstract class SourceChecker
     /** The visitor to use. */
     protected SourceVisitor<?, ?> visitor;
 
+    /** The profiler shared by all checkers of this compilation. */
+    private CheckerProfiler profiler = CheckerProfiler.DISABLED;
+
+    /** The diagnostics of previous compilations, or null if they are not used. */
+    private /*@Nullable*/ IncrementalCache incrementalCache = null;
+
     /** Keys for warning suppressions specified on the command line */
     private String /*@Nullable*/ [] suppressWarnings;
 
@@ -425,6 +480,15 @@ public abstract class SourceChecker
         return this.visitor;
     }
 
+    /**
+     * Returns the profiler that records where this checker spends its time.
+     * It does not record anything unless the {@code -AprofileOutput} option
+     * is given.
+     */
+    public CheckerProfiler getProfiler() {
+        return this.profiler;
+    }
+
     /**
      * Provides the {@link SourceVisitor} that the checker should use to scan
      * input source trees.
@@ -693,6 +757,9 @@ public abstract class SourceChecker
             messager = processingEnv.getMessager();
         }
         this.messager.printMessage(javax.tools.Diagnostic.Kind.ERROR, msg);
+        if (incrementalCache != null) {
+            incrementalCache.notRecordable();
+        }
     }
 
     /**
@@ -720,12 +787,17 @@ public abstract class SourceChecker
                                 "! Please ensure your checker is properly initialized.");
             }
             if (shouldAddShutdownHook()) {
-                Runtime.getRuntime().addShutdownHook(new Thread() {
+                Thread hook = new Thread() {
                     @Override
                     public void run() {
                         shutdownHook();
                     }
-                });
+                };
+                // A daemon JVM outlives the compilation, so run the hook
+                // when the compilation ends.
+                if (!CheckerDaemon.addCompilationEndHook(hook)) {
+                    Runtime.getRuntime().addShutdownHook(hook);
+                }
             }
         } catch (CheckerError ce) {
             logCheckerError(ce);
@@ -749,12 +821,24 @@ public abstract class SourceChecker
         this.messager = processingEnv.getMessager();
         this.messages = getMessages();
 
-        this.visitor = createSourceVisitor();
+        if (hasOption("profileOutput")) {
+            // Use one profiler for all checkers of the compilation,
+            // in particular for a checker and its subcheckers.
+            Context context = ((JavacProcessingEnvironment) processingEnv).getContext();
+            CheckerProfiler sharedProfiler = context.get(CheckerProfiler.class);
+            if (sharedProfiler == null) {
+                sharedProfiler = new CheckerProfiler();
+                context.put(CheckerProfiler.class, sharedProfiler);
+            }
+            this.profiler = sharedProfiler;
+        }
+
+        if (hasOption("incrementalCache")) {
+            this.incrementalCache = IncrementalCache.instance(processingEnv,
+                    getOption("incrementalCache"));
+        }
 
-        // TODO: hack to clear out static caches.
-        // When the {@link org.checkerframework.qualframework.util.QualifierContext}
-        // gets used by all utilities, this shouldn't be an issue anymore.
-        AnnotationUtils.clear();
+        this.visitor = createSourceVisitor();
     }
 
     /**
@@ -762,11 +846,15 @@ public abstract class SourceChecker
      * added as a shutdownHook of the JVM.
      */
     protected boolean shouldAddShutdownHook() {
-        return getOptions().containsKey("resourceStats");
+        return getOptions().containsKey("resourceStats")
+                || getOptions().containsKey("profileOutput")
+                || getOptions().containsKey("incrementalCache");
     }
 
     /**
-     * Method that gets called exactly once at shutdown time of the JVM.
+     * Method that gets called exactly once at shutdown time of the JVM,
+     * or at the end of the compilation if the compiler runs in a
+     * {@link CheckerDaemon}.
      * Checkers can override this method to customize the behavior.
      */
     protected void shutdownHook() {
@@ -776,6 +864,44 @@ public abstract class SourceChecker
             // call the super implementations.
             printStats();
         }
+        if (getOptions().containsKey("profileOutput")) {
+            writeProfile(getOptions().get("profileOutput"));
+        }
+        if (incrementalCache != null) {
+            // Normally the cache was saved by typeProcessingDone; this
+            // saves the results of a compilation that stopped early.
+            saveIncrementalCache();
+        }
+    }
+
+    /**
+     * Saves the {@link IncrementalCache} as soon as all classes are
+     * type-checked, rather than when the JVM shuts down.
+     */
+    @Override
+    public void typeProcessingDone() {
+        if (incrementalCache != null) {
+            saveIncrementalCache();
+        }
+    }
+
+    private void saveIncrementalCache() {
+        try {
+            incrementalCache.save();
+        } catch (IOException e) {
+            // The messager cannot be used once the compilation is over.
+            System.err.println("Could not write " + incrementalCache.getFile() + ": " + e.getMessage());
+        }
+    }
+
+    /** Write the profile recorded by {@link #getProfiler()} to the given file. */
+    protected void writeProfile(String fileName) {
+        try {
+            profiler.writeReport(fileName);
+        } catch (IOException e) {
+            // The compilation is already over, so the messager cannot be used.
+            System.err.println("Could not write profile to " + fileName + ": " + e.getMessage());
+        }
     }
 
     /** Print resource usage statistics */
@@ -786,6 +912,10 @@ public abstract class SourceChecker
             System.out.println("  Pool type: " + memoryPool.getType());
             System.out.println("  Peak usage: " + memoryPool.getPeakUsage());
         }
+        if (incrementalCache != null) {
+            System.out.println("Incremental cache: " + incrementalCache.getHits() + " classes reused, "
+                    + incrementalCache.getMisses() + " classes checked");
+        }
     }
 
     // Output the warning about source level at most once.
@@ -844,7 +974,13 @@ public abstract class SourceChecker
             visitor.setRoot(currentRoot);
         }
 
+        if (incrementalCache != null) {
+            incrementalCache.visiting();
+        }
+
         // Visit the attributed tree.
+        profiler.enterClass(e.getQualifiedName().toString());
+        profiler.enterPhase(CheckerProfiler.TYPE_CHECKING);
         try {
             visitor.visit(p);
         } catch (CheckerError ce) {
@@ -852,12 +988,53 @@ public abstract class SourceChecker
         } catch (Throwable t) {
             logCheckerError(wrapThrowableAsCheckerError("SourceChecker.typeProcess", t, p));
         } finally {
+            profiler.exitPhase();
+            profiler.exitClass();
             // Also add possibly deferred diagnostics, which will get published back in
             // AbstractTypeProcessor.
             this.errsOnLastExit = log.nerrors;
         }
     }
 
+    /**
+     * Reports the diagnostics of a previous compilation instead of
+     * type-checking the class, if the class has not changed since; see
+     * {@link IncrementalCache}. Otherwise, type-checks the class and
+     * records its diagnostics.
+     */
+    @Override
+    protected void processAnalyzedClass(TypeElement e, TreePath p) {
+        if (incrementalCache == null && hasOption("incrementalCache")) {
+            // An AggregateChecker does not call initChecker.
+            incrementalCache = IncrementalCache.instance(processingEnv,
+                    getOption("incrementalCache"));
+        }
+        if (incrementalCache == null || e == null || p == null
+                || p.getCompilationUnit() == previousErrorCompilationUnit) {
+            typeProcess(e, p);
+            return;
+        }
+        Context context = ((JavacProcessingEnvironment)processingEnv).getContext();
+        Log log = Log.instance(context);
+        if (log.nerrors > this.errsOnLastExit) {
+            // The class has Java errors, which typeProcess handles.
+            typeProcess(e, p);
+            return;
+        }
+
+        String fingerprint = incrementalCache.fingerprint(this, e, p);
+        if (fingerprint != null && incrementalCache.replay(this, e, p, fingerprint)) {
+            this.errsOnLastExit = log.nerrors;
+            return;
+        }
+        incrementalCache.startRecording();
+        try {
+            typeProcess(e, p);
+        } finally {
+            incrementalCache.stopRecording(this, e, fingerprint);
+        }
+    }
+
     private CheckerError wrapThrowableAsCheckerError(String where, Throwable t, /*@Nullable*/ TreePath p) {
         return new CheckerError(
            where + ": unexpected Throwable (" +
@@ -1035,6 +1212,10 @@ public abstract class SourceChecker
         if (LINE_SEPARATOR != "\n") // interned
             messageText = messageText.replaceAll("\n", LINE_SEPARATOR);
 
+        if (incrementalCache != null) {
+            incrementalCache.record(kind, messageText, source, currentRoot);
+        }
+
         if (source instanceof Element)
             messager.printMessage(kind, messageText, (Element) source);
         else if (source instanceof Tree)
@@ -0,0 +1,98 @@
+package org.checkerframework.framework.stub;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Map;
+
+import org.checkerframework.framework.type.AnnotatedTypeFactory;
+import org.checkerframework.stubparser.JavaParser;
+import org.checkerframework.stubparser.ParseException;
+import org.checkerframework.stubparser.ast.IndexUnit;
+
+/**
+ * A cache of parsed stub files, so that a stub file with the same contents
+ * is parsed at most once per JVM.
+ *
+ * Parsed stub files are keyed by a hash of their contents. The parsed
+ * {@link IndexUnit} does not depend on the checker or the compilation, and
+ * {@link StubParser} never modifies it, so it can be shared by all checkers
+ * of an aggregate checker, by subcheckers, and by later compilations in the
+ * same JVM. {@link StubParser} only resolves the elements and builds the
+ * annotated types of the cached index; that part is specific to a
+ * compilation and is not cached.
+ */
+public class StubIndexCache {
+
+    /** The maximum number of parsed stub files kept in memory. */
+    private static final int CACHE_SIZE = 64;
+
+    /** Parsed stub files, keyed by the hash of their contents. */
+    private static final Map<String, IndexUnit> parsedStubs =
+            Collections.synchronizedMap(AnnotatedTypeFactory.<String, IndexUnit>createLRUCache(CACHE_SIZE));
+
+    private StubIndexCache() {
+        throw new AssertionError("Class StubIndexCache cannot be instantiated.");
+    }
+
+    /**
+     * Returns the parsed contents of the stub file read from
+     * {@code inputStream}, parsing it only if a stub file with the same
+     * contents has not been parsed before.
+     *
+     * @param inputStream the contents of the stub file; it is read
+     *            completely and closed by this method
+     * @return the parsed stub file
+     */
+    public static IndexUnit getIndex(InputStream inputStream)
+            throws IOException, ParseException {
+        byte[] contents = readFully(inputStream);
+        String key = hash(contents);
+
+        IndexUnit index = parsedStubs.get(key);
+        if (index == null) {
+            index = JavaParser.parse(new ByteArrayInputStream(contents));
+            parsedStubs.put(key, index);
+        }
+        return index;
+    }
+
+    /** Removes all parsed stub files from the cache. */
+    public static void clear() {
+        parsedStubs.clear();
+    }
+
+    private static byte[] readFully(InputStream inputStream) throws IOException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    private static String hash(byte[] contents) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-1.
+            throw new AssertionError(e);
+        }
+        byte[] hash = digest.digest(contents);
+        StringBuilder sb = new StringBuilder(2 * hash.length);
+        for (byte b : hash) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+}
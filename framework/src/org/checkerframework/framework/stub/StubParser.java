@@ -40,7 +40,6 @@ import org.checkerframework.javacutil.AnnotationUtils;
 import org.checkerframework.javacutil.ElementUtils;
 import org.checkerframework.javacutil.ErrorReporter;
 import org.checkerframework.javacutil.Pair;
-import org.checkerframework.stubparser.JavaParser;
 import org.checkerframework.stubparser.ast.CompilationUnit;
 import org.checkerframework.stubparser.ast.ImportDeclaration;
 import org.checkerframework.stubparser.ast.IndexUnit;
@@ -138,7 +137,7 @@ public class StubParser {
         this.filename = filename;
         IndexUnit parsedindex;
         try {
-            parsedindex = JavaParser.parse(inputStream);
+            parsedindex = StubIndexCache.getIndex(inputStream);
         } catch (Exception e) {
             ErrorReporter.errorAbort("StubParser: exception from JavaParser.parse for file " + filename, e);
             parsedindex = null; // dead code, but needed for def. assignment checks
@@ -299,6 +298,101 @@ public class StubParser {
             parse(cu, atypes, declAnnos);
     }
 
+    /**
+     * Type declarations of the stub file that have not been resolved yet,
+     * keyed by the fully-qualified name of the declared type. Null unless
+     * {@link #parseLazily} has been called.
+     */
+    private Map<String, List<Pair<CompilationUnit, TypeDeclaration>>> unparsedTypes;
+
+    /**
+     * An alternative entry point to {@link #parse}. Parses the package
+     * declarations of the stub file, but only indexes its type declarations
+     * by the fully-qualified name of the declared type. The types and
+     * members declared in a type declaration are resolved later, by
+     * {@link #parseType(String, Map, Map)}. Side-effects the arguments.
+     *
+     * @return the fully-qualified names of all types declared in the stub
+     *         file
+     */
+    public Set<String> parseLazily(Map<Element, AnnotatedTypeMirror> atypes, Map<String, Set<AnnotationMirror>> declAnnos) {
+        unparsedTypes = new HashMap<String, List<Pair<CompilationUnit, TypeDeclaration>>>();
+        for (CompilationUnit cu : index.getCompilationUnits()) {
+            String packageName = null;
+            if (cu.getPackage() != null) {
+                packageName = cu.getPackage().getName().toString();
+                theCompilationUnit = cu;
+                parsePackage(cu.getPackage(), atypes, declAnnos);
+            }
+            if (cu.getTypes() != null) {
+                for (TypeDeclaration typeDecl : cu.getTypes()) {
+                    String typeName = getTypeName(packageName, typeDecl);
+                    List<Pair<CompilationUnit, TypeDeclaration>> decls = unparsedTypes.get(typeName);
+                    if (decls == null) {
+                        decls = new ArrayList<Pair<CompilationUnit, TypeDeclaration>>();
+                        unparsedTypes.put(typeName, decls);
+                    }
+                    decls.add(Pair.of(cu, typeDecl));
+                }
+            }
+        }
+        return new HashSet<String>(unparsedTypes.keySet());
+    }
+
+    /**
+     * Returns the simple names of the methods and fields declared in the
+     * declarations of the type {@code typeName} that have not been resolved
+     * yet; see {@link #parseLazily}.
+     */
+    public Set<String> getMemberNames(String typeName) {
+        Set<String> names = new HashSet<String>();
+        if (unparsedTypes == null || !unparsedTypes.containsKey(typeName)) {
+            return names;
+        }
+        for (Pair<CompilationUnit, TypeDeclaration> decl : unparsedTypes.get(typeName)) {
+            if (decl.second.getMembers() == null) {
+                continue;
+            }
+            for (BodyDeclaration member : decl.second.getMembers()) {
+                if (member instanceof MethodDeclaration) {
+                    names.add(((MethodDeclaration) member).getName());
+                } else if (member instanceof FieldDeclaration) {
+                    for (VariableDeclarator var : ((FieldDeclaration) member).getVariables()) {
+                        names.add(var.getId().getName());
+                    }
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Resolves the declarations of the type {@code typeName} and its
+     * members in the stub file, after they have been indexed by
+     * {@link #parseLazily}. Does nothing if the stub file does not declare
+     * {@code typeName} or if the declarations have been resolved before.
+     * Side-effects the arguments.
+     */
+    public void parseType(String typeName, Map<Element, AnnotatedTypeMirror> atypes, Map<String, Set<AnnotationMirror>> declAnnos) {
+        if (unparsedTypes == null) {
+            return;
+        }
+        List<Pair<CompilationUnit, TypeDeclaration>> decls = unparsedTypes.remove(typeName);
+        if (decls == null) {
+            return;
+        }
+        for (Pair<CompilationUnit, TypeDeclaration> decl : decls) {
+            CompilationUnit cu = decl.first;
+            theCompilationUnit = cu;
+            if (cu.getPackage() == null) {
+                parse(decl.second, null, null, atypes, declAnnos);
+            } else {
+                parse(decl.second, cu.getPackage().getName().toString(),
+                        cu.getPackage().getAnnotations(), atypes, declAnnos);
+            }
+        }
+    }
+
     private CompilationUnit theCompilationUnit;
 
     private void parse(CompilationUnit cu, Map<Element, AnnotatedTypeMirror> atypes, Map<String, Set<AnnotationMirror>> declAnnos) {
@@ -338,7 +432,7 @@ public class StubParser {
             Map<Element, AnnotatedTypeMirror> atypes,
             Map<String, Set<AnnotationMirror>> declAnnos) {
         // Fully-qualified name of the type being parsed
-        String typeName = (packageName == null ? "" : packageName + ".") + typeDecl.getName().replace('$', '.');
+        String typeName = getTypeName(packageName, typeDecl);
         TypeElement typeElt = elements.getTypeElement(typeName);
         // couldn't find type.  not in class path
         if (typeElt == null) {
@@ -387,6 +481,11 @@ public class StubParser {
         }
     }
 
+    /** The fully-qualified name of the type declared by {@code typeDecl}. */
+    private static String getTypeName(String packageName, TypeDeclaration typeDecl) {
+        return (packageName == null ? "" : packageName + ".") + typeDecl.getName().replace('$', '.');
+    }
+
     private void parseType(ClassOrInterfaceDeclaration decl, TypeElement elt, Map<Element, AnnotatedTypeMirror> atypes, Map<String, Set<AnnotationMirror>> declAnnos) {
         annotateDecl(declAnnos, elt, decl.getAnnotations());
         AnnotatedDeclaredType type = atypeFactory.fromElement(elt);
@@ -346,7 +346,13 @@ public class AnnotatedTypeCopier implements AnnotatedTypeVisitor<AnnotatedTypeMi
      */
     protected void maybeCopyPrimaryAnnotations(final AnnotatedTypeMirror source, final AnnotatedTypeMirror dest) {
         if (copyAnnotations) {
-            dest.addAnnotations(source.annotations);
+            if (dest.annotations.isEmpty() && dest.atypeFactory == source.atypeFactory) {
+                // The annotations of source are already known to be supported,
+                // so they can be shared instead of being added one by one.
+                dest.shareAnnotations(source);
+            } else {
+                dest.addAnnotations(source.annotations);
+            }
         }
     }
 }
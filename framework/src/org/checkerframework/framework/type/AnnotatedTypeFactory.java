@@ -33,8 +33,10 @@ import org.checkerframework.framework.type.visitor.AnnotatedTypeScanner;
 import org.checkerframework.framework.util.AnnotatedTypes;
 import org.checkerframework.framework.util.AnnotationFormatter;
 import org.checkerframework.framework.util.CFContext;
+import org.checkerframework.framework.util.CheckerProfiler;
 import org.checkerframework.framework.util.DefaultAnnotationFormatter;
 import org.checkerframework.framework.util.GraphQualifierHierarchy;
+import org.checkerframework.framework.util.LRUCache;
 import org.checkerframework.framework.util.MultiGraphQualifierHierarchy;
 import org.checkerframework.framework.util.MultiGraphQualifierHierarchy.MultiGraphFactory;
 import org.checkerframework.framework.util.TreePathCacher;
@@ -58,7 +60,6 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -212,6 +213,33 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
     // Not final, because it is assigned in postInit().
     private Map<String, Set<AnnotationMirror>> indexDeclAnnos;
 
+    /**
+     * If stub files are parsed lazily (option {@code -AstubLazy}), the
+     * parsers of the stub files that declare a type whose declarations have
+     * not been added to {@link #indexTypes} and {@link #indexDeclAnnos} yet,
+     * keyed by the fully-qualified name of the type. Null if stub files are
+     * parsed eagerly.
+     */
+    private Map<String, List<StubParser>> unparsedStubTypes;
+
+    /**
+     * If stub files are parsed lazily, the fully-qualified names of the
+     * types in {@link #unparsedStubTypes} that declare a method or field,
+     * keyed by the simple name of the member. A stub file may declare a
+     * member in a subtype of the class that declares it, so these types
+     * are resolved when the member is used. Null if stub files are parsed
+     * eagerly.
+     */
+    private Map<String, Set<String>> stubTypesByMemberName;
+
+    /**
+     * True while the stub file declarations of a type are being resolved
+     * lazily. Like while {@link #buildIndexTypes} runs, the types and
+     * declaration annotations from stub files are neither used nor cached
+     * during that time.
+     */
+    private boolean parsingStubTypes = false;
+
     /**
      * A cache used to store elements whose declaration annotations
      * have already been stored by calling the method getDeclAnnotations.
@@ -290,6 +318,12 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
 
         this.cacheDeclAnnos = new HashMap<Element, Set<AnnotationMirror>>();
 
+        this.treeCache = createTypeCache("treeCache");
+        this.fromTreeCache = createTypeCache("fromTreeCache");
+        this.elementCache = createTypeCache("elementCache");
+        this.elementToTreeCache = new LRUCache<Element, Tree>("elementToTreeCache",
+                getCacheSize("elementToTreeCache"));
+
         this.typeFormatter = createAnnotatedTypeFormatter();
         this.annotationFormatter = createAnnotationFormatter();
     }
@@ -328,7 +362,12 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
         initilizeReflectionResolution();
 
         if (this.getClass().equals(AnnotatedTypeFactory.class)) {
-            this.buildIndexTypes();
+            checker.getProfiler().enterPhase(CheckerProfiler.STUB_PARSING);
+            try {
+                this.buildIndexTypes();
+            } finally {
+                checker.getProfiler().exitPhase();
+            }
         }
     }
 
@@ -605,22 +644,22 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
     protected static boolean SHOULD_READ_CACHE = true;
     public boolean shouldReadCache = SHOULD_READ_CACHE;
 
-    /** Size of LRU cache. */
+    /** Default size of LRU cache; can be changed per cache by command-line options. */
     private final static int CACHE_SIZE = 300;
 
     /** Mapping from a Tree to its annotated type; implicits have been applied. */
-    private final Map<Tree, AnnotatedTypeMirror> treeCache = createLRUCache(CACHE_SIZE);
+    private final LRUCache<Tree, AnnotatedTypeMirror> treeCache;
 
     /** Mapping from a Tree to its annotated type; before implicits are applied,
      * just what the programmer wrote. */
-    protected final Map<Tree, AnnotatedTypeMirror> fromTreeCache = createLRUCache(CACHE_SIZE);
+    protected final LRUCache<Tree, AnnotatedTypeMirror> fromTreeCache;
 
     /** Mapping from an Element to its annotated type; before implicits are applied,
      * just what the programmer wrote. */
-    private final Map<Element, AnnotatedTypeMirror> elementCache = createLRUCache(CACHE_SIZE);
+    private final LRUCache<Element, AnnotatedTypeMirror> elementCache;
 
     /** Mapping from an Element to the source Tree of the declaration. */
-    private final Map<Element, Tree> elementToTreeCache  = createLRUCache(CACHE_SIZE);
+    private final LRUCache<Element, Tree> elementToTreeCache;
 
     /** Mapping from a Tree to its TreePath **/
     private final TreePathCacher treePathCache = new TreePathCacher();
@@ -685,43 +724,51 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
             ErrorReporter.errorAbort("AnnotatedTypeFactory.getAnnotatedType: null tree");
             return null; // dead code
         }
-        if (treeCache.containsKey(tree) && shouldReadCache) {
-            return treeCache.get(tree).deepCopy();
-        }
+        checker.getProfiler().enterPhase(CheckerProfiler.TREE_ANNOTATION);
+        try {
+            if (shouldReadCache) {
+                AnnotatedTypeMirror cached = treeCache.get(tree);
+                if (cached != null) {
+                    return cached.deepCopy();
+                }
+            }
 
-        AnnotatedTypeMirror type;
-        if (TreeUtils.isClassTree(tree)) {
-            type = fromClass((ClassTree)tree);
-        } else if (tree.getKind() == Tree.Kind.METHOD ||
-                tree.getKind() == Tree.Kind.VARIABLE) {
-            type = fromMember(tree);
-        } else if (TreeUtils.isExpressionTree(tree)) {
-            tree = TreeUtils.skipParens((ExpressionTree)tree);
-            type = fromExpression((ExpressionTree) tree);
-        } else {
-            ErrorReporter.errorAbort(
-                    "AnnotatedTypeFactory.getAnnotatedType: query of annotated type for tree " + tree.getKind());
-            type = null; // dead code
-        }
+            AnnotatedTypeMirror type;
+            if (TreeUtils.isClassTree(tree)) {
+                type = fromClass((ClassTree)tree);
+            } else if (tree.getKind() == Tree.Kind.METHOD ||
+                    tree.getKind() == Tree.Kind.VARIABLE) {
+                type = fromMember(tree);
+            } else if (TreeUtils.isExpressionTree(tree)) {
+                tree = TreeUtils.skipParens((ExpressionTree)tree);
+                type = fromExpression((ExpressionTree) tree);
+            } else {
+                ErrorReporter.errorAbort(
+                        "AnnotatedTypeFactory.getAnnotatedType: query of annotated type for tree " + tree.getKind());
+                type = null; // dead code
+            }
 
-        annotateImplicit(tree, type);
+            annotateImplicit(tree, type);
 
-        if (TreeUtils.isClassTree(tree) ||
-            tree.getKind() == Tree.Kind.METHOD) {
-            // Don't cache VARIABLE
-            if (shouldCache) {
-                treeCache.put(tree, type.deepCopy());
+            if (TreeUtils.isClassTree(tree) ||
+                tree.getKind() == Tree.Kind.METHOD) {
+                // Don't cache VARIABLE
+                if (shouldCache) {
+                    treeCache.put(tree, type.deepCopy());
+                }
+            } else {
+                // No caching otherwise
             }
-        } else {
-            // No caching otherwise
-        }
 
-        if (tree.getKind() == Tree.Kind.CLASS) {
-            postProcessClassTree((ClassTree) tree);
-        }
+            if (tree.getKind() == Tree.Kind.CLASS) {
+                postProcessClassTree((ClassTree) tree);
+            }
 
-        // System.out.println("AnnotatedTypeFactory::getAnnotatedType(Tree) result: " + type);
-        return type;
+            // System.out.println("AnnotatedTypeFactory::getAnnotatedType(Tree) result: " + type);
+            return type;
+        } finally {
+            checker.getProfiler().exitPhase();
+        }
     }
 
     /**
@@ -770,14 +817,22 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
      * @return the annotated type of the element
      */
     public AnnotatedTypeMirror fromElement(Element elt) {
-        if (elementCache.containsKey(elt) && shouldReadCache) {
-            return elementCache.get(elt).deepCopy();
+        if (shouldReadCache) {
+            AnnotatedTypeMirror cached = elementCache.get(elt);
+            if (cached != null) {
+                return cached.deepCopy();
+            }
         }
         if (elt.getKind() == ElementKind.PACKAGE)
             return toAnnotatedType(elt.asType(), false);
         AnnotatedTypeMirror type;
         Tree decl = declarationFromElement(elt);
 
+        if (decl == null) {
+            parseStubTypes(elt);
+        }
+        Map<Element, AnnotatedTypeMirror> indexTypes = parsingStubTypes ? null : this.indexTypes;
+
         if (decl == null && indexTypes != null && indexTypes.containsKey(elt)) {
             type = indexTypes.get(elt).deepCopy();
         } else if (decl == null && (indexTypes == null || !indexTypes.containsKey(elt))) {
@@ -810,6 +865,69 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
         return type;
     }
 
+    /**
+     * If stub files are parsed lazily, adds the types and declaration
+     * annotations that stub files declare for the class enclosing
+     * {@code elt} to {@link #indexTypes} and {@link #indexDeclAnnos}, unless
+     * that has been done before. If {@code elt} is a method or field, the
+     * declarations of the subtypes of that class that declare a member with
+     * the same name are added as well, because {@code StubParser.findElement}
+     * resolves a member declared in a subtype to the inherited member.
+     */
+    private void parseStubTypes(Element elt) {
+        if (unparsedStubTypes == null || unparsedStubTypes.isEmpty()
+                || parsingStubTypes) {
+            return;
+        }
+        TypeElement typeElt = ElementUtils.enclosingClass(elt);
+        if (typeElt == null) {
+            return;
+        }
+        parseStubTypes(typeElt.getQualifiedName().toString());
+
+        if (elt.getKind() != ElementKind.METHOD && !elt.getKind().isField()) {
+            return;
+        }
+        Set<String> typeNames = stubTypesByMemberName.get(elt.getSimpleName().toString());
+        if (typeNames == null) {
+            return;
+        }
+        TypeMirror declaringType = types.erasure(typeElt.asType());
+        for (String typeName : new ArrayList<String>(typeNames)) {
+            if (!unparsedStubTypes.containsKey(typeName)) {
+                typeNames.remove(typeName);
+                continue;
+            }
+            TypeElement subtypeElt = elements.getTypeElement(typeName);
+            if (subtypeElt != null
+                    && types.isSubtype(types.erasure(subtypeElt.asType()), declaringType)) {
+                parseStubTypes(typeName);
+                typeNames.remove(typeName);
+            }
+        }
+    }
+
+    /**
+     * Adds the types and declaration annotations that stub files declare
+     * for the class {@code typeName}, unless that has been done before.
+     */
+    private void parseStubTypes(String typeName) {
+        List<StubParser> stubParsers = unparsedStubTypes.remove(typeName);
+        if (stubParsers == null) {
+            return;
+        }
+        parsingStubTypes = true;
+        checker.getProfiler().enterPhase(CheckerProfiler.STUB_PARSING);
+        try {
+            for (StubParser stubParser : stubParsers) {
+                stubParser.parseType(typeName, indexTypes, indexDeclAnnos);
+            }
+        } finally {
+            checker.getProfiler().exitPhase();
+            parsingStubTypes = false;
+        }
+    }
+
     /**
      * Adds @FromByteCode to methods, constructors, and fields declared in class files
      * that are not already annotated with @FromStubFile
@@ -862,8 +980,11 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
             ErrorReporter.errorAbort("AnnotatedTypeFactory.fromMember: not a method or variable declaration: " + tree);
             return null; // dead code
         }
-        if (fromTreeCache.containsKey(tree) && shouldReadCache) {
-            return fromTreeCache.get(tree).deepCopy();
+        if (shouldReadCache) {
+            AnnotatedTypeMirror cached = fromTreeCache.get(tree);
+            if (cached != null) {
+                return cached.deepCopy();
+            }
         }
         AnnotatedTypeMirror result = TypeFromTree.fromMember(this, tree);
         annotateInheritedFromClass(result);
@@ -879,8 +1000,12 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
      * @return the annotated type of the expression
      */
     public AnnotatedTypeMirror fromExpression(ExpressionTree tree) {
-        if (fromTreeCache.containsKey(tree) && shouldReadCache)
-            return fromTreeCache.get(tree).deepCopy();
+        if (shouldReadCache) {
+            AnnotatedTypeMirror cached = fromTreeCache.get(tree);
+            if (cached != null) {
+                return cached.deepCopy();
+            }
+        }
 
         AnnotatedTypeMirror result = TypeFromTree.fromExpression(this, tree);
 
@@ -899,8 +1024,11 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
      * @return the annotated type of the type in the AST
      */
     public AnnotatedTypeMirror fromTypeTree(Tree tree) {
-        if (fromTreeCache.containsKey(tree) && shouldReadCache) {
-            return fromTreeCache.get(tree).deepCopy();
+        if (shouldReadCache) {
+            AnnotatedTypeMirror cached = fromTreeCache.get(tree);
+            if (cached != null) {
+                return cached.deepCopy();
+            }
         }
 
         AnnotatedTypeMirror result = TypeFromTree.fromTypeTree(this, tree);
@@ -1967,8 +2095,13 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
         // if root is null, we cannot find any declaration
         if (root == null)
             return null;
-        if (elementToTreeCache.containsKey(elt) && shouldReadCache) {
-            return elementToTreeCache.get(elt);
+        if (shouldReadCache) {
+            // The cached declaration may be null, so get alone cannot
+            // distinguish a cached null from a missing entry.
+            Tree cached = elementToTreeCache.get(elt);
+            if (cached != null || elementToTreeCache.containsKey(elt)) {
+                return cached;
+            }
         }
 
         // Check for new declarations, outside of the AST.
@@ -2226,14 +2359,101 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
      * @return  a new cache with the provided size
      */
     public static <K, V> Map<K, V> createLRUCache(final int size) {
-        return new LinkedHashMap<K, V>() {
+        return new LRUCache<K, V>("LRU cache", size);
+    }
 
-            private static final long serialVersionUID = 5261489276168775084L;
-            @Override
-            protected boolean removeEldestEntry(Map.Entry<K, V> entry) {
-                return size() > size;
+    /**
+     * Creates a cache of annotated types.
+     * Its size is given by the command-line option {@code -A<name>Size}, and
+     * defaults to {@link #CACHE_SIZE}.
+     * If the command-line option {@code -AtypeCacheWeight} is given, the
+     * cache additionally bounds the total number of type nodes in the cached
+     * types, so that a few very large types cannot occupy a lot of memory.
+     * Subclasses may override this method to use a different cache.
+     *
+     * @param name  the name of the cache, used for the command-line option
+     *              and when printing statistics
+     * @return  a new cache for annotated types
+     */
+    protected <K> LRUCache<K, AnnotatedTypeMirror> createTypeCache(String name) {
+        int size = getCacheSize(name);
+        String weight = checker.getOption("typeCacheWeight");
+        if (weight == null) {
+            return new LRUCache<K, AnnotatedTypeMirror>(name, size);
+        }
+        return new LRUCache<K, AnnotatedTypeMirror>(name, size,
+                new TypeSizeWeigher(), parseCacheOption("typeCacheWeight", weight));
+    }
+
+    /**
+     * Returns the size of the cache with the given name, as given by the
+     * command-line option {@code -A<name>Size}, or {@link #CACHE_SIZE}.
+     */
+    protected int getCacheSize(String name) {
+        String option = name + "Size";
+        String size = checker.getOption(option);
+        if (size == null) {
+            return CACHE_SIZE;
+        }
+        return (int) Math.min(parseCacheOption(option, size), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Parses the value of the command-line option {@code -A<option>} that
+     * configures a cache, aborting if it is not a non-negative integer.
+     */
+    protected static long parseCacheOption(String option, String value) {
+        try {
+            long result = Long.parseLong(value);
+            if (result >= 0) {
+                return result;
             }
-        };
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        ErrorReporter.errorAbort("AnnotatedTypeFactory: the value of -A" + option +
+                " must be a non-negative integer, but is: " + value);
+        return 0; // dead code
+    }
+
+    /** Weighs an annotated type by the number of types it consists of. */
+    private static class TypeSizeWeigher extends AnnotatedTypeScanner<Void, Void>
+            implements LRUCache.Weigher<AnnotatedTypeMirror> {
+        private int size;
+
+        @Override
+        public int weigh(AnnotatedTypeMirror type) {
+            size = 0;
+            visit(type);
+            return size;
+        }
+
+        @Override
+        protected Void scan(AnnotatedTypeMirror type, Void p) {
+            if (type != null) {
+                size++;
+            }
+            return super.scan(type, p);
+        }
+    }
+
+    /**
+     * Returns the caches of this type factory, so that statistics about
+     * their use can be printed.
+     * Subclasses that add caches should override this method and
+     * add their caches to the result of the super implementation.
+     */
+    public List<LRUCache<?, ?>> getCaches() {
+        List<LRUCache<?, ?>> caches = new ArrayList<>();
+        caches.add(treeCache);
+        caches.add(fromTreeCache);
+        caches.add(elementCache);
+        caches.add(elementToTreeCache);
+        if (typeHierarchy instanceof DefaultTypeHierarchy
+                && ((DefaultTypeHierarchy) typeHierarchy).getSubtypeCache() != null) {
+            caches.add(((DefaultTypeHierarchy) typeHierarchy).getSubtypeCache());
+        }
+        return caches;
     }
 
     /** Sets indexTypes and indexDeclAnnos by side effect, just before returning. */
@@ -2246,6 +2466,12 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
             = new HashMap<Element, AnnotatedTypeMirror>();
         Map<String, Set<AnnotationMirror>> indexDeclAnnos
             = new HashMap<String, Set<AnnotationMirror>>();
+        Map<String, List<StubParser>> unparsedStubTypes = null;
+        Map<String, Set<String>> stubTypesByMemberName = null;
+        if (checker.hasOption("stubLazy")) {
+            unparsedStubTypes = new HashMap<String, List<StubParser>>();
+            stubTypesByMemberName = new HashMap<String, Set<String>>();
+        }
 
         if (!checker.hasOption("ignorejdkastub")) {
             InputStream in = null;
@@ -2253,7 +2479,7 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
                 in = checker.getClass().getResourceAsStream("jdk.astub");
             if (in != null) {
                 StubParser stubParser = new StubParser("jdk.astub", in, this, processingEnv);
-                stubParser.parse(indexTypes, indexDeclAnnos);
+                parseStubFile(stubParser, indexTypes, indexDeclAnnos, unparsedStubTypes, stubTypesByMemberName);
             }
         }
 
@@ -2261,7 +2487,7 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
         InputStream input = BaseTypeChecker.class.getResourceAsStream("flow.astub");
         if (input != null) {
             StubParser stubParser = new StubParser("flow.astub", input, this, processingEnv);
-            stubParser.parse(indexTypes, indexDeclAnnos);
+            parseStubFile(stubParser, indexTypes, indexDeclAnnos, unparsedStubTypes, stubTypesByMemberName);
         }
 
         String allstubFiles = "";
@@ -2294,6 +2520,8 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
         if (allstubFiles.isEmpty()) {
             this.indexTypes = indexTypes;
             this.indexDeclAnnos = indexDeclAnnos;
+            this.unparsedStubTypes = unparsedStubTypes;
+            this.stubTypesByMemberName = stubTypesByMemberName;
             return;
         }
 
@@ -2312,7 +2540,7 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
                     in = checker.getClass().getResourceAsStream(stubPath);
                 if (in != null) {
                     StubParser stubParser = new StubParser(stubPath, in, this, processingEnv);
-                    stubParser.parse(indexTypes, indexDeclAnnos);
+                    parseStubFile(stubParser, indexTypes, indexDeclAnnos, unparsedStubTypes, stubTypesByMemberName);
                     // We could handle the stubPath -> continue.
                     continue;
                 }
@@ -2330,15 +2558,52 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
                     continue;
                 }
                 StubParser stubParser = new StubParser(resource.getDescription(), stubStream, this, processingEnv);
-                stubParser.parse(indexTypes, indexDeclAnnos);
+                parseStubFile(stubParser, indexTypes, indexDeclAnnos, unparsedStubTypes, stubTypesByMemberName);
             }
         }
 
         this.indexTypes = indexTypes;
         this.indexDeclAnnos = indexDeclAnnos;
+        this.unparsedStubTypes = unparsedStubTypes;
+        this.stubTypesByMemberName = stubTypesByMemberName;
         return;
     }
 
+    /**
+     * Parses a stub file into {@code indexTypes} and {@code indexDeclAnnos}.
+     * If {@code unparsedStubTypes} is non-null, only the package
+     * declarations are parsed eagerly, and the stub parser is recorded in
+     * {@code unparsedStubTypes} for each type that the stub file declares,
+     * and the type in {@code stubTypesByMemberName} for each of its methods
+     * and fields.
+     */
+    private void parseStubFile(StubParser stubParser,
+            Map<Element, AnnotatedTypeMirror> indexTypes,
+            Map<String, Set<AnnotationMirror>> indexDeclAnnos,
+            /*@Nullable*/ Map<String, List<StubParser>> unparsedStubTypes,
+            /*@Nullable*/ Map<String, Set<String>> stubTypesByMemberName) {
+        if (unparsedStubTypes == null) {
+            stubParser.parse(indexTypes, indexDeclAnnos);
+            return;
+        }
+        for (String typeName : stubParser.parseLazily(indexTypes, indexDeclAnnos)) {
+            List<StubParser> stubParsers = unparsedStubTypes.get(typeName);
+            if (stubParsers == null) {
+                stubParsers = new ArrayList<StubParser>();
+                unparsedStubTypes.put(typeName, stubParsers);
+            }
+            stubParsers.add(stubParser);
+            for (String memberName : stubParser.getMemberNames(typeName)) {
+                Set<String> typeNames = stubTypesByMemberName.get(memberName);
+                if (typeNames == null) {
+                    typeNames = new HashSet<String>();
+                    stubTypesByMemberName.put(memberName, typeNames);
+                }
+                typeNames.add(typeName);
+            }
+        }
+    }
+
     /**
      * Returns the actual annotation mirror used to annotate this element,
      * whose name equals the passed annotation class, if one exists, or null otherwise.
@@ -2419,8 +2684,9 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
         Set<AnnotationMirror> results = AnnotationUtils.createAnnotationSet();
         // Retrieving the annotations from the element.
         results.addAll(elt.getAnnotationMirrors());
+        parseStubTypes(elt);
         // If indexDeclAnnos == null, return the annotations in the element.
-        if (indexDeclAnnos != null) {
+        if (indexDeclAnnos != null && !parsingStubTypes) {
             // Adding @FromByteCode annotation to indexDeclAnnos entry with key
             // elt, if elt is from bytecode.
             addFromByteCode(elt);
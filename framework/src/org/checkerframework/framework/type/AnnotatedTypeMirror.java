@@ -11,6 +11,7 @@ import org.checkerframework.dataflow.qual.SideEffectFree;
 import org.checkerframework.framework.qual.TypeQualifier;
 import org.checkerframework.framework.type.visitor.AnnotatedTypeVisitor;
 import org.checkerframework.framework.util.AnnotatedTypes;
+import org.checkerframework.framework.util.AnnotationMirrorSet;
 import org.checkerframework.javacutil.AnnotationUtils;
 import org.checkerframework.javacutil.ElementUtils;
 import org.checkerframework.javacutil.ErrorReporter;
@@ -141,7 +142,17 @@ public abstract class AnnotatedTypeMirror {
     // the class name of Annotation instead.
     // Caution: Assumes that a type can have at most one AnnotationMirror for
     // any Annotation type. JSR308 is pushing to have this change.
-    protected final Set<AnnotationMirror> annotations = AnnotationUtils.createAnnotationSet();
+    // Not final, because the set is shared with copies of this type until
+    // either type is modified; see shareAnnotations.
+    // An AnnotationMirrorSet is used instead of AnnotationUtils.createAnnotationSet,
+    // because it is much cheaper for the few annotations a type usually has.
+    protected Set<AnnotationMirror> annotations = new AnnotationMirrorSet();
+
+    /**
+     * True if {@link #annotations} may be shared with another type, in which
+     * case it must be copied before it is modified.
+     */
+    private boolean annotationsShared = false;
 
     /** The explicitly written annotations on this type. */
     // TODO: use this to cache the result once computed? For generic types?
@@ -532,7 +543,9 @@ public abstract class AnnotatedTypeMirror {
             ErrorReporter.errorAbort("AnnotatedTypeMirror.addAnnotation: null is not a valid annotation.");
         }
         if (atypeFactory.isSupportedQualifier(a)) {
-            this.annotations.add(a);
+            // Qualifiers read from source or bytecode become canonical
+            // here, so that comparing them is cheap.
+            writableAnnotations().add(AnnotationUtils.intern(atypeFactory.getElementUtils(), a));
         } else {
             AnnotationMirror aliased = atypeFactory.aliasedAnnotation(a);
             if (atypeFactory.isSupportedQualifier(aliased)) {
@@ -617,7 +630,7 @@ public abstract class AnnotatedTypeMirror {
         // It's currently necessary for the IGJ Checker and Lock Checker.
         AnnotationMirror anno = getAnnotation(AnnotationUtils.annotationName(a));
         if (anno != null) {
-            return annotations.remove(anno);
+            return writableAnnotations().remove(anno);
         } else {
             return false;
         }
@@ -686,7 +699,42 @@ public abstract class AnnotatedTypeMirror {
      * and similar methods.
      */
     public void clearAnnotations() {
-        annotations.clear();
+        if (annotationsShared) {
+            annotations = new AnnotationMirrorSet();
+            annotationsShared = false;
+        } else {
+            annotations.clear();
+        }
+    }
+
+    /**
+     * Returns {@link #annotations} for modification, first copying it if it
+     * is shared with another type.
+     */
+    private Set<AnnotationMirror> writableAnnotations() {
+        if (annotationsShared) {
+            annotations = new AnnotationMirrorSet(annotations);
+            annotationsShared = false;
+        }
+        return annotations;
+    }
+
+    /**
+     * Gives this type the same primary annotations as {@code source}. This
+     * type must not have any primary annotations yet, and both types must
+     * belong to the same type factory.
+     *
+     * Instead of adding every annotation again, which would check each
+     * annotation against the supported qualifiers, the two types share one
+     * annotation set until either of them is modified. This makes copying
+     * types, for example when reading from the caches of
+     * {@link AnnotatedTypeFactory}, considerably cheaper.
+     */
+    void shareAnnotations(AnnotatedTypeMirror source) {
+        assert annotations.isEmpty() && atypeFactory == source.atypeFactory;
+        annotations = source.annotations;
+        annotationsShared = true;
+        source.annotationsShared = true;
     }
 
     @SideEffectFree
@@ -963,7 +1011,7 @@ public abstract class AnnotatedTypeMirror {
             AnnotatedDeclaredType type =
                 new AnnotatedDeclaredType(getUnderlyingType(), atypeFactory, declaration);
             if (copyAnnotations)
-                type.addAnnotations(annotations);
+                type.shareAnnotations(this);
             type.setEnclosingType(getEnclosingType());
             type.setTypeArguments(getTypeArguments());
             return type;
@@ -1388,7 +1436,7 @@ public abstract class AnnotatedTypeMirror {
         public AnnotatedArrayType shallowCopy(boolean copyAnnotations) {
             AnnotatedArrayType type = new AnnotatedArrayType(actualType, atypeFactory);
             if (copyAnnotations)
-                type.addAnnotations(annotations);
+                type.shareAnnotations(this);
             type.setComponentType(getComponentType());
             return type;
         }
@@ -1664,7 +1712,7 @@ public abstract class AnnotatedTypeMirror {
                 new AnnotatedTypeVariable(((TypeVariable)actualType), atypeFactory, declaration);
 
             if (copyAnnotations) {
-                type.addAnnotations(annotations);
+                type.shareAnnotations(this);
             }
 
             if (!inUpperBounds) {
@@ -1749,7 +1797,7 @@ public abstract class AnnotatedTypeMirror {
         public AnnotatedNoType shallowCopy(boolean copyAnnotations) {
             AnnotatedNoType type = new AnnotatedNoType((NoType) actualType, atypeFactory);
             if (copyAnnotations)
-                type.addAnnotations(annotations);
+                type.shareAnnotations(this);
             return type;
         }
 
@@ -1793,7 +1841,7 @@ public abstract class AnnotatedTypeMirror {
         public AnnotatedNullType shallowCopy(boolean copyAnnotations) {
             AnnotatedNullType type = new AnnotatedNullType((NullType) actualType, atypeFactory);
             if (copyAnnotations)
-                type.addAnnotations(annotations);
+                type.shareAnnotations(this);
             return type;
         }
 
@@ -1841,7 +1889,7 @@ public abstract class AnnotatedTypeMirror {
             AnnotatedPrimitiveType type =
                 new AnnotatedPrimitiveType((PrimitiveType) actualType, atypeFactory);
             if (copyAnnotations)
-                type.addAnnotations(annotations);
+                type.shareAnnotations(this);
             return type;
         }
 
@@ -2051,7 +2099,7 @@ public abstract class AnnotatedTypeMirror {
             AnnotatedIntersectionType type =
                     new AnnotatedIntersectionType((IntersectionType) actualType, atypeFactory);
             if (copyAnnotations)
-                type.addAnnotations(annotations);
+                type.shareAnnotations(this);
             type.supertypes = this.supertypes;
             return type;
         }
@@ -2121,7 +2169,7 @@ public abstract class AnnotatedTypeMirror {
             AnnotatedUnionType type =
                     new AnnotatedUnionType((UnionType) actualType, atypeFactory);
             if (copyAnnotations)
-                type.addAnnotations(annotations);
+                type.shareAnnotations(this);
             type.alternatives = this.alternatives;
             return type;
         }
@@ -1,5 +1,9 @@
 package org.checkerframework.framework.type;
 
+/*>>>
+import org.checkerframework.checker.nullness.qual.Nullable;
+*/
+
 import org.checkerframework.common.basetype.BaseTypeChecker;
 import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedArrayType;
 import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedDeclaredType;
@@ -13,8 +17,10 @@ import org.checkerframework.framework.type.visitor.AbstractAtmComboVisitor;
 import org.checkerframework.framework.type.visitor.VisitHistory;
 import org.checkerframework.framework.util.AnnotatedTypes;
 import org.checkerframework.framework.util.AtmCombo;
+import org.checkerframework.framework.util.LRUCache;
 import org.checkerframework.framework.util.PluginUtil;
 import org.checkerframework.framework.util.TypeArgumentMapper;
+import org.checkerframework.javacutil.AnnotationUtils;
 import org.checkerframework.javacutil.ErrorReporter;
 import org.checkerframework.javacutil.Pair;
 import org.checkerframework.javacutil.TypesUtils;
@@ -23,6 +29,7 @@ import static org.checkerframework.framework.util.AnnotatedTypes.isDeclarationOf
 import static org.checkerframework.framework.util.AnnotatedTypes.isEnum;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
@@ -30,7 +37,9 @@ import java.util.List;
 import java.util.Set;
 
 import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.TypeKind;
 import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
@@ -114,6 +123,16 @@ public class DefaultTypeHierarchy extends AbstractAtmComboVisitor<Boolean, Visit
     // passing annotations to qualifierHierarchy.
     protected AnnotationMirror currentTop;
 
+    /** The default number of entries of {@link #subtypeCache}. */
+    protected static final int SUBTYPE_CACHE_SIZE = 1000;
+
+    /**
+     * The results of previous subtype checks, or null if they are not cached.
+     * The size is given by the command-line option {@code -AsubtypeCacheSize};
+     * a size of 0 disables the cache.
+     */
+    protected final /*@Nullable*/ LRUCache<SubtypeQuery, Boolean> subtypeCache;
+
     public DefaultTypeHierarchy(final BaseTypeChecker checker, final QualifierHierarchy qualifierHierarchy,
                          boolean ignoreRawTypes, boolean invariantArrayComponents) {
         this(checker, qualifierHierarchy, ignoreRawTypes, invariantArrayComponents, false);
@@ -137,6 +156,22 @@ public class DefaultTypeHierarchy extends AbstractAtmComboVisitor<Boolean, Visit
         this.ignoreRawTypes = ignoreRawTypes;
         this.invariantArrayComponents = invariantArrayComponents;
         this.covariantTypeArgs = covariantTypeArgs;
+
+        String size = checker.getOption("subtypeCacheSize");
+        long cacheSize = (size == null ? SUBTYPE_CACHE_SIZE
+                                       : AnnotatedTypeFactory.parseCacheOption("subtypeCacheSize", size));
+        if (cacheSize == 0) {
+            this.subtypeCache = null;
+        } else {
+            this.subtypeCache = new LRUCache<>("subtypeCache", (int) Math.min(cacheSize, Integer.MAX_VALUE));
+        }
+    }
+
+    /**
+     * @return the cache of subtype checks, or null if subtype checks are not cached
+     */
+    public /*@Nullable*/ LRUCache<?, ?> getSubtypeCache() {
+        return subtypeCache;
     }
 
     /**
@@ -167,7 +202,94 @@ public class DefaultTypeHierarchy extends AbstractAtmComboVisitor<Boolean, Visit
     public boolean isSubtype(final AnnotatedTypeMirror subtype, final AnnotatedTypeMirror supertype,
                              final AnnotationMirror top) {
         currentTop = top;
-        return isSubtype(subtype, supertype, new VisitHistory());
+        if (subtypeCache == null || !isCacheable(subtype) || !isCacheable(supertype)) {
+            return isSubtype(subtype, supertype, new VisitHistory());
+        }
+
+        final SubtypeQuery query = new SubtypeQuery(
+                ((AnnotatedDeclaredType) subtype).getUnderlyingType().asElement(), subtype.getAnnotations(),
+                ((AnnotatedDeclaredType) supertype).getUnderlyingType().asElement(), supertype.getAnnotations(),
+                top);
+        Boolean result = subtypeCache.get(query);
+        if (result == null) {
+            result = isSubtype(subtype, supertype, new VisitHistory());
+            subtypeCache.put(query, result);
+        }
+        return result;
+    }
+
+    /**
+     * Whether the result of a subtype check of {@code type} is cached.  The subtype relation of a
+     * declared type of a top-level or static class without type parameters only depends on the class
+     * and the primary annotations of the type, which form the key of the cache.  Other types would
+     * need a key that is as expensive to compute as the subtype check itself.
+     */
+    private static boolean isCacheable(final AnnotatedTypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return false;
+        }
+        final DeclaredType underlying = ((AnnotatedDeclaredType) type).getUnderlyingType();
+        return underlying.getTypeArguments().isEmpty()
+            && underlying.getEnclosingType().getKind() == TypeKind.NONE
+            && ((TypeElement) underlying.asElement()).getTypeParameters().isEmpty();
+    }
+
+    /**
+     * A subtype check of two declared types in one hierarchy, used as the key of
+     * {@link #subtypeCache}; see {@link #isCacheable}.  The key consists of the classes of the types,
+     * which are unique within a compilation, and copies of their primary annotations.  Two queries
+     * are equal if they have the same classes and the same annotations according to
+     * {@link AnnotationUtils#areSame(Collection, Collection)}.
+     */
+    public static final class SubtypeQuery {
+        private final Element subtype;
+        private final List<AnnotationMirror> subtypeAnnotations;
+        private final Element supertype;
+        private final List<AnnotationMirror> supertypeAnnotations;
+        private final AnnotationMirror top;
+        private final int hashCode;
+
+        public SubtypeQuery(final Element subtype, final Collection<? extends AnnotationMirror> subtypeAnnotations,
+                            final Element supertype, final Collection<? extends AnnotationMirror> supertypeAnnotations,
+                            final AnnotationMirror top) {
+            this.subtype = subtype;
+            // The annotations of a type may change after the check.
+            this.subtypeAnnotations = new ArrayList<AnnotationMirror>(subtypeAnnotations);
+            this.supertype = supertype;
+            this.supertypeAnnotations = new ArrayList<AnnotationMirror>(supertypeAnnotations);
+            this.top = top;
+            this.hashCode = 31 * (31 * (31 * (31 * subtype.hashCode() + namesHashCode(subtypeAnnotations))
+                                        + supertype.hashCode()) + namesHashCode(supertypeAnnotations))
+                            + AnnotationUtils.annotationName(top).hashCode();
+        }
+
+        /** A hash code of the annotations that does not depend on their values or their order. */
+        private static int namesHashCode(final Collection<? extends AnnotationMirror> annotations) {
+            int result = 0;
+            for (final AnnotationMirror annotation : annotations) {
+                result += AnnotationUtils.annotationName(annotation).hashCode();
+            }
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof SubtypeQuery)) {
+                return false;
+            }
+            final SubtypeQuery other = (SubtypeQuery) o;
+            return hashCode == other.hashCode
+                && subtype == other.subtype
+                && supertype == other.supertype
+                && AnnotationUtils.areSame(top, other.top)
+                && AnnotationUtils.areSame(subtypeAnnotations, other.subtypeAnnotations)
+                && AnnotationUtils.areSame(supertypeAnnotations, other.supertypeAnnotations);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
     }
 
     /**
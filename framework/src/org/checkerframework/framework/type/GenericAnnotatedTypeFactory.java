@@ -8,7 +8,6 @@ import org.checkerframework.common.basetype.BaseTypeChecker;
 import org.checkerframework.dataflow.analysis.AnalysisResult;
 import org.checkerframework.dataflow.analysis.TransferInput;
 import org.checkerframework.dataflow.analysis.TransferResult;
-import org.checkerframework.dataflow.cfg.CFGBuilder;
 import org.checkerframework.dataflow.cfg.ControlFlowGraph;
 import org.checkerframework.dataflow.cfg.UnderlyingAST;
 import org.checkerframework.dataflow.cfg.UnderlyingAST.CFGLambda;
@@ -22,6 +21,7 @@ import org.checkerframework.framework.flow.CFAbstractTransfer;
 import org.checkerframework.framework.flow.CFAbstractValue;
 import org.checkerframework.framework.flow.CFAnalysis;
 import org.checkerframework.framework.flow.CFCFGBuilder;
+import org.checkerframework.framework.flow.CFGCache;
 import org.checkerframework.framework.flow.CFStore;
 import org.checkerframework.framework.flow.CFTransfer;
 import org.checkerframework.framework.flow.CFValue;
@@ -42,6 +42,7 @@ import org.checkerframework.framework.type.typeannotator.ImplicitsTypeAnnotator;
 import org.checkerframework.framework.type.typeannotator.ListTypeAnnotator;
 import org.checkerframework.framework.type.typeannotator.PropagationTypeAnnotator;
 import org.checkerframework.framework.type.typeannotator.TypeAnnotator;
+import org.checkerframework.framework.util.CheckerProfiler;
 import org.checkerframework.framework.util.QualifierPolymorphism;
 import org.checkerframework.framework.util.defaults.QualifierDefaults;
 import org.checkerframework.javacutil.AnnotationUtils;
@@ -137,6 +138,7 @@ public abstract class GenericAnnotatedTypeFactory<
 
         this.useFlow = useFlow;
         this.analyses = new LinkedList<>();
+        this.cfgCache = CFGCache.instance(processingEnv);
         this.scannedClasses = new HashMap<>();
         this.flowResult = null;
         this.regularExitStores = null;
@@ -164,7 +166,12 @@ public abstract class GenericAnnotatedTypeFactory<
 
         this.poly = createQualifierPolymorphism();
 
-        this.buildIndexTypes();
+        checker.getProfiler().enterPhase(CheckerProfiler.STUB_PARSING);
+        try {
+            this.buildIndexTypes();
+        } finally {
+            checker.getProfiler().exitPhase();
+        }
     }
 
     /**
@@ -182,6 +189,25 @@ public abstract class GenericAnnotatedTypeFactory<
     public void setRoot(/*@Nullable*/ CompilationUnitTree root) {
         super.setRoot(root);
         this.analyses.clear();
+        releaseFlowResults();
+    }
+
+    /**
+     * Discard the results of the flow analysis of all classes analyzed so
+     * far. A discarded class is only analyzed again if the type of its
+     * {@link ClassTree} is requested again; until then,
+     * {@link #getInferredValueFor} returns null for its other trees, and
+     * its stores are no longer available.
+     *
+     * Must therefore only be called once the trees of the classes analyzed
+     * so far can no longer be queried, and not while a class is being
+     * analyzed. BaseTypeChecker calls it before it checks the next
+     * top-level class, whose trees are only queried after its ClassTree.
+     *
+     * @see org.checkerframework.common.basetype.BaseTypeChecker#typeProcess
+     */
+    public void releaseFlowResults() {
+        assert analyses.isEmpty() : "GenericAnnotatedTypeFactory.releaseFlowResults called during flow analysis";
         this.scannedClasses.clear();
         this.flowResult = null;
         this.regularExitStores = null;
@@ -438,6 +464,12 @@ public abstract class GenericAnnotatedTypeFactory<
      */
     protected AnalysisResult<Value, Store> flowResult;
 
+    /**
+     * The default maximum number of intermediate stores kept by
+     * {@link #flowResult} if {@code -AstoreCheckpointInterval} is given.
+     */
+    protected static final int STORE_CHECKPOINT_LIMIT = 10000;
+
     /**
      * A mapping from methods (or other code blocks) to their regular exit store (used to check
      * postconditions).
@@ -529,6 +561,14 @@ public abstract class GenericAnnotatedTypeFactory<
             regularExitStores = new IdentityHashMap<>();
             returnStatementStores = new IdentityHashMap<>();
             flowResult = new AnalysisResult<>();
+            String interval = checker.getOption("storeCheckpointInterval");
+            if (interval != null) {
+                String limit = checker.getOption("storeCheckpointLimit");
+                flowResult.setStoreCheckpoints(
+                        (int) Math.min(parseCacheOption("storeCheckpointInterval", interval), Integer.MAX_VALUE),
+                        limit == null ? STORE_CHECKPOINT_LIMIT
+                                : (int) Math.min(parseCacheOption("storeCheckpointLimit", limit), Integer.MAX_VALUE));
+            }
         }
 
         // no need to scan annotations
@@ -623,6 +663,12 @@ public abstract class GenericAnnotatedTypeFactory<
                 // Now analyze all methods.
                 // TODO: at this point, we don't have any information about
                 // fields of superclasses.
+                // The methods are analyzed one after the other, on the
+                // compiler's thread. Although a method only depends on
+                // fieldValues and the initialization stores, its transfer
+                // functions compute annotated types with this factory, which
+                // uses visitorState, the analyses deque, and javac's symbols
+                // and types; none of these may be used concurrently.
                 for (MethodTree mt : methods) {
                     analyze(queue, lambdaQueue,
                             new CFGMethod(mt, TreeUtils
@@ -658,6 +704,8 @@ public abstract class GenericAnnotatedTypeFactory<
 
     // Maintain a deque of analyses to accommodate nested classes.
     protected final Deque<FlowAnalysis> analyses;
+    // The control flow graphs shared with the other checkers of the compilation.
+    protected final CFGCache cfgCache;
     // Maintain for every class the store that is used when we analyze initialization code
     protected Store initializationStore;
     // Maintain for every class the store that is used when we analyze static initialization code
@@ -685,8 +733,55 @@ public abstract class GenericAnnotatedTypeFactory<
             List<Pair<VariableElement, Value>> fieldValues, ClassTree currentClass,
             boolean isInitializationCode, boolean isStatic,
             Store lambdaStore) {
-        CFGBuilder builder = new CFCFGBuilder(checker, this);
-        ControlFlowGraph cfg = builder.run(root, processingEnv, ast);
+        CheckerProfiler profiler = checker.getProfiler();
+        boolean isMethod = ast.getKind() == UnderlyingAST.Kind.METHOD;
+        if (isMethod && profiler.isEnabled()) {
+            MethodTree method = ((CFGMethod) ast).getMethod();
+            profiler.enterMethod(CheckerProfiler.getMethodName(TreeUtils.elementFromDeclaration(method)));
+        }
+        try {
+            doAnalyze(queue, lambdaQueue, ast, fieldValues, currentClass,
+                    isInitializationCode, isStatic, lambdaStore);
+        } finally {
+            if (isMethod) {
+                profiler.exitMethod();
+            }
+        }
+    }
+
+    private void doAnalyze(Queue<ClassTree> queue, Queue<Pair<LambdaExpressionTree, Store>> lambdaQueue,
+            UnderlyingAST ast, List<Pair<VariableElement, Value>> fieldValues, ClassTree currentClass,
+            boolean isInitializationCode, boolean isStatic,
+            Store lambdaStore) {
+        CheckerProfiler profiler = checker.getProfiler();
+        CFCFGBuilder builder = new CFCFGBuilder(checker, this);
+        ControlFlowGraph cfg;
+        List<ClassTree> declaredClasses;
+        List<LambdaExpressionTree> declaredLambdas;
+        CFGCache.Entry shared = cfgCache.get(root, ast, builder.getConfiguration());
+        if (shared != null && shared.isValidFor(this)) {
+            // Another checker has already built the graph.
+            cfg = shared.cfg;
+            declaredClasses = shared.declaredClasses;
+            declaredLambdas = shared.declaredLambdas;
+            for (Map.Entry<Tree, Element> artificial : shared.artificialTrees.entrySet()) {
+                setPathHack(artificial.getKey(), artificial.getValue());
+            }
+        } else {
+            profiler.enterPhase(CheckerProfiler.CFG_CONSTRUCTION);
+            try {
+                cfg = builder.run(root, processingEnv, ast);
+            } finally {
+                profiler.exitPhase();
+            }
+            declaredClasses = builder.getDeclaredClasses();
+            declaredLambdas = builder.getDeclaredLambdas();
+            if (!builder.isCheckerSpecific()) {
+                cfgCache.put(root, ast, builder.getConfiguration(),
+                        new CFGCache.Entry(cfg, declaredClasses, declaredLambdas,
+                                builder.getArtificialTrees(), builder.getAbsentDeclAnnotations()));
+            }
+        }
         FlowAnalysis newAnalysis = createFlowAnalysis(fieldValues);
         if (emptyStore == null) {
             emptyStore = newAnalysis.createEmptyStore(!checker.hasOption("concurrentSemantics"));
@@ -707,7 +802,12 @@ public abstract class GenericAnnotatedTypeFactory<
                 }
             }
         }
-        analyses.getFirst().performAnalysis(cfg);
+        profiler.enterPhase(CheckerProfiler.DATAFLOW);
+        try {
+            analyses.getFirst().performAnalysis(cfg);
+        } finally {
+            profiler.exitPhase();
+        }
         AnalysisResult<Value, Store> result = analyses.getFirst().getResult();
 
         // store result
@@ -766,8 +866,8 @@ public abstract class GenericAnnotatedTypeFactory<
         analyses.removeFirst();
 
         // add classes declared in method
-        queue.addAll(builder.getDeclaredClasses());
-        for (LambdaExpressionTree lambda : builder.getDeclaredLambdas()) {
+        queue.addAll(declaredClasses);
+        for (LambdaExpressionTree lambda : declaredLambdas) {
             lambdaQueue.add(Pair.of(lambda, getStoreBefore(lambda)));
         }
     }
@@ -121,6 +121,23 @@ public abstract class QualifierHierarchy {
      */
     public abstract AnnotationMirror leastUpperBound(AnnotationMirror a1, AnnotationMirror a2);
 
+    /**
+     * Returns an upper bound of the qualifiers previous and next, where next
+     * is an upper bound of previous that was computed for the next iteration
+     * of a loop.  Hierarchies of infinite height override this method to
+     * move to a coarser qualifier, so that the dataflow analysis of a loop
+     * reaches a fixed point after finitely many iterations.
+     *
+     * The default implementation returns the least upper bound.
+     *
+     * @param previous the qualifier in the previous iteration
+     * @param next the qualifier in the next iteration
+     * @return an upper bound of both qualifiers
+     */
+    public AnnotationMirror widenedUpperBound(AnnotationMirror previous, AnnotationMirror next) {
+        return leastUpperBound(previous, next);
+    }
+
     /**
      * Returns the greatest lower bound for the qualifiers a1 and a2.
      *
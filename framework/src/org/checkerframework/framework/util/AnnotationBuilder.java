@@ -27,6 +27,7 @@ import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
 
 import org.checkerframework.dataflow.qual.SideEffectFree;
+import org.checkerframework.javacutil.AnnotationUtils;
 import org.checkerframework.javacutil.ErrorReporter;
 import org.checkerframework.javacutil.InternalUtils;
 import org.checkerframework.javacutil.TypesUtils;
@@ -100,7 +101,7 @@ public class AnnotationBuilder {
     public AnnotationMirror build() {
         assertNotBuilt();
         wasBuilt = true;
-        return new AnnotationMirror() {
+        return AnnotationUtils.intern(elements, new AnnotationMirror() {
 
             private String toStringVal;
 
@@ -145,7 +146,7 @@ public class AnnotationBuilder {
 
                 // return "@" + annotationType + "(" + elementValues + ")";
             }
-        };
+        });
     }
 
     public AnnotationBuilder setValue(CharSequence elementName,
@@ -0,0 +1,200 @@
+package org.checkerframework.framework.util;
+
+import org.checkerframework.javacutil.AnnotationUtils;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import javax.lang.model.element.AnnotationMirror;
+
+/**
+ * A small set of {@link AnnotationMirror}s, backed by an array.
+ *
+ * The set behaves like the set returned by
+ * {@link AnnotationUtils#createAnnotationSet()}: two annotations are the same
+ * element if they are equal according to
+ * {@link AnnotationUtils#annotationOrdering()}, and iteration follows that
+ * ordering. However, that ordering compares the string representations of
+ * annotations, which are recomputed for every comparison. This set stores
+ * the string representation of each element once, and only computes the
+ * string representation of an annotation that is looked up if the set
+ * contains a different annotation of the same type. Identical and
+ * differently named annotations are recognized without creating any strings.
+ *
+ * Sets of primary annotations rarely have more than a couple of elements, one
+ * per qualifier hierarchy, so linear searches over the array are faster than
+ * the tree operations of a {@link java.util.TreeSet}.
+ */
+public class AnnotationMirrorSet extends AbstractSet<AnnotationMirror> {
+
+    private static final int INITIAL_CAPACITY = 2;
+
+    /** The elements, sorted by their string representation. */
+    private AnnotationMirror[] elements;
+
+    /** The string representation of each element, used for ordering. */
+    private String[] keys;
+
+    private int size = 0;
+
+    /** The number of modifications, to detect concurrent modifications. */
+    private int modCount = 0;
+
+    /** Create an empty set. */
+    public AnnotationMirrorSet() {
+        elements = new AnnotationMirror[INITIAL_CAPACITY];
+        keys = new String[INITIAL_CAPACITY];
+    }
+
+    /** Create a set with the elements of {@code annos}. */
+    public AnnotationMirrorSet(Collection<? extends AnnotationMirror> annos) {
+        if (annos instanceof AnnotationMirrorSet) {
+            AnnotationMirrorSet other = (AnnotationMirrorSet) annos;
+            int capacity = Math.max(other.size, INITIAL_CAPACITY);
+            elements = Arrays.copyOf(other.elements, capacity);
+            keys = Arrays.copyOf(other.keys, capacity);
+            size = other.size;
+        } else {
+            elements = new AnnotationMirror[Math.max(annos.size(), INITIAL_CAPACITY)];
+            keys = new String[elements.length];
+            addAll(annos);
+        }
+    }
+
+    /**
+     * Returns the index of the element that is the same as {@code anno},
+     * or -1 if there is none.
+     */
+    private int indexOf(AnnotationMirror anno) {
+        for (int i = 0; i < size; ++i) {
+            if (elements[i] == anno) {
+                return i;
+            }
+        }
+        /*@Interned*/ String name = AnnotationUtils.annotationName(anno);
+        String key = null;
+        for (int i = 0; i < size; ++i) {
+            if (AnnotationUtils.annotationName(elements[i]) == name) {
+                if (key == null) {
+                    key = anno.toString();
+                }
+                if (keys[i].equals(key)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof AnnotationMirror && indexOf((AnnotationMirror) o) >= 0;
+    }
+
+    @Override
+    public boolean add(AnnotationMirror anno) {
+        if (indexOf(anno) >= 0) {
+            return false;
+        }
+        String key = anno.toString();
+        int pos = 0;
+        while (pos < size && keys[pos].compareTo(key) < 0) {
+            ++pos;
+        }
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, 2 * size);
+            keys = Arrays.copyOf(keys, 2 * size);
+        }
+        System.arraycopy(elements, pos, elements, pos + 1, size - pos);
+        System.arraycopy(keys, pos, keys, pos + 1, size - pos);
+        elements[pos] = anno;
+        keys[pos] = key;
+        ++size;
+        ++modCount;
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof AnnotationMirror)) {
+            return false;
+        }
+        int index = indexOf((AnnotationMirror) o);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    private void removeAt(int index) {
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        --size;
+        elements[size] = null;
+        keys[size] = null;
+        ++modCount;
+    }
+
+    @Override
+    public void clear() {
+        if (size == 0) {
+            return;
+        }
+        Arrays.fill(elements, 0, size, null);
+        Arrays.fill(keys, 0, size, null);
+        size = 0;
+        ++modCount;
+    }
+
+    @Override
+    public Iterator<AnnotationMirror> iterator() {
+        return new Iterator<AnnotationMirror>() {
+            private int next = 0;
+            private int last = -1;
+            private int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public AnnotationMirror next() {
+                checkForComodification();
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                last = next++;
+                return elements[last];
+            }
+
+            @Override
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                checkForComodification();
+                removeAt(last);
+                next = last;
+                last = -1;
+                expectedModCount = modCount;
+            }
+
+            private void checkForComodification() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+            }
+        };
+    }
+}
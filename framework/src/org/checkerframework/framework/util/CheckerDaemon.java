@@ -0,0 +1,586 @@
+package org.checkerframework.framework.util;
+
+/*>>>
+import org.checkerframework.checker.nullness.qual.Nullable;
+*/
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Permission;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * A long-running JVM that compiles with the Checker Framework on behalf of
+ * {@link CheckerMain}, so that consecutive compilations do not each pay for
+ * starting a JVM, loading and JIT-compiling the compiler and the checkers,
+ * and parsing stub files.
+ *
+ * The daemon runs javac in-process, one compilation at a time. Every
+ * compilation gets a new javac context, new instances of the checkers,
+ * and therefore new type factories and qualifier hierarchies, because these
+ * refer to the symbols of one compilation. What carries over are the loaded
+ * and compiled classes and the JVM-wide caches of state that does not depend
+ * on a compilation, such as the parsed stub files of
+ * {@link org.checkerframework.framework.stub.StubIndexCache}. The caches of
+ * {@link org.checkerframework.javacutil.AnnotationUtils} that depend on a
+ * compilation are kept in its javac context (see
+ * {@link org.checkerframework.javacutil.AnnotationCache}), so they are
+ * dropped with the compilation and need not be cleared. The work that
+ * checkers defer to JVM shutdown is run at the end of each compilation; see
+ * {@link #addCompilationEndHook(Runnable)}. What a compilation prints to
+ * System.out and System.err is sent to its client, and a call of
+ * System.exit during a compilation ends the compilation, not the daemon.
+ *
+ * The daemon listens on a loopback port. The port and a secret token are
+ * written to a file in a directory that only the current user can access;
+ * a client must send the token with every request, and only trusts a file
+ * and directory that the current user owns and nobody else can access. A daemon serves the working directory it was
+ * started in, and exits after it has been idle for a while.
+ */
+public class CheckerDaemon {
+
+    /** The number of minutes after which an idle daemon exits. */
+    public static final int DEFAULT_IDLE_MINUTES = 120;
+
+    /** The number of milliseconds a client waits for a new daemon to start. */
+    private static final int STARTUP_TIMEOUT = 30000;
+
+    /** The exit status of javac for an abnormal termination. */
+    private static final int EXIT_ABNORMAL = 4;
+
+    /** The number of milliseconds the daemon waits for a client to send its request. */
+    private static final int REQUEST_TIMEOUT = 10000;
+
+    /** The number of milliseconds a client waits to connect to a daemon. */
+    private static final int CONNECT_TIMEOUT = 5000;
+
+    /** The number of milliseconds a client waits for a daemon to compile. */
+    private static final int COMPILE_TIMEOUT = 60 * 60 * 1000;
+
+    /** The largest token, in bytes, that the daemon reads. */
+    private static final int MAX_TOKEN_LENGTH = 64;
+
+    /** The largest number of arguments that the daemon accepts. */
+    private static final int MAX_ARGS = 100000;
+
+    /** The largest argument, in bytes, that the daemon reads. */
+    private static final int MAX_ARG_LENGTH = 1 << 20;
+
+    /** The largest output, in bytes, that a client reads. */
+    private static final int MAX_OUTPUT_LENGTH = 1 << 28;
+
+    /**
+     * The hooks to run at the end of the current compilation, or null if
+     * no compilation is running in a daemon.
+     */
+    private static /*@Nullable*/ List<Runnable> compilationEndHooks = null;
+
+    /** Whether a compilation is running, which must not end the daemon. */
+    private static volatile boolean compiling = false;
+
+    /**
+     * The status that the running compilation passed to System.exit, or
+     * null if it did not call System.exit.
+     */
+    private static volatile /*@Nullable*/ Integer exitStatus = null;
+
+    /**
+     * Turns a call of System.exit during a compilation into a
+     * SecurityException, which ends the compilation.  Everything else is
+     * permitted.
+     */
+    private static class ExitGuard extends SecurityManager {
+        @Override
+        public void checkPermission(Permission perm) {
+        }
+
+        @Override
+        public void checkPermission(Permission perm, Object context) {
+        }
+
+        @Override
+        public void checkExit(int status) {
+            if (compiling) {
+                if (exitStatus == null) {
+                    exitStatus = status;
+                }
+                throw new SecurityException("System.exit(" + status
+                        + ") ends the compilation, not the Checker Framework daemon");
+            }
+        }
+    }
+
+    private CheckerDaemon() {
+        throw new AssertionError("Class CheckerDaemon cannot be instantiated.");
+    }
+
+    /**
+     * Start a daemon.
+     *
+     * @param args the file to write the port and token to, and optionally
+     *            the number of idle minutes after which the daemon exits
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: CheckerDaemon daemonFile [idleMinutes]");
+            System.exit(1);
+        }
+        final File daemonFile = new File(args[0]);
+        int idleMinutes = (args.length == 2 ? Integer.parseInt(args[1]) : DEFAULT_IDLE_MINUTES);
+
+        ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        String token = new BigInteger(130, new SecureRandom()).toString(32);
+        writeDaemonFile(daemonFile, server.getLocalPort(), token);
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                daemonFile.delete();
+            }
+        });
+
+        try {
+            System.setSecurityManager(new ExitGuard());
+        } catch (SecurityException | UnsupportedOperationException e) {
+            System.err.println("CheckerDaemon: a call of System.exit will end the daemon: " + e);
+        }
+
+        server.setSoTimeout(idleMinutes * 60 * 1000);
+        try {
+            while (true) {
+                Socket socket;
+                try {
+                    socket = server.accept();
+                } catch (SocketTimeoutException e) {
+                    break;
+                }
+                try {
+                    socket.setSoTimeout(REQUEST_TIMEOUT);
+                    serve(socket, token);
+                } catch (IOException e) {
+                    // The client went away or sent a bad request; wait for the next one.
+                    System.err.println("CheckerDaemon: " + e);
+                } catch (RuntimeException e) {
+                    System.err.println("CheckerDaemon: " + e);
+                } finally {
+                    socket.close();
+                }
+            }
+        } finally {
+            server.close();
+        }
+        System.exit(0);
+    }
+
+    private static void writeDaemonFile(File daemonFile, int port, String token) throws IOException {
+        Properties props = new Properties();
+        props.setProperty("port", Integer.toString(port));
+        props.setProperty("token", token);
+
+        File dir = daemonFile.getAbsoluteFile().getParentFile();
+        checkPrivate(dir.toPath());
+
+        // Only the current user may read the token, from the moment the
+        // file exists.
+        Path tmp = new File(daemonFile.getPath() + ".tmp").toPath();
+        Files.deleteIfExists(tmp);
+        if (isPosix()) {
+            Files.createFile(tmp, PosixFilePermissions.asFileAttribute(
+                    EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE)));
+        } else {
+            Files.createFile(tmp);
+            File tmpFile = tmp.toFile();
+            if (!(tmpFile.setReadable(false, false) && tmpFile.setReadable(true, true)
+                    && tmpFile.setWritable(false, false) && tmpFile.setWritable(true, true))) {
+                Files.delete(tmp);
+                throw new IOException("Could not restrict the permissions of " + tmp);
+            }
+        }
+        OutputStream out = Files.newOutputStream(tmp);
+        try {
+            props.store(out, "CheckerDaemon");
+        } finally {
+            out.close();
+        }
+        Files.move(tmp, daemonFile.toPath(),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Returns the directory for the files of the daemons of the current
+     * user, creating it if necessary: a directory in java.io.tmpdir that
+     * only the current user can access.
+     *
+     * @throws IOException if the directory cannot be created, or another
+     *             user owns it or can access it
+     */
+    private static File getDaemonDirectory() throws IOException {
+        Path dir = Paths.get(System.getProperty("java.io.tmpdir"),
+                "checker-daemon-" + System.getProperty("user.name"));
+        if (!Files.exists(dir, LinkOption.NOFOLLOW_LINKS)) {
+            try {
+                if (isPosix()) {
+                    Files.createDirectory(dir, PosixFilePermissions.asFileAttribute(
+                            EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE,
+                                    PosixFilePermission.OWNER_EXECUTE)));
+                } else {
+                    Files.createDirectory(dir);
+                }
+            } catch (FileAlreadyExistsException e) {
+                // Created concurrently; checked below.
+            }
+        }
+        checkPrivate(dir);
+        return dir.toFile();
+    }
+
+    /**
+     * Check that {@code path} is not a symbolic link, that the current user
+     * owns it, and that no other user has any permissions on it.
+     *
+     * @throws IOException if the check fails
+     */
+    private static void checkPrivate(Path path) throws IOException {
+        if (Files.isSymbolicLink(path)) {
+            throw new IOException(path + " is a symbolic link");
+        }
+        UserPrincipal user = path.getFileSystem().getUserPrincipalLookupService()
+                .lookupPrincipalByName(System.getProperty("user.name"));
+        if (!user.equals(Files.getOwner(path, LinkOption.NOFOLLOW_LINKS))) {
+            throw new IOException(path + " is not owned by " + user.getName());
+        }
+        if (isPosix()) {
+            Set<PosixFilePermission> others = Files.getPosixFilePermissions(path, LinkOption.NOFOLLOW_LINKS);
+            others.removeAll(EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE,
+                    PosixFilePermission.OWNER_EXECUTE));
+            if (!others.isEmpty()) {
+                throw new IOException(path + " is accessible to other users: " + others);
+            }
+        }
+    }
+
+    private static boolean isPosix() {
+        return FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+    }
+
+    /** Handle one request: a compilation, or a request to exit. */
+    private static void serve(Socket socket, String token) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        if (!token.equals(readString(in, MAX_TOKEN_LENGTH))) {
+            return;
+        }
+        int argc = in.readInt();
+        if (argc > MAX_ARGS) {
+            throw new IOException("Too many arguments: " + argc);
+        }
+        if (argc < 0) {
+            out.writeInt(0);
+            writeString(out, "");
+            out.flush();
+            System.exit(0);
+        }
+        String[] args = new String[argc];
+        for (int i = 0; i < argc; ++i) {
+            args[i] = readString(in, MAX_ARG_LENGTH);
+        }
+        // The compilation may take much longer than the request; the
+        // response is written, not read.
+        socket.setSoTimeout(0);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int status = compile(args, output);
+        out.writeInt(status);
+        writeString(out, output.toString("UTF-8"));
+        out.flush();
+    }
+
+    /**
+     * Run javac with the given arguments and the end-of-compilation hooks.
+     * The output of javac, and whatever the compilation prints to
+     * System.out and System.err, is written to {@code output}.
+     *
+     * @return the exit status of javac, or the status that the compilation
+     *         passed to System.exit
+     */
+    private static int compile(String[] args, OutputStream output) throws IOException {
+        PrintStream stream = new PrintStream(output, true, "UTF-8");
+        PrintWriter writer = new PrintWriter(new OutputStreamWriter(output, "UTF-8"), true);
+        PrintStream systemOut = System.out;
+        PrintStream systemErr = System.err;
+        System.setOut(stream);
+        System.setErr(stream);
+        compilationEndHooks = new ArrayList<>();
+        exitStatus = null;
+        compiling = true;
+        int status;
+        try {
+            status = com.sun.tools.javac.Main.compile(args, writer);
+        } catch (Throwable t) {
+            if (exitStatus == null) {
+                t.printStackTrace(writer);
+            }
+            status = EXIT_ABNORMAL;
+        } finally {
+            for (Runnable hook : compilationEndHooks) {
+                try {
+                    hook.run();
+                } catch (Throwable t) {
+                    t.printStackTrace(writer);
+                }
+            }
+            compilationEndHooks = null;
+            compiling = false;
+            writer.flush();
+            stream.flush();
+            System.setOut(systemOut);
+            System.setErr(systemErr);
+        }
+        return (exitStatus != null ? exitStatus : status);
+    }
+
+    /**
+     * Run {@code hook} at the end of the current compilation, if the
+     * compilation runs in a daemon.
+     *
+     * @return true if the hook will be run, false if the compilation does
+     *         not run in a daemon and the hook should be run at JVM shutdown
+     */
+    public static boolean addCompilationEndHook(Runnable hook) {
+        if (compilationEndHooks == null) {
+            return false;
+        }
+        compilationEndHooks.add(hook);
+        return true;
+    }
+
+    /**
+     * Returns the file that describes the daemon that runs with the given
+     * command in the current working directory.  The name of the file also
+     * depends on the modification time and size of the jar files on the
+     * class paths of the command, so that a rebuilt checker is not run by
+     * a daemon that has loaded the old one.
+     *
+     * @throws IOException if there is no directory for the file that only
+     *             the current user can access
+     */
+    public static File getDaemonFile(List<String> daemonCommand) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-1.
+            throw new AssertionError(e);
+        }
+        StringBuilder key = new StringBuilder(new File("").getAbsolutePath());
+        String previous = "";
+        for (String arg : daemonCommand) {
+            key.append('\n').append(arg);
+            String path = null;
+            if (previous.equals("-classpath") || previous.equals("-cp")) {
+                path = arg;
+            } else if (arg.startsWith("-Xbootclasspath")) {
+                path = arg.substring(arg.indexOf(':') + 1);
+            }
+            if (path != null) {
+                for (String entry : path.split(Pattern.quote(File.pathSeparator))) {
+                    File file = new File(entry);
+                    if (file.isFile()) {
+                        key.append('\n').append(entry).append(' ')
+                            .append(file.lastModified()).append(' ').append(file.length());
+                    }
+                }
+            }
+            previous = arg;
+        }
+        try {
+            digest.update(key.toString().getBytes("UTF-8"));
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        String hash = new BigInteger(1, digest.digest()).toString(16);
+        return new File(getDaemonDirectory(), "checker-daemon-" + hash + ".properties");
+    }
+
+    /**
+     * Compile in a daemon, starting one if necessary.
+     *
+     * @param daemonCommand the command that starts a daemon, without the
+     *            arguments of {@link #main(String[])}
+     * @param compilerArgs the arguments to javac
+     * @param out where to print the output of javac
+     * @return the exit status of javac, or null if no daemon could be
+     *         reached, in which case the caller should run javac itself
+     */
+    public static /*@Nullable*/ Integer compile(List<String> daemonCommand, List<String> compilerArgs,
+            PrintStream out) {
+        File daemonFile;
+        try {
+            daemonFile = getDaemonFile(daemonCommand);
+        } catch (IOException e) {
+            out.println("Cannot use the Checker Framework daemon: " + e.getMessage());
+            return null;
+        }
+        Integer status = request(daemonFile, compilerArgs, out);
+        if (status != null) {
+            return status;
+        }
+
+        List<String> command = new ArrayList<>(daemonCommand);
+        command.add(daemonFile.getPath());
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectErrorStream(true);
+        builder.redirectOutput(ProcessBuilder.Redirect.appendTo(
+                new File(daemonFile.getPath().replaceAll("\\.properties$", ".log"))));
+        try {
+            builder.start();
+        } catch (IOException e) {
+            return null;
+        }
+
+        long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT;
+        while (System.currentTimeMillis() < deadline) {
+            if (daemonFile.exists()) {
+                status = request(daemonFile, compilerArgs, out);
+                if (status != null) {
+                    return status;
+                }
+            }
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Send a compilation request to the daemon described by
+     * {@code daemonFile}.
+     *
+     * @return the exit status of javac, or null if the daemon could not
+     *         be reached
+     */
+    private static /*@Nullable*/ Integer request(File daemonFile, List<String> compilerArgs,
+            PrintStream out) {
+        Properties props = new Properties();
+        try {
+            // Another user could have planted the file to receive the
+            // arguments and forge the result.
+            checkPrivate(daemonFile.toPath());
+            InputStream in = new FileInputStream(daemonFile);
+            try {
+                props.load(in);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        String port = props.getProperty("port");
+        String token = props.getProperty("token");
+        if (port == null || token == null) {
+            return null;
+        }
+
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(port)),
+                    CONNECT_TIMEOUT);
+            socket.setSoTimeout(COMPILE_TIMEOUT);
+        } catch (IOException | IllegalArgumentException e) {
+            try {
+                socket.close();
+            } catch (IOException closeException) {
+                // Nothing to do.
+            }
+            return null;
+        }
+        boolean sent = false;
+        try {
+            DataOutputStream request = new DataOutputStream(
+                    new BufferedOutputStream(socket.getOutputStream()));
+            writeString(request, token);
+            request.writeInt(compilerArgs.size());
+            for (String arg : compilerArgs) {
+                writeString(request, arg);
+            }
+            request.flush();
+            sent = true;
+
+            DataInputStream response = new DataInputStream(
+                    new BufferedInputStream(socket.getInputStream()));
+            int status = response.readInt();
+            out.print(readString(response, MAX_OUTPUT_LENGTH));
+            out.flush();
+            return status;
+        } catch (IOException e) {
+            if (sent) {
+                // The daemon may have run part of the compilation, so
+                // running it again could report diagnostics twice.
+                out.println("Lost the connection to the Checker Framework daemon: " + e.getMessage());
+                return EXIT_ABNORMAL;
+            }
+            return null;
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Nothing to do.
+            }
+        }
+    }
+
+    /** Write a string of any length. */
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes("UTF-8");
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /** Read a string of at most {@code maxLength} bytes. */
+    private static String readString(DataInputStream in, int maxLength) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > maxLength) {
+            throw new IOException("Invalid string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+}
@@ -1,6 +1,7 @@
 package org.checkerframework.framework.util;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileReader;
@@ -11,7 +12,17 @@ import java.net.URLDecoder;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.jar.JarInputStream;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -66,6 +77,26 @@ public class CheckerMain {
 
     private final List<File> argListFiles;
 
+    /**
+     * Whether to compile in a {@link CheckerDaemon} instead of a new JVM
+     */
+    private final boolean useDaemon;
+
+    /**
+     * The largest number of compilers that check the sources concurrently
+     */
+    private final int shards;
+
+    /**
+     * The smallest number of sources that each of the concurrent compilers checks
+     */
+    private final int minSourcesPerShard;
+
+    /**
+     * The default for minSourcesPerShard: smaller compilations are not worth starting more JVMs
+     */
+    protected static final int DEFAULT_MIN_SOURCES_PER_SHARD = 500;
+
     /**
      * Construct all the relevant file locations and java version given the path to this jar and
      * a set of directories in which to search for jars
@@ -84,6 +115,11 @@ public class CheckerMain {
         final String jdkJarName = PluginUtil.getJdkJarName();
         this.jdkJar   = extractFileArg(PluginUtil.JDK_PATH_OPT, new File(searchPath, jdkJarName), argsList);
 
+        this.useDaemon = extractFlag(PluginUtil.DAEMON_OPT, argsList);
+        this.shards    = extractIntArg(PluginUtil.SHARDS_OPT, 1, argsList);
+        this.minSourcesPerShard =
+                extractIntArg(PluginUtil.SHARD_MIN_FILES_OPT, DEFAULT_MIN_SOURCES_PER_SHARD, argsList);
+
         this.compilationBootclasspath = createCompilationBootclasspath(argsList);
         this.runtimeBootClasspath     = createRuntimeBootclasspath(argsList);
         this.jvmOpts       = extractJvmOpts(argsList);
@@ -191,6 +227,52 @@ public class CheckerMain {
         }
     }
 
+    /**
+     * Remove the argument given by argumentName and the subsequent value from the list args if present.
+     * Return the subsequent value as a positive int.
+     * @param argumentName Argument to extract
+     * @param alternative  Value to return if argumentName is not found in args
+     * @param args The current list of arguments
+     * @return The int that follows argumentName if argumentName is in args or alternative if
+     * argumentName is not present in args
+     */
+    protected static int extractIntArg(final String argumentName, final int alternative, final List<String> args) {
+        final String value = extractArg(argumentName, null, args);
+        if (value == null) {
+            return alternative;
+        }
+
+        try {
+            final int result = Integer.parseInt(value.trim());
+            if (result > 0) {
+                return result;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new RuntimeException("Argument " + argumentName + " requires a positive integer, but was given: " + value);
+    }
+
+    /**
+     * Remove all occurrences of the argument given by argumentName from the list args.
+     * @param argumentName Argument to extract
+     * @param args The current list of arguments
+     * @return true if argumentName was present in args
+     */
+    protected static boolean extractFlag(final String argumentName, final List<String> args) {
+        boolean found = false;
+        int i = 0;
+        while (i < args.size()) {
+            if (args.get(i).trim().equals(argumentName)) {
+                args.remove(i);
+                found = true;
+            } else {
+                i++;
+            }
+        }
+        return found;
+    }
+
     /**
      * Construct a file path from files nad prepend it to previous (if previous is not null)
      * @param previous The previous file path to append to (can be null)
@@ -324,7 +406,46 @@ public class CheckerMain {
      * Invoke the JSR308 Type Annotations Compiler with all relevant jars on it's classpath or boot classpath
      */
     protected int invokeCompiler() {
-        List<String> args = new ArrayList<String>(jvmOpts.size() + cpOpts.size() + toolOpts.size() + 5);
+        List<String> args = createCompilerCommand(toolOpts);
+
+        for (int i = 0; i < args.size(); i++) {
+            String arg = args.get(i);
+
+            if (arg.startsWith("-AoutputArgsToFile=")) {
+                String fileName = arg.substring(19);
+                args.remove(i);
+                outputArgumentsToFile(fileName, args);
+                break;
+            }
+        }
+
+        if (shards > 1) {
+            Integer status = invokeCompilerInShards();
+            if (status != null) {
+                return status;
+            }
+        }
+
+        if (useDaemon) {
+            Integer status = invokeCompilerInDaemon();
+            if (status != null) {
+                return status;
+            }
+            System.err.println("Could not reach the Checker Framework daemon; running the compiler in a new JVM.");
+        }
+
+        //Actually invoke the compiler
+        return ExecUtil.execute(args.toArray(new String[args.size()]), System.out, System.err);
+    }
+
+    /**
+     * Create the command that runs the JSR308 Type Annotations Compiler in a new JVM, with all relevant jars
+     * on its classpath or boot classpath.
+     * @param compilerArgs The arguments for the compiler, such as the options and sources
+     * @return the command, ending with compilerArgs
+     */
+    protected List<String> createCompilerCommand(final List<String> compilerArgs) {
+        List<String> args = new ArrayList<String>(jvmOpts.size() + cpOpts.size() + compilerArgs.size() + 5);
 
         final String java = PluginUtil.getJavaCommand(System.getProperty("java.home"), System.out);
         args.add(java);
@@ -345,21 +466,303 @@ public class CheckerMain {
             args.add(quote(PluginUtil.join(File.pathSeparator, cpOpts)));
         }
 
-        args.addAll(toolOpts);
+        args.addAll(compilerArgs);
+        return args;
+    }
 
-        for (int i = 0; i < args.size(); i++) {
-            String arg = args.get(i);
+    /**
+     * Partition the sources into shards and check each shard in a compiler of its own, all of them
+     * concurrently.  Each compiler finds the sources of the other shards on the source path and, because
+     * of -implicit:none, only checks and generates classes for its own shard.  The output of the
+     * compilers is printed once all of them have finished, with the diagnostics in the order of the
+     * sources, followed by the number of errors and warnings, so the output is the same as that of a
+     * single compiler.  A diagnostic that several compilers report, such as an error in a source of the
+     * source path, is printed once, and -Xmaxerrs and -Xmaxwarns limit the diagnostics of all compilers
+     * together.
+     * @return the exit status of the compilers, or null if the sources cannot be sharded
+     */
+    protected Integer invokeCompilerInShards() {
+        final List<String> sharedArgs = new ArrayList<String>(toolOpts.size() + 7);
+        final List<File> sources = new ArrayList<File>();
+        collectSources(toolOpts, sharedArgs, sources);
+
+        final List<List<File>> partition = SourceShards.partition(sources, shards, minSourcesPerShard);
+        if (partition.size() < 2) {
+            return null;
+        }
+        if (useDaemon) {
+            System.err.println("The sources are checked in " + partition.size() + " shards; ignoring "
+                    + PluginUtil.DAEMON_OPT + ".");
+        }
 
-            if (arg.startsWith("-AoutputArgsToFile=")) {
-                String fileName = arg.substring(19);
-                args.remove(i);
-                outputArgumentsToFile(fileName, args);
-                break;
+        // Each compiler reports all of its diagnostics; the limits are applied to the merged output.
+        final int maxErrors = extractIntArg("-Xmaxerrs", DEFAULT_MAX_DIAGNOSTICS, sharedArgs);
+        final int maxWarnings = extractIntArg("-Xmaxwarns", DEFAULT_MAX_DIAGNOSTICS, sharedArgs);
+        sharedArgs.add("-Xmaxerrs");
+        sharedArgs.add(String.valueOf(Integer.MAX_VALUE));
+        sharedArgs.add("-Xmaxwarns");
+        sharedArgs.add(String.valueOf(Integer.MAX_VALUE));
+
+        if (!sharedArgs.contains("-sourcepath") && !argsListHasSourcePath(argListFiles)) {
+            final List<String> sourceRoots = SourceShards.sourceRoots(sources);
+            if (sourceRoots == null) {
+                System.err.println("Could not determine the source roots of the sources; checking them in a single compiler.");
+                return null;
             }
+            sharedArgs.add("-sourcepath");
+            sharedArgs.add(quote(PluginUtil.join(File.pathSeparator, sourceRoots)));
         }
+        sharedArgs.add("-implicit:none");
 
-        //Actually invoke the compiler
-        return ExecUtil.execute(args.toArray(new String[args.size()]), System.out, System.err);
+        final ExecutorService executor = Executors.newFixedThreadPool(partition.size());
+        final List<Future<ShardOutput>> outputs = new ArrayList<Future<ShardOutput>>(partition.size());
+        try {
+            for (int i = 0; i < partition.size(); i++) {
+                final File srcFofn;
+                try {
+                    srcFofn = PluginUtil.writeTmpSrcFofn("CFShard" + i + "-", true, partition.get(i));
+                } catch (IOException e) {
+                    throw new RuntimeException("Could not write the sources of shard " + i, e);
+                }
+
+                final List<String> shardArgs = new ArrayList<String>(sharedArgs);
+                shardArgs.add(PluginUtil.fileArgToStr(srcFofn));
+                final List<String> command = createCompilerCommand(shardArgs);
+                outputs.add(executor.submit(new Callable<ShardOutput>() {
+                    @Override
+                    public ShardOutput call() {
+                        final ShardOutput output = new ShardOutput();
+                        output.exitStatus = ExecUtil.execute(command.toArray(new String[command.size()]),
+                                output.out, output.err);
+                        srcFofn.delete();
+                        return output;
+                    }
+                }));
+            }
+
+            int exitStatus = 0;
+            final Set<String> diagnostics = new LinkedHashSet<String>();
+            for (final Future<ShardOutput> future : outputs) {
+                final ShardOutput output = getShardOutput(future);
+                System.out.print(output.out.toString());
+                diagnostics.addAll(splitDiagnostics(output.err.toString()));
+                if (exitStatus == 0) {
+                    exitStatus = output.exitStatus;
+                }
+            }
+
+            int errors = 0;
+            int warnings = 0;
+            for (final String diagnostic : sortBySource(diagnostics, sources)) {
+                final Matcher matcher = DIAGNOSTIC_START_REGEX.matcher(diagnostic);
+                final String kind = matcher.find() ? matcher.group(2) : null;
+                if ("error".equals(kind) && ++errors > maxErrors) {
+                    continue;
+                }
+                if ("warning".equals(kind) && ++warnings > maxWarnings) {
+                    continue;
+                }
+                System.err.print(diagnostic);
+            }
+
+            // Like javac, count only the diagnostics that were printed.
+            errors = Math.min(errors, maxErrors);
+            warnings = Math.min(warnings, maxWarnings);
+            if (errors > 0) {
+                System.err.println(errors + (errors == 1 ? " error" : " errors"));
+            }
+            if (warnings > 0) {
+                System.err.println(warnings + (warnings == 1 ? " warning" : " warnings"));
+            }
+            return exitStatus;
+
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /** The default of the -Xmaxerrs and -Xmaxwarns options of javac */
+    protected static final int DEFAULT_MAX_DIAGNOSTICS = 100;
+
+    /** Matches the line in which javac reports the number of errors or warnings */
+    private static final Pattern DIAGNOSTIC_COUNT_REGEX = Pattern.compile("^(\\d+) (error|warning)s?$");
+
+    /** Matches the first line of an error or warning, with or without a source file and line */
+    private static final Pattern DIAGNOSTIC_START_REGEX =
+            Pattern.compile("^(?:(.*):\\d+: )?(error|warning): ");
+
+    /**
+     * Sort diagnostics in the order in which a single compiler reports them: those of each source in
+     * the order of the sources, each in the order of the shard that reported it, followed by those
+     * without a source, such as notes.
+     * @param diagnostics The diagnostics of all shards, in the order of the shards
+     * @param sources The sources in the order in which they were given to the compiler
+     * @return the sorted diagnostics
+     */
+    protected static List<String> sortBySource(final Collection<String> diagnostics, final List<File> sources) {
+        final Map<String, Integer> sourceIndexes = new HashMap<String, Integer>();
+        for (int i = 0; i < sources.size(); i++) {
+            final String path = sources.get(i).getPath();
+            if (!sourceIndexes.containsKey(path)) {
+                sourceIndexes.put(path, i);
+            }
+        }
+
+        final List<List<String>> bySource = new ArrayList<List<String>>(sources.size() + 1);
+        for (int i = 0; i <= sources.size(); i++) {
+            bySource.add(new ArrayList<String>());
+        }
+        for (final String diagnostic : diagnostics) {
+            final Matcher matcher = DIAGNOSTIC_START_REGEX.matcher(diagnostic);
+            final Integer index = matcher.find() && matcher.group(1) != null
+                    ? sourceIndexes.get(matcher.group(1)) : null;
+            bySource.get(index != null ? index : sources.size()).add(diagnostic);
+        }
+
+        final List<String> sorted = new ArrayList<String>(diagnostics.size());
+        for (final List<String> sourceDiagnostics : bySource) {
+            sorted.addAll(sourceDiagnostics);
+        }
+        return sorted;
+    }
+
+    /**
+     * Split the error output of javac into diagnostics, dropping the lines in which javac reports the
+     * number of errors or warnings.  An error or warning starts at a line that matches
+     * {@link #DIAGNOSTIC_START_REGEX} and includes the following lines, such as the source line and the
+     * caret.  A note and any other line that does not belong to an error or warning is a diagnostic of
+     * its own.
+     * @return the diagnostics, each with the line terminators of its lines
+     */
+    protected static List<String> splitDiagnostics(final String output) {
+        final List<String> diagnostics = new ArrayList<String>();
+        StringBuilder current = null;
+        boolean inDiagnostic = false;
+        for (final String line : output.split("\\r?\\n")) {
+            if (line.isEmpty() || DIAGNOSTIC_COUNT_REGEX.matcher(line).matches()) {
+                continue;
+            }
+            final boolean starts = DIAGNOSTIC_START_REGEX.matcher(line).find();
+            if (current == null || starts || !inDiagnostic || line.startsWith("Note: ")) {
+                if (current != null) {
+                    diagnostics.add(current.toString());
+                }
+                current = new StringBuilder();
+                inDiagnostic = starts;
+            }
+            current.append(line).append(System.getProperty("line.separator"));
+        }
+        if (current != null) {
+            diagnostics.add(current.toString());
+        }
+        return diagnostics;
+    }
+
+    /** The output of the compiler of one shard */
+    private static class ShardOutput {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ByteArrayOutputStream err = new ByteArrayOutputStream();
+        int exitStatus;
+    }
+
+    private static ShardOutput getShardOutput(final Future<ShardOutput> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            throw new RuntimeException("Interrupted while checking the shards", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Exception while checking a shard", e.getCause());
+        }
+    }
+
+    /**
+     * Separate the sources from the other arguments.  A source is an argument that names a .java file, or
+     * a line of an argument file that consists only of source lines, such as the files written by
+     * {@link PluginUtil#writeTmpSrcFofn}.  Other argument files are kept as they are.  Any -implicit
+     * option and -AoutputArgsToFile are dropped.
+     * @param args The arguments to the compiler
+     * @param otherArgs The arguments that are not sources are added to this list
+     * @param sources The sources are added to this list
+     */
+    protected static void collectSources(final List<String> args, final List<String> otherArgs,
+                                         final List<File> sources) {
+        for (final String arg : args) {
+            if (arg.startsWith("@")) {
+                final List<File> argFileSources = readSourceArgFile(new File(arg.substring(1)));
+                if (argFileSources != null) {
+                    sources.addAll(argFileSources);
+                } else {
+                    otherArgs.add(arg);
+                }
+            } else if (arg.endsWith(".java") && !arg.startsWith("-")) {
+                sources.add(new File(arg));
+            } else if (!arg.startsWith("-implicit:") && !arg.startsWith("-AoutputArgsToFile=")) {
+                otherArgs.add(arg);
+            }
+        }
+    }
+
+    /**
+     * @return the sources listed in argFile, or null if it contains anything but sources
+     */
+    private static List<File> readSourceArgFile(final File argFile) {
+        final List<File> sources = new ArrayList<File>();
+        for (final String line : expandArgs(Arrays.asList(argFile))) {
+            final String trimmed = line.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+
+            final String path;
+            if (trimmed.length() > 1 && trimmed.startsWith("\"") && trimmed.endsWith("\"")) {
+                // Undo PluginUtil.wrapArg
+                path = trimmed.substring(1, trimmed.length() - 1).replace("\\\"", "\"").replace("\\\\", "\\");
+            } else if (!trimmed.contains(" ")) {
+                path = trimmed;
+            } else {
+                return null;
+            }
+
+            if (!path.endsWith(".java") || path.startsWith("-") || path.startsWith("@")) {
+                return null;
+            }
+            sources.add(new File(path));
+        }
+        return sources;
+    }
+
+    /**
+     * Invoke the compiler in a {@link CheckerDaemon}, starting one if necessary.  The daemon runs with the
+     * same runtime boot classpath and JVM options as a compiler started by invokeCompiler, and with
+     * checker.jar on its classpath, so that the classes of the Checker Framework stay loaded between
+     * compilations.
+     * @return the exit status of the compiler, or null if no daemon could be reached
+     */
+    protected Integer invokeCompilerInDaemon() {
+        final List<String> daemonCommand = new ArrayList<String>(jvmOpts.size() + 7);
+        daemonCommand.add(PluginUtil.getJavaCommand(System.getProperty("java.home"), System.out));
+        daemonCommand.add("-Xbootclasspath/p:" + PluginUtil.join(File.pathSeparator, runtimeBootClasspath));
+        daemonCommand.add("-ea");
+        daemonCommand.add("-ea:com.sun.tools...");
+        daemonCommand.addAll(jvmOpts);
+        daemonCommand.add("-classpath");
+        daemonCommand.add(checkersJar.getAbsolutePath());
+        daemonCommand.add(CheckerDaemon.class.getName());
+
+        // The arguments are passed to javac directly, so they are not quoted.
+        final List<String> compilerArgs = new ArrayList<String>(cpOpts.size() + toolOpts.size() + 2);
+        compilerArgs.add("-Xbootclasspath/p:" + PluginUtil.join(File.pathSeparator, compilationBootclasspath));
+        if (!argsListHasClassPath(argListFiles)) {
+            compilerArgs.add("-classpath");
+            compilerArgs.add(PluginUtil.join(File.pathSeparator, cpOpts));
+        }
+        for (final String arg : toolOpts) {
+            if (!arg.startsWith("-AoutputArgsToFile=")) {
+                compilerArgs.add(arg);
+            }
+        }
+
+        return CheckerDaemon.compile(daemonCommand, compilerArgs, System.err);
     }
 
     private static void outputArgumentsToFile(String outputFilename, List<String> args)
@@ -416,6 +819,16 @@ public class CheckerMain {
         return false;
     }
 
+    private static boolean argsListHasSourcePath(final List<File> argListFiles) {
+        for (final String arg : expandArgs(argListFiles)) {
+            if (arg.contains("-sourcepath")) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     /**
      * Iterate through the arguments and, for every argument that starts with an @, replace it
      * with the lines contained by that file.
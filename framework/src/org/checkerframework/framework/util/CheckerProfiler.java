@@ -0,0 +1,307 @@
+package org.checkerframework.framework.util;
+
+import org.checkerframework.javacutil.ElementUtils;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+
+/**
+ * Attributes the wall time and the allocated memory of a checker run to the
+ * phases of type-checking, and to the classes and methods being checked.
+ *
+ * Phases nest: the time spent in a phase that is entered while another
+ * phase is running is only attributed to the inner phase, so the times of
+ * all phases add up to the total time spent in the checkers. Classes and
+ * methods, on the other hand, are attributed all the time spent while they
+ * are being processed, including the time of nested classes and methods.
+ *
+ * Allocated memory is only measured if the JVM supports measuring the
+ * memory allocated by a thread; otherwise it is reported as -1.
+ *
+ * One profiler is shared by all checkers of a compilation; see
+ * {@link org.checkerframework.framework.source.SourceChecker#getProfiler()}.
+ * If profiling is disabled, {@link #DISABLED} is used, whose methods do
+ * nothing.
+ *
+ * This class is not thread-safe.
+ */
+public class CheckerProfiler {
+
+    /** Reading stub files; see AnnotatedTypeFactory.buildIndexTypes. */
+    public static final String STUB_PARSING = "stub parsing";
+    /** Building control flow graphs; see CFCFGBuilder. */
+    public static final String CFG_CONSTRUCTION = "cfg construction";
+    /** Running the dataflow analysis on control flow graphs. */
+    public static final String DATAFLOW = "dataflow";
+    /** Computing the annotated types of trees; see AnnotatedTypeFactory.getAnnotatedType. */
+    public static final String TREE_ANNOTATION = "tree annotation";
+    /** Checks of the visitor that are not attributed to another phase. */
+    public static final String TYPE_CHECKING = "type checking";
+
+    /** The number of slowest classes and methods in the report. */
+    private static final int TOP_N = 20;
+
+    /** A profiler that does not record anything. */
+    public static final CheckerProfiler DISABLED = new CheckerProfiler(false);
+
+    /** The time and memory attributed to a phase, class, or method. */
+    private static class Entry {
+        final String name;
+        long nanos = 0;
+        long bytes = 0;
+        long count = 0;
+
+        Entry(String name) {
+            this.name = name;
+        }
+    }
+
+    /** A class or method that is being processed. */
+    private static class Frame {
+        final Entry entry;
+        final long startNanos;
+        final long startBytes;
+
+        Frame(Entry entry, long startNanos, long startBytes) {
+            this.entry = entry;
+            this.startNanos = startNanos;
+            this.startBytes = startBytes;
+        }
+    }
+
+    private final boolean enabled;
+
+    /** Used to measure allocated memory, or null if that is not supported. */
+    private final com.sun.management.ThreadMXBean threadBean;
+
+    private final Map<String, Entry> phases = new LinkedHashMap<>();
+    private final Map<String, Entry> classes = new HashMap<>();
+    private final Map<String, Entry> methods = new HashMap<>();
+
+    /** The running phases; the innermost phase is first. */
+    private final Deque<Entry> phaseStack = new ArrayDeque<>();
+    private final Deque<Frame> classStack = new ArrayDeque<>();
+    private final Deque<Frame> methodStack = new ArrayDeque<>();
+
+    /** When the time and memory were last attributed to the innermost phase. */
+    private long lastNanos;
+    private long lastBytes;
+
+    /** Create an enabled profiler. */
+    public CheckerProfiler() {
+        this(true);
+    }
+
+    private CheckerProfiler(boolean enabled) {
+        this.enabled = enabled;
+        com.sun.management.ThreadMXBean bean = null;
+        if (enabled) {
+            ThreadMXBean mxBean = ManagementFactory.getThreadMXBean();
+            if (mxBean instanceof com.sun.management.ThreadMXBean) {
+                bean = (com.sun.management.ThreadMXBean) mxBean;
+                if (bean.isThreadAllocatedMemorySupported()) {
+                    bean.setThreadAllocatedMemoryEnabled(true);
+                } else {
+                    bean = null;
+                }
+            }
+        }
+        this.threadBean = bean;
+        for (String phase : new String[] {STUB_PARSING, CFG_CONSTRUCTION,
+                DATAFLOW, TREE_ANNOTATION, TYPE_CHECKING}) {
+            phases.put(phase, new Entry(phase));
+        }
+    }
+
+    /** @return true if this profiler records anything */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private long allocatedBytes() {
+        if (threadBean == null) {
+            return 0;
+        }
+        return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /** Attribute the time and memory since the last event to the innermost phase. */
+    private void charge(long nanos, long bytes) {
+        Entry current = phaseStack.peek();
+        if (current != null) {
+            current.nanos += nanos - lastNanos;
+            current.bytes += bytes - lastBytes;
+        }
+        lastNanos = nanos;
+        lastBytes = bytes;
+    }
+
+    /**
+     * Start a phase. Every call must be matched by a call to
+     * {@link #exitPhase()}, usually in a {@code finally} block.
+     *
+     * @param phase the name of the phase, for example {@link #DATAFLOW}
+     */
+    public void enterPhase(String phase) {
+        if (!enabled) {
+            return;
+        }
+        charge(System.nanoTime(), allocatedBytes());
+        Entry entry = phases.get(phase);
+        if (entry == null) {
+            entry = new Entry(phase);
+            phases.put(phase, entry);
+        }
+        entry.count++;
+        phaseStack.push(entry);
+    }
+
+    /** End the innermost phase. */
+    public void exitPhase() {
+        if (!enabled) {
+            return;
+        }
+        charge(System.nanoTime(), allocatedBytes());
+        phaseStack.pop();
+    }
+
+    /**
+     * Start processing a class. Every call must be matched by a call to
+     * {@link #exitClass()}.
+     *
+     * @param name the fully-qualified name of the class
+     */
+    public void enterClass(String name) {
+        if (enabled) {
+            enterUnit(classes, classStack, name);
+        }
+    }
+
+    /** End processing the innermost class. */
+    public void exitClass() {
+        if (enabled) {
+            exitUnit(classStack);
+        }
+    }
+
+    /**
+     * Start processing a method. Every call must be matched by a call to
+     * {@link #exitMethod()}.
+     *
+     * @param name a name that identifies the method, including its class
+     */
+    public void enterMethod(String name) {
+        if (enabled) {
+            enterUnit(methods, methodStack, name);
+        }
+    }
+
+    /** End processing the innermost method. */
+    public void exitMethod() {
+        if (enabled) {
+            exitUnit(methodStack);
+        }
+    }
+
+    private void enterUnit(Map<String, Entry> units, Deque<Frame> stack, String name) {
+        Entry entry = units.get(name);
+        if (entry == null) {
+            entry = new Entry(name);
+            units.put(name, entry);
+        }
+        entry.count++;
+        stack.push(new Frame(entry, System.nanoTime(), allocatedBytes()));
+    }
+
+    private void exitUnit(Deque<Frame> stack) {
+        Frame frame = stack.pop();
+        frame.entry.nanos += System.nanoTime() - frame.startNanos;
+        frame.entry.bytes += allocatedBytes() - frame.startBytes;
+    }
+
+    /**
+     * Returns the name under which a method is recorded: the name of its
+     * class, followed by its name and parameter types.
+     */
+    public static String getMethodName(ExecutableElement method) {
+        TypeElement enclosing = ElementUtils.enclosingClass(method);
+        return (enclosing == null ? "" : enclosing.getQualifiedName() + ".") + method;
+    }
+
+    /**
+     * Write the profile as a JSON object to the given file.
+     *
+     * @param fileName the file to write to
+     */
+    public void writeReport(String fileName) throws IOException {
+        PrintWriter out = new PrintWriter(new OutputStreamWriter(
+                new FileOutputStream(fileName), "UTF-8"));
+        try {
+            out.println("{");
+            out.println("  \"allocationMeasured\": " + (threadBean != null) + ",");
+            out.println("  \"phases\": " + toJson(new ArrayList<>(phases.values())) + ",");
+            out.println("  \"slowestClasses\": " + toJson(slowest(classes)) + ",");
+            out.println("  \"slowestMethods\": " + toJson(slowest(methods)));
+            out.println("}");
+        } finally {
+            out.close();
+        }
+    }
+
+    private static List<Entry> slowest(Map<String, Entry> units) {
+        List<Entry> sorted = new ArrayList<>(units.values());
+        Collections.sort(sorted, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry e1, Entry e2) {
+                return Long.compare(e2.nanos, e1.nanos);
+            }
+        });
+        return sorted.subList(0, Math.min(TOP_N, sorted.size()));
+    }
+
+    private String toJson(List<Entry> entries) {
+        StringBuilder sb = new StringBuilder("[");
+        boolean first = true;
+        for (Entry entry : entries) {
+            sb.append(first ? "\n" : ",\n");
+            first = false;
+            sb.append("    {\"name\": ").append(quote(entry.name))
+              .append(", \"count\": ").append(entry.count)
+              .append(", \"timeMillis\": ").append(entry.nanos / 1000000)
+              .append(", \"allocatedBytes\": ").append(threadBean == null ? -1 : entry.bytes)
+              .append("}");
+        }
+        return sb.append(first ? "]" : "\n  ]").toString();
+    }
+
+    private static String quote(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); ++i) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
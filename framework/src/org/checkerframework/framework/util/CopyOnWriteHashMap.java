@@ -0,0 +1,201 @@
+package org.checkerframework.framework.util;
+
+/*>>>
+import org.checkerframework.checker.nullness.qual.Nullable;
+*/
+
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A hash map whose {@link #copy()} is a constant-time operation.
+ *
+ * A copy shares the underlying {@link HashMap} with the original map. The
+ * shared storage counts how many maps refer to it, and the first modification
+ * of a map whose storage is shared detaches that map by copying the storage.
+ * Maps that are never modified after being copied therefore never pay for the
+ * copy, and maps that still share storage are known to be equal without
+ * comparing their entries.
+ *
+ * The collection views returned by {@link #keySet()}, {@link #values()} and
+ * {@link #entrySet()} are read-only, because they could otherwise be used to
+ * modify storage that is shared with other maps.
+ *
+ * This class is not thread-safe.
+ */
+public class CopyOnWriteHashMap<K, V> extends AbstractMap<K, V> {
+
+    /** Storage that may be shared by several maps. */
+    private static class Storage<K, V> {
+        final HashMap<K, V> map;
+        final Map<K, V> readOnly;
+
+        /**
+         * The number of maps that refer to this storage. This is an
+         * over-approximation, as maps that are no longer reachable are not
+         * accounted for.
+         */
+        int owners;
+
+        Storage(HashMap<K, V> map) {
+            this.map = map;
+            this.readOnly = Collections.unmodifiableMap(map);
+            this.owners = 1;
+        }
+    }
+
+    private Storage<K, V> storage;
+
+    /** Create an empty map. */
+    public CopyOnWriteHashMap() {
+        storage = new Storage<>(new HashMap<K, V>());
+    }
+
+    /** Create a map with the same entries as {@code other}. */
+    public CopyOnWriteHashMap(Map<? extends K, ? extends V> other) {
+        if (other instanceof CopyOnWriteHashMap) {
+            @SuppressWarnings("unchecked")
+            CopyOnWriteHashMap<K, V> cow = (CopyOnWriteHashMap<K, V>) other;
+            storage = cow.storage;
+            storage.owners++;
+        } else {
+            storage = new Storage<>(new HashMap<K, V>(other));
+        }
+    }
+
+    /**
+     * @return a map with the same entries as this map, sharing its storage
+     *         until either of the two maps is modified
+     */
+    public CopyOnWriteHashMap<K, V> copy() {
+        return new CopyOnWriteHashMap<>(this);
+    }
+
+    /**
+     * @return true if this map and {@code other} share their storage, which
+     *         implies that they have the same entries
+     */
+    public boolean sharesStorageWith(CopyOnWriteHashMap<?, ?> other) {
+        return storage == other.storage;
+    }
+
+    /** Make sure that this map is the only owner of its storage. */
+    private HashMap<K, V> writableMap() {
+        if (storage.owners > 1) {
+            storage.owners--;
+            storage = new Storage<>(new HashMap<>(storage.map));
+        }
+        return storage.map;
+    }
+
+    @Override
+    public int size() {
+        return storage.map.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return storage.map.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return storage.map.containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        return storage.map.containsValue(value);
+    }
+
+    @Override
+    public /*@Nullable*/ V get(Object key) {
+        return storage.map.get(key);
+    }
+
+    @Override
+    public /*@Nullable*/ V put(K key, V value) {
+        V old = storage.map.get(key);
+        if (old == value && (old != null || storage.map.containsKey(key))) {
+            // nothing changes, so there is no need to detach
+            return old;
+        }
+        return writableMap().put(key, value);
+    }
+
+    @Override
+    public /*@Nullable*/ V remove(Object key) {
+        if (!storage.map.containsKey(key)) {
+            return null;
+        }
+        return writableMap().remove(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * If this map is empty and {@code m} is a {@link CopyOnWriteHashMap}, this
+     * map shares the storage of {@code m} afterwards.
+     */
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        if (m.isEmpty()) {
+            return;
+        }
+        if (storage.map.isEmpty() && m instanceof CopyOnWriteHashMap) {
+            @SuppressWarnings("unchecked")
+            CopyOnWriteHashMap<K, V> cow = (CopyOnWriteHashMap<K, V>) m;
+            storage.owners--;
+            storage = cow.storage;
+            storage.owners++;
+            return;
+        }
+        writableMap().putAll(m);
+    }
+
+    @Override
+    public void clear() {
+        if (storage.map.isEmpty()) {
+            return;
+        }
+        if (storage.owners > 1) {
+            storage.owners--;
+            storage = new Storage<>(new HashMap<K, V>());
+        } else {
+            storage.map.clear();
+        }
+    }
+
+    @Override
+    public Set<K> keySet() {
+        return storage.readOnly.keySet();
+    }
+
+    @Override
+    public Collection<V> values() {
+        return storage.readOnly.values();
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return storage.readOnly.entrySet();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof CopyOnWriteHashMap
+                && sharesStorageWith((CopyOnWriteHashMap<?, ?>) o)) {
+            return true;
+        }
+        return storage.map.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return storage.map.hashCode();
+    }
+}
@@ -0,0 +1,189 @@
+package org.checkerframework.framework.util;
+
+/*>>>
+import org.checkerframework.checker.nullness.qual.Nullable;
+*/
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache that keeps statistics about its use.
+ *
+ * The cache holds at most {@code maxSize} entries. If a {@link Weigher} is
+ * given, the cache additionally keeps the total weight of its values at or
+ * below {@code maxWeight}. In both cases the entries that were inserted first
+ * are evicted first.
+ *
+ * Every call to {@link #get(Object)} is counted as a hit or a miss, so
+ * clients should look up entries with {@code get} rather than with
+ * {@code containsKey} followed by {@code get}. Entries removed through the
+ * collection views are not accounted for in the total weight.
+ *
+ * This class is not thread-safe.
+ */
+public class LRUCache<K, V> extends LinkedHashMap<K, V> {
+
+    private static final long serialVersionUID = 5261489276168775084L;
+
+    /** Computes the approximate memory cost of a cached value. */
+    public static interface Weigher<V> {
+        /** @return the weight of {@code value}, which must be non-negative */
+        int weigh(V value);
+    }
+
+    /** The name of this cache, used when printing statistics. */
+    private final String name;
+
+    /** The maximum number of entries. */
+    private final int maxSize;
+
+    /** The weigher for values, or null if entries are not weighed. */
+    private final /*@Nullable*/ Weigher<? super V> weigher;
+
+    /** The maximum total weight; only used if {@link #weigher} is non-null. */
+    private final long maxWeight;
+
+    /** The total weight of all values. */
+    private long totalWeight = 0;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * Create a cache that holds at most {@code maxSize} entries.
+     *
+     * @param name the name of the cache, used when printing statistics
+     * @param maxSize the maximum number of entries
+     */
+    public LRUCache(String name, int maxSize) {
+        this(name, maxSize, null, 0);
+    }
+
+    /**
+     * Create a cache that holds at most {@code maxSize} entries, whose
+     * values weigh at most {@code maxWeight} in total.
+     *
+     * @param name the name of the cache, used when printing statistics
+     * @param maxSize the maximum number of entries
+     * @param weigher the weigher for values, or null to ignore weights
+     * @param maxWeight the maximum total weight of all values
+     */
+    public LRUCache(String name, int maxSize,
+            /*@Nullable*/ Weigher<? super V> weigher, long maxWeight) {
+        this.name = name;
+        this.maxSize = maxSize;
+        this.weigher = weigher;
+        this.maxWeight = maxWeight;
+    }
+
+    @Override
+    public /*@Nullable*/ V get(Object key) {
+        V value = super.get(key);
+        if (value != null || super.containsKey(key)) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return value;
+    }
+
+    @Override
+    public /*@Nullable*/ V put(K key, V value) {
+        V old = super.put(key, value);
+        if (weigher != null) {
+            totalWeight += weigh(value) - weigh(old);
+            evictOverweight();
+        }
+        return old;
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        // HashMap.putAll does not call put, which keeps track of the weight.
+        for (Map.Entry<? extends K, ? extends V> entry : m.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public /*@Nullable*/ V remove(Object key) {
+        V old = super.remove(key);
+        totalWeight -= weigh(old);
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        totalWeight = 0;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+        if (size() > maxSize) {
+            evictions++;
+            totalWeight -= weigh(eldest.getValue());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Evict the eldest entries until the total weight is at most
+     * {@link #maxWeight}. The most recently inserted entry is always kept.
+     */
+    private void evictOverweight() {
+        Iterator<V> values = super.values().iterator();
+        while (totalWeight > maxWeight && size() > 1) {
+            V value = values.next();
+            values.remove();
+            evictions++;
+            totalWeight -= weigh(value);
+        }
+    }
+
+    private long weigh(/*@Nullable*/ V value) {
+        if (weigher == null || value == null) {
+            return 0;
+        }
+        return weigher.weigh(value);
+    }
+
+    /** @return the name of this cache */
+    public String getName() {
+        return name;
+    }
+
+    /** @return the number of lookups that found an entry */
+    public long getHits() {
+        return hits;
+    }
+
+    /** @return the number of lookups that did not find an entry */
+    public long getMisses() {
+        return misses;
+    }
+
+    /** @return the number of entries evicted to respect the size or weight limit */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /** @return the total weight of all values, or 0 if entries are not weighed */
+    public long getTotalWeight() {
+        return totalWeight;
+    }
+
+    /** @return a one-line summary of the use of this cache */
+    public String getStatistics() {
+        long lookups = hits + misses;
+        String hitRate = (lookups == 0 ? "-" : String.format("%.1f%%", 100.0 * hits / lookups));
+        return name + ": " + size() + "/" + maxSize + " entries"
+                + (weigher == null ? "" : ", weight " + totalWeight + "/" + maxWeight)
+                + ", " + hits + " hits, " + misses + " misses (" + hitRate + " hit rate), "
+                + evictions + " evictions";
+    }
+}
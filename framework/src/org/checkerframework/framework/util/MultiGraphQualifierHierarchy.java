@@ -16,14 +16,19 @@ import org.checkerframework.javacutil.AnnotationUtils;
 import org.checkerframework.javacutil.ErrorReporter;
 
 import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
 
 /**
  * Represents the type qualifier hierarchy of a type system.
@@ -183,6 +188,42 @@ public class MultiGraphQualifierHierarchy extends QualifierHierarchy {
      */
     protected final Map<AnnotationMirror, AnnotationMirror> polyQualifiers;
 
+    /**
+     * Map from the name of each numbered qualifier to its id.
+     *
+     * @see #getQualifierId(AnnotationMirror)
+     */
+    private final Map</*@Interned*/ String, Integer> qualifierIds;
+
+    /** The numbered qualifiers, indexed by id. */
+    private final AnnotationMirror[] qualifiers;
+
+    /**
+     * For each numbered qualifier, the ids of its numbered supertypes,
+     * including itself.
+     */
+    private final BitSet[] supertypeBits;
+
+    /**
+     * For each numbered qualifier, its top and bottom qualifier, or null if
+     * they cannot be determined from the numbered qualifiers alone, or if
+     * a subclass overrides {@link #isSubtype(AnnotationMirror, AnnotationMirror)},
+     * which {@link #getTopAnnotation} and {@link #getBottomAnnotation} use.
+     */
+    private final AnnotationMirror[] topOf;
+    private final AnnotationMirror[] bottomOf;
+
+    /**
+     * Least upper bounds and greatest lower bounds of pairs of numbered
+     * qualifiers, indexed by {@code id1 * qualifiers.length + id2}.
+     * Computed on demand, because subclasses may override the methods used
+     * to compute them and are not fully constructed in this constructor.
+     */
+    private final AnnotationMirror[] lubTable;
+    private final BitSet lubComputed;
+    private final AnnotationMirror[] glbTable;
+    private final BitSet glbComputed;
+
     public MultiGraphQualifierHierarchy(MultiGraphFactory f) {
         this(f, (Object[]) null);
     }
@@ -216,9 +257,161 @@ public class MultiGraphQualifierHierarchy extends QualifierHierarchy {
         // TODO: make polyQualifiers immutable also?
 
         this.supertypesMap = Collections.unmodifiableMap(fullMap);
+
+        // Number the qualifiers and build the tables used by the fast paths.
+        this.qualifierIds = new HashMap<String, Integer>();
+        List<AnnotationMirror> indexed = new ArrayList<AnnotationMirror>();
+        for (AnnotationMirror qual : supertypesMap.keySet()) {
+            addQualifierId(qual, indexed);
+        }
+        for (AnnotationMirror qual : polyQualifiers.values()) {
+            addQualifierId(qual, indexed);
+        }
+        this.qualifiers = indexed.toArray(new AnnotationMirror[indexed.size()]);
+        int count = qualifiers.length;
+
+        this.supertypeBits = new BitSet[count];
+        for (int id = 0; id < count; ++id) {
+            BitSet supers = new BitSet(count);
+            supers.set(id);
+            Set<AnnotationMirror> supersOfQual = supertypesMap.get(qualifiers[id]);
+            if (supersOfQual != null) {
+                for (AnnotationMirror sup : supersOfQual) {
+                    int supId = getQualifierId(sup);
+                    if (supId >= 0) {
+                        supers.set(supId);
+                    }
+                }
+            }
+            supertypeBits[id] = supers;
+        }
+
+        // Like getTopAnnotation and getBottomAnnotation, use the first
+        // top and bottom that matches.  If a subclass overrides isSubtype,
+        // leave them to getTopAnnotation and getBottomAnnotation.
+        this.topOf = new AnnotationMirror[count];
+        this.bottomOf = new AnnotationMirror[count];
+        int graphCount = overridesIsSubtype() ? 0 : count;
+        for (int id = 0; id < graphCount; ++id) {
+            for (AnnotationMirror top : tops) {
+                int topId = getQualifierId(top);
+                if (topId >= 0 && supertypeBits[id].get(topId)) {
+                    topOf[id] = top;
+                    break;
+                }
+            }
+            for (AnnotationMirror bot : bottoms) {
+                int botId = getQualifierId(bot);
+                if (botId >= 0 && supertypeBits[botId].get(id)) {
+                    bottomOf[id] = bot;
+                    break;
+                }
+            }
+        }
+
+        this.lubTable = new AnnotationMirror[count * count];
+        this.lubComputed = new BitSet(count * count);
+        this.glbTable = new AnnotationMirror[count * count];
+        this.glbComputed = new BitSet(count * count);
         // System.out.println("MGH: " + this);
     }
 
+    /**
+     * Returns true if the class of this hierarchy overrides
+     * {@link #isSubtype(AnnotationMirror, AnnotationMirror)}, so that the
+     * subtype relation may differ from the graph of this hierarchy.
+     */
+    private boolean overridesIsSubtype() {
+        try {
+            return getClass().getMethod("isSubtype", AnnotationMirror.class, AnnotationMirror.class)
+                    .getDeclaringClass() != MultiGraphQualifierHierarchy.class;
+        } catch (NoSuchMethodException e) {
+            ErrorReporter.errorAbort("MultiGraphQualifierHierarchy: isSubtype not found", e);
+            return true; // dead code
+        }
+    }
+
+    /**
+     * Assigns the next id to {@code qual} if it can be identified by its
+     * name alone, that is, if its annotation type declares no elements.
+     * Qualifiers with elements, such as {@code @KeyFor}, are not numbered
+     * and always use the slower, AnnotationMirror-based code paths.
+     */
+    private void addQualifierId(AnnotationMirror qual, List<AnnotationMirror> indexed) {
+        /*@Interned*/ String name = AnnotationUtils.annotationName(qual);
+        if (qualifierIds.containsKey(name)) {
+            return;
+        }
+        TypeElement annoElt = (TypeElement) qual.getAnnotationType().asElement();
+        if (!ElementFilter.methodsIn(annoElt.getEnclosedElements()).isEmpty()) {
+            return;
+        }
+        qualifierIds.put(name, indexed.size());
+        indexed.add(qual);
+    }
+
+    /**
+     * Returns a small integer that identifies {@code qual} in this hierarchy,
+     * or -1 if the qualifier is not numbered.
+     * Only qualifiers whose annotation type declares no elements are
+     * numbered; ids range from 0 to the number of numbered qualifiers.
+     *
+     * The ids allow clients to store qualifiers compactly and to use
+     * {@link #isSubtype(int, int)}, {@link #leastUpperBound(int, int)} and
+     * {@link #greatestLowerBound(int, int)}, which only consult precomputed
+     * tables.
+     */
+    public int getQualifierId(/*@Nullable*/ AnnotationMirror qual) {
+        if (qual == null) {
+            return -1;
+        }
+        Integer id = qualifierIds.get(AnnotationUtils.annotationName(qual));
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the qualifier with the given id.
+     *
+     * @see #getQualifierId(AnnotationMirror)
+     */
+    public AnnotationMirror getQualifier(int id) {
+        return qualifiers[id];
+    }
+
+    /**
+     * Returns true if the qualifier with id {@code rhsId} is a subtype of
+     * the qualifier with id {@code lhsId} in the graph of this hierarchy.
+     * Unlike {@link #isSubtype(AnnotationMirror, AnnotationMirror)}, this
+     * method does not consult overrides in subclasses.
+     *
+     * @see #getQualifierId(AnnotationMirror)
+     */
+    public boolean isSubtype(int rhsId, int lhsId) {
+        return supertypeBits[rhsId].get(lhsId);
+    }
+
+    /**
+     * Returns the id of the least upper bound of the qualifiers with ids
+     * {@code id1} and {@code id2}, or -1 if they are in different
+     * hierarchies or their least upper bound is not numbered.
+     *
+     * @see #getQualifierId(AnnotationMirror)
+     */
+    public int leastUpperBound(int id1, int id2) {
+        return getQualifierId(leastUpperBound(qualifiers[id1], qualifiers[id2]));
+    }
+
+    /**
+     * Returns the id of the greatest lower bound of the qualifiers with ids
+     * {@code id1} and {@code id2}, or -1 if they are in different
+     * hierarchies or their greatest lower bound is not numbered.
+     *
+     * @see #getQualifierId(AnnotationMirror)
+     */
+    public int greatestLowerBound(int id1, int id2) {
+        return getQualifierId(greatestLowerBound(qualifiers[id1], qualifiers[id2]));
+    }
+
     /**
      * Method to finalize the qualifier hierarchy before it becomes unmodifiable.
      * The parameters pass all fields and allow modification.
@@ -247,6 +440,10 @@ public class MultiGraphQualifierHierarchy extends QualifierHierarchy {
 
     @Override
     public AnnotationMirror getTopAnnotation(AnnotationMirror start) {
+        int id = getQualifierId(start);
+        if (id >= 0 && topOf[id] != null) {
+            return topOf[id];
+        }
         for (AnnotationMirror top : tops) {
             if (AnnotationUtils.areSame(start, top) ||
                     isSubtype(start, top)) {
@@ -265,6 +462,10 @@ public class MultiGraphQualifierHierarchy extends QualifierHierarchy {
 
     @Override
     public AnnotationMirror getBottomAnnotation(AnnotationMirror start) {
+        int id = getQualifierId(start);
+        if (id >= 0 && bottomOf[id] != null) {
+            return bottomOf[id];
+        }
         for (AnnotationMirror bot : bottoms) {
             if (AnnotationUtils.areSame(start, bot) ||
                     isSubtype(bot, start)) {
@@ -336,6 +537,20 @@ public class MultiGraphQualifierHierarchy extends QualifierHierarchy {
 
     @Override
     public AnnotationMirror leastUpperBound(AnnotationMirror a1, AnnotationMirror a2) {
+        int id1 = getQualifierId(a1);
+        int id2 = getQualifierId(a2);
+        if (id1 >= 0 && id2 >= 0) {
+            int index = id1 * qualifiers.length + id2;
+            if (!lubComputed.get(index)) {
+                lubTable[index] = computeLeastUpperBound(a1, a2);
+                lubComputed.set(index);
+            }
+            return lubTable[index];
+        }
+        return computeLeastUpperBound(a1, a2);
+    }
+
+    private AnnotationMirror computeLeastUpperBound(AnnotationMirror a1, AnnotationMirror a2) {
         if (!AnnotationUtils.areSameIgnoringValues(getTopAnnotation(a1), getTopAnnotation(a2))) {
             return null;
         } else if (isSubtype(a1, a2)) {
@@ -366,6 +581,20 @@ public class MultiGraphQualifierHierarchy extends QualifierHierarchy {
 
     @Override
     public AnnotationMirror greatestLowerBound(AnnotationMirror a1, AnnotationMirror a2) {
+        int id1 = getQualifierId(a1);
+        int id2 = getQualifierId(a2);
+        if (id1 >= 0 && id2 >= 0) {
+            int index = id1 * qualifiers.length + id2;
+            if (!glbComputed.get(index)) {
+                glbTable[index] = computeGreatestLowerBound(a1, a2);
+                glbComputed.set(index);
+            }
+            return glbTable[index];
+        }
+        return computeGreatestLowerBound(a1, a2);
+    }
+
+    private AnnotationMirror computeGreatestLowerBound(AnnotationMirror a1, AnnotationMirror a2) {
         if (AnnotationUtils.areSameIgnoringValues(a1, a2))
             return AnnotationUtils.areSame(a1, a2) ? a1 : getBottomAnnotation(a1);
         if (glbs == null) {
@@ -403,6 +632,12 @@ public class MultiGraphQualifierHierarchy extends QualifierHierarchy {
      */
     @Override
     public boolean isSubtype(AnnotationMirror rhs, AnnotationMirror lhs) {
+        int rhsId = getQualifierId(rhs);
+        int lhsId = getQualifierId(lhs);
+        if (rhsId >= 0 && lhsId >= 0) {
+            return supertypeBits[rhsId].get(lhsId);
+        }
+
         checkAnnoInGraph(rhs);
         checkAnnoInGraph(lhs);
 
@@ -52,6 +52,24 @@ public class PluginUtil {
      */
     public static final String JDK_PATH_OPT   = "-jdkJar";
 
+    /**
+     * Option name for compiling in a long-running {@link CheckerDaemon}
+     * instead of a new JVM.  The option takes no value.
+     */
+    public static final String DAEMON_OPT     = "-daemon";
+
+    /**
+     * Option name for checking the sources in several concurrent compilers.  The accompanying
+     * value MUST be the largest number of compilers to run.
+     */
+    public static final String SHARDS_OPT     = "-shards";
+
+    /**
+     * Option name for the smallest number of sources that a compiler started because of
+     * {@link #SHARDS_OPT} checks.  The accompanying value MUST be a positive integer.
+     */
+    public static final String SHARD_MIN_FILES_OPT = "-shardMinFiles";
+
 
     public static List<File> toFiles(final List<String> fileNames) {
         final List<File> files = new ArrayList<File>(fileNames.size());
@@ -0,0 +1,226 @@
+package org.checkerframework.framework.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Partitions the source files of a compilation into shards that
+ * {@link CheckerMain} checks in concurrent compilers.
+ *
+ * The sources are grouped by package (by directory), and the groups are
+ * distributed so that the shards have about the same total size; the size
+ * of a source is its length in bytes.  A package that is larger than a
+ * shard's share is split.  The partition depends only on the paths and
+ * sizes of the sources, so the same sources are always sharded the same
+ * way.
+ */
+public class SourceShards {
+
+    private SourceShards() {
+        throw new AssertionError("Class SourceShards cannot be instantiated.");
+    }
+
+    /** Matches the package declaration of a source file. */
+    private static final Pattern PACKAGE_REGEX =
+            Pattern.compile("\\bpackage\\s+([\\w.\\s]+?)\\s*;");
+
+    /**
+     * Partition sources into at most maxShards shards of at least
+     * minSourcesPerShard sources each.
+     * @param sources the source files to partition
+     * @param maxShards the largest number of shards to create
+     * @param minSourcesPerShard the smallest number of sources in a shard,
+     *        so that small compilations are not split
+     * @return the shards, each sorted by path, in a deterministic order; a
+     *         single shard if the sources are too few to be split
+     */
+    public static List<List<File>> partition(final List<File> sources, final int maxShards,
+                                             final int minSourcesPerShard) {
+        final int shardCount = Math.max(1, Math.min(maxShards,
+                sources.size() / Math.max(1, minSourcesPerShard)));
+
+        final List<List<File>> shards = new ArrayList<List<File>>(shardCount);
+        if (shardCount == 1) {
+            final List<File> all = new ArrayList<File>(sources);
+            Collections.sort(all);
+            shards.add(all);
+            return shards;
+        }
+
+        long totalSize = 0;
+        for (final File source : sources) {
+            totalSize += size(source);
+        }
+        final long shareSize = totalSize / shardCount + 1;
+
+        // Split packages that are larger than a share, so they can be balanced.
+        final List<List<File>> groups = new ArrayList<List<File>>();
+        for (final List<File> packageSources : groupByPackage(sources).values()) {
+            List<File> group = new ArrayList<File>();
+            long groupSize = 0;
+            for (final File source : packageSources) {
+                if (groupSize >= shareSize) {
+                    groups.add(group);
+                    group = new ArrayList<File>();
+                    groupSize = 0;
+                }
+                group.add(source);
+                groupSize += size(source);
+            }
+            groups.add(group);
+        }
+
+        // Largest groups first, each to the currently smallest shard.
+        Collections.sort(groups, new Comparator<List<File>>() {
+            @Override
+            public int compare(List<File> g1, List<File> g2) {
+                final long s1 = size(g1);
+                final long s2 = size(g2);
+                if (s1 != s2) {
+                    return s1 > s2 ? -1 : 1;
+                }
+                return g1.get(0).compareTo(g2.get(0));
+            }
+        });
+
+        final long[] shardSizes = new long[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(new ArrayList<File>());
+        }
+        for (final List<File> group : groups) {
+            int smallest = 0;
+            for (int i = 1; i < shardCount; i++) {
+                if (shardSizes[i] < shardSizes[smallest]) {
+                    smallest = i;
+                }
+            }
+            shards.get(smallest).addAll(group);
+            shardSizes[smallest] += size(group);
+        }
+
+        final List<List<File>> result = new ArrayList<List<File>>(shardCount);
+        for (final List<File> shard : shards) {
+            if (!shard.isEmpty()) {
+                Collections.sort(shard);
+                result.add(shard);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the source roots of the given sources: for each package
+     * directory, the directory that contains the directories of its package
+     * name.  Other shards find each other's sources on these roots.
+     * @return the source roots, or null if the root of some source cannot be
+     *         determined from its package declaration
+     */
+    public static List<String> sourceRoots(final List<File> sources) {
+        final Set<String> roots = new LinkedHashSet<String>();
+        for (final List<File> packageSources : groupByPackage(sources).values()) {
+            final File source = packageSources.get(0);
+            final String packageName = readPackageName(source);
+            if (packageName == null) {
+                return null;
+            }
+
+            File root = source.getAbsoluteFile().getParentFile();
+            if (!packageName.isEmpty()) {
+                final String[] components = packageName.split("\\.");
+                for (int i = components.length - 1; i >= 0; i--) {
+                    if (root == null || !root.getName().equals(components[i])) {
+                        return null;
+                    }
+                    root = root.getParentFile();
+                }
+            }
+            if (root == null) {
+                return null;
+            }
+            roots.add(root.getPath());
+        }
+        return new ArrayList<String>(roots);
+    }
+
+    /** Group the sources by their directory, sorted by path. */
+    private static Map<String, List<File>> groupByPackage(final List<File> sources) {
+        final Map<String, List<File>> packages = new TreeMap<String, List<File>>();
+        for (final File source : sources) {
+            final String dir = source.getAbsoluteFile().getParent();
+            List<File> packageSources = packages.get(dir);
+            if (packageSources == null) {
+                packageSources = new ArrayList<File>();
+                packages.put(dir, packageSources);
+            }
+            packageSources.add(source);
+        }
+        for (final List<File> packageSources : packages.values()) {
+            Collections.sort(packageSources);
+        }
+        return packages;
+    }
+
+    /**
+     * @return the package of a source file, the empty string for the
+     *         unnamed package, or null if the file cannot be read
+     */
+    private static String readPackageName(final File source) {
+        try {
+            final BufferedReader reader = new BufferedReader(new FileReader(source));
+            try {
+                final StringBuilder text = new StringBuilder();
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    text.append(stripComments(line)).append('\n');
+                    final Matcher matcher = PACKAGE_REGEX.matcher(text);
+                    if (matcher.find()) {
+                        return matcher.group(1).replaceAll("\\s", "");
+                    }
+                    if (line.matches("^\\s*(import|public|class|interface|enum|final|abstract)\\b.*")) {
+                        // past the place of a package declaration
+                        return "";
+                    }
+                }
+                return "";
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /** Remove line comments; block comments are rare before the package declaration and only span whole lines. */
+    private static String stripComments(final String line) {
+        final String trimmed = line.trim();
+        if (trimmed.startsWith("//") || trimmed.startsWith("/*") || trimmed.startsWith("*")) {
+            return "";
+        }
+        return line;
+    }
+
+    private static long size(final File source) {
+        // Count empty files, so that every source has some weight.
+        return source.length() + 1;
+    }
+
+    private static long size(final List<File> sources) {
+        long size = 0;
+        for (final File source : sources) {
+            size += size(source);
+        }
+        return size;
+    }
+}
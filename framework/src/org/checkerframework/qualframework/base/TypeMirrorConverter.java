@@ -30,9 +30,7 @@ import org.checkerframework.qualframework.util.WrappedAnnotatedTypeMirror;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
 
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.AnnotationMirror;
@@ -80,15 +78,14 @@ public class TypeMirrorConverter<Q> {
      * annotated-to-qualified conversions. */
     private final HashMap<Integer, Q> indexToQual;
 
-    /** Cache @Key annotation mirrors so they are not to be recreated on every conversion */
-    public LinkedHashMap<Integer, AnnotationMirror> keyToAnnoCache = new LinkedHashMap<Integer, AnnotationMirror>(10, .75f, true) {
-         private static final long serialVersionUID = 1L;
-         private static final int MAX_SIZE = 1000;
-         @Override
-         protected boolean removeEldestEntry(Map.Entry<Integer, AnnotationMirror> eldest) {
-            return size() > MAX_SIZE;
-         }
-    };
+    /** The {@link Key} annotation for each index, so that @Key annotation
+     * mirrors are not recreated on every conversion.  There is one index per
+     * qualifier, so the table is never evicted. */
+    private final ArrayList<AnnotationMirror> indexToKey;
+    /** The qualifier of each {@link Key} annotation in {@link #indexToKey},
+     * by identity, so that annotated-to-qualified conversions need not read
+     * the index of these annotations. */
+    private final IdentityHashMap<AnnotationMirror, Q> keyToQual;
 
     @TypeQualifier
     @SubtypeOf({})
@@ -112,6 +109,8 @@ public class TypeMirrorConverter<Q> {
 
         this.qualToIndex = new HashMap<>();
         this.indexToQual = new HashMap<>();
+        this.indexToKey = new ArrayList<>();
+        this.keyToQual = new IdentityHashMap<>();
     }
 
     /** Returns the type factory to use for building {@link
@@ -126,14 +125,18 @@ public class TypeMirrorConverter<Q> {
     /** Constructs a new {@link Key} annotation with the provided index, using
      * <code>desc.toString()</code> to set the {@link Key.desc} field. */
     private AnnotationMirror createKey(int index, Object desc) {
-        if (keyToAnnoCache.containsKey(index)) {
-            return keyToAnnoCache.get(index);
+        if (index < indexToKey.size() && indexToKey.get(index) != null) {
+            return indexToKey.get(index);
         } else {
             AnnotationBuilder builder = new AnnotationBuilder(processingEnv, Key.class.getCanonicalName());
             builder.setValue("index", index);
             builder.setValue("desc", "" + desc);
             AnnotationMirror result = builder.build();
-            keyToAnnoCache.put(index, result);
+            while (indexToKey.size() <= index) {
+                indexToKey.add(null);
+            }
+            indexToKey.set(index, result);
+            keyToQual.put(result, indexToQual.get(index));
             return result;
         }
     }
@@ -447,6 +450,10 @@ public class TypeMirrorConverter<Q> {
         if (anno == null) {
             return null;
         }
+        Q qual = keyToQual.get(anno);
+        if (qual != null) {
+            return qual;
+        }
         int index = getIndex(anno);
         return indexToQual.get(index);
     }
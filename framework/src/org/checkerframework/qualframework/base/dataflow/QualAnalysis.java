@@ -58,12 +58,11 @@ public class QualAnalysis<Q> extends Analysis<QualValue<Q>, QualStore<Q>, QualTr
 
     @Override
     public QualValue<Q> getValue(Node n) {
-        return new QualValue<>(converter.getQualifiedType(adapter.getValue(n).getType()), this);
+        return createValue(adapter.getValue(n));
     }
 
     public QualValue<Q> createSingleAnnotationValue(Q qual, TypeMirror underlyingType) {
-        CFValue atm = adapter.createSingleAnnotationValue(converter.getAnnotation(qual), underlyingType);
-        return new QualValue<>(converter.getQualifiedType(atm.getType()), this);
+        return createValue(adapter.createSingleAnnotationValue(converter.getAnnotation(qual), underlyingType));
     }
 
     public QualifierContext<Q> getContext() {
@@ -86,6 +85,17 @@ public class QualAnalysis<Q> extends Analysis<QualValue<Q>, QualStore<Q>, QualTr
         return new QualStore<>(this, cfStore);
     }
 
+    /**
+     * Wraps a value of the underlying analysis, which is converted to a
+     * {@link QualifiedTypeMirror} only if the {@link QualValue} is inspected.
+     */
+    /*package*/ QualValue<Q> createValue(CFValue cfValue) {
+        if (cfValue == null) {
+            return null;
+        }
+        return new QualValue<>(cfValue, this);
+    }
+
     /*package*/ CFAbstractAnalysis<CFValue, CFStore, CFTransfer> getCFAnalysis() {
         return adapter;
     }
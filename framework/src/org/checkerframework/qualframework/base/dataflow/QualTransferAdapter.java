@@ -87,6 +87,9 @@ import java.util.Map;
  *
  * It does this by converting TransferInputs and TransferResults backed
  * by CFValue and CFStores to ones backed by QualValue and QualStores.
+ * The stores and values are wrapped rather than converted, so a node
+ * whose QualTransfer method only delegates back to CFTransfer never
+ * converts between AnnotatedTypeMirrors and QualifiedTypeMirrors.
  *
  */
 public class QualTransferAdapter<Q> extends CFTransfer {
@@ -148,8 +151,7 @@ public class QualTransferAdapter<Q> extends CFTransfer {
 
         CFValue resultValue = null;
         if (transferResult.getResultValue() != null) {
-            resultValue = analysis.createAbstractValue(
-                    qualAnalysis.getConverter().getAnnotatedType(transferResult.getResultValue().getType()));
+            resultValue = transferResult.getResultValue().getUnderlyingValue();
         }
 
         if (transferResult.containsTwoStores()) {
@@ -176,11 +178,7 @@ public class QualTransferAdapter<Q> extends CFTransfer {
             }
         }
 
-        QualValue<Q> resultValue = null;
-        if (transferResult.getResultValue() != null) {
-            resultValue = qualAnalysis.createAbstractValue(
-                    qualAnalysis.getConverter().getQualifiedType(transferResult.getResultValue().getType()));
-        }
+        QualValue<Q> resultValue = qualAnalysis.createValue(transferResult.getResultValue());
 
         if (transferResult.containsTwoStores()) {
             return new ConditionalTransferResult<>(resultValue,
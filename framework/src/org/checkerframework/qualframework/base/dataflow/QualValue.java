@@ -2,16 +2,26 @@ package org.checkerframework.qualframework.base.dataflow;
 
 import org.checkerframework.dataflow.analysis.AbstractValue;
 import org.checkerframework.framework.flow.CFAnalysis;
+import org.checkerframework.framework.flow.CFValue;
 import org.checkerframework.qualframework.base.QualifiedTypeMirror;
 
 /**
  * QualValue is an {@link AbstractValue} for quals.
  *
  * {@link CFAnalysis} is used to perform the leastUpperBound operation.
+ *
+ * A QualValue may be backed by either a {@link QualifiedTypeMirror} or the
+ * {@link CFValue} of the underlying analysis, and converts to the other
+ * representation only when it is asked for it.  Values that the
+ * {@link QualTransferAdapter} passes through a {@link QualTransfer}
+ * without inspecting them are therefore never converted.
  */
 public class QualValue<Q> implements AbstractValue<QualValue<Q>> {
 
-    private final QualifiedTypeMirror<Q> value;
+    /** The qualified type of this value, or null if it has not been converted yet. */
+    private QualifiedTypeMirror<Q> value;
+    /** The value of the underlying analysis, or null if it has not been converted yet. */
+    private CFValue underlying;
     private final QualAnalysis<Q> analysis;
 
     public QualValue(QualifiedTypeMirror<Q> value,
@@ -19,17 +29,34 @@ public class QualValue<Q> implements AbstractValue<QualValue<Q>> {
 
         this.analysis = analysis;
         this.value = value;
+        this.underlying = null;
+    }
+
+    /*package*/ QualValue(CFValue underlying, QualAnalysis<Q> analysis) {
+        this.analysis = analysis;
+        this.value = null;
+        this.underlying = underlying;
     }
 
     @Override
     public QualValue<Q> leastUpperBound(QualValue<Q> other) {
-        return analysis.createAbstractValue(
-                analysis.getConverter().getQualifiedType(
-                        analysis.getCFAnalysis().createAbstractValue(analysis.getConverter().getAnnotatedType(value)).leastUpperBound(
-                        analysis.getCFAnalysis().createAbstractValue(analysis.getConverter().getAnnotatedType(other.getType()))).getType()));
+        return analysis.createValue(
+                getUnderlyingValue().leastUpperBound(other.getUnderlyingValue()));
     }
 
     public QualifiedTypeMirror<Q> getType() {
+        if (value == null) {
+            value = analysis.getConverter().getQualifiedType(underlying.getType());
+        }
         return value;
     }
-}
\ No newline at end of file
+
+    /** @return the value of the underlying analysis that corresponds to this value */
+    /*package*/ CFValue getUnderlyingValue() {
+        if (underlying == null) {
+            underlying = analysis.getCFAnalysis().createAbstractValue(
+                    analysis.getConverter().getAnnotatedType(value));
+        }
+        return underlying;
+    }
+}
@@ -0,0 +1,14 @@
+import tests.util.Encrypted;
+
+class Terminates {
+    // Only checkers for which Thread.yield() terminates the execution
+    // find o @Encrypted at the return statement.
+    @Encrypted Object yieldIfPlain(@Encrypted Object encrypted, Object plain, boolean b) {
+        Object o = encrypted;
+        if (b) {
+            o = plain;
+            Thread.yield();
+        }
+        return o;
+    }
+}
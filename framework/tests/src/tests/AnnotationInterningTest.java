@@ -0,0 +1,74 @@
+package tests;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+
+import org.checkerframework.framework.util.AnnotationBuilder;
+import org.checkerframework.javacutil.AnnotationCache;
+import org.checkerframework.javacutil.AnnotationUtils;
+import org.checkerframework.javacutil.ErrorReporter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import tests.util.AnnoWithStringArg;
+import tests.util.Encrypted;
+import tests.util.TestChecker;
+
+import com.sun.tools.javac.processing.JavacProcessingEnvironment;
+import com.sun.tools.javac.util.Context;
+
+public class AnnotationInterningTest {
+
+    private final ProcessingEnvironment env;
+    private final ProcessingEnvironment otherEnv;
+
+    public AnnotationInterningTest() {
+        ErrorReporter.setHandler(new TestChecker());
+        env = compilation();
+        otherEnv = compilation();
+    }
+
+    /** A new compilation with its own AnnotationCache. */
+    private static ProcessingEnvironment compilation() {
+        ProcessingEnvironment env = JavacProcessingEnvironment.instance(new Context());
+        AnnotationCache.instance(env);
+        return env;
+    }
+
+    private static AnnotationMirror withArg(ProcessingEnvironment env, String value) {
+        AnnotationBuilder builder = new AnnotationBuilder(env, AnnoWithStringArg.class);
+        builder.setValue("value", value);
+        return builder.build();
+    }
+
+    @Test
+    public void sameAnnotationsOfOneCompilationAreIdentical() {
+        Assert.assertSame(withArg(env, "a"), withArg(env, "a"));
+        Assert.assertSame(new AnnotationBuilder(env, Encrypted.class).build(),
+                AnnotationUtils.fromClass(env.getElementUtils(), Encrypted.class));
+    }
+
+    @Test
+    public void differentAnnotationsOfOneCompilationAreNotSame() {
+        Assert.assertFalse(AnnotationUtils.areSame(withArg(env, "a"), withArg(env, "b")));
+        Assert.assertTrue(AnnotationUtils.areSame(withArg(env, "a"), withArg(env, "a")));
+    }
+
+    @Test
+    public void canonicalAnnotationsOfDifferentCompilationsAreComparedByValue() {
+        AnnotationMirror a = withArg(env, "a");
+        AnnotationMirror otherA = withArg(otherEnv, "a");
+        Assert.assertNotSame(a, otherA);
+        Assert.assertTrue(AnnotationUtils.areSame(a, otherA));
+        Assert.assertTrue(AnnotationUtils.areSame(otherA, a));
+        Assert.assertFalse(AnnotationUtils.areSame(a, withArg(otherEnv, "b")));
+    }
+
+    @Test
+    public void namesOfCanonicalAnnotationsAreInterned() {
+        Assert.assertSame(AnnoWithStringArg.class.getCanonicalName().intern(),
+                AnnotationUtils.annotationName(withArg(env, "a")));
+        Assert.assertSame(AnnotationUtils.annotationName(withArg(env, "a")),
+                AnnotationUtils.annotationName(withArg(otherEnv, "a")));
+    }
+}
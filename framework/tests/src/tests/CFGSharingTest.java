@@ -0,0 +1,93 @@
+package tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.checkerframework.framework.flow.CFGCache;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import tests.cfgsharing.CFGSharingChecker;
+
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+
+/**
+ * Tests that a checker and its subcheckers share control flow graphs, and
+ * that a subchecker whose stub file declares a method
+ * {@code @TerminatesExecution} does not reuse a graph that was built
+ * without that annotation.
+ */
+public class CFGSharingTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void graphsAreSharedUnlessStubFilesChangeThem() throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null);
+        String classpath = System.getProperty("tests.classpath", "tests" + File.separator + "build")
+                + File.pathSeparator + System.getProperty("java.class.path", "");
+        // -Awarns reports the errors as warnings, which javac does not
+        // merge if several checkers report them at the same position.
+        List<String> options = Arrays.asList(
+                "-Anomsgtext", "-Awarns",
+                "-d", folder.getRoot().getPath(),
+                "-classpath", classpath);
+        File source = new File("tests" + File.separator + "cfg-sharing", "Terminates.java");
+        JavacTask task = (JavacTask) compiler.getTask(null, fileManager, diagnostics,
+                options, null, fileManager.getJavaFileObjects(source));
+        final CFGSharingChecker checker = new CFGSharingChecker();
+        task.setProcessors(Collections.singleton(checker));
+        // The contexts of a compilation are cleared when it ends, so the
+        // cache is looked up while classes are analyzed.  This listener
+        // may run before the checker creates the cache.
+        final CFGCache[] cache = new CFGCache[1];
+        task.addTaskListener(new TaskListener() {
+            @Override
+            public void started(TaskEvent e) {
+            }
+
+            @Override
+            public void finished(TaskEvent e) {
+                if (e.getKind() == TaskEvent.Kind.ANALYZE) {
+                    cache[0] = CFGCache.instance(checker.getProcessingEnvironment());
+                }
+            }
+        });
+        task.call();
+        fileManager.close();
+
+        List<String> warnings = new ArrayList<>();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            if (diagnostic.getKind() == Diagnostic.Kind.MANDATORY_WARNING) {
+                warnings.add(diagnostic.getLineNumber() + ": " + diagnostic.getMessage(null));
+            }
+        }
+        Collections.sort(warnings);
+        // From CFGSharingChecker and PlainSubchecker.  Thread.yield() only
+        // terminates the execution for TerminatesSubchecker, which must not
+        // reuse the graph that PlainSubchecker built.
+        Assert.assertEquals(Arrays.asList(
+                "12: (return.type.incompatible)",
+                "12: (return.type.incompatible)"), warnings);
+        // CFGSharingChecker reuses the graphs of PlainSubchecker.
+        Assert.assertTrue("hits: " + cache[0].getHits(), cache[0].getHits() > 0);
+    }
+}
@@ -0,0 +1,155 @@
+package tests;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.checkerframework.framework.util.CheckerMain;
+import org.checkerframework.framework.util.PluginUtil;
+import org.checkerframework.framework.util.SourceShards;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests that checking the sources in several compilers with the
+ * {@code -shards} option of {@link CheckerMain} prints the same
+ * diagnostics as a single compiler.
+ */
+public class CheckerMainShardsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private List<String> sources;
+
+    /**
+     * Runs the compilers with the javac of the tests and the Checker
+     * Framework on the classpath of the tests, instead of the jars of a
+     * distribution.
+     */
+    private static class TestMain extends CheckerMain {
+        TestMain(List<String> args) {
+            super(new File("checker.jar"), args.toArray(new String[args.size()]));
+        }
+
+        @Override
+        protected void assertValidState() {
+        }
+
+        @Override
+        protected String asCheckerFrameworkProcessors(final String processorsString) {
+            return processorsString;
+        }
+
+        @Override
+        protected List<String> createCompilationBootclasspath(final List<String> argsList) {
+            return extractBootClassPath(argsList);
+        }
+
+        @Override
+        protected List<String> createCpOpts(final List<String> argsList) {
+            return extractCpOpts(argsList);
+        }
+
+        int compile() {
+            return invokeCompiler();
+        }
+    }
+
+    @Before
+    public void writeSources() throws IOException {
+        sources = new ArrayList<>();
+        // The sources of q are larger, so they are checked in the first
+        // shard, and the sources of p in the second.
+        String[] paths = { "p/A.java", "p/B.java", "p/C.java", "q/D.java", "q/E.java", "q/F.java" };
+        int[] methods = { 1, 4, 2, 3, 1, 5 };
+        for (int i = 0; i < paths.length; i++) {
+            File file = new File(folder.getRoot(), paths[i]);
+            file.getParentFile().mkdirs();
+            String name = file.getName().substring(0, 1);
+            PrintWriter out = new PrintWriter(file, "UTF-8");
+            try {
+                out.println("package " + file.getParentFile().getName() + ";");
+                out.println("import tests.util.Encrypted;");
+                out.println("class " + name + " {");
+                for (int j = 0; j < methods[i]; j++) {
+                    // An error, and a warning of -Xlint:cast.
+                    out.println("    @Encrypted String " + name.toLowerCase() + j
+                            + "(String s) { return (String) s; }");
+                }
+                out.println("}");
+            } finally {
+                out.close();
+            }
+            sources.add(file.getPath());
+        }
+    }
+
+    /** @return the error output of CheckerMain */
+    private String check(String... options) throws IOException {
+        String classpath = System.getProperty("tests.classpath", "tests" + File.separator + "build")
+                + File.pathSeparator + System.getProperty("java.class.path", "");
+        String javac = ClassLoader.getSystemResource("com/sun/tools/javac/Main.class").toString();
+        List<String> args = new ArrayList<>(Arrays.asList(
+                PluginUtil.JAVAC_PATH_OPT,
+                new File(URI.create(javac.substring("jar:".length(), javac.indexOf('!')))).getPath(),
+                "-processor", "org.checkerframework.common.subtyping.SubtypingChecker",
+                "-Aquals=tests.util.Encrypted,tests.util.PolyEncrypted,org.checkerframework.framework.qual.Unqualified",
+                "-Anomsgtext", "-Xlint:cast",
+                "-d", folder.newFolder().getPath(),
+                "-classpath", classpath));
+        args.addAll(Arrays.asList(options));
+        args.addAll(sources);
+
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        PrintStream oldOut = System.out;
+        PrintStream oldErr = System.err;
+        System.setOut(new PrintStream(new ByteArrayOutputStream(), true));
+        System.setErr(new PrintStream(err, true));
+        try {
+            Assert.assertEquals(1, new TestMain(args).compile());
+        } finally {
+            System.setOut(oldOut);
+            System.setErr(oldErr);
+        }
+        return err.toString();
+    }
+
+    private String checkInShards(String... options) throws IOException {
+        List<File> files = new ArrayList<>();
+        for (String source : sources) {
+            files.add(new File(source));
+        }
+        Assert.assertEquals(2, SourceShards.partition(files, 2, 1).size());
+
+        List<String> args = new ArrayList<>(Arrays.asList(
+                PluginUtil.SHARDS_OPT, "2", PluginUtil.SHARD_MIN_FILES_OPT, "1"));
+        args.addAll(Arrays.asList(options));
+        return check(args.toArray(new String[args.size()]));
+    }
+
+    @Test
+    public void shardsReportTheDiagnosticsOfASingleCompiler() throws IOException {
+        String expected = check();
+        Assert.assertTrue(expected, expected.endsWith("16 errors" + System.getProperty("line.separator")
+                + "16 warnings" + System.getProperty("line.separator")));
+        Assert.assertEquals(expected, checkInShards());
+    }
+
+    @Test
+    public void shardsTruncateLikeASingleCompiler() throws IOException {
+        String expected = check("-Xmaxerrs", "5", "-Xmaxwarns", "3");
+        Assert.assertTrue(expected, expected.endsWith("5 errors" + System.getProperty("line.separator")
+                + "3 warnings" + System.getProperty("line.separator")));
+        Assert.assertEquals(expected, checkInShards("-Xmaxerrs", "5", "-Xmaxwarns", "3"));
+    }
+}
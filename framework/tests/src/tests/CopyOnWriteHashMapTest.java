@@ -0,0 +1,79 @@
+package tests;
+
+import org.checkerframework.framework.util.CopyOnWriteHashMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CopyOnWriteHashMapTest {
+
+    private CopyOnWriteHashMap<String, Integer> makeMap() {
+        CopyOnWriteHashMap<String, Integer> map = new CopyOnWriteHashMap<>();
+        map.put("a", 1);
+        map.put("b", 2);
+        return map;
+    }
+
+    @Test
+    public void copiesShareStorage() {
+        CopyOnWriteHashMap<String, Integer> map = makeMap();
+        CopyOnWriteHashMap<String, Integer> copy = map.copy();
+
+        Assert.assertTrue(map.sharesStorageWith(copy));
+        Assert.assertEquals(map, copy);
+    }
+
+    @Test
+    public void writesDoNotAffectCopies() {
+        CopyOnWriteHashMap<String, Integer> map = makeMap();
+        CopyOnWriteHashMap<String, Integer> copy = map.copy();
+
+        copy.put("c", 3);
+        copy.remove("a");
+
+        Assert.assertFalse(map.sharesStorageWith(copy));
+        Assert.assertEquals(Integer.valueOf(1), map.get("a"));
+        Assert.assertFalse(map.containsKey("c"));
+        Assert.assertEquals(2, copy.size());
+        Assert.assertEquals(Integer.valueOf(3), copy.get("c"));
+    }
+
+    @Test
+    public void clearDoesNotAffectCopies() {
+        CopyOnWriteHashMap<String, Integer> map = makeMap();
+        CopyOnWriteHashMap<String, Integer> copy = map.copy();
+
+        map.clear();
+
+        Assert.assertTrue(map.isEmpty());
+        Assert.assertEquals(2, copy.size());
+    }
+
+    @Test
+    public void unchangingWritesKeepStorageShared() {
+        CopyOnWriteHashMap<String, Integer> map = makeMap();
+        CopyOnWriteHashMap<String, Integer> copy = map.copy();
+
+        copy.put("a", map.get("a"));
+        copy.remove("z");
+
+        Assert.assertTrue(map.sharesStorageWith(copy));
+    }
+
+    @Test
+    public void putAllIntoEmptyMapSharesStorage() {
+        CopyOnWriteHashMap<String, Integer> map = makeMap();
+        CopyOnWriteHashMap<String, Integer> other = new CopyOnWriteHashMap<>();
+
+        other.putAll(map);
+        other.put("c", 3);
+
+        Assert.assertEquals(2, map.size());
+        Assert.assertEquals(3, other.size());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void viewsAreReadOnly() {
+        CopyOnWriteHashMap<String, Integer> map = makeMap();
+        map.keySet().remove("a");
+    }
+}
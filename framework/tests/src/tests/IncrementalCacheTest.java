@@ -0,0 +1,177 @@
+package tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.checkerframework.common.subtyping.SubtypingChecker;
+import org.checkerframework.framework.source.IncrementalCache;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+import com.sun.tools.javac.processing.JavacProcessingEnvironment;
+import com.sun.tools.javac.util.Context;
+
+/**
+ * Tests that the {@code -AincrementalCache} option replays the diagnostics
+ * of unchanged classes, and checks classes again when something they
+ * depend on changes.
+ */
+public class IncrementalCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File cacheFile;
+    private File stubs;
+    private List<File> sources;
+
+    /** The diagnostics and cache statistics of one compilation. */
+    private static class Result {
+        final List<String> diagnostics = new ArrayList<>();
+        long hits;
+        long misses;
+    }
+
+    @Before
+    public void writeSources() throws IOException {
+        cacheFile = new File(folder.getRoot(), "cache");
+        stubs = folder.newFolder("stubs");
+        write("stubs/String.astub", "package java.lang;",
+                "import tests.util.Encrypted;",
+                "class String {",
+                "    static @Encrypted String valueOf(int i);",
+                "}");
+        sources = Arrays.asList(
+                write("E.java", "class E {}"),
+                write("D.java", "class D { E getE() { return new E(); } }"),
+                // C names neither E nor String.valueOf's declaring class
+                // in a signature of its own.
+                write("C.java", "import tests.util.Encrypted;",
+                        "class C {",
+                        "    @Encrypted Object fromD(D d) { return d.getE(); }",
+                        "    @Encrypted Object fromStub() { return String.valueOf(1); }",
+                        "}"));
+    }
+
+    private File write(String path, String... lines) throws IOException {
+        File file = new File(folder.getRoot(), path);
+        PrintWriter out = new PrintWriter(file, "UTF-8");
+        try {
+            for (String line : lines) {
+                out.println(line);
+            }
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    private Result check() throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null);
+        String classpath = System.getProperty("tests.classpath", "tests" + File.separator + "build")
+                + File.pathSeparator + System.getProperty("java.class.path", "");
+        List<String> options = Arrays.asList(
+                "-Anomsgtext",
+                "-Aquals=tests.util.Encrypted,tests.util.PolyEncrypted,org.checkerframework.framework.qual.Unqualified",
+                "-AincrementalCache=" + cacheFile,
+                "-Astubs=" + stubs,
+                "-d", folder.newFolder().getPath(),
+                "-classpath", classpath);
+        JavacTask task = (JavacTask) compiler.getTask(null, fileManager, diagnostics,
+                options, null, fileManager.getJavaFileObjectsFromFiles(sources));
+        final SubtypingChecker checker = new SubtypingChecker();
+        task.setProcessors(Collections.singleton(checker));
+        // The contexts of a compilation are cleared when it ends, so the
+        // cache is looked up while classes are analyzed.
+        final IncrementalCache[] cache = new IncrementalCache[1];
+        task.addTaskListener(new TaskListener() {
+            @Override
+            public void started(TaskEvent e) {
+            }
+
+            @Override
+            public void finished(TaskEvent e) {
+                if (e.getKind() == TaskEvent.Kind.ANALYZE) {
+                    Context context = ((JavacProcessingEnvironment) checker.getProcessingEnvironment()).getContext();
+                    cache[0] = context.get(IncrementalCache.class);
+                }
+            }
+        });
+        task.call();
+        fileManager.close();
+
+        Result result = new Result();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                result.diagnostics.add(new File(diagnostic.getSource().getName()).getName()
+                        + ":" + diagnostic.getLineNumber() + ": " + diagnostic.getMessage(null));
+            }
+        }
+        result.hits = cache[0].getHits();
+        result.misses = cache[0].getMisses();
+        return result;
+    }
+
+    @Test
+    public void unchangedClassesAreReplayed() throws IOException {
+        Result first = check();
+        Assert.assertEquals(1, first.diagnostics.size());
+        Assert.assertTrue(first.diagnostics.get(0), first.diagnostics.get(0).startsWith("C.java:3: "));
+        Assert.assertEquals(0, first.hits);
+
+        Result second = check();
+        Assert.assertEquals(first.diagnostics, second.diagnostics);
+        Assert.assertEquals(3, second.hits);
+        Assert.assertEquals(0, second.misses);
+    }
+
+    @Test
+    public void classInTheSignatureOfAUsedMemberInvalidates() throws IOException {
+        check();
+        write("E.java", "import tests.util.Encrypted;", "@Encrypted class E {}");
+
+        Result result = check();
+        // The annotation of E is inherited by the result of d.getE(), so
+        // C is correct now.
+        for (String diagnostic : result.diagnostics) {
+            Assert.assertFalse(diagnostic, diagnostic.startsWith("C.java:"));
+        }
+        Assert.assertEquals(0, result.hits);
+    }
+
+    @Test
+    public void stubFileInADirectoryInvalidates() throws IOException {
+        check();
+        long directoryModified = stubs.lastModified();
+        write("stubs/String.astub", "package java.lang;",
+                "class String {",
+                "    static String valueOf(int i);",
+                "}");
+        Assert.assertTrue(stubs.setLastModified(directoryModified));
+
+        Result result = check();
+        Assert.assertEquals(2, result.diagnostics.size());
+        Assert.assertTrue(result.diagnostics.get(1), result.diagnostics.get(1).startsWith("C.java:4: "));
+        Assert.assertEquals(0, result.hits);
+    }
+}
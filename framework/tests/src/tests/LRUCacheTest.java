@@ -0,0 +1,77 @@
+package tests;
+
+import org.checkerframework.framework.util.LRUCache;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LRUCacheTest {
+
+    private static class LengthWeigher implements LRUCache.Weigher<String> {
+        @Override
+        public int weigh(String value) {
+            return value.length();
+        }
+    }
+
+    @Test
+    public void countsHitsAndMisses() {
+        LRUCache<String, String> cache = new LRUCache<>("test", 10);
+        cache.put("a", "1");
+
+        Assert.assertEquals("1", cache.get("a"));
+        Assert.assertNull(cache.get("b"));
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void cachedNullIsAHit() {
+        LRUCache<String, String> cache = new LRUCache<>("test", 10);
+        cache.put("a", null);
+
+        Assert.assertNull(cache.get("a"));
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(0, cache.getMisses());
+    }
+
+    @Test
+    public void evictsEldestBeyondMaxSize() {
+        LRUCache<String, String> cache = new LRUCache<>("test", 2);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.put("c", "3");
+
+        Assert.assertEquals(2, cache.size());
+        Assert.assertFalse(cache.containsKey("a"));
+        Assert.assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    public void evictsEldestBeyondMaxWeight() {
+        LRUCache<String, String> cache = new LRUCache<>("test", 10, new LengthWeigher(), 5);
+        cache.put("a", "xx");
+        cache.put("b", "xx");
+        Assert.assertEquals(4, cache.getTotalWeight());
+
+        cache.put("c", "xxx");
+        Assert.assertFalse(cache.containsKey("a"));
+        Assert.assertEquals(5, cache.getTotalWeight());
+        Assert.assertEquals(1, cache.getEvictions());
+
+        cache.put("d", "xxxxxxxx");
+        Assert.assertEquals(1, cache.size());
+        Assert.assertTrue(cache.containsKey("d"));
+        Assert.assertEquals(8, cache.getTotalWeight());
+    }
+
+    @Test
+    public void replacingAndRemovingUpdatesWeight() {
+        LRUCache<String, String> cache = new LRUCache<>("test", 10, new LengthWeigher(), 100);
+        cache.put("a", "xx");
+        cache.put("a", "xxxx");
+        Assert.assertEquals(4, cache.getTotalWeight());
+
+        cache.remove("a");
+        Assert.assertEquals(0, cache.getTotalWeight());
+    }
+}
@@ -0,0 +1,131 @@
+package tests;
+
+import javax.lang.model.type.TypeKind;
+
+import org.checkerframework.common.value.util.Range;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RangeTest {
+
+    @Test
+    public void plus() {
+        Assert.assertEquals(new Range(4, 6), new Range(1, 2).plus(new Range(3, 4)));
+    }
+
+    @Test
+    public void plusOverflows() {
+        Range nearMax = new Range(Long.MAX_VALUE - 1, Long.MAX_VALUE);
+        Assert.assertEquals(Range.EVERYTHING, nearMax.plus(new Range(1, 2)));
+
+        Range nearMin = new Range(Long.MIN_VALUE, Long.MIN_VALUE + 1);
+        Assert.assertEquals(Range.EVERYTHING, nearMin.plus(new Range(-2, -1)));
+    }
+
+    @Test
+    public void minus() {
+        Assert.assertEquals(new Range(3, 9), new Range(5, 10).minus(new Range(1, 2)));
+    }
+
+    @Test
+    public void minusOverflows() {
+        // -Long.MIN_VALUE cannot be represented.
+        Assert.assertEquals(Range.EVERYTHING,
+                new Range(0, 0).minus(new Range(Long.MIN_VALUE, 0)));
+        Assert.assertEquals(Range.EVERYTHING,
+                new Range(Long.MIN_VALUE, 0).minus(new Range(1, 1)));
+    }
+
+    @Test
+    public void times() {
+        Assert.assertEquals(new Range(-10, 15), new Range(-2, 3).times(new Range(4, 5)));
+    }
+
+    @Test
+    public void timesOverflows() {
+        long half = Long.MAX_VALUE / 2 + 1;
+        Assert.assertEquals(Range.EVERYTHING,
+                new Range(half, half).times(new Range(2, 2)));
+        Assert.assertEquals(Range.EVERYTHING,
+                new Range(-1, -1).times(new Range(Long.MIN_VALUE, Long.MIN_VALUE)));
+    }
+
+    @Test
+    public void divideByRangeContainingZero() {
+        Assert.assertEquals(Range.EVERYTHING, new Range(10, 20).divide(new Range(0, 0)));
+        Assert.assertEquals(new Range(2, 20), new Range(10, 20).divide(new Range(0, 5)));
+        Assert.assertEquals(new Range(-20, -2), new Range(10, 20).divide(new Range(-5, 0)));
+        Assert.assertEquals(new Range(-20, 20), new Range(10, 20).divide(new Range(-2, 5)));
+    }
+
+    @Test
+    public void divideOverflows() {
+        Assert.assertEquals(Range.EVERYTHING,
+                new Range(Long.MIN_VALUE, 0).divide(new Range(-1, -1)));
+    }
+
+    @Test
+    public void remainderByRangeContainingZero() {
+        Assert.assertEquals(Range.EVERYTHING, new Range(5, 5).remainder(new Range(0, 0)));
+        Assert.assertEquals(new Range(-2, 2), new Range(-7, 7).remainder(new Range(0, 3)));
+        Assert.assertEquals(new Range(0, 3), new Range(10, 20).remainder(new Range(-4, 0)));
+    }
+
+    @Test
+    public void remainderByMinValue() {
+        Assert.assertEquals(new Range(-5, 5),
+                new Range(-5, 5).remainder(new Range(Long.MIN_VALUE, 3)));
+    }
+
+    @Test
+    public void unaryMinusOverflows() {
+        Assert.assertEquals(Range.EVERYTHING, new Range(Long.MIN_VALUE, 0).unaryMinus());
+        Assert.assertEquals(new Range(-3, 2), new Range(-2, 3).unaryMinus());
+    }
+
+    @Test
+    public void widenMovesChangedBoundsToPowersOfTwo() {
+        Assert.assertEquals(new Range(0, 15), new Range(0, 10).widen(new Range(0, 11)));
+        Assert.assertEquals(new Range(-8, 0), new Range(-3, 0).widen(new Range(-5, 0)));
+    }
+
+    @Test
+    public void widenKeepsStableBounds() {
+        Assert.assertEquals(new Range(0, 10), new Range(0, 10).widen(new Range(0, 10)));
+    }
+
+    @Test
+    public void widenReachesFixedPoint() {
+        Range range = new Range(0, 0);
+        int steps = 0;
+        while (!range.isEverything() && steps < 200) {
+            range = range.widen(range.plus(new Range(1, 1)).union(range.minus(new Range(1, 1))));
+            steps++;
+        }
+        Assert.assertTrue(range.isEverything());
+        Assert.assertTrue("widening took " + steps + " steps", steps <= 130);
+    }
+
+    @Test
+    public void castToNarrowerType() {
+        Assert.assertEquals(new Range(Byte.MIN_VALUE, Byte.MAX_VALUE),
+                new Range(0, 300).castTo(TypeKind.BYTE));
+        Assert.assertEquals(new Range(0, 100), new Range(0, 100).castTo(TypeKind.BYTE));
+    }
+
+    @Test
+    public void sizeOfLargeRange() {
+        Assert.assertEquals(Long.MAX_VALUE, Range.EVERYTHING.size());
+        Assert.assertEquals(11, new Range(0, 10).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void hullOfNoValues() {
+        Range.hull(new long[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyRange() {
+        new Range(5, 1);
+    }
+}
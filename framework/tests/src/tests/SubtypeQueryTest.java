@@ -0,0 +1,96 @@
+package tests;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.TypeElement;
+
+import org.checkerframework.framework.type.DefaultTypeHierarchy.SubtypeQuery;
+import org.checkerframework.framework.util.AnnotationBuilder;
+import org.checkerframework.framework.util.LRUCache;
+import org.checkerframework.javacutil.ErrorReporter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import tests.util.AnnoWithStringArg;
+import tests.util.Encrypted;
+import tests.util.TestChecker;
+
+import com.sun.tools.javac.processing.JavacProcessingEnvironment;
+import com.sun.tools.javac.util.Context;
+
+public class SubtypeQueryTest {
+
+    private final ProcessingEnvironment env;
+    private final TypeElement string;
+    private final TypeElement object;
+
+    public SubtypeQueryTest() {
+        env = JavacProcessingEnvironment.instance(new Context());
+        ErrorReporter.setHandler(new TestChecker());
+        string = env.getElementUtils().getTypeElement("java.lang.String");
+        object = env.getElementUtils().getTypeElement("java.lang.Object");
+    }
+
+    private AnnotationMirror encrypted() {
+        return new AnnotationBuilder(env, Encrypted.class).build();
+    }
+
+    private AnnotationMirror withArg(String value) {
+        AnnotationBuilder builder = new AnnotationBuilder(env, AnnoWithStringArg.class);
+        builder.setValue("value", value);
+        return builder.build();
+    }
+
+    private SubtypeQuery query(TypeElement subtype, AnnotationMirror subtypeAnno,
+            TypeElement supertype, AnnotationMirror supertypeAnno) {
+        return new SubtypeQuery(subtype, Collections.singleton(subtypeAnno),
+                supertype, Collections.singleton(supertypeAnno), encrypted());
+    }
+
+    @Test
+    public void sameClassesAndAnnotationsHit() {
+        LRUCache<SubtypeQuery, Boolean> cache = new LRUCache<>("test", 10);
+        cache.put(query(string, encrypted(), object, withArg("a")), Boolean.FALSE);
+
+        // Equal annotations that were built separately.
+        Assert.assertEquals(Boolean.FALSE, cache.get(query(string, encrypted(), object, withArg("a"))));
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(0, cache.getMisses());
+    }
+
+    @Test
+    public void differentAnnotationValuesMiss() {
+        LRUCache<SubtypeQuery, Boolean> cache = new LRUCache<>("test", 10);
+        cache.put(query(string, withArg("a"), object, withArg("a")), Boolean.TRUE);
+
+        Assert.assertNull(cache.get(query(string, withArg("b"), object, withArg("a"))));
+        Assert.assertNull(cache.get(query(string, withArg("a"), object, encrypted())));
+        Assert.assertEquals(0, cache.getHits());
+        Assert.assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void differentClassesMiss() {
+        LRUCache<SubtypeQuery, Boolean> cache = new LRUCache<>("test", 10);
+        cache.put(query(string, encrypted(), object, encrypted()), Boolean.TRUE);
+
+        Assert.assertNull(cache.get(query(object, encrypted(), string, encrypted())));
+        Assert.assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void laterChangesOfTheAnnotationsAreIgnored() {
+        Set<AnnotationMirror> annotations = new HashSet<>();
+        annotations.add(encrypted());
+        SubtypeQuery query = new SubtypeQuery(string, annotations,
+                object, Collections.singleton(encrypted()), encrypted());
+        annotations.clear();
+        annotations.add(withArg("a"));
+
+        Assert.assertEquals(query(string, encrypted(), object, encrypted()), query);
+    }
+}
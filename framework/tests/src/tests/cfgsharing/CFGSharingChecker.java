@@ -0,0 +1,29 @@
+package tests.cfgsharing;
+
+import java.util.LinkedHashSet;
+
+import org.checkerframework.common.basetype.BaseTypeChecker;
+import org.checkerframework.framework.qual.TypeQualifiers;
+import org.checkerframework.framework.qual.Unqualified;
+
+import tests.util.Encrypted;
+import tests.util.PolyEncrypted;
+
+/**
+ * Used to test that the control flow graphs of a class are shared between
+ * a checker and its subcheckers, unless the stub files of a checker change
+ * the graph.  This checker and {@link PlainSubchecker} use no stub files;
+ * {@link TerminatesSubchecker} runs after {@link PlainSubchecker} and
+ * declares a method {@code @TerminatesExecution} in its stub file.
+ */
+@TypeQualifiers({ Encrypted.class, PolyEncrypted.class, Unqualified.class })
+public class CFGSharingChecker extends BaseTypeChecker {
+    @Override
+    protected LinkedHashSet<Class<? extends BaseTypeChecker>> getImmediateSubcheckerClasses() {
+        LinkedHashSet<Class<? extends BaseTypeChecker>> subcheckers = new LinkedHashSet<>();
+        subcheckers.addAll(super.getImmediateSubcheckerClasses());
+        subcheckers.add(PlainSubchecker.class);
+        subcheckers.add(TerminatesSubchecker.class);
+        return subcheckers;
+    }
+}
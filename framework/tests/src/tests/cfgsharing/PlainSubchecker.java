@@ -0,0 +1,13 @@
+package tests.cfgsharing;
+
+import org.checkerframework.common.basetype.BaseTypeChecker;
+import org.checkerframework.framework.qual.TypeQualifiers;
+import org.checkerframework.framework.qual.Unqualified;
+
+import tests.util.Encrypted;
+import tests.util.PolyEncrypted;
+
+/** A subchecker of {@link CFGSharingChecker} without stub files. */
+@TypeQualifiers({ Encrypted.class, PolyEncrypted.class, Unqualified.class })
+public class PlainSubchecker extends BaseTypeChecker {
+}
@@ -0,0 +1,18 @@
+package tests.cfgsharing;
+
+import org.checkerframework.common.basetype.BaseTypeChecker;
+import org.checkerframework.framework.qual.StubFiles;
+import org.checkerframework.framework.qual.TypeQualifiers;
+import org.checkerframework.framework.qual.Unqualified;
+
+import tests.util.Encrypted;
+import tests.util.PolyEncrypted;
+
+/**
+ * A subchecker of {@link CFGSharingChecker} whose stub file declares
+ * {@code Thread.yield()} {@code @TerminatesExecution}.
+ */
+@TypeQualifiers({ Encrypted.class, PolyEncrypted.class, Unqualified.class })
+@StubFiles("tests/cfg-sharing/terminates.astub")
+public class TerminatesSubchecker extends BaseTypeChecker {
+}
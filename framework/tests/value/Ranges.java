@@ -0,0 +1,58 @@
+import org.checkerframework.common.value.qual.*;
+
+class Ranges {
+
+    public void tooManyValues(boolean b) {
+        int x = 0;
+        if (b) x = 1;
+        if (b) x = 2;
+        if (b) x = 3;
+        if (b) x = 4;
+        if (b) x = 5;
+        if (b) x = 6;
+        if (b) x = 7;
+        if (b) x = 8;
+        if (b) x = 9;
+        if (b) x = 10;
+        if (b) x = 11;
+
+        // x has 12 values, which are approximated by a range.
+        @IntRange(from = 0, to = 11) int y = x;
+        @IntRange(from = -5, to = 20) int y2 = x;
+
+        //:: error: (assignment.type.incompatible)
+        @IntRange(from = 0, to = 10) int z = x;
+
+        @IntRange(from = 1, to = 12) int plusOne = x + 1;
+        @IntRange(from = -11, to = 0) int negated = -x;
+        @IntRange(from = 0, to = 22) int doubled = x * 2;
+
+        @BoolVal(true) boolean less = x < 12;
+        @BoolVal(false) boolean greater = x > 11;
+        @BoolVal({ true, false }) boolean unknown = x < 5;
+    }
+
+    public void intValIsRange() {
+        int x = 5;
+        @IntRange(from = 0, to = 20) int y = x;
+
+        //:: error: (assignment.type.incompatible)
+        @IntRange(from = 6, to = 20) int z = x;
+    }
+
+    public void loop(int n) {
+        int i = 0;
+        while (i < n) {
+            i = i + 1;
+        }
+        //:: error: (assignment.type.incompatible)
+        @IntVal(0) int j = i;
+    }
+
+    public void emptyAnnotations() {
+        //:: error: (no.values.given)
+        @IntRange(from = 5, to = 1) int x = 3;
+        //:: error: (no.values.given)
+        @IntVal({}) int y = 3;
+    }
+}
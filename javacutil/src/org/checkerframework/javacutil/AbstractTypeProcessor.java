@@ -111,12 +111,14 @@ public abstract class AbstractTypeProcessor extends AbstractProcessor {
     /**
      * {@inheritDoc}
      *
-     * Register a TaskListener that will get called after FLOW.
+     * Register a TaskListener that will get called after FLOW, and create
+     * the {@link AnnotationCache} of the compilation.
      */
     @Override
     public void init(ProcessingEnvironment env) {
         super.init(env);
         JavacTask.instance(env).addTaskListener(listener);
+        AnnotationCache.instance(env);
         Context ctx = ((JavacProcessingEnvironment) processingEnv).getContext();
         JavaCompiler compiler = JavaCompiler.instance(ctx);
         compiler.shouldStopPolicyIfNoError = CompileState.max(compiler.shouldStopPolicyIfNoError,
@@ -156,6 +158,20 @@ public abstract class AbstractTypeProcessor extends AbstractProcessor {
      */
     public abstract void typeProcess(TypeElement element, TreePath tree);
 
+    /**
+     * Invoked for every class that is fully analyzed. The default
+     * implementation calls {@link #typeProcess(TypeElement, TreePath)}.
+     *
+     * <p>Subclasses may override this method to avoid processing a class,
+     * for example because the result of a previous compilation can be reused.
+     *
+     * @param element       element of the analyzed class
+     * @param tree  the tree path to the element
+     */
+    protected void processAnalyzedClass(TypeElement element, TreePath tree) {
+        typeProcess(element, tree);
+    }
+
     /**
      * A method to be called once all the classes are processed and no error
      * is reported.
@@ -168,6 +184,16 @@ public abstract class AbstractTypeProcessor extends AbstractProcessor {
      */
     public void typeProcessingOver() { }
 
+    /**
+     * A method to be called once all the classes are processed, whether or
+     * not an error is reported.
+     *
+     * <p>Subclasses may override this method to persist state that must be
+     * written even if the compilation fails. If the tool stops type processing
+     * before all classes are processed, this method is not invoked.
+     */
+    public void typeProcessingDone() { }
+
     /**
      * A task listener that invokes the processor whenever a class is fully
      * analyzed.
@@ -202,7 +228,14 @@ public abstract class AbstractTypeProcessor extends AbstractProcessor {
             TypeElement elem = e.getTypeElement();
             TreePath p = Trees.instance(processingEnv).getPath(elem);
 
-            typeProcess(elem, p);
+            // The class must be processed now, on this thread: after this
+            // event javac desugars the trees of the class, and neither the
+            // trees nor javac's symbols and types may be used concurrently.
+            processAnalyzedClass(elem, p);
+
+            if (elements.isEmpty()) {
+                typeProcessingDone();
+            }
 
             if (!hasInvokedTypeProcessingOver && elements.isEmpty() && log.nerrors == 0) {
                 typeProcessingOver();
@@ -0,0 +1,156 @@
+package org.checkerframework.javacutil;
+
+/*>>>
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.checker.interning.qual.Interned;
+*/
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.util.Elements;
+
+import com.sun.tools.javac.processing.JavacProcessingEnvironment;
+import com.sun.tools.javac.util.Context;
+
+/**
+ * The annotations that {@link AnnotationUtils} creates and interns for one
+ * compilation.
+ *
+ * The cache lives in the javac context of the compilation, so it is shared
+ * by all checkers of the compilation and goes away with it. Compilations
+ * that run in the same JVM, one after another or concurrently, each have
+ * their own cache, and the cache can be used by several threads.
+ *
+ * {@link AnnotationUtils} finds the cache of a compilation by its element
+ * utilities; see {@link #forElements(Elements)}. A compilation without a
+ * cache still works, but {@link AnnotationUtils} then creates a new
+ * annotation for every request and does not intern annotations.
+ */
+public final class AnnotationCache {
+
+    /**
+     * The caches of the running compilations, keyed by their element
+     * utilities. The caches are only reachable through their javac context,
+     * so this map does not keep a compilation alive.
+     */
+    private static final Map<Elements, WeakReference<AnnotationCache>> caches
+        = Collections.synchronizedMap(new WeakHashMap<Elements, WeakReference<AnnotationCache>>());
+
+    /**
+     * The caches of compilations that do not run in javac, which have no
+     * context to hold them.
+     */
+    private static final Map<Elements, AnnotationCache> nonJavacCaches
+        = Collections.synchronizedMap(new WeakHashMap<Elements, AnnotationCache>());
+
+    /**
+     * The caches of all running compilations, so that
+     * {@link AnnotationUtils} can find the cache that an annotation belongs
+     * to without the element utilities of its compilation. There are only
+     * a few of them, and reading the list does not lock.
+     */
+    private static final List<WeakReference<AnnotationCache>> allCaches
+        = new CopyOnWriteArrayList<WeakReference<AnnotationCache>>();
+
+    /** Annotations created by {@link AnnotationUtils#fromName}, keyed by name. */
+    final ConcurrentMap<String, AnnotationMirror> fromNames
+        = new ConcurrentHashMap<String, AnnotationMirror>();
+
+    /**
+     * The canonical annotations, keyed by their name and the values of
+     * their elements, including defaults; see {@link AnnotationUtils#intern}.
+     */
+    final ConcurrentMap<String, AnnotationMirror> interned
+        = new ConcurrentHashMap<String, AnnotationMirror>();
+
+    /**
+     * The canonical annotation for each annotation name, among the
+     * annotations that do not set any of their elements explicitly.  This
+     * avoids computing the key for the most common annotations.
+     */
+    final ConcurrentMap</*@Interned*/ String, AnnotationMirror> internedWithoutValues
+        = new ConcurrentHashMap</*@Interned*/ String, AnnotationMirror>();
+
+    /**
+     * The canonical annotations of the compilation and their names, which
+     * are interned Strings; see {@link AnnotationUtils#intern}.  No
+     * annotation type overrides {@code equals} and {@code hashCode}, so
+     * the annotations are compared by reference.
+     */
+    final ConcurrentMap<AnnotationMirror, /*@Interned*/ String> canonical
+        = new ConcurrentHashMap<AnnotationMirror, /*@Interned*/ String>();
+
+    private AnnotationCache() {
+        for (WeakReference<AnnotationCache> ref : allCaches) {
+            if (ref.get() == null) {
+                allCaches.remove(ref);
+            }
+        }
+        allCaches.add(new WeakReference<AnnotationCache>(this));
+    }
+
+    /**
+     * Returns the cache of the compilation of {@code env}, creating it if
+     * necessary. Checkers call this method before they use
+     * {@link AnnotationUtils}.
+     */
+    public static AnnotationCache instance(ProcessingEnvironment env) {
+        Elements elements = env.getElementUtils();
+        if (!(env instanceof JavacProcessingEnvironment)) {
+            synchronized (nonJavacCaches) {
+                AnnotationCache cache = nonJavacCaches.get(elements);
+                if (cache == null) {
+                    cache = new AnnotationCache();
+                    nonJavacCaches.put(elements, cache);
+                }
+                return cache;
+            }
+        }
+
+        Context context = ((JavacProcessingEnvironment) env).getContext();
+        synchronized (context) {
+            AnnotationCache cache = context.get(AnnotationCache.class);
+            if (cache == null) {
+                cache = new AnnotationCache();
+                context.put(AnnotationCache.class, cache);
+            }
+            caches.put(elements, new WeakReference<AnnotationCache>(cache));
+            return cache;
+        }
+    }
+
+    /**
+     * Returns the cache of the compilation whose element utilities are
+     * {@code elements}, or null if the compilation has none.
+     */
+    static /*@Nullable*/ AnnotationCache forElements(Elements elements) {
+        WeakReference<AnnotationCache> ref = caches.get(elements);
+        if (ref != null) {
+            return ref.get();
+        }
+        return nonJavacCaches.get(elements);
+    }
+
+    /**
+     * Returns the cache of the compilation in which {@code anno} is
+     * canonical, or null if {@code anno} is not canonical.
+     */
+    static /*@Nullable*/ AnnotationCache ofCanonical(AnnotationMirror anno) {
+        for (WeakReference<AnnotationCache> ref : allCaches) {
+            AnnotationCache cache = ref.get();
+            if (cache != null && cache.canonical.containsKey(anno)) {
+                return cache;
+            }
+        }
+        return null;
+    }
+}
@@ -21,6 +21,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.AnnotationValue;
@@ -44,29 +45,10 @@ public class AnnotationUtils {
     // Class cannot be instantiated.
     private AnnotationUtils() { throw new AssertionError("Class AnnotationUtils cannot be instantiated."); }
 
-    // TODO: hack to clear out static state.
-    // {@link org.checkerframework.qualframework.util.QualifierContext} should
-    // handle instantiation of utility classes.
-    public static void clear() {
-        annotationsFromNames.clear();
-        annotationMirrorNames.clear();
-        annotationClassNames.clear();
-    }
-
-    // **********************************************************************
-    // Factory Methods to create instances of AnnotationMirror
-    // **********************************************************************
-
-    /** Caching for annotation creation. */
-    private static final Map<CharSequence, AnnotationMirror> annotationsFromNames
-        = new HashMap<CharSequence, AnnotationMirror>();
-
-    /**
-     * Cache names of AnnotationMirrors for faster access.  Values in
-     * the map are interned Strings, so they can be compared with ==.
-     */
-    private static final Map<AnnotationMirror, /*@Interned*/ String> annotationMirrorNames
-        = new HashMap<AnnotationMirror, /*@Interned*/ String>();
+    // The annotations that are created and interned for a compilation, and
+    // the names of the canonical annotations, are cached in the
+    // {@link AnnotationCache} of the compilation.  The cache below does not
+    // depend on a compilation; it can be used by several threads.
 
     /**
      * Cache names of classes representing AnnotationMirrors for
@@ -74,7 +56,11 @@ public class AnnotationUtils {
      * can be compared with ==.
      */
     private static final Map<Class<? extends Annotation>, /*@Interned*/ String> annotationClassNames
-        = new HashMap<Class<? extends Annotation>, /*@Interned*/ String>();
+        = new ConcurrentHashMap<Class<? extends Annotation>, /*@Interned*/ String>();
+
+    // **********************************************************************
+    // Factory Methods to create instances of AnnotationMirror
+    // **********************************************************************
 
     /**
      * Creates an {@link AnnotationMirror} given by a particular
@@ -86,8 +72,13 @@ public class AnnotationUtils {
      * @return an {@link AnnotationMirror} of type {@code} name
      */
     public static AnnotationMirror fromName(Elements elements, CharSequence name) {
-        if (annotationsFromNames.containsKey(name))
-            return annotationsFromNames.get(name);
+        /*@Nullable*/ AnnotationCache cache = AnnotationCache.forElements(elements);
+        if (cache != null) {
+            AnnotationMirror cached = cache.fromNames.get(name.toString());
+            if (cached != null) {
+                return cached;
+            }
+        }
         final DeclaredType annoType = typeFromName(elements, name);
         if (annoType == null)
             return null;
@@ -95,7 +86,7 @@ public class AnnotationUtils {
             ErrorReporter.errorAbort(annoType + " is not an annotation");
             return null; // dead code
         }
-        AnnotationMirror result = new AnnotationMirror() {
+        AnnotationMirror result = intern(elements, new AnnotationMirror() {
             String toString = "@" + annoType;
 
             @Override
@@ -112,8 +103,13 @@ public class AnnotationUtils {
             public String toString() {
                 return toString;
             }
-        };
-        annotationsFromNames.put(name, result);
+        });
+        if (cache != null) {
+            AnnotationMirror previous = cache.fromNames.putIfAbsent(name.toString(), result);
+            if (previous != null) {
+                return previous;
+            }
+        }
         return result;
     }
 
@@ -146,6 +142,64 @@ public class AnnotationUtils {
     }
 
 
+    // **********************************************************************
+    // Interning of AnnotationMirrors
+    // **********************************************************************
+
+    /**
+     * Returns the canonical instance of an annotation: the first annotation
+     * passed to this method that is the same as {@code anno} according to
+     * {@link #areSame(AnnotationMirror, AnnotationMirror)}.
+     *
+     * Two canonical annotations of the same compilation are the same if and
+     * only if they are identical, so
+     * {@link #areSame(AnnotationMirror, AnnotationMirror)} compares them by
+     * reference.  Canonical annotations of different compilations are
+     * compared by their values.  Annotations created by
+     * {@link #fromName(Elements, CharSequence)} and by the
+     * AnnotationBuilder of the framework are canonical, as are the
+     * qualifiers that are added to annotated types.
+     *
+     * Annotations are interned per compilation, in its
+     * {@link AnnotationCache}; if the compilation has none, this method
+     * returns {@code anno}.
+     *
+     * @param elements the element utilities of the compilation
+     * @param anno an annotation
+     * @return the canonical annotation that is the same as {@code anno}
+     */
+    public static AnnotationMirror intern(Elements elements, AnnotationMirror anno) {
+        /*@Nullable*/ AnnotationCache cache = AnnotationCache.forElements(elements);
+        if (cache == null || cache.canonical.containsKey(anno)) {
+            return anno;
+        }
+        final /*@Interned*/ String name = annotationName(anno);
+        final boolean withoutValues = anno.getElementValues().isEmpty();
+        if (withoutValues) {
+            AnnotationMirror canonical = cache.internedWithoutValues.get(name);
+            if (canonical != null) {
+                return canonical;
+            }
+        }
+
+        // The same key as the comparison in areSame.
+        final String key = name + getElementValuesWithDefaults(anno).toString();
+        AnnotationMirror canonical = cache.interned.get(key);
+        if (canonical == null) {
+            canonical = cache.interned.putIfAbsent(key, anno);
+            if (canonical == null) {
+                // Until it is marked, the new canonical annotation is
+                // compared like any other annotation.
+                cache.canonical.put(anno, name);
+                canonical = anno;
+            }
+        }
+        if (withoutValues) {
+            cache.internedWithoutValues.putIfAbsent(name, canonical);
+        }
+        return canonical;
+    }
+
     // **********************************************************************
     // Helper methods to handle annotations.  mainly workaround
     // AnnotationMirror.equals undesired property
@@ -153,17 +207,23 @@ public class AnnotationUtils {
     // **********************************************************************
 
     /**
-     * @return the fully-qualified name of an annotation as a Name
+     * The names of canonical annotations are cached in their
+     * {@link AnnotationCache}; see {@link #intern}.
+     *
+     * @return the fully-qualified name of an annotation as an interned
+     *         String, so that it can be compared with ==
      */
     public static final /*@Interned*/ String annotationName(AnnotationMirror annotation) {
-        if (annotationMirrorNames.containsKey(annotation))
-            return annotationMirrorNames.get(annotation);
+        /*@Nullable*/ AnnotationCache cache = AnnotationCache.ofCanonical(annotation);
+        if (cache != null) {
+            /*@Interned*/ String cached = cache.canonical.get(annotation);
+            if (cached != null)
+                return cached;
+        }
 
         final DeclaredType annoType = annotation.getAnnotationType();
         final TypeElement elm = (TypeElement) annoType.asElement();
-        /*@Interned*/ String name = elm.getQualifiedName().toString().intern();
-        annotationMirrorNames.put(annotation, name);
-        return name;
+        return elm.getQualifiedName().toString().intern();
     }
 
     /**
@@ -178,7 +238,16 @@ public class AnnotationUtils {
      * @return true iff a1 and a2 are the same annotation
      */
     public static boolean areSame(/*@Nullable*/ AnnotationMirror a1, /*@Nullable*/ AnnotationMirror a2) {
+        if (a1 == a2) {
+            return true;
+        }
         if (a1 != null && a2 != null) {
+            // Distinct canonical annotations of one compilation are never
+            // the same; see intern.
+            /*@Nullable*/ AnnotationCache cache = AnnotationCache.ofCanonical(a1);
+            if (cache != null && cache.canonical.containsKey(a2)) {
+                return false;
+            }
             if (annotationName(a1) != annotationName(a2)) {
                 return false;
             }
@@ -218,10 +287,8 @@ public class AnnotationUtils {
      */
     public static boolean areSameByClass(AnnotationMirror am,
             Class<? extends Annotation> anno) {
-        /*@Interned*/ String canonicalName;
-        if (annotationClassNames.containsKey(anno)) {
-            canonicalName = annotationClassNames.get(anno).intern();
-        } else {
+        /*@Interned*/ String canonicalName = annotationClassNames.get(anno);
+        if (canonicalName == null) {
             canonicalName = anno.getCanonicalName().intern();
             annotationClassNames.put(anno, canonicalName);
         }
@@ -309,6 +376,9 @@ public class AnnotationUtils {
     = new Comparator<AnnotationMirror>() {
         @Override
         public int compare(AnnotationMirror a1, AnnotationMirror a2) {
+            if (a1 == a2) {
+                return 0;
+            }
             String n1 = a1.toString();
             String n2 = a2.toString();
 
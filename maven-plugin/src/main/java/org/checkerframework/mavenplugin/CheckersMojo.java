@@ -11,6 +11,7 @@ import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.toolchain.ToolchainManager;
 
+import org.codehaus.plexus.util.FileUtils;
 import org.codehaus.plexus.util.StringUtils;
 import org.codehaus.plexus.util.cli.Commandline;
 
@@ -109,6 +110,37 @@ public class CheckersMojo extends AbstractMojo {
      */
     private boolean useJavacOutput;
 
+    /**
+     * If true, run the checkers inside the Maven JVM through javax.tools instead of forking a
+     * java process.  The executable, javaParams, and useJavacOutput parameters are then ignored.
+     * Only a Java 8 JVM can run the checkers in process; on other JVMs a java process is forked.
+     * @parameter expression="${checkers.inProcess}" default-value="false"
+     */
+    private boolean inProcess;
+
+    /**
+     * If true, only check the sources that changed since the last successful check, together with the
+     * sources that depend on them.  The last successful check is recorded in
+     * ${project.build.directory}/checker-framework.
+     * @parameter expression="${checkers.incremental}" default-value="false"
+     */
+    private boolean incremental;
+
+    /**
+     * The largest number of compilers that check the sources concurrently, each in a JVM of its own and on
+     * a shard of the sources that are in the same packages.  The sources are only split when every shard
+     * gets at least shardMinFiles of them.  Ignored if inProcess is set.
+     * @parameter expression="${checkers.shards}" default-value="1"
+     */
+    private int shards;
+
+    /**
+     * The smallest number of sources in a shard; see shards.  If not set, the default of the checker
+     * command line applies.
+     * @parameter expression="${checkers.shardMinFiles}"
+     */
+    private Integer shardMinFiles;
+
     /**
      * DEPENDENCIES
      */
@@ -120,6 +152,13 @@ public class CheckersMojo extends AbstractMojo {
       */
      private String outputDirectory;
 
+    /**
+      * @parameter expression="${project.build.directory}"
+      * @required
+      * @readonly
+      */
+     private String buildDirectory;
+
     /**
      * The source directories containing the sources to be compiled.
      *
@@ -204,9 +243,19 @@ public class CheckersMojo extends AbstractMojo {
      */
     private File jdkJar;
 
+    /**
+     * The file, relative to the build directory, that records the last successful check for the
+     * incremental mode
+     */
+    private static final String CHECKED_SOURCES_FILE = "checker-framework" + File.separator + "checked-sources";
+
+    /** The prefix of the javac option that names the stub files of the checkers */
+    private static final String STUBS_OPTION = "-Astubs=";
+
     /**
      * Main control method for the Checker Maven Plugin.  Scans for sources, resolves classpath, and passes these
-     * arguments to the the checker compiler which is run on the command line.
+     * arguments to the the checker compiler which is run on the command line, or in process if inProcess is set.
+     * In incremental mode, only the stale sources are passed.
      * @throws MojoExecutionException
      * @throws MojoFailureException
      */
@@ -231,15 +280,62 @@ public class CheckersMojo extends AbstractMojo {
             log.info("Running processor(s): " + processor);
         }
 
-        final List<String> sources = PathUtils.scanForSources(compileSourceRoots, includes, excludes);
+        final List<String> allSources = PathUtils.scanForSources(compileSourceRoots, includes, excludes);
 
-        if (sources.size() == 0) {
+        if (allSources.size() == 0) {
             log.info("No source files found.");
             return;
         }
 
+        StaleSourceTracker staleSourceTracker = null;
+        final List<String> sources;
+        if (incremental) {
+            try {
+                staleSourceTracker = new StaleSourceTracker(new File(buildDirectory, CHECKED_SOURCES_FILE),
+                        describeConfiguration());
+                sources = staleSourceTracker.getStaleSources(allSources);
+            } catch (IOException e) {
+                throw new MojoExecutionException("Exception trying to find the stale sources!", e);
+            }
+
+            if (sources.size() == 0) {
+                log.info("All sources are up to date.");
+                return;
+            }
+            log.info("Checking " + sources.size() + " of " + allSources.size() + " source files.");
+        } else {
+            sources = allSources;
+        }
+
         locateArtifacts();
 
+        final boolean success;
+        if (inProcess && !InProcessCompiler.isSupported()) {
+            log.warn("The checkers can only run in process on a Java 8 JVM; forking a java process instead.");
+            success = checkInForkedProcess(processor, sources);
+        } else if (inProcess) {
+            success = checkInProcess(processor, sources);
+        } else {
+            success = checkInForkedProcess(processor, sources);
+        }
+
+        if (success && staleSourceTracker != null) {
+            try {
+                staleSourceTracker.recordSuccess(allSources, sources);
+            } catch (IOException e) {
+                throw new MojoExecutionException("Exception trying to record the checked sources!", e);
+            }
+        }
+    }
+
+    /**
+     * Runs the checkers on the given sources in a new java process.
+     * @return true if the checkers reported no errors
+     */
+    private boolean checkInForkedProcess(final String processor, final List<String> sources)
+            throws MojoExecutionException, MojoFailureException {
+        final Log log = getLog();
+
         final Commandline cl = new Commandline();
 
         if (StringUtils.isEmpty(executable)) {
@@ -250,9 +346,7 @@ public class CheckersMojo extends AbstractMojo {
         cl.setExecutable(executablePath);
 
         //TODO: SEEMS THAT WHEN WE ARE USING @ ARGS THE CLASSPATH FROM THE JAR IS OVERRIDDEN - FIX THIS
-        final String classpath =
-                checkerJar.getAbsolutePath() + File.pathSeparator
-                + StringUtils.join(classpathElements.iterator(), File.pathSeparator);
+        final String classpath = getClasspath();
 
         File srcFofn = null;
         File cpFofn = null;
@@ -269,12 +363,7 @@ public class CheckersMojo extends AbstractMojo {
             throw new MojoExecutionException("Exception trying to write command file fofn!", e);
         }
 
-        final File outputDirFile = new File(outputDirectory);
-        if (!procOnly && !outputDirFile.exists()) {
-            if (!outputDirFile.mkdirs()) {
-                throw new MojoExecutionException("Could not create output directory: " + outputDirFile.getAbsolutePath());
-            }
-        }
+        createOutputDirectory();
 
         final Map<PluginUtil.CheckerProp, Object> props = makeProps();
 
@@ -287,9 +376,140 @@ public class CheckersMojo extends AbstractMojo {
         // And executing
         cl.addArguments(arguments.toArray(new String[arguments.size()]));
 
-        createCommandLineExecutor().executeCommandLine(cl, log, failOnError);
+        final boolean success = createCommandLineExecutor().executeCommandLine(cl, log, failOnError);
         srcFofn.delete();
         cpFofn.delete();
+        return success;
+    }
+
+    /**
+     * Runs the checkers on the given sources in this JVM.
+     * @return true if the checkers reported no errors
+     */
+    private boolean checkInProcess(final String processor, final List<String> sources)
+            throws MojoExecutionException, MojoFailureException {
+        final Log log = getLog();
+
+        if (!StringUtils.isEmpty(javaParams)) {
+            log.warn("javaParams are ignored when the checkers run in process: " + javaParams);
+        }
+        if (shards > 1) {
+            log.warn("shards are ignored when the checkers run in process: " + shards);
+        }
+
+        createOutputDirectory();
+
+        final List<String> options = new ArrayList<String>();
+        if (procOnly) {
+            options.add("-proc:only");
+        } else {
+            options.add("-d");
+            options.add(outputDirectory);
+        }
+        options.add("-Xbootclasspath/p:" + jdkJar.getAbsolutePath());
+        options.add("-classpath");
+        options.add(getClasspath());
+        if (processor != null) {
+            options.add("-processor");
+            options.add(processor);
+        }
+        options.add("-sourcepath");
+        options.add(StringUtils.join(compileSourceRoots.iterator(), File.pathSeparator));
+        if (!StringUtils.isEmpty(javacParams)) {
+            options.addAll(Arrays.asList(javacParams.split(" ")));
+        }
+
+        return new InProcessCompiler(javacJar, checkerJar).compile(options, sources, log, failOnError);
+    }
+
+    private String getClasspath() {
+        return checkerJar.getAbsolutePath() + File.pathSeparator
+                + StringUtils.join(classpathElements.iterator(), File.pathSeparator);
+    }
+
+    private void createOutputDirectory() throws MojoExecutionException {
+        final File outputDirFile = new File(outputDirectory);
+        if (!procOnly && !outputDirFile.exists()) {
+            if (!outputDirFile.mkdirs()) {
+                throw new MojoExecutionException("Could not create output directory: " + outputDirFile.getAbsolutePath());
+            }
+        }
+    }
+
+    /**
+     * Describes everything besides the sources that affects the result of a check, for the incremental mode.
+     * The classpath elements are described with the modification times and sizes of all their files, and
+     * the stub files given with -Astubs with their contents, so that a changed dependency or stub file
+     * makes every source stale.  The build outputs of this module, such as outputDirectory, are left out:
+     * they are rewritten whenever a source is compiled, and a changed source is already stale.
+     */
+    private String describeConfiguration() throws IOException {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(checkerFrameworkVersion).append('\n');
+        sb.append(processors).append('\n');
+        sb.append(procOnly).append('\n');
+        sb.append(javaParams).append('\n');
+        sb.append(javacParams).append('\n');
+        sb.append(compileSourceRoots).append('\n');
+        final File buildDir = new File(buildDirectory).getCanonicalFile();
+        final File outputDir = new File(outputDirectory).getCanonicalFile();
+        for (final Object element : classpathElements) {
+            final File file = new File(element.toString()).getCanonicalFile();
+            if (!isWithin(file, buildDir) && !isWithin(file, outputDir)) {
+                describeFiles(file, false, sb);
+            }
+        }
+        for (final String stub : getStubs()) {
+            describeFiles(new File(stub), true, sb);
+        }
+        return sb.toString();
+    }
+
+    /** @return true if file is dir or is in dir; both must be canonical */
+    private static boolean isWithin(final File file, final File dir) {
+        for (File f = file; f != null; f = f.getParentFile()) {
+            if (f.equals(dir)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** @return the stub files and directories given with -Astubs in javacParams */
+    private List<String> getStubs() {
+        final List<String> stubs = new ArrayList<String>();
+        if (!StringUtils.isEmpty(javacParams)) {
+            for (final String param : javacParams.split(" ")) {
+                if (param.startsWith(STUBS_OPTION)) {
+                    stubs.addAll(Arrays.asList(param.substring(STUBS_OPTION.length()).split(File.pathSeparator)));
+                }
+            }
+        }
+        return stubs;
+    }
+
+    /**
+     * Appends the path, modification time and size of file to sb, or its contents if withContents is set;
+     * for a directory, the same for every file in it, recursively, in a deterministic order.
+     */
+    private static void describeFiles(final File file, final boolean withContents, final StringBuilder sb)
+            throws IOException {
+        sb.append(file.getAbsolutePath()).append(' ');
+        if (file.isDirectory()) {
+            sb.append("dir\n");
+            final File[] children = file.listFiles();
+            if (children != null) {
+                Arrays.sort(children);
+                for (final File child : children) {
+                    describeFiles(child, withContents, sb);
+                }
+            }
+        } else if (withContents && file.isFile()) {
+            sb.append(file.length()).append('\n');
+            sb.append(FileUtils.fileRead(file)).append('\n');
+        } else {
+            sb.append(file.lastModified()).append(' ').append(file.length()).append('\n');
+        }
     }
 
     /**
@@ -304,6 +524,16 @@ public class CheckersMojo extends AbstractMojo {
         miscOptions.add("-sourcepath");
         miscOptions.add(sourcePath);
 
+        // CheckerMain splits the sources into shards; the copy of PluginUtil in this plugin predates these options
+        if (shards > 1) {
+            miscOptions.add("-shards");
+            miscOptions.add(Integer.toString(shards));
+            if (shardMinFiles != null) {
+                miscOptions.add("-shardMinFiles");
+                miscOptions.add(shardMinFiles.toString());
+            }
+        }
+
         // Optionally adding user-specified java parameters
         if (!StringUtils.isEmpty(javaParams)) {
             miscOptions.addAll(PluginUtil.toJavaOpts(Arrays.asList(javaParams.split(" "))));
@@ -19,9 +19,10 @@ public interface CommandLineExceutor {
      * @param log Log to report to
      * @param failOnError If true, any errors found while executing cl will cause the Maven process to halt,
      *                    if false, errors will only be reported but the Maven process will continue
+     * @return true if the checkers reported no errors
      * @throws MojoExecutionException Thrown if there is any exception in the attempt to run the command
      * @throws MojoFailureException Thrown if the executed CommandLine reports errors and failOnError = true
      */
-    public void executeCommandLine(final Commandline cl, final Log log, final boolean failOnError)
+    public boolean executeCommandLine(final Commandline cl, final Log log, final boolean failOnError)
             throws MojoExecutionException, MojoFailureException;
 }
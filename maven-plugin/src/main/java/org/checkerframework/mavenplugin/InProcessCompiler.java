@@ -0,0 +1,151 @@
+package org.checkerframework.mavenplugin;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.compiler.CompilerError;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticListener;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+
+/**
+ * Runs the Checker Framework inside the Maven JVM through the javax.tools API, instead of forking a
+ * java process.  The diagnostics of the compiler are collected by a DiagnosticListener, so there is no
+ * javac output to parse; they are reported in the same style as the {@link MavenIOExecutor}.
+ *
+ * The compiler is the JSR 308 compiler from the compiler jar, loaded together with the Checker Framework
+ * jar in a class loader of their own, so that neither the javac of the JDK nor the classes of Maven get
+ * in their way.  The javax.tools, javax.lang.model and javax.annotation.processing APIs are shared with
+ * the Maven JVM, because the Maven JVM talks to the compiler through them; they only match the compiler
+ * jar on a Java 8 JVM (see {@link #isSupported()}).  The forked mode puts the compiler jar on the boot
+ * class path instead.
+ */
+public class InProcessCompiler {
+    /** The class of the JSR 308 compiler that implements JavaCompiler */
+    private static final String JAVAC_TOOL_CLASS = "com.sun.tools.javac.api.JavacTool";
+
+    private final File javacJar;
+    private final File checkerJar;
+
+    public InProcessCompiler(final File javacJar, final File checkerJar) {
+        this.javacJar = javacJar;
+        this.checkerJar = checkerJar;
+    }
+
+    /**
+     * @return true if the JVM can run the compiler in process: the language model of the JDK of a Java 7
+     * JVM lacks the type annotations of the compiler, and from Java 9 on the JDK defines its own javac
+     * modules
+     */
+    public static boolean isSupported() {
+        return "1.8".equals(System.getProperty("java.specification.version"));
+    }
+
+    /**
+     * Compiles the given sources with the given javac options and reports the diagnostics to log.
+     * @param options The options of the compiler, such as -processor and -classpath
+     * @param sources The paths of the source files to check
+     * @param log Log to report to
+     * @param failOnError If true, any errors found while checking cause the Maven process to halt,
+     *                    if false, errors will only be reported but the Maven process will continue
+     * @return true if the checkers reported no errors
+     * @throws MojoExecutionException Thrown if the compiler cannot be loaded or run
+     * @throws MojoFailureException Thrown if the checkers report errors and failOnError = true
+     */
+    public boolean compile(final List<String> options, final List<String> sources, final Log log,
+                           final boolean failOnError) throws MojoExecutionException, MojoFailureException {
+        log.debug("compiler options: " + options);
+
+        final List<CompilerError> messages = new ArrayList<CompilerError>();
+        final DiagnosticListener<JavaFileObject> listener = new DiagnosticListener<JavaFileObject>() {
+            public void report(final Diagnostic<? extends JavaFileObject> diagnostic) {
+                messages.add(toCompilerError(diagnostic));
+            }
+        };
+
+        final ClassLoader oldContextLoader = Thread.currentThread().getContextClassLoader();
+        final URLClassLoader loader = createClassLoader();
+        final Boolean success;
+        try {
+            // The compiler finds the processors through the context class loader
+            Thread.currentThread().setContextClassLoader(loader);
+
+            final JavaCompiler compiler = loadCompiler(loader);
+            final StandardJavaFileManager fileManager = compiler.getStandardFileManager(listener, null, null);
+            try {
+                final Iterable<? extends JavaFileObject> units =
+                        fileManager.getJavaFileObjectsFromFiles(PluginUtil.toFiles(sources));
+                final StringWriter out = new StringWriter();
+                success = compiler.getTask(out, fileManager, listener, options, null, units).call();
+                if (out.getBuffer().length() > 0) {
+                    log.info(out.toString());
+                }
+            } finally {
+                fileManager.close();
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to run the Checker Framework in process.", e);
+        } catch (RuntimeException e) {
+            throw new MojoExecutionException("Unable to run the Checker Framework in process.", e);
+        } finally {
+            Thread.currentThread().setContextClassLoader(oldContextLoader);
+            try {
+                // Release the jar files, which a long-running Maven or IDE process would otherwise keep open
+                loader.close();
+            } catch (IOException e) {
+                log.debug("Unable to close the class loader of the compiler: " + e);
+            }
+        }
+
+        // Sanity check - if the compilation failed, there should be some messages
+        if (!success && messages.isEmpty()) {
+            throw new MojoExecutionException("The compilation failed, but no messages were reported.");
+        }
+
+        return MavenIOExecutor.reportMessages(messages, log, failOnError) && success;
+    }
+
+    private URLClassLoader createClassLoader() throws MojoExecutionException {
+        try {
+            final URL[] urls = { javacJar.toURI().toURL(), checkerJar.toURI().toURL() };
+            // No parent other than the bootstrap class loader, which provides javax.tools
+            return new URLClassLoader(urls, null);
+        } catch (MalformedURLException e) {
+            throw new MojoExecutionException("Unable to locate the compiler jar: " + javacJar, e);
+        }
+    }
+
+    private static JavaCompiler loadCompiler(final ClassLoader loader) throws MojoExecutionException {
+        try {
+            return (JavaCompiler) loader.loadClass(JAVAC_TOOL_CLASS).getMethod("create").invoke(null);
+        } catch (Exception e) {
+            throw new MojoExecutionException("Unable to load the JSR 308 compiler class " + JAVAC_TOOL_CLASS, e);
+        }
+    }
+
+    private static CompilerError toCompilerError(final Diagnostic<? extends JavaFileObject> diagnostic) {
+        final boolean isError = diagnostic.getKind() == Diagnostic.Kind.ERROR;
+        final String message = diagnostic.getMessage(Locale.getDefault());
+        if (diagnostic.getSource() == null) {
+            return new CompilerError(message, isError);
+        }
+
+        final String file = new File(diagnostic.getSource().toUri()).getPath();
+        final int line = (int) diagnostic.getLineNumber();
+        final int column = (int) diagnostic.getColumnNumber();
+        return new CompilerError(file, isError, line, column, line, column, message);
+    }
+}
@@ -27,7 +27,7 @@ public class JavacIOExecutor implements CommandLineExceutor {
     /**
      * {@inheritDoc}
      */
-    public void executeCommandLine(final Commandline cl, final Log log, final boolean failOnError)
+    public boolean executeCommandLine(final Commandline cl, final Log log, final boolean failOnError)
             throws MojoExecutionException, MojoFailureException {
         CommandLineUtils.StringStreamConsumer out = new CommandLineUtils.StringStreamConsumer();
 
@@ -61,6 +61,7 @@ public class JavacIOExecutor implements CommandLineExceutor {
                 log.warn(javacOutput);
             }
         }
+        return exitCode == 0;
     }
 
 }
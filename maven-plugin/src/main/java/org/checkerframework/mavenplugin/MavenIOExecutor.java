@@ -27,7 +27,7 @@ public class MavenIOExecutor implements CommandLineExceutor {
     /**
      * {@inheritDoc}
      */
-    public void executeCommandLine(final Commandline cl, final Log log, final boolean failOnError) throws MojoExecutionException, MojoFailureException {
+    public boolean executeCommandLine(final Commandline cl, final Log log, final boolean failOnError) throws MojoExecutionException, MojoFailureException {
         CommandLineUtils.StringStreamConsumer out = new CommandLineUtils.StringStreamConsumer();
         CommandLineUtils.StringStreamConsumer err = new CommandLineUtils.StringStreamConsumer();
 
@@ -57,6 +57,20 @@ public class MavenIOExecutor implements CommandLineExceutor {
                     " command line: " + Arrays.toString(cl.getCommandline()));
         }
 
+        return reportMessages(messages, log, failOnError);
+    }
+
+    /**
+     * Report the messages of the compiler in the style of the maven-compiler-plugin
+     * @param messages The messages to report
+     * @param log The log to which the messages are printed
+     * @param failOnError If true and there are errors, a MojoFailureException is thrown
+     * @return true if there are no errors among the messages
+     * @throws MojoFailureException Thrown if there are errors and failOnError = true
+     */
+    static boolean reportMessages(final List<CompilerError> messages, final Log log, final boolean failOnError)
+            throws MojoFailureException {
+        boolean hasErrors = false;
         if (messages.isEmpty()) {
             log.info("No errors found by the processor(s).");
         } else {
@@ -83,9 +97,11 @@ public class MavenIOExecutor implements CommandLineExceutor {
                 log.info("Run with debug logging in order to view the compiler command line");
                 for (final CompilerError compilerError : messages) {
                     log.warn(compilerError.toString());
+                    hasErrors |= compilerError.isError();
                 }
             }
         }
+        return !hasErrors;
     }
 
     /**
@@ -0,0 +1,247 @@
+package org.checkerframework.mavenplugin;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * Keeps track of the sources that the checkers accepted in the last successful check, so that a later check
+ * only needs to check the sources that changed since then, together with the sources that depend on them.
+ *
+ * The state is a file that records the configuration of the check and the modification time of every source
+ * that was checked.  If the configuration changes, every source is stale.
+ *
+ * Dependencies are approximated textually: a source depends on another if it contains the name of the
+ * other source's file (its top-level class) as an identifier.  This is conservative for the usual
+ * one-class-per-file layout; the dependents are followed transitively.  A package-info.java file can
+ * change the defaults of its whole package, so if it changes, every source in its directory is stale.
+ */
+public class StaleSourceTracker {
+    /** Prefix of the line of the state file that records the configuration */
+    private static final String CONFIGURATION_PREFIX = "#";
+
+    /** The name of the file that declares the annotations of a package */
+    private static final String PACKAGE_INFO = "package-info.java";
+
+    private final File stateFile;
+    private final String configurationDigest;
+
+    /** The modification time of each source in the last successful check, by absolute path */
+    private final Map<String, Long> checkedSources = new HashMap<String, Long>();
+
+    /**
+     * @param stateFile The file that records the last successful check
+     * @param configuration A description of everything besides the sources that affects the result of the
+     *                      check, such as the checkers, their version, and the classpath
+     */
+    public StaleSourceTracker(final File stateFile, final String configuration) throws IOException {
+        this.stateFile = stateFile;
+        this.configurationDigest = digest(configuration);
+        readState();
+    }
+
+    /**
+     * Returns the sources that have to be checked: the sources that are new or changed since the last
+     * successful check, and the sources that depend on them or on deleted sources.
+     * @param sources The absolute paths of all the sources
+     * @return The stale sources, in the order of sources
+     */
+    public List<String> getStaleSources(final List<String> sources) throws IOException {
+        final Set<String> stale = new LinkedHashSet<String>();
+        final Set<String> changedNames = new HashSet<String>();
+        final Set<String> changedPackages = new HashSet<String>();
+        for (final String source : sources) {
+            final Long lastChecked = checkedSources.get(source);
+            if (lastChecked == null || lastChecked.longValue() != new File(source).lastModified()) {
+                stale.add(source);
+                changedNames.add(typeName(source));
+                addIfPackageInfo(source, changedPackages);
+            }
+        }
+
+        final Set<String> current = new HashSet<String>(sources);
+        for (final String checked : checkedSources.keySet()) {
+            if (!current.contains(checked)) {
+                changedNames.add(typeName(checked));
+                addIfPackageInfo(checked, changedPackages);
+            }
+        }
+
+        if (!changedPackages.isEmpty()) {
+            for (final String source : sources) {
+                if (changedPackages.contains(new File(source).getParent()) && stale.add(source)) {
+                    changedNames.add(typeName(source));
+                }
+            }
+        }
+
+        if (!changedNames.isEmpty()) {
+            addDependents(sources, stale, changedNames);
+        }
+
+        final List<String> result = new ArrayList<String>();
+        for (final String source : sources) {
+            if (stale.contains(source)) {
+                result.add(source);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Records a successful check of the given sources.
+     * @param sources The absolute paths of all the sources; other recorded sources are forgotten
+     * @param checked The sources that were checked
+     */
+    public void recordSuccess(final List<String> sources, final List<String> checked) throws IOException {
+        final Set<String> current = new HashSet<String>(sources);
+        checkedSources.keySet().retainAll(current);
+        for (final String source : checked) {
+            checkedSources.put(source, new File(source).lastModified());
+        }
+        writeState();
+    }
+
+    /** Adds the directory of source to packages if source is a package-info.java file */
+    private static void addIfPackageInfo(final String source, final Set<String> packages) {
+        final File file = new File(source);
+        if (file.getName().equals(PACKAGE_INFO)) {
+            packages.add(file.getParent());
+        }
+    }
+
+    /**
+     * Adds to stale the sources that mention any of names, transitively.
+     */
+    private static void addDependents(final List<String> sources, final Set<String> stale,
+                                      final Set<String> names) throws IOException {
+        final Map<String, Set<String>> identifiers = new HashMap<String, Set<String>>();
+        for (final String source : sources) {
+            if (!stale.contains(source)) {
+                identifiers.put(source, readIdentifiers(new File(source)));
+            }
+        }
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (final String source : sources) {
+                final Set<String> sourceIdentifiers = identifiers.get(source);
+                if (sourceIdentifiers != null && !stale.contains(source)
+                        && !Collections.disjoint(sourceIdentifiers, names)) {
+                    stale.add(source);
+                    names.add(typeName(source));
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    /** @return the Java identifiers that occur in the given file */
+    private static Set<String> readIdentifiers(final File source) throws IOException {
+        final String text = FileUtils.fileRead(source);
+        final Set<String> identifiers = new HashSet<String>();
+        int i = 0;
+        while (i < text.length()) {
+            if (Character.isJavaIdentifierStart(text.charAt(i))) {
+                final int start = i;
+                do {
+                    i++;
+                } while (i < text.length() && Character.isJavaIdentifierPart(text.charAt(i)));
+                identifiers.add(text.substring(start, i));
+            } else {
+                i++;
+            }
+        }
+        return identifiers;
+    }
+
+    /** @return the name of the top-level class of a source, i.e. its file name without ".java" */
+    private static String typeName(final String source) {
+        final String name = new File(source).getName();
+        final int dot = name.lastIndexOf('.');
+        return (dot == -1) ? name : name.substring(0, dot);
+    }
+
+    private void readState() throws IOException {
+        if (!stateFile.exists()) {
+            return;
+        }
+
+        final BufferedReader reader = new BufferedReader(new FileReader(stateFile));
+        try {
+            final String firstLine = reader.readLine();
+            if (firstLine == null || !firstLine.equals(CONFIGURATION_PREFIX + configurationDigest)) {
+                // A different configuration: nothing has been checked with this one
+                return;
+            }
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final int tab = line.indexOf('\t');
+                if (tab == -1) {
+                    continue;
+                }
+                try {
+                    checkedSources.put(line.substring(tab + 1), Long.valueOf(line.substring(0, tab)));
+                } catch (NumberFormatException e) {
+                    // A corrupt entry: check the source again
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    private void writeState() throws IOException {
+        final File parent = stateFile.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Could not create directory: " + parent.getAbsolutePath());
+        }
+
+        BufferedWriter bw = null;
+        try {
+            bw = new BufferedWriter(new FileWriter(stateFile));
+            bw.write(CONFIGURATION_PREFIX + configurationDigest);
+            bw.newLine();
+            for (final Map.Entry<String, Long> entry : checkedSources.entrySet()) {
+                bw.write(entry.getValue() + "\t" + entry.getKey());
+                bw.newLine();
+            }
+            bw.flush();
+
+        } finally {
+            if (bw != null) {
+                bw.close();
+            }
+        }
+    }
+
+    private static String digest(final String configuration) {
+        try {
+            final MessageDigest md = MessageDigest.getInstance("MD5");
+            return new BigInteger(1, md.digest(configuration.getBytes("UTF-8"))).toString(16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
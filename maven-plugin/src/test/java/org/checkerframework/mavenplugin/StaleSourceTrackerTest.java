@@ -0,0 +1,98 @@
+package org.checkerframework.mavenplugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class StaleSourceTrackerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File stateFile;
+    private String a;
+    private String b;
+    private String c;
+    private String d;
+    private List<String> sources;
+
+    @Before
+    public void checkAllSources() throws IOException {
+        stateFile = new File(folder.getRoot(), "checked-sources.txt");
+        a = write("p/A.java", "package p; class A {}");
+        b = write("p/B.java", "package p; class B { A a; }");
+        c = write("p/C.java", "package p; class C {}");
+        d = write("q/D.java", "package q; class D { p.B b; }");
+        sources = Arrays.asList(a, b, c, d);
+
+        final StaleSourceTracker tracker = new StaleSourceTracker(stateFile, "configuration");
+        Assert.assertEquals(sources, tracker.getStaleSources(sources));
+        tracker.recordSuccess(sources, sources);
+    }
+
+    private String write(final String path, final String contents) throws IOException {
+        final File file = new File(folder.getRoot(), path);
+        file.getParentFile().mkdirs();
+        FileUtils.fileWrite(file.getAbsolutePath(), contents);
+        return file.getAbsolutePath();
+    }
+
+    /** Rewrites a source with a modification time that differs from the recorded one */
+    private void edit(final String source, final String contents) throws IOException {
+        final File file = new File(source);
+        final long lastModified = file.lastModified();
+        FileUtils.fileWrite(source, contents);
+        Assert.assertTrue(file.setLastModified(lastModified + 10000));
+    }
+
+    private List<String> staleSources(final String configuration) throws IOException {
+        return new StaleSourceTracker(stateFile, configuration).getStaleSources(sources);
+    }
+
+    @Test
+    public void nothingIsStaleWithoutChanges() throws IOException {
+        Assert.assertEquals(Collections.emptyList(), staleSources("configuration"));
+    }
+
+    @Test
+    public void editedSourceAndItsDependentsAreStale() throws IOException {
+        edit(a, "package p; class A { int x; }");
+        // B mentions A, and D mentions B; C is unrelated.
+        Assert.assertEquals(Arrays.asList(a, b, d), staleSources("configuration"));
+    }
+
+    @Test
+    public void editedSourceWithoutDependentsIsStaleAlone() throws IOException {
+        edit(c, "package p; class C { int x; }");
+        Assert.assertEquals(Arrays.asList(c), staleSources("configuration"));
+    }
+
+    @Test
+    public void changedConfigurationMakesEverythingStale() throws IOException {
+        Assert.assertEquals(sources, staleSources("other configuration"));
+    }
+
+    @Test
+    public void changedPackageInfoMakesItsPackageStale() throws IOException {
+        final String packageInfo = write("q/package-info.java", "package q;");
+        sources = Arrays.asList(a, b, c, d, packageInfo);
+        Assert.assertEquals(Arrays.asList(d, packageInfo), staleSources("configuration"));
+    }
+
+    @Test
+    public void recordedSourcesAreNotStaleAgain() throws IOException {
+        edit(c, "package p; class C { int x; }");
+        final StaleSourceTracker tracker = new StaleSourceTracker(stateFile, "configuration");
+        tracker.recordSuccess(sources, tracker.getStaleSources(sources));
+        Assert.assertEquals(Collections.emptyList(), staleSources("configuration"));
+    }
+}